@@ -0,0 +1,8 @@
+package com.convertlab.convertlab_backend.api.enums;
+
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
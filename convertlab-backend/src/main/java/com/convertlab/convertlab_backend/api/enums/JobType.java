@@ -0,0 +1,8 @@
+package com.convertlab.convertlab_backend.api.enums;
+
+public enum JobType {
+    EXTRACT,
+    MERGE,
+    SPLIT,
+    IMAGES_TO_PDF
+}
@@ -0,0 +1,6 @@
+package com.convertlab.convertlab_backend.api.enums;
+
+public enum ZipCompression {
+    STORED,
+    DEFLATED
+}
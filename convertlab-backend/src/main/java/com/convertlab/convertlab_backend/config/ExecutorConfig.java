@@ -0,0 +1,88 @@
+package com.convertlab.convertlab_backend.config;
+
+import com.convertlab.convertlab_backend.service_util.BoundedPriorityBlockingQueue;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Log4j2
+@Configuration
+public class ExecutorConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService pdfSplitExecutor(ProcessingConfig processingConfig) {
+        int threads = processingConfig.getSplitParallelism();
+        log.info("PDF split executor initialized with {} threads", threads);
+
+        return Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().name("pdf-split-", 0).daemon(true).factory());
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService imageEncodeExecutor(ProcessingConfig processingConfig) {
+        int threads = processingConfig.getImageParallelism();
+        log.info("Image encode executor initialized with {} threads", threads);
+
+        return Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().name("image-encode-", 0).daemon(true).factory());
+    }
+
+    /**
+     * Runs asynchronous conversion jobs. The queue is bounded so a burst of submissions is rejected
+     * upfront instead of piling up work nobody will wait for.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor jobExecutor(ProcessingConfig processingConfig) {
+        ProcessingConfig.Jobs config = processingConfig.getJobs();
+        log.info("Job executor initialized with {} workers, queue depth {}",
+                config.getWorkers(), config.getQueueDepth());
+
+        return new ThreadPoolExecutor(config.getWorkers(), config.getWorkers(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getQueueDepth()),
+                Thread.ofPlatform().name("job-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Renders thumbnails ahead of client requests. The queue orders tasks by priority and is bounded, tasks beyond
+     * it are rejected and dropped by the submitter. Workers are virtual threads, so their rendering runs on the
+     * CPU bulkhead like that of a request.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor prerenderExecutor(ProcessingConfig processingConfig) {
+        int workers = processingConfig.getThumbnails().getPrerenderWorkers();
+        int queueDepth = processingConfig.getThumbnails().getPrerenderQueueDepth();
+        log.info("Thumbnail prerender executor initialized with {} workers, queue depth {}", workers, queueDepth);
+
+        return new ThreadPoolExecutor(workers, workers,
+                0L, TimeUnit.MILLISECONDS,
+                new BoundedPriorityBlockingQueue<>(queueDepth),
+                Thread.ofVirtual().name("prerender-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Platform threads for CPU-bound PDFBox and ImageIO work offloaded from virtual request threads,
+     * sized to the cores so any number of waiting requests cannot oversubscribe the CPU. The queue is bounded,
+     * tasks beyond it are rejected and the request answered as busy.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor cpuExecutor(ProcessingConfig processingConfig) {
+        int threads = processingConfig.getCpuThreads();
+        int queueDepth = processingConfig.getCpu().getQueueDepth();
+        log.info("CPU executor initialized with {} threads, queue depth {}", threads, queueDepth);
+
+        return new ThreadPoolExecutor(threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueDepth),
+                Thread.ofPlatform().name("cpu-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,88 @@
+package com.convertlab.convertlab_backend.config;
+
+import com.convertlab.convertlab_backend.service_admission.AdmissionController;
+import com.convertlab.convertlab_backend.service_jobs.JobService;
+import com.convertlab.convertlab_backend.service_util.CpuBulkhead;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Pool size, active threads and queued tasks of our own executors, tagged by name. Spring Boot only binds the
+     * executors it creates itself.
+     */
+    @Bean
+    public MeterBinder executorMetrics(@Qualifier("pdfSplitExecutor") ExecutorService pdfSplitExecutor,
+                                       @Qualifier("imageEncodeExecutor") ExecutorService imageEncodeExecutor,
+                                       @Qualifier("jobExecutor") ThreadPoolExecutor jobExecutor,
+                                       @Qualifier("prerenderExecutor") ThreadPoolExecutor prerenderExecutor,
+                                       @Qualifier("cpuExecutor") ThreadPoolExecutor cpuExecutor) {
+        return registry -> {
+            new ExecutorServiceMetrics(pdfSplitExecutor, "pdf-split", Tags.empty()).bindTo(registry);
+            new ExecutorServiceMetrics(imageEncodeExecutor, "image-encode", Tags.empty()).bindTo(registry);
+            new ExecutorServiceMetrics(jobExecutor, "job", Tags.empty()).bindTo(registry);
+            new ExecutorServiceMetrics(prerenderExecutor, "prerender", Tags.empty()).bindTo(registry);
+            new ExecutorServiceMetrics(cpuExecutor, "cpu", Tags.empty()).bindTo(registry);
+        };
+    }
+
+    /**
+     * How close the service is to turning work away: admission reservations against their budgets, requests
+     * waiting for them, and work rejected by admission and the job queue.
+     */
+    @Bean
+    public MeterBinder admissionMetrics(AdmissionController admissionController, JobService jobService,
+                                        CpuBulkhead cpuBulkhead) {
+        return registry -> {
+            Gauge.builder("convertlab.admission.pages.reserved", admissionController,
+                            AdmissionController::getReservedPages)
+                    .description("Page units reserved by running conversions")
+                    .register(registry);
+            Gauge.builder("convertlab.admission.pages.budget", admissionController,
+                            AdmissionController::getPageBudget)
+                    .description("Page units conversions may reserve at once")
+                    .register(registry);
+            Gauge.builder("convertlab.admission.heap.reserved", admissionController,
+                            AdmissionController::getReservedHeap)
+                    .description("Heap reserved by running conversions")
+                    .baseUnit(BaseUnits.BYTES)
+                    .register(registry);
+            Gauge.builder("convertlab.admission.heap.budget", admissionController,
+                            AdmissionController::getHeapBudget)
+                    .description("Heap conversions may reserve at once")
+                    .baseUnit(BaseUnits.BYTES)
+                    .register(registry);
+            Gauge.builder("convertlab.admission.waiting", admissionController, AdmissionController::getWaitingCount)
+                    .description("Conversions waiting for a reservation")
+                    .register(registry);
+            FunctionCounter.builder("convertlab.admission.rejected", admissionController,
+                            AdmissionController::getRejectedCount)
+                    .description("Conversions rejected because no reservation became available in time")
+                    .register(registry);
+            FunctionCounter.builder("convertlab.jobs.rejected", jobService, JobService::getRejectedCount)
+                    .description("Jobs rejected because the job queue was full")
+                    .register(registry);
+            FunctionCounter.builder("convertlab.cpu.offloaded", cpuBulkhead, CpuBulkhead::getOffloadedCount)
+                    .description("Tasks moved from virtual request threads to the CPU executor")
+                    .register(registry);
+            FunctionCounter.builder("convertlab.cpu.rejected", cpuBulkhead, CpuBulkhead::getRejectedCount)
+                    .description("Requests rejected because the CPU executor queue was full")
+                    .register(registry);
+            FunctionCounter.builder("convertlab.cpu.spilled", cpuBulkhead, CpuBulkhead::getSpilledCount)
+                    .description("Offloaded outputs continued in a scratch file because the client fell behind")
+                    .register(registry);
+        };
+    }
+}
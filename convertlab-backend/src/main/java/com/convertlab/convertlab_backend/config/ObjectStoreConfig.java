@@ -0,0 +1,32 @@
+package com.convertlab.convertlab_backend.config;
+
+import com.convertlab.convertlab_backend.service_storage.ObjectStore;
+import com.convertlab.convertlab_backend.service_storage.impl.FileSystemObjectStore;
+import com.convertlab.convertlab_backend.service_storage.impl.S3ObjectStore;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Log4j2
+@Configuration
+public class ObjectStoreConfig {
+
+    /**
+     * The bucket behind the object storage backend. Without an endpoint, a directory stands in for it.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "storage", name = "backend", havingValue = "object")
+    public ObjectStore objectStore(StorageConfig storageConfig) throws IOException {
+        StorageConfig.ObjectStore settings = storageConfig.getObjectStore();
+
+        ObjectStore objectStore = settings.getEndpoint().isBlank()
+                ? new FileSystemObjectStore(Paths.get(settings.getFilesystemRoot()))
+                : new S3ObjectStore(settings, storageConfig.getObjectStorePartSizeBytes());
+        log.info("Object store initialized: {}", objectStore.describe());
+        return objectStore;
+    }
+}
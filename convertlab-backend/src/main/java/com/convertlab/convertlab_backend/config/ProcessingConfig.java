@@ -0,0 +1,127 @@
+package com.convertlab.convertlab_backend.config;
+
+import com.convertlab.convertlab_backend.api.enums.ZipCompression;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.zip.Deflater;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "processing")
+public class ProcessingConfig {
+
+    private DocumentCache documentCache = new DocumentCache();
+    private Memory memory = new Memory();
+    private Split split = new Split();
+    private Jobs jobs = new Jobs();
+    private Cpu cpu = new Cpu();
+    private Admission admission = new Admission();
+    private Images images = new Images();
+    private Thumbnails thumbnails = new Thumbnails();
+
+    @Data
+    public static class DocumentCache {
+        private boolean enabled = true;
+        private int maxWeightMb = 256;
+        private long idleMs = 300000;
+    }
+
+    @Data
+    public static class Memory {
+        private boolean budgetEnabled = true;
+        private int spillThresholdMb = 8;
+        private int maxMainMemoryMb = 16;
+    }
+
+    @Data
+    public static class Split {
+        private boolean parallel = true;
+        private int parallelism = 0; // 0 = number of available cores
+        private int window = 16;     // finished parts buffered ahead of the ZIP writer
+        private int minSegments = 4;
+        private ZipCompression compression = ZipCompression.STORED;
+        private int compressionLevel = Deflater.BEST_SPEED;
+    }
+
+    @Data
+    public static class Jobs {
+        private int workers = 2;
+        private int queueDepth = 32; // submissions beyond this are rejected
+    }
+
+    @Data
+    public static class Cpu {
+        private boolean bulkheadEnabled = true;
+        private int threads = 0; // 0 = number of available cores
+        private int queueDepth = 256;  // tasks waiting for a CPU thread, requests beyond this are rejected as busy
+        private int pipeBufferKb = 256; // output held in memory ahead of the client per offloaded response, then spilled
+    }
+
+    @Data
+    public static class Images {
+        private boolean parallel = true;
+        private int parallelism = 0; // 0 = number of available cores, also the number of decoded rasters alive
+        private int window = 8;      // encoded images buffered ahead of the document assembly
+        private int minImages = 2;
+    }
+
+    @Data
+    public static class Thumbnails {
+        private int defaultWidth = 240;
+        private int maxWidth = 1200;
+        private float jpegQuality = 0.8f;
+        private int memoryCacheMb = 32;  // encoded thumbnails kept on heap
+        private int diskBudgetMb = 256;  // encoded thumbnails kept in the thumbnail directory
+        private boolean prerenderEnabled = true;
+        private int prerenderPages = 3;         // leading pages rendered in the background after an upload
+        private int prerenderWorkers = 1;
+        private int prerenderQueueDepth = 256;  // pending renders beyond this are dropped
+    }
+
+    @Data
+    public static class Admission {
+        private boolean enabled = true;
+        private int pageUnitsPerCore = 250;  // pages in flight per available core
+        private double heapFraction = 0.6;   // share of the max heap conversions may reserve
+        private long maxWaitMs = 2000;       // how long a synchronous request may queue before it is rejected
+        private long jobMaxWaitMs = 600000;  // how long a background job may queue before it fails
+    }
+
+    public long getDocumentCacheMaxWeightKb() {
+        return (long) documentCache.getMaxWeightMb() * 1024;
+    }
+
+    public long getSpillThresholdBytes() {
+        return (long) memory.getSpillThresholdMb() * 1024 * 1024;
+    }
+
+    public long getMaxMainMemoryBytes() {
+        return (long) memory.getMaxMainMemoryMb() * 1024 * 1024;
+    }
+
+    public long getThumbnailMemoryCacheBytes() {
+        return (long) thumbnails.getMemoryCacheMb() * 1024 * 1024;
+    }
+
+    public long getThumbnailDiskBudgetBytes() {
+        return (long) thumbnails.getDiskBudgetMb() * 1024 * 1024;
+    }
+
+    public int getSplitParallelism() {
+        return split.getParallelism() > 0 ? split.getParallelism() : Runtime.getRuntime().availableProcessors();
+    }
+
+    public int getImageParallelism() {
+        return images.getParallelism() > 0 ? images.getParallelism() : Runtime.getRuntime().availableProcessors();
+    }
+
+    public int getCpuPipeBufferBytes() {
+        return cpu.getPipeBufferKb() * 1024;
+    }
+
+    public int getCpuThreads() {
+        return cpu.getThreads() > 0 ? cpu.getThreads() : Runtime.getRuntime().availableProcessors();
+    }
+}
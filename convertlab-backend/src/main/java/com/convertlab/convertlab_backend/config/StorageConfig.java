@@ -0,0 +1,87 @@
+package com.convertlab.convertlab_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "storage")
+public class StorageConfig {
+
+    private String backend = "local";         // local or object, object lets any replica serve any asset
+    private boolean contentAddressed = true; // store identical uploads once
+    private ResultCache resultCache = new ResultCache();
+    private Quota quota = new Quota();
+    private MemoryTier memoryTier = new MemoryTier();
+    private ObjectStore objectStore = new ObjectStore();
+
+    @Data
+    public static class ResultCache {
+        private boolean enabled = true;
+        private int diskBudgetMb = 512;
+    }
+
+    @Data
+    public static class Quota {
+        private int maxMb = 4096;          // 0 = no quota
+        private int highWaterPercent = 90; // usage that starts early eviction
+        private int lowWaterPercent = 80;  // usage early eviction brings it back to
+        private long checkIntervalMs = 5000;
+    }
+
+    @Data
+    public static class MemoryTier {
+        private boolean enabled = true;
+        private int budgetMb = 128;     // off-heap bytes held by small uploads
+        private int maxAssetKb = 2048;  // larger uploads go straight to disk
+    }
+
+    @Data
+    public static class ObjectStore {
+        private String endpoint = "";            // S3-compatible endpoint, empty for the filesystem stand-in
+        private String region = "us-east-1";
+        private String bucket = "convertlab";
+        private String accessKey = "";
+        private String secretKey = "";
+        private boolean pathStyle = true;        // bucket in the path instead of the host name
+        private String prefix = "";              // prepended to every key
+        private String filesystemRoot = "object-store";
+        private int partSizeMb = 8;              // multipart upload part size, at least 5
+        private int rangedReadThresholdMb = 16;  // larger PDFs are read by ranges instead of fetched whole
+        private int rangeChunkKb = 512;
+        private int cacheMb = 1024;              // local read-through disk cache
+    }
+
+    public long getResultCacheDiskBudgetBytes() {
+        return (long) resultCache.getDiskBudgetMb() * 1024 * 1024;
+    }
+
+    public long getQuotaBytes() {
+        return (long) quota.getMaxMb() * 1024 * 1024;
+    }
+
+    public long getMemoryTierBudgetBytes() {
+        return (long) memoryTier.getBudgetMb() * 1024 * 1024;
+    }
+
+    public long getMemoryTierMaxAssetBytes() {
+        return (long) memoryTier.getMaxAssetKb() * 1024;
+    }
+
+    public long getObjectStorePartSizeBytes() {
+        return (long) Math.max(5, objectStore.getPartSizeMb()) * 1024 * 1024;
+    }
+
+    public long getObjectStoreRangedReadThresholdBytes() {
+        return (long) objectStore.getRangedReadThresholdMb() * 1024 * 1024;
+    }
+
+    public int getObjectStoreRangeChunkBytes() {
+        return objectStore.getRangeChunkKb() * 1024;
+    }
+
+    public long getObjectStoreCacheBytes() {
+        return (long) objectStore.getCacheMb() * 1024 * 1024;
+    }
+}
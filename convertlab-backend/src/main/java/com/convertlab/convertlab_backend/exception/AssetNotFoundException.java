@@ -0,0 +1,7 @@
+package com.convertlab.convertlab_backend.exception;
+
+public class AssetNotFoundException extends RuntimeException {
+    public AssetNotFoundException(String assetId) {
+        super("Asset not found: " + assetId);
+    }
+}
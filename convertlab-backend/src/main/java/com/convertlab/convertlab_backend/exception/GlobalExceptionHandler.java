@@ -22,6 +22,70 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.failure(ex.getMessage(), "INVALID_PAGE_INPUT"));
     }
 
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<ApiResponse<?>> handleInvalidRequest(InvalidRequestException ex) {
+        log.warn("Invalid request: {} (code: {})", ex.getMessage(), ex.getCode());
+        return ResponseEntity
+                .badRequest()
+                .body(ApiResponse.failure(ex.getMessage(), ex.getCode()));
+    }
+
+    @ExceptionHandler(AssetNotFoundException.class)
+    public ResponseEntity<ApiResponse<?>> handleAssetNotFound(AssetNotFoundException ex) {
+        log.warn("Asset not found: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(ApiResponse.failure("The requested file no longer exists. Please upload it again.", "ASSET_NOT_FOUND"));
+    }
+
+    @ExceptionHandler(JobNotFoundException.class)
+    public ResponseEntity<ApiResponse<?>> handleJobNotFound(JobNotFoundException ex) {
+        log.warn("Job not found: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(ApiResponse.failure("The requested job does not exist or has expired.", "JOB_NOT_FOUND"));
+    }
+
+    @ExceptionHandler(JobNotReadyException.class)
+    public ResponseEntity<ApiResponse<?>> handleJobNotReady(JobNotReadyException ex) {
+        log.debug("Job result not available: {} (code: {})", ex.getMessage(), ex.getCode());
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT) // 409
+                .body(ApiResponse.failure(ex.getMessage(), ex.getCode()));
+    }
+
+    @ExceptionHandler(JobQueueFullException.class)
+    public ResponseEntity<ApiResponse<?>> handleJobQueueFull(JobQueueFullException ex) {
+        log.warn("Job rejected: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE) // 503
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(ApiResponse.failure("Too many jobs are waiting. Please try again shortly.", "JOB_QUEUE_FULL"));
+    }
+
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<ApiResponse<?>> handleAdmissionRejected(AdmissionRejectedException ex) {
+        log.warn("Request rejected by admission control: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS) // 429
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ApiResponse.failure("The server is busy with other conversions. Please try again shortly.", "SERVER_BUSY"));
+    }
+
+    @ExceptionHandler(StorageFullException.class)
+    public ResponseEntity<ApiResponse<?>> handleStorageFull(StorageFullException ex) {
+        log.warn("Upload rejected by disk quota: {}", ex.getMessage());
+        if (ex.isTemporary()) {
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE) // 503
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(ApiResponse.failure("The server is low on storage. Please try again shortly.", "STORAGE_BUSY"));
+        }
+        return ResponseEntity
+                .status(HttpStatus.INSUFFICIENT_STORAGE) // 507
+                .body(ApiResponse.failure("The server is out of storage. Please try again later.", "STORAGE_FULL"));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse<?>> handleGeneralError(Exception ex) {
         log.error("Unexpected error occurred", ex);
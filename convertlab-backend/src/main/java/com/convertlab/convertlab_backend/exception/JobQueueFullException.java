@@ -0,0 +1,7 @@
+package com.convertlab.convertlab_backend.exception;
+
+public class JobQueueFullException extends RuntimeException {
+    public JobQueueFullException(int queueDepth) {
+        super("Job queue is full (depth: " + queueDepth + ")");
+    }
+}
@@ -0,0 +1,17 @@
+package com.convertlab.convertlab_backend.exception;
+
+public class StorageFullException extends RuntimeException {
+    private final boolean temporary;
+
+    /**
+     * @param temporary whether the space is held by files in use, which is freed once their operations end
+     */
+    public StorageFullException(String message, boolean temporary) {
+        super(message);
+        this.temporary = temporary;
+    }
+
+    public boolean isTemporary() {
+        return temporary;
+    }
+}
@@ -0,0 +1,242 @@
+package com.convertlab.convertlab_backend.service_admission;
+
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import com.convertlab.convertlab_backend.exception.AdmissionRejectedException;
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reserves the estimated cost of a conversion against a page budget derived from the available cores and a heap
+ * budget derived from the max heap, both of which follow the container limits.
+ * <p>
+ * Requests are admitted in arrival order. One that does not fit waits until earlier reservations are released,
+ * synchronous requests only up to a short deadline after which they are rejected with a retry hint, background
+ * jobs up to a much longer one. A single request larger than the whole budget is admitted once nothing else is
+ * running. Reservations are held until the artifact has produced its output, not until the client has received
+ * it, or until the artifact fails or is closed unwritten.
+ */
+@Log4j2
+@Component
+public class AdmissionController {
+
+    private final boolean enabled;
+    private final long pageBudget;
+    private final long heapBudget;
+    private final long maxWaitMs;
+    private final long jobMaxWaitMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Deque<Object> waiters = new ArrayDeque<>();
+
+    private long reservedPages;
+    private long reservedHeap;
+    private int active;
+
+    private final AtomicLong admittedCount = new AtomicLong();
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    // Moving average of how long reservations are held, the basis of the Retry-After hint
+    private volatile double averageHoldMs = 1000;
+
+    public AdmissionController(ProcessingConfig processingConfig) {
+        ProcessingConfig.Admission config = processingConfig.getAdmission();
+        this.enabled = config.isEnabled();
+        this.pageBudget = (long) Runtime.getRuntime().availableProcessors() * config.getPageUnitsPerCore();
+        this.heapBudget = (long) (Runtime.getRuntime().maxMemory() * config.getHeapFraction());
+        this.maxWaitMs = config.getMaxWaitMs();
+        this.jobMaxWaitMs = config.getJobMaxWaitMs();
+
+        log.info("Admission control initialized: enabled={}, pageBudget={}, heapBudget={} bytes, maxWait={}ms, "
+                + "jobMaxWait={}ms", enabled, pageBudget, heapBudget, maxWaitMs, jobMaxWaitMs);
+    }
+
+    /**
+     * Admit a synchronous request, waiting at most the configured time for the budget to free up.
+     *
+     * @throws AdmissionRejectedException when the budget stays exhausted
+     */
+    public Artifact admit(Artifact artifact) throws InterruptedIOException {
+        return reserve(artifact, TimeUnit.MILLISECONDS.toNanos(maxWaitMs));
+    }
+
+    /**
+     * Admit a background job. Jobs are already queued, so they wait far longer than synchronous requests, but not
+     * forever: a job stuck behind a budget that never frees up fails instead of holding its worker.
+     *
+     * @throws AdmissionRejectedException when the budget stays exhausted for the job deadline
+     */
+    public Artifact await(Artifact artifact) throws InterruptedIOException {
+        return reserve(artifact, TimeUnit.MILLISECONDS.toNanos(jobMaxWaitMs));
+    }
+
+    public long getPageBudget() {
+        return pageBudget;
+    }
+
+    public long getHeapBudget() {
+        return heapBudget;
+    }
+
+    public long getReservedPages() {
+        lock.lock();
+        try {
+            return reservedPages;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getReservedHeap() {
+        lock.lock();
+        try {
+            return reservedHeap;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getActiveCount() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaitingCount() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getAdmittedCount() {
+        return admittedCount.get();
+    }
+
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Run a synchronous step that has no output of its own, such as describing an asset before the conversion
+     * that needs it can be estimated. The reservation is held while the step runs.
+     *
+     * @throws AdmissionRejectedException when the budget stays exhausted
+     */
+    public <T> T call(String description, OperationCost cost, Callable<T> step) throws Exception {
+        if (!enabled || cost.isNone()) {
+            return step.call();
+        }
+
+        long pages = Math.min(cost.getPageUnits(), pageBudget);
+        long heap = Math.min(cost.getHeapBytes(), heapBudget);
+        acquire(description, cost, pages, heap, TimeUnit.MILLISECONDS.toNanos(maxWaitMs));
+
+        long admittedAt = System.currentTimeMillis();
+        try {
+            return step.call();
+        } finally {
+            release(pages, heap, System.currentTimeMillis() - admittedAt);
+        }
+    }
+
+    private Artifact reserve(Artifact artifact, long maxWaitNanos) throws InterruptedIOException {
+        OperationCost cost = artifact.getCost();
+        if (!enabled || cost.isNone()) {
+            return artifact;
+        }
+
+        // Clamp, so an oversized request can still run on its own
+        long pages = Math.min(cost.getPageUnits(), pageBudget);
+        long heap = Math.min(cost.getHeapBytes(), heapBudget);
+        acquire(artifact.getFileName(), cost, pages, heap, maxWaitNanos);
+
+        return new AdmittedArtifact(artifact, this, pages, heap);
+    }
+
+    private void acquire(String description, OperationCost cost, long pages, long heap, long maxWaitNanos)
+            throws InterruptedIOException {
+        Object waiter = new Object();
+        lock.lock();
+        try {
+            waiters.addLast(waiter);
+            if (waiters.peekFirst() != waiter || !fits(pages, heap)) {
+                queuedCount.incrementAndGet();
+                log.debug("Queueing {} ({} waiting, reserved: {} pages, {} bytes)",
+                        description, waiters.size() - 1, reservedPages, reservedHeap);
+            }
+
+            long remaining = maxWaitNanos;
+            while (waiters.peekFirst() != waiter || !fits(pages, heap)) {
+                if (remaining <= 0) {
+                    waiters.remove(waiter);
+                    changed.signalAll();
+                    rejectedCount.incrementAndGet();
+                    throw new AdmissionRejectedException(
+                            "No budget for " + description + " (" + cost + ")", retryAfterSeconds());
+                }
+                try {
+                    remaining = changed.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    waiters.remove(waiter);
+                    changed.signalAll();
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for admission");
+                }
+            }
+
+            waiters.removeFirst();
+            reservedPages += pages;
+            reservedHeap += heap;
+            active++;
+            admittedCount.incrementAndGet();
+            // The next waiter may fit in what is left
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        log.debug("Admitted {} ({} pages, {} bytes)", description, pages, heap);
+    }
+
+    void release(long pages, long heap, long heldMs) {
+        lock.lock();
+        try {
+            reservedPages -= pages;
+            reservedHeap -= heap;
+            active--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        averageHoldMs = averageHoldMs * 0.9 + heldMs * 0.1;
+    }
+
+    private boolean fits(long pages, long heap) {
+        return active == 0 || (reservedPages + pages <= pageBudget && reservedHeap + heap <= heapBudget);
+    }
+
+    private long retryAfterSeconds() {
+        return Math.max(1, (long) Math.ceil(averageHoldMs / 1000));
+    }
+}
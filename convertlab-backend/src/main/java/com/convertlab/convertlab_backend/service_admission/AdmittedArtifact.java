@@ -0,0 +1,99 @@
+package com.convertlab.convertlab_backend.service_admission;
+
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Artifact holding an admission reservation, released as soon as its content has been produced, when writing it
+ * fails, or when the artifact is closed without being written.
+ */
+final class AdmittedArtifact implements Artifact {
+
+    private final Artifact delegate;
+    private final AdmissionController controller;
+    private final long pages;
+    private final long heap;
+    private final long admittedAt = System.currentTimeMillis();
+
+    private boolean released;
+    private boolean closed;
+
+    AdmittedArtifact(Artifact delegate, AdmissionController controller, long pages, long heap) {
+        this.delegate = delegate;
+        this.controller = controller;
+        this.pages = pages;
+        this.heap = heap;
+    }
+
+    @Override
+    public String getFileName() {
+        return delegate.getFileName();
+    }
+
+    @Override
+    public MediaType getContentType() {
+        return delegate.getContentType();
+    }
+
+    @Override
+    public long getContentLength() {
+        return delegate.getContentLength();
+    }
+
+    @Override
+    public String getContentHash() {
+        return delegate.getContentHash();
+    }
+
+    @Override
+    public OperationCost getCost() {
+        return delegate.getCost();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        writeTo(out, () -> {
+        });
+    }
+
+    @Override
+    public void writeTo(OutputStream out, Runnable produced) throws IOException {
+        try {
+            // The rest of the output only waits for the client, which costs no budget
+            delegate.writeTo(out, () -> {
+                release();
+                produced.run();
+            });
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            delegate.close();
+        } finally {
+            release();
+        }
+    }
+
+    private void release() {
+        synchronized (this) {
+            if (released) {
+                return;
+            }
+            released = true;
+        }
+        controller.release(pages, heap, System.currentTimeMillis() - admittedAt);
+    }
+}
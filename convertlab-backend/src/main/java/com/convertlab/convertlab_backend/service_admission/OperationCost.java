@@ -0,0 +1,23 @@
+package com.convertlab.convertlab_backend.service_admission;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Estimated resources of one conversion: page units stand for CPU time, heap bytes for peak memory.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class OperationCost {
+
+    public static final OperationCost NONE = new OperationCost(0, 0);
+
+    private final long pageUnits;
+    private final long heapBytes;
+
+    public boolean isNone() {
+        return pageUnits == 0 && heapBytes == 0;
+    }
+}
@@ -1,36 +1,97 @@
 package com.convertlab.convertlab_backend.service_core;
 
-import com.convertlab.convertlab_backend.service_core.pojos.ExtractedFile;
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import com.convertlab.convertlab_backend.exception.AssetNotFoundException;
+import com.convertlab.convertlab_backend.exception.InvalidRequestException;
+import com.convertlab.convertlab_backend.service_admission.OperationCost;
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import com.convertlab.convertlab_backend.service_core.artifact.ArtifactWriter;
+import com.convertlab.convertlab_backend.service_core.artifact.StreamingArtifact;
+import com.convertlab.convertlab_backend.service_metrics.ConversionMetrics;
+import com.convertlab.convertlab_backend.service_metrics.StageTimer;
+import com.convertlab.convertlab_backend.service_storage.AssetContent;
+import com.convertlab.convertlab_backend.service_storage.StorageLease;
 import com.convertlab.convertlab_backend.service_storage.StorageService;
+import com.convertlab.convertlab_backend.service_util.CloseShieldOutputStream;
+import com.convertlab.convertlab_backend.service_util.CpuBulkhead;
+import com.convertlab.convertlab_backend.service_util.EncodedImage;
 import com.convertlab.convertlab_backend.service_util.FileValidationService;
 import com.convertlab.convertlab_backend.service_util.ImageToPdfUtils;
+import com.convertlab.convertlab_backend.service_util.PdfMemoryPolicy;
 import com.convertlab.convertlab_backend.service_web.controllers.dto.ImageToPdfRequest;
 import com.convertlab.convertlab_backend.service_web.controllers.dto.UploadResponse;
 import lombok.extern.log4j.Log4j2;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 @Log4j2
 @Service
 public class ImageService {
 
+    // Decoding and re-encoding an image costs about as much CPU as copying this many PDF pages
+    private static final int IMAGE_PAGE_UNITS = 8;
+
+    // Compressed images commonly expand tenfold when decoded
+    private static final int DECODED_IMAGE_FACTOR = 10;
+
     private final StorageService storageService;
 
     private final FileValidationService fileValidationService;
 
-    public ImageService(StorageService storageService, FileValidationService fileValidationService) {
+    private final PdfMemoryPolicy memoryPolicy;
+
+    private final CpuBulkhead cpuBulkhead;
+
+    private final ExecutorService imageEncodeExecutor;
+
+    private final ConversionMetrics conversionMetrics;
+
+    private final ProcessingConfig.Images imagesConfig;
+
+    private final int parallelism;
+
+    public ImageService(StorageService storageService, FileValidationService fileValidationService,
+                        PdfMemoryPolicy memoryPolicy, CpuBulkhead cpuBulkhead, ProcessingConfig processingConfig,
+                        @Qualifier("imageEncodeExecutor") ExecutorService imageEncodeExecutor,
+                        ConversionMetrics conversionMetrics) {
         this.storageService = storageService;
         this.fileValidationService = fileValidationService;
+        this.memoryPolicy = memoryPolicy;
+        this.cpuBulkhead = cpuBulkhead;
+        this.imageEncodeExecutor = imageEncodeExecutor;
+        this.conversionMetrics = conversionMetrics;
+        this.imagesConfig = processingConfig.getImages();
+        this.parallelism = processingConfig.getImageParallelism();
     }
 
     public UploadResponse uploadImage(MultipartFile file) throws Exception {
         log.debug("Starting image upload process for file: {}", file.getOriginalFilename());
 
         fileValidationService.validateImageFile(file);
-        fileValidationService.validateImageDimensions(file);
+        // Probing falls back to decoding the image when its headers are unreadable, which is CPU work
+        cpuBulkhead.call(() -> {
+            fileValidationService.validateImageDimensions(file);
+            return null;
+        });
 
         String assetId = storageService.saveTempImage(file);
         log.debug("Image saved with assetId: {}", assetId);
+        conversionMetrics.recordUpload("image", file.getSize());
 
         return new UploadResponse(
                 assetId,
@@ -38,16 +99,124 @@ public class ImageService {
         );
     }
 
-    public ExtractedFile convertImagesToPdf(ImageToPdfRequest request) throws Exception {
+    public Artifact convertImagesToPdf(ImageToPdfRequest request) throws Exception {
         log.info("Starting image to PDF conversion for {} images", request.getImages().size());
 
-        byte[] pdfBytes = ImageToPdfUtils.convertImagesToPdf(
-                request.getImages(),
-                storageService
-        );
+        // Fail before the response is committed if any of the images is gone
+        long totalBytes = 0;
+        long largestImage = 0;
+        for (ImageToPdfRequest.ImageInfo imageInfo : request.getImages()) {
+            if (!ImageToPdfUtils.isValidRotation(imageInfo.getRotation())) {
+                throw new InvalidRequestException(
+                        "Rotation must be a multiple of 90 degrees, got " + imageInfo.getRotation() + ".",
+                        "INVALID_ROTATION");
+            }
+
+            AssetContent image = storageService.findImage(imageInfo.getFileId())
+                    .orElseThrow(() -> new AssetNotFoundException(imageInfo.getFileId()));
+            totalBytes += image.getSize();
+            largestImage = Math.max(largestImage, image.getSize());
+        }
+        long expectedBytes = totalBytes;
+
+        int imageCount = request.getImages().size();
+        boolean parallel = isParallel(imageCount);
+
+        // One decoded raster per worker, next to the output document and the encoded images waiting in the window
+        long heap = memoryPolicy.estimateHeapBytes(totalBytes, imageCount);
+        if (parallel) {
+            int workers = Math.min(parallelism, imageCount);
+            heap += largestImage * (workers * DECODED_IMAGE_FACTOR + Math.max(workers, imagesConfig.getWindow()));
+        } else {
+            heap += largestImage * DECODED_IMAGE_FACTOR;
+        }
+        OperationCost cost = new OperationCost((long) imageCount * IMAGE_PAGE_UNITS, heap);
+
+        List<String> fileIds = request.getImages().stream().map(ImageToPdfRequest.ImageInfo::getFileId).toList();
+
+        ArtifactWriter writer = out -> {
+            try (StorageLease storageLease = storageService.lease(fileIds)) {
+                if (parallel) {
+                    convertParallel(request.getImages(), out, memoryPolicy.streamCacheFor(expectedBytes));
+                } else {
+                    ImageToPdfUtils.convertImagesToPdf(
+                            request.getImages(),
+                            storageService,
+                            out,
+                            memoryPolicy.streamCacheFor(expectedBytes)
+                    );
+                }
+            }
+
+            log.info("{} images converted to PDF successfully", request.getImages().size());
+        };
+
+        // A parallel conversion already decodes and encodes on the bounded image executor
+        Artifact artifact = new StreamingArtifact("ConvertLab_Images.pdf", MediaType.APPLICATION_PDF,
+                parallel ? writer : cpuBulkhead.offload(writer), cost);
+        return conversionMetrics.meter(ConversionMetrics.IMAGES_TO_PDF, artifact, totalBytes, imageCount);
+    }
+
+    private boolean isParallel(int imageCount) {
+        return imagesConfig.isParallel() && parallelism > 1 && imageCount >= imagesConfig.getMinImages();
+    }
+
+    /**
+     * Decode and encode images concurrently, then add them to the document strictly in request order.
+     * At most {@code window} images are submitted but not yet added, and the fixed size of the executor bounds
+     * how many decoded rasters exist at once.
+     */
+    private void convertParallel(List<ImageToPdfRequest.ImageInfo> images, OutputStream out,
+                                 StreamCacheCreateFunction streamCache) throws IOException {
+        int workers = Math.min(parallelism, images.size());
+        int window = Math.max(workers, imagesConfig.getWindow());
+        log.debug("Encoding {} images with {} workers, window: {}", images.size(), workers, window);
+
+        Deque<Future<EncodedImage>> pending = new ArrayDeque<>();
+        Deque<ImageToPdfRequest.ImageInfo> pendingImages = new ArrayDeque<>();
+        AtomicBoolean aborted = new AtomicBoolean();
+
+        try (PDDocument document = new PDDocument(streamCache)) {
+            for (ImageToPdfRequest.ImageInfo imageInfo : images) {
+                if (pending.size() >= window) {
+                    addNext(document, pending, pendingImages);
+                }
+                AssetContent image = storageService.findImage(imageInfo.getFileId())
+                        .orElseThrow(() -> new AssetNotFoundException(imageInfo.getFileId()));
+                pending.add(imageEncodeExecutor.submit(
+                        () -> aborted.get() ? null : ImageToPdfUtils.encodeImage(image)));
+                pendingImages.add(imageInfo);
+            }
+
+            while (!pending.isEmpty()) {
+                addNext(document, pending, pendingImages);
+            }
+
+            StageTimer.run(StageTimer.IMAGES_SAVE, () -> document.save(new CloseShieldOutputStream(out)));
+        } finally {
+            // Skip images that have not started, running ones finish on their own
+            aborted.set(true);
+        }
+    }
 
-        log.info("Images converted to PDF successfully, output size: {} bytes", pdfBytes.length);
+    private void addNext(PDDocument document, Deque<Future<EncodedImage>> pending,
+                         Deque<ImageToPdfRequest.ImageInfo> pendingImages) throws IOException {
+        ImageToPdfRequest.ImageInfo imageInfo = pendingImages.peek();
+        EncodedImage image;
+        try {
+            image = pending.peek().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding image " + imageInfo.getFileId());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to encode image " + imageInfo.getFileId(), e.getCause());
+        }
+        pending.poll();
+        pendingImages.poll();
 
-        return new ExtractedFile(pdfBytes, "ConvertLab_Images.pdf");
+        ImageToPdfUtils.addImagePage(document, image, imageInfo.getRotation());
     }
 }
\ No newline at end of file
@@ -1,31 +1,80 @@
 package com.convertlab.convertlab_backend.service_core;
 
-import com.convertlab.convertlab_backend.service_core.pojos.ExtractedFile;
+import com.convertlab.convertlab_backend.api.enums.ActionType;
+import com.convertlab.convertlab_backend.exception.AssetNotFoundException;
+import com.convertlab.convertlab_backend.exception.InvalidRequestException;
+import com.convertlab.convertlab_backend.service_admission.AdmissionController;
+import com.convertlab.convertlab_backend.service_admission.OperationCost;
+import com.convertlab.convertlab_backend.service_core.pojos.AssetMetadata;
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import com.convertlab.convertlab_backend.service_core.artifact.ContentArtifact;
+import com.convertlab.convertlab_backend.service_core.artifact.LeasedFileArtifact;
+import com.convertlab.convertlab_backend.service_core.artifact.StreamingArtifact;
+import com.convertlab.convertlab_backend.service_metrics.ConversionMetrics;
+import com.convertlab.convertlab_backend.service_storage.AssetCatalog;
+import com.convertlab.convertlab_backend.service_storage.AssetContent;
+import com.convertlab.convertlab_backend.service_storage.PdfDocumentCache;
+import com.convertlab.convertlab_backend.service_storage.PdfDocumentLease;
+import com.convertlab.convertlab_backend.service_storage.ResultCache;
+import com.convertlab.convertlab_backend.service_storage.StorageLease;
 import com.convertlab.convertlab_backend.service_storage.StorageService;
+import com.convertlab.convertlab_backend.service_util.CpuBulkhead;
 import com.convertlab.convertlab_backend.service_util.FileValidationService;
+import com.convertlab.convertlab_backend.service_util.PdfMemoryPolicy;
 import com.convertlab.convertlab_backend.service_util.PdfUtils;
 import com.convertlab.convertlab_backend.service_web.controllers.dto.ExtractRequest;
 import com.convertlab.convertlab_backend.service_web.controllers.dto.MergeRequest;
 import com.convertlab.convertlab_backend.service_web.controllers.dto.UploadResponse;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.http.MediaType;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 @Log4j2
 @Service
 public class PdfService {
 
+    // Page count assumed for an asset that has not been parsed yet, to estimate the cost of parsing it
+    private static final long ESTIMATED_BYTES_PER_PAGE = 64 * 1024;
+
     private final StorageService storageService;
 
     private final FileValidationService fileValidationService;
 
-    public PdfService(StorageService storageService, FileValidationService fileValidationService) {
+    private final PdfDocumentCache documentCache;
+
+    private final AssetCatalog assetCatalog;
+
+    private final PdfMemoryPolicy memoryPolicy;
+
+    private final CpuBulkhead cpuBulkhead;
+
+    private final ResultCache resultCache;
+
+    private final ConversionMetrics conversionMetrics;
+
+    private final AdmissionController admissionController;
+
+    public PdfService(StorageService storageService, FileValidationService fileValidationService,
+                      PdfDocumentCache documentCache, AssetCatalog assetCatalog, PdfMemoryPolicy memoryPolicy,
+                      CpuBulkhead cpuBulkhead, ResultCache resultCache, ConversionMetrics conversionMetrics,
+                      AdmissionController admissionController) {
         this.storageService = storageService;
         this.fileValidationService = fileValidationService;
+        this.documentCache = documentCache;
+        this.assetCatalog = assetCatalog;
+        this.memoryPolicy = memoryPolicy;
+        this.cpuBulkhead = cpuBulkhead;
+        this.resultCache = resultCache;
+        this.conversionMetrics = conversionMetrics;
+        this.admissionController = admissionController;
     }
     public UploadResponse uploadPdf(MultipartFile file) throws Exception {
         log.debug("Starting PDF upload process for file: {}", file.getOriginalFilename());
@@ -35,9 +84,12 @@ public class PdfService {
         String assetId = storageService.saveTempPdf(file);
         log.debug("File saved with assetId: {}", assetId);
 
-        File savedFile = storageService.loadPdf(assetId);
-        int pageCount = PdfUtils.getPageCount(savedFile);
-        log.debug("PDF has {} pages", pageCount);
+        // Parse once and keep what we learn, parsing through the cache also warms it
+        // for the operations that usually follow an upload
+        AssetMetadata metadata = describe(assetId, file.getOriginalFilename());
+        assetCatalog.save(metadata);
+        log.debug("PDF has {} pages", metadata.getPageCount());
+        conversionMetrics.recordUpload("pdf", file.getSize());
 
         return new UploadResponse(
                 assetId,
@@ -45,37 +97,205 @@ public class PdfService {
         );
     }
 
-    public ExtractedFile extractPages(ExtractRequest request, List<Integer> pagesToKeep) throws Exception {
+    /**
+     * Validate the page range of an extract request and turn it into the list of pages to keep.
+     */
+    public List<Integer> resolvePages(ExtractRequest request) throws Exception {
+        PdfUtils.validateInputRangePattern(request.getPageRange());
+        int totalPages = getPageCount(request.getFileId());
+        List<Integer> pagesToKeep = PdfUtils.getPageRanges(
+                request.getPageRange(),
+                totalPages,
+                request.getActionType().equals(ActionType.KEEP)
+        );
+
+        log.debug("Extracting pages: {} from total pages: {}", pagesToKeep, totalPages);
+        return pagesToKeep;
+    }
+
+    public Artifact extractPages(ExtractRequest request, List<Integer> pagesToKeep) throws Exception {
         log.debug("Extracting pages from fileId: {}, pages to keep: {}",
                 request.getFileId(), pagesToKeep);
 
-        File pdfFile = storageService.loadPdf(request.getFileId());
-        String originalFileName = PdfUtils.getOriginalUserFileName(pdfFile);
-        byte[] fileBytes = PdfUtils.extractPages(pdfFile, pagesToKeep);
+        AssetMetadata metadata = getManifest(request.getFileId());
+
+        long outputBytes = metadata.getByteSize() * pagesToKeep.size() / Math.max(1, metadata.getPageCount());
+        OperationCost cost = new OperationCost(pagesToKeep.size(),
+                memoryPolicy.estimateHeapBytes(outputBytes, pagesToKeep.size()));
 
-        log.debug("Extracted {} pages, output size: {} bytes",
-                pagesToKeep.size(), fileBytes.length);
+        Artifact artifact = new StreamingArtifact("extracted_" + metadata.getFileName(), MediaType.APPLICATION_PDF, cpuBulkhead.offload(out -> {
+            try (StorageLease storageLease = storageService.lease(List.of(request.getFileId()));
+                 PdfDocumentLease lease = documentCache.acquire(request.getFileId())) {
+                PdfUtils.extractPages(lease.getDocument(), pagesToKeep, out,
+                        memoryPolicy.streamCacheFor(metadata.getByteSize()));
+            }
+            log.debug("Extracted {} pages from fileId: {}", pagesToKeep.size(), request.getFileId());
+        }), cost);
+        artifact = conversionMetrics.meter(ConversionMetrics.EXTRACT, artifact, metadata.getByteSize(),
+                pagesToKeep.size());
 
-        return new ExtractedFile(fileBytes, originalFileName);
+        // Keyed by the resolved pages, so equivalent ranges and KEEP/REMOVE selections share a result
+        String key = ResultCache.key("extract", List.of(metadata.getContentHash()), "pages=" + pagesToKeep);
+        return resultCache.memoize(key, artifact);
     }
 
-    public ExtractedFile mergePdfs(MergeRequest request) throws Exception {
-        log.info("Starting PDF merge for {} files", request.getFileIds().size());
+    public Artifact mergePdfs(MergeRequest request) throws Exception {
+        List<MergeRequest.MergeSource> sources = resolveSources(request);
+        log.info("Starting PDF merge for {} sources", sources.size());
+
+        // Resolve every selection and fail before the response is committed if any of the files is gone
+        List<String> fileIds = new ArrayList<>();
+        List<List<Integer>> pages = new ArrayList<>();
+        List<String> contentHashes = new ArrayList<>();
+        List<String> selections = new ArrayList<>();
+        long inputBytes = 0;
+        long totalBytes = 0;
+        int totalPages = 0;
+        for (MergeRequest.MergeSource source : sources) {
+            AssetMetadata metadata = getManifest(source.getFileId());
+            List<Integer> sourcePages = resolvePages(source, metadata.getPageCount());
+
+            fileIds.add(source.getFileId());
+            pages.add(sourcePages);
+            contentHashes.add(metadata.getContentHash());
+            // Pages come back sorted and distinct, so all of them means the whole file however it was selected
+            selections.add(sourcePages.size() == metadata.getPageCount() ? "all" : sourcePages.toString());
+            inputBytes += metadata.getByteSize();
+            totalBytes += metadata.getByteSize() * sourcePages.size() / Math.max(1, metadata.getPageCount());
+            totalPages += sourcePages.size();
+        }
+        long expectedBytes = totalBytes;
+        OperationCost cost = new OperationCost(totalPages, memoryPolicy.estimateHeapBytes(totalBytes, totalPages));
+
+        // Return the merged PDF with the standard filename
+        Artifact artifact = new StreamingArtifact("ConvertLab_Merge.pdf", MediaType.APPLICATION_PDF, cpuBulkhead.offload(out -> {
+            try (StorageLease storageLease = storageService.lease(fileIds)) {
+                // Lease the parsed documents for all file IDs in the request
+                Map<String, PdfDocumentLease> leases = documentCache.acquireAll(fileIds);
+
+                try {
+                    List<PDDocument> documents = fileIds.stream()
+                            .map(fileId -> {
+                                log.debug("Adding file to merge: {}", fileId);
+                                return leases.get(fileId).getDocument();
+                            })
+                            .toList();
+
+                    PdfUtils.mergePdfs(documents, pages, out, memoryPolicy.streamCacheFor(expectedBytes));
+                } finally {
+                    documentCache.releaseAll(leases.values());
+                }
+            }
+
+            log.info("PDFs merged successfully for {} sources", sources.size());
+        }), cost);
+        artifact = conversionMetrics.meter(ConversionMetrics.MERGE, artifact, inputBytes, totalPages);
 
-        // Load all PDF files based on the file IDs in the request
-        List<File> pdfFiles = request.getFileIds().stream()
+        return resultCache.memoize(ResultCache.key("merge", contentHashes, "pages=" + selections), artifact);
+    }
+
+    /**
+     * The sources of a merge, whole files when the request only lists file IDs.
+     */
+    static List<MergeRequest.MergeSource> resolveSources(MergeRequest request) {
+        if (request.getSources() != null && !request.getSources().isEmpty()) {
+            return request.getSources();
+        }
+        if (request.getFileIds() == null || request.getFileIds().isEmpty()) {
+            throw new InvalidRequestException("Select at least one file to merge.", "NO_MERGE_SOURCES");
+        }
+
+        return request.getFileIds().stream()
                 .map(fileId -> {
-                    log.debug("Loading file for merge: {}", fileId);
-                    return storageService.loadPdf(fileId);
+                    MergeRequest.MergeSource source = new MergeRequest.MergeSource();
+                    source.setFileId(fileId);
+                    return source;
                 })
-                .collect(Collectors.toList());
+                .toList();
+    }
+
+    static List<Integer> resolvePages(MergeRequest.MergeSource source, int totalPages) {
+        if (source.getPageRange() == null || source.getPageRange().isBlank()) {
+            return IntStream.rangeClosed(1, totalPages).boxed().toList();
+        }
+        PdfUtils.validateInputRangePattern(source.getPageRange());
+        return PdfUtils.parsePageRanges(source.getPageRange(), totalPages);
+    }
 
-        // Merge the PDFs using PdfUtils
-        byte[] mergedBytes = PdfUtils.mergePdfs(pdfFiles);
+    public int getPageCount(String fileId) throws Exception {
+        return getManifest(fileId).getPageCount();
+    }
 
-        log.info("PDFs merged successfully, output size: {} bytes", mergedBytes.length);
+    public String getOriginalFileName(String fileId) throws Exception {
+        return getManifest(fileId).getFileName();
+    }
 
-        // Return the merged PDF with the standard filename
-        return new ExtractedFile(mergedBytes, "ConvertLab_Merge.pdf");
+    /**
+     * The uploaded file itself, as stored. It is not deleted once delivered, the returned artifact only keeps it
+     * from expiring until it is closed. An asset held in memory is delivered from there, as a {@link ContentArtifact}.
+     */
+    public Artifact getOriginal(String fileId) throws Exception {
+        StorageLease lease = storageService.lease(List.of(fileId));
+        try {
+            AssetMetadata manifest = getManifest(fileId);
+            AssetContent content = storageService.findPdf(fileId)
+                    .orElseThrow(() -> new AssetNotFoundException(fileId));
+            if (content.getFile() == null && !content.isRemote()) {
+                return new ContentArtifact(content, manifest.getFileName(), MediaType.APPLICATION_PDF,
+                        manifest.getContentHash(), lease);
+            }
+
+            File pdfFile = storageService.loadPdf(fileId);
+
+            return new LeasedFileArtifact(pdfFile.toPath(), manifest.getFileName(), MediaType.APPLICATION_PDF,
+                    manifest.getContentHash(), lease);
+        } catch (Exception e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Metadata captured at upload time. Assets uploaded before the catalog existed are described lazily. Describing
+     * parses the whole document, so it is admitted first, with a cost estimated from the file size.
+     */
+    public AssetMetadata getManifest(String fileId) throws Exception {
+        AssetContent content = storageService.findPdf(fileId)
+                .orElseThrow(() -> new AssetNotFoundException(fileId));
+
+        AssetMetadata metadata = assetCatalog.find(fileId).orElse(null);
+        if (metadata == null) {
+            log.debug("No catalog entry for fileId: {}, describing from file", fileId);
+            long pages = Math.max(1, content.getSize() / ESTIMATED_BYTES_PER_PAGE);
+            OperationCost cost = new OperationCost(pages,
+                    memoryPolicy.estimateHeapBytes(content.getSize(), (int) pages));
+
+            metadata = admissionController.call("description of " + fileId, cost,
+                    () -> describe(fileId, PdfUtils.getOriginalUserFileName(fileId)));
+            assetCatalog.save(metadata);
+        }
+        return metadata;
+    }
+
+    private AssetMetadata describe(String assetId, String originalFileName) throws Exception {
+        AssetContent content = storageService.findPdf(assetId)
+                .orElseThrow(() -> new AssetNotFoundException(assetId));
+
+        // Page inspection, and hashing assets not stored by content, are CPU work kept off virtual request threads
+        return cpuBulkhead.call(() -> {
+            try (PdfDocumentLease lease = documentCache.acquire(assetId)) {
+                PDDocument document = lease.getDocument();
+
+                return AssetMetadata.builder()
+                        .assetId(assetId)
+                        .fileName(originalFileName)
+                        .byteSize(content.getSize())
+                        .contentHash(storageService.getContentHash(assetId))
+                        .encrypted(document.isEncrypted())
+                        .pageCount(document.getNumberOfPages())
+                        .pages(PdfUtils.describePages(document))
+                        .build();
+            }
+        });
     }
 }
\ No newline at end of file
@@ -1,18 +1,49 @@
 package com.convertlab.convertlab_backend.service_core;
 
 import com.convertlab.convertlab_backend.api.enums.SplitType;
+import com.convertlab.convertlab_backend.api.enums.ZipCompression;
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
 import com.convertlab.convertlab_backend.exception.InvalidPageInputException;
+import com.convertlab.convertlab_backend.exception.InvalidRequestException;
+import com.convertlab.convertlab_backend.service_admission.OperationCost;
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import com.convertlab.convertlab_backend.service_core.artifact.ArtifactWriter;
+import com.convertlab.convertlab_backend.service_core.artifact.StreamingArtifact;
+import com.convertlab.convertlab_backend.service_core.pojos.AssetMetadata;
+import com.convertlab.convertlab_backend.service_metrics.ConversionMetrics;
+import com.convertlab.convertlab_backend.service_metrics.StageTimer;
+import com.convertlab.convertlab_backend.service_storage.PdfDocumentCache;
+import com.convertlab.convertlab_backend.service_storage.PdfDocumentLease;
+import com.convertlab.convertlab_backend.service_storage.ResultCache;
+import com.convertlab.convertlab_backend.service_storage.StorageLease;
+import com.convertlab.convertlab_backend.service_storage.StorageService;
+import com.convertlab.convertlab_backend.service_util.CloseShieldOutputStream;
+import com.convertlab.convertlab_backend.service_util.CpuBulkhead;
+import com.convertlab.convertlab_backend.service_util.PdfMemoryPolicy;
 import com.convertlab.convertlab_backend.service_util.PdfUtils;
+import com.convertlab.convertlab_backend.service_util.SpoolingOutputStream;
+import com.convertlab.convertlab_backend.service_web.controllers.dto.SplitRequest;
 import lombok.extern.log4j.Log4j2;
-import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -20,103 +51,370 @@ import java.util.zip.ZipOutputStream;
 @Service
 public class PdfSplitService {
 
+    private final PdfDocumentCache documentCache;
+
+    private final PdfService pdfService;
+
+    private final PdfMemoryPolicy memoryPolicy;
+
+    private final StorageService storageService;
+
+    private final ExecutorService splitExecutor;
+
+    private final CpuBulkhead cpuBulkhead;
+
+    private final ResultCache resultCache;
+
+    private final ConversionMetrics conversionMetrics;
+
+    private final ProcessingConfig.Split splitConfig;
+
+    private final int parallelism;
+
+    public PdfSplitService(PdfDocumentCache documentCache, PdfService pdfService, PdfMemoryPolicy memoryPolicy,
+                           StorageService storageService, ProcessingConfig processingConfig,
+                           CpuBulkhead cpuBulkhead, ResultCache resultCache,
+                           @Qualifier("pdfSplitExecutor") ExecutorService splitExecutor,
+                           ConversionMetrics conversionMetrics) {
+        this.documentCache = documentCache;
+        this.pdfService = pdfService;
+        this.memoryPolicy = memoryPolicy;
+        this.storageService = storageService;
+        this.splitExecutor = splitExecutor;
+        this.cpuBulkhead = cpuBulkhead;
+        this.resultCache = resultCache;
+        this.conversionMetrics = conversionMetrics;
+        this.splitConfig = processingConfig.getSplit();
+        this.parallelism = processingConfig.getSplitParallelism();
+    }
+
+    /**
+     * Split a PDF into a ZIP archive that is produced while it is streamed to the client
+     *
+     * @param request The split request
+     * @return Artifact writing the ZIP archive
+     */
+    public Artifact split(SplitRequest request) throws Exception {
+        // Validate input if split by range
+        if (request.getSplitType() == SplitType.BY_RANGE) {
+            PdfUtils.validateInputRangePattern(request.getPageRange());
+        }
+
+        // Resolves the catalog entry, failing with 404 when the file is gone
+        AssetMetadata metadata = pdfService.getManifest(request.getFileId());
+        String baseFileName = metadata.getFileName().replaceFirst("[.][^.]+$", ""); // Remove extension
+        String zipFileName = baseFileName + "_split.zip";
+
+        // Resolve segments upfront so invalid ranges fail before the response is committed
+        List<PageRangeSegment> segments = request.getSplitType() == SplitType.EACH_PAGE
+                ? eachPageSegments(metadata.getPageCount())
+                : parseRangeSegments(request.getPageRange(), metadata.getPageCount());
+
+        ZipPackaging packaging = resolvePackaging(request);
+
+        ArtifactWriter writer = out -> {
+            try (StorageLease storageLease = storageService.lease(List.of(request.getFileId()));
+                 ZipOutputStream zipOut = new ZipOutputStream(new CloseShieldOutputStream(out))) {
+                if (!packaging.stored) {
+                    zipOut.setLevel(packaging.level);
+                }
+                splitIntoZip(metadata, segments, packaging, zipOut);
+                zipOut.finish();
+                log.info("Split PDF streaming completed for fileId: {}", request.getFileId());
+            }
+        };
+
+        // A parallel split serializes its parts on the split executor, the ZIP writer still runs on the bulkhead
+        Artifact artifact = new StreamingArtifact(zipFileName, MediaType.APPLICATION_OCTET_STREAM,
+                cpuBulkhead.offload(writer), estimateCost(metadata, segments));
+        artifact = conversionMetrics.meter(ConversionMetrics.SPLIT, artifact, metadata.getByteSize(),
+                segments.stream().mapToLong(segment -> segment.pages.size()).sum());
+
+        // Segments and packaging are resolved, so equivalent requests share a result. Entry names follow the
+        // split type, which is part of the key for that reason
+        String key = ResultCache.key("split", List.of(metadata.getContentHash()),
+                request.getSplitType() + ":" + segments + ":" + packaging);
+        return resultCache.memoize(key, artifact);
+    }
+
+    /**
+     * Every page of every segment is copied and saved once. On the heap, a sequential split holds one segment
+     * document and its serialized part, a parallel split the shared source document, a segment document per
+     * worker, and the window of serialized parts waiting for the ZIP writer.
+     */
+    private OperationCost estimateCost(AssetMetadata source, List<PageRangeSegment> segments) {
+        long pages = 0;
+        int largestSegment = 0;
+        for (PageRangeSegment segment : segments) {
+            pages += segment.pages.size();
+            largestSegment = Math.max(largestSegment, segment.pages.size());
+        }
+
+        long bytesPerPage = source.getByteSize() / Math.max(1, source.getPageCount());
+        long partBytes = bytesPerPage * largestSegment;
+        long partHeap = memoryPolicy.estimateHeapBytes(partBytes, largestSegment) + partBytes;
+
+        long heap;
+        if (isParallel(segments)) {
+            int workers = Math.min(parallelism, segments.size());
+            int window = Math.max(workers, splitConfig.getWindow());
+            heap = memoryPolicy.estimateHeapBytes(source.getByteSize(), source.getPageCount()) + workers * partHeap
+                    + memoryPolicy.estimateSpooledBytes(partBytes, window);
+        } else {
+            heap = partHeap;
+        }
+        return new OperationCost(pages, heap);
+    }
+
     /**
-     * Split PDF into individual pages or ranges and write directly to ZIP stream
+     * Split PDF into the given segments and write them directly to the ZIP stream, in segment order
      *
-     * @param sourcePdf  The source PDF file
-     * @param pageRange  Page range string (e.g., "1-3,5,7-9")
-     * @param splitType  Type of split (EACH_PAGE or BY_RANGE)
-     * @param zipOut     ZIP output stream to write to
+     * @param source    Catalog entry of the source PDF
+     * @param segments  Segments to write, each one becomes a ZIP entry
+     * @param packaging How entries are stored in the archive
+     * @param zipOut    ZIP output stream to write to
      * @throws IOException If an error occurs during processing
      */
-    public void splitIntoZip(
-            File sourcePdf,
-            String pageRange,
-            SplitType splitType,
+    private void splitIntoZip(
+            AssetMetadata source,
+            List<PageRangeSegment> segments,
+            ZipPackaging packaging,
             ZipOutputStream zipOut
     ) throws IOException {
-        log.debug("Starting PDF split for file: {}, pageRange: {}, splitType: {}",
-                sourcePdf.getName(), pageRange, splitType);
+        log.debug("Starting PDF split for assetId: {}, segments: {}, pages: {}, packaging: {}",
+                source.getAssetId(), segments.size(), source.getPageCount(), packaging);
 
-        try (PDDocument sourceDoc = Loader.loadPDF(sourcePdf)) {
+        if (isParallel(segments)) {
+            splitParallel(source, segments, packaging, zipOut);
+        } else {
+            splitSequential(source, segments, packaging, zipOut);
+        }
 
-            int totalPages = sourceDoc.getNumberOfPages();
-            log.debug("Source PDF has {} pages", totalPages);
+        log.info("PDF split completed successfully");
+    }
 
-            if (splitType == SplitType.EACH_PAGE) {
-                splitEachPage(sourceDoc, totalPages, zipOut);
-            } else {
-                splitByRange(sourceDoc, pageRange, totalPages, zipOut);
-            }
+    private boolean isParallel(List<PageRangeSegment> segments) {
+        return splitConfig.isParallel() && parallelism > 1 && segments.size() >= splitConfig.getMinSegments();
+    }
 
-            log.info("PDF split completed successfully");
+    /**
+     * Build every segment on the calling thread from the cached source document.
+     * Deflated entries are streamed straight into the archive, stored entries need their size and CRC
+     * in the local header, so each part is serialized into a buffer first.
+     */
+    private void splitSequential(AssetMetadata source, List<PageRangeSegment> segments, ZipPackaging packaging,
+                                 ZipOutputStream zipOut) throws IOException {
+        try (PdfDocumentLease lease = documentCache.acquire(source.getAssetId())) {
+            PDDocument sourceDoc = lease.getDocument();
+
+            for (PageRangeSegment segment : segments) {
+                if (packaging.stored) {
+                    writeEntry(zipOut, segment,
+                            serializeSegment(sourceDoc, segment, source.getByteSize(), packaging, 1));
+                } else {
+                    zipOut.putNextEntry(new ZipEntry(segment.entryName));
+                    writeSegment(sourceDoc, segment, source.getByteSize(), zipOut);
+                    zipOut.closeEntry();
+                    log.debug("Created PDF for segment: {}", segment);
+                }
+            }
         }
     }
 
     /**
-     * Split every page into a separate PDF
+     * Build and serialize segments concurrently. All workers copy pages out of the one cached source document
+     * under a shared lease held by the calling thread until every part is serialized, the last window of parts is
+     * written after it is released. The calling thread writes finished parts to the ZIP strictly in segment order,
+     * and at most {@code window} parts are submitted but not yet written. Parts beyond their share of the spill
+     * threshold wait in scratch files, so the window holds at most that much heap.
      */
-    private void splitEachPage(PDDocument sourceDoc, int totalPages, ZipOutputStream zipOut)
-            throws IOException {
-        log.debug("Splitting into individual pages (total: {})", totalPages);
+    private void splitParallel(AssetMetadata source, List<PageRangeSegment> segments, ZipPackaging packaging,
+                               ZipOutputStream zipOut) throws IOException {
+        int workers = Math.min(parallelism, segments.size());
+        int window = Math.max(workers, splitConfig.getWindow());
+        log.debug("Splitting {} segments with {} workers, window: {}", segments.size(), workers, window);
+
+        Deque<Future<SerializedPart>> pending = new ArrayDeque<>();
+        Deque<PageRangeSegment> pendingSegments = new ArrayDeque<>();
+        AtomicBoolean aborted = new AtomicBoolean();
+
+        PdfDocumentLease lease = documentCache.acquire(source.getAssetId());
+        try {
+            PDDocument sourceDoc = lease.getDocument();
+            for (PageRangeSegment segment : segments) {
+                if (pending.size() >= window) {
+                    writeNext(pending, pendingSegments, zipOut);
+                }
+                pending.add(splitExecutor.submit(() -> aborted.get()
+                        ? null
+                        : serializeSegment(sourceDoc, segment, source.getByteSize(), packaging, window)));
+                pendingSegments.add(segment);
+            }
 
-        for (int i = 1; i <= totalPages; i++) {
+            // The remaining parts no longer need the source document, other requests may evict it meanwhile
+            awaitSerialized(pending);
+            lease.close();
 
-            String entryName = String.format("page-%03d.pdf", i);
-            zipOut.putNextEntry(new ZipEntry(entryName));
+            while (!pending.isEmpty()) {
+                writeNext(pending, pendingSegments, zipOut);
+            }
+        } finally {
+            // Skip segments that have not started and wait for running ones before the lease is released.
+            // Parts finished but never written are dropped with their scratch files
+            aborted.set(true);
+            for (Future<SerializedPart> future : pending) {
+                try {
+                    SerializedPart part = future.get();
+                    if (part != null) {
+                        part.bytes.discard();
+                    }
+                } catch (Exception ignored) {
+                    // The split is already failing
+                }
+            }
+            lease.close();
+        }
+    }
 
-            try (PDDocument target = new PDDocument()) {
+    /**
+     * Wait until every submitted part is serialized or failed, failures surface when the part is written.
+     */
+    private static void awaitSerialized(Deque<Future<SerializedPart>> pending) throws IOException {
+        for (Future<SerializedPart> future : pending) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // Thrown again by writeNext
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while splitting");
+            }
+        }
+    }
 
-                PDPage sourcePage = sourceDoc.getPage(i - 1);
+    private void writeNext(Deque<Future<SerializedPart>> pending, Deque<PageRangeSegment> pendingSegments,
+                           ZipOutputStream zipOut) throws IOException {
+        PageRangeSegment segment = pendingSegments.peek();
+        SerializedPart part;
+        try {
+            part = pending.peek().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while splitting segment " + segment);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to split segment " + segment, e.getCause());
+        }
+        pending.poll();
+        pendingSegments.poll();
 
-                PDPage importedPage = target.importPage(sourcePage);
-                importedPage.setRotation(sourcePage.getRotation());
+        writeEntry(zipOut, segment, part);
+    }
 
-                target.save(zipOut);
+    /**
+     * Write a serialized part as one ZIP entry. Stored entries carry the size and the CRC computed while the
+     * part was serialized, so the archive needs no data descriptors. The JDK switches to ZIP64 records by
+     * itself once an archive exceeds 65535 entries or 4 GB.
+     */
+    private void writeEntry(ZipOutputStream zipOut, PageRangeSegment segment, SerializedPart part)
+            throws IOException {
+        try {
+            ZipEntry entry = new ZipEntry(segment.entryName);
+            if (part.crc >= 0) {
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(part.bytes.size());
+                entry.setCompressedSize(part.bytes.size());
+                entry.setCrc(part.crc);
             }
 
+            zipOut.putNextEntry(entry);
+            part.bytes.transferTo(zipOut);
             zipOut.closeEntry();
-            log.debug("Created PDF for page {}", i);
+            log.debug("Created PDF for segment: {} ({} bytes{})", segment, part.bytes.size(),
+                    part.bytes.isSpilled() ? ", spilled" : "");
+        } finally {
+            part.bytes.discard();
         }
     }
 
     /**
-     * Split by page ranges - each range becomes a separate PDF
-     * Format: "1-3,5,7-9" creates 3 PDFs:
-     *   - pages-1-3.pdf (pages 1,2,3)
-     *   - page-5.pdf (page 5)
-     *   - pages-7-9.pdf (pages 7,8,9)
+     * Serialize a segment into a buffer, one of {@code heldAtOnce} waiting for the ZIP writer. Large parts spill
+     * to a scratch file, so the parts held together stay within the spill threshold. For stored entries the CRC
+     * is computed while the part is written.
      */
-    private void splitByRange(PDDocument sourceDoc, String pageRange, int totalPages, ZipOutputStream zipOut)
-            throws IOException {
-        log.debug("Splitting by ranges: {}", pageRange);
-
-        List<PageRangeSegment> segments = parseRangeSegments(pageRange, totalPages);
+    private SerializedPart serializeSegment(PDDocument sourceDoc, PageRangeSegment segment, long sourceBytes,
+                                            ZipPackaging packaging, int heldAtOnce) throws IOException {
+        SpoolingOutputStream bytes = memoryPolicy.newSpool(heldAtOnce);
+        try (bytes) {
+            if (!packaging.stored) {
+                writeSegment(sourceDoc, segment, sourceBytes, bytes);
+                return new SerializedPart(bytes, -1);
+            }
 
-        for (PageRangeSegment segment : segments) {
-            String entryName = generateFileName(segment);
-            zipOut.putNextEntry(new ZipEntry(entryName));
+            CheckedOutputStream checked = new CheckedOutputStream(bytes, new CRC32());
+            writeSegment(sourceDoc, segment, sourceBytes, checked);
+            return new SerializedPart(bytes, checked.getChecksum().getValue());
+        } catch (IOException | RuntimeException e) {
+            bytes.discard();
+            throw e;
+        }
+    }
 
-            try (PDDocument rangeDoc = new PDDocument()) {
+    private ZipPackaging resolvePackaging(SplitRequest request) {
+        ZipCompression compression = request.getCompression() != null
+                ? request.getCompression()
+                : splitConfig.getCompression();
+        int level = request.getCompressionLevel() != null
+                ? request.getCompressionLevel()
+                : splitConfig.getCompressionLevel();
+
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new InvalidRequestException(
+                    "Compression level must be between 0 and 9.", "INVALID_COMPRESSION_LEVEL");
+        }
+        return new ZipPackaging(compression == ZipCompression.STORED, level);
+    }
 
-                for (int pageNum : segment.pages) {
-                    PDPage sourcePage = sourceDoc.getPage(pageNum - 1);
-                    PDPage importedPage = rangeDoc.importPage(sourcePage);
-                    importedPage.setRotation(sourcePage.getRotation());
-                }
-                rangeDoc.save(zipOut);
+    /**
+     * Copy the pages of a segment into a new document and save it
+     */
+    private void writeSegment(PDDocument sourceDoc, PageRangeSegment segment, long sourceBytes, OutputStream out)
+            throws IOException {
+        try (PDDocument target = memoryPolicy.newDocument(sourceBytes)) {
+            List<PDPage> sourcePages = new ArrayList<>(segment.pages.size());
+            for (int pageNum : segment.pages) {
+                sourcePages.add(sourceDoc.getPage(pageNum - 1));
             }
+            PdfUtils.copyPages(sourcePages, target);
+            StageTimer.run(StageTimer.SPLIT_SAVE, () -> target.save(new CloseShieldOutputStream(out)));
+        }
+    }
 
-            zipOut.closeEntry();
-            log.debug("Created PDF for range: {}", segment);
+    /**
+     * Every page as its own segment, named page-001.pdf, page-002.pdf, ...
+     */
+    static List<PageRangeSegment> eachPageSegments(int totalPages) {
+        log.debug("Splitting into individual pages (total: {})", totalPages);
+
+        List<PageRangeSegment> segments = new ArrayList<>(totalPages);
+        for (int i = 1; i <= totalPages; i++) {
+            segments.add(new PageRangeSegment(i, i, List.of(i), String.format("page-%03d.pdf", i)));
         }
+        return segments;
     }
 
     /**
-     * Parse page range string into segments
-     * Example: "1-3,5,7-9" → [{1,2,3}, {5}, {7,8,9}]
+     * Parse page range string into segments, each range becomes a separate PDF
+     * Format: "1-3,5,7-9" creates 3 PDFs:
+     *   - pages-1-3.pdf (pages 1,2,3)
+     *   - page-5.pdf (page 5)
+     *   - pages-7-9.pdf (pages 7,8,9)
      */
-    private List<PageRangeSegment> parseRangeSegments(String input, int totalPages) {
+    static List<PageRangeSegment> parseRangeSegments(String input, int totalPages) {
+        log.debug("Splitting by ranges: {}", input);
+
         List<PageRangeSegment> segments = new ArrayList<>();
 
         if (input == null || input.isBlank()) {
@@ -160,7 +458,7 @@ public class PdfSplitService {
                 for (int i = start; i <= end; i++) {
                     pages.add(i);
                 }
-                segments.add(new PageRangeSegment(start, end, pages));
+                segments.add(new PageRangeSegment(start, end, pages, generateFileName(start, end)));
 
             } else {
                 // Single page: "5"
@@ -178,7 +476,7 @@ public class PdfSplitService {
 
                 List<Integer> pages = new ArrayList<>();
                 pages.add(pageNum);
-                segments.add(new PageRangeSegment(pageNum, pageNum, pages));
+                segments.add(new PageRangeSegment(pageNum, pageNum, pages, generateFileName(pageNum, pageNum)));
             }
         }
 
@@ -192,35 +490,59 @@ public class PdfSplitService {
     /**
      * Generate filename for a range segment
      */
-    private String generateFileName(PageRangeSegment segment) {
-        if (segment.start == segment.end) {
-            return String.format("page-%d.pdf", segment.start);
+    private static String generateFileName(int start, int end) {
+        if (start == end) {
+            return String.format("page-%d.pdf", start);
         } else {
-            return String.format("pages-%d-%d.pdf", segment.start, segment.end);
+            return String.format("pages-%d-%d.pdf", start, end);
         }
     }
 
     /**
-     * Validate page range input pattern before processing
+     * How split entries are written to the archive
      */
-    public void validatePageRange(String pageRange, SplitType splitType) {
-        if (splitType == SplitType.BY_RANGE) {
-            PdfUtils.validateInputRangePattern(pageRange);
+    private static class ZipPackaging {
+        final boolean stored;
+        final int level;
+
+        ZipPackaging(boolean stored, int level) {
+            this.stored = stored;
+            this.level = level;
+        }
+
+        @Override
+        public String toString() {
+            return stored ? "STORED" : "DEFLATED(" + level + ")";
+        }
+    }
+
+    /**
+     * A serialized segment, in memory or spilled to a scratch file; crc is only set for stored entries
+     */
+    private static class SerializedPart {
+        final SpoolingOutputStream bytes;
+        final long crc;
+
+        SerializedPart(SpoolingOutputStream bytes, long crc) {
+            this.bytes = bytes;
+            this.crc = crc;
         }
     }
 
     /**
      * Internal class to represent a page range segment
      */
-    private static class PageRangeSegment {
+    static class PageRangeSegment {
         final int start;
         final int end;
         final List<Integer> pages;
+        final String entryName;
 
-        PageRangeSegment(int start, int end, List<Integer> pages) {
+        PageRangeSegment(int start, int end, List<Integer> pages, String entryName) {
             this.start = start;
             this.end = end;
             this.pages = pages;
+            this.entryName = entryName;
         }
 
         @Override
@@ -0,0 +1,202 @@
+package com.convertlab.convertlab_backend.service_core;
+
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import com.convertlab.convertlab_backend.exception.AdmissionRejectedException;
+import com.convertlab.convertlab_backend.exception.AssetNotFoundException;
+import com.convertlab.convertlab_backend.service_admission.AdmissionController;
+import com.convertlab.convertlab_backend.service_core.pojos.AssetMetadata;
+import com.convertlab.convertlab_backend.service_storage.AssetCatalog;
+import com.convertlab.convertlab_backend.service_util.CpuBulkhead;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders thumbnails of the first pages of an upload in the background, so the previews the client asks for
+ * right after uploading are usually cached already.
+ * <p>
+ * Client requests never wait in this queue, they render directly and share an in-flight render through the
+ * thumbnail cache. Queued work is ordered by page number, so the first page of every upload comes before the
+ * later pages of any. It is deduplicated per asset, page and width, bounded, and dropped rather than run
+ * while conversions are waiting for CPU or admission budget. Rendering goes through the CPU bulkhead, where
+ * it is dropped as well when the bulkhead queue is full.
+ */
+@Log4j2
+@Service
+public class ThumbnailPrerenderer {
+
+    private final ThumbnailService thumbnailService;
+    private final AssetCatalog assetCatalog;
+    private final AdmissionController admissionController;
+    private final CpuBulkhead cpuBulkhead;
+    private final ThreadPoolExecutor prerenderExecutor;
+    private final ProcessingConfig.Thumbnails config;
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong deduplicatedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    // Moving averages of the time spent queued and rendering
+    private volatile double averageWaitMs;
+    private volatile double averageRenderMs;
+
+    public ThumbnailPrerenderer(ThumbnailService thumbnailService, AssetCatalog assetCatalog,
+                                AdmissionController admissionController, CpuBulkhead cpuBulkhead,
+                                @Qualifier("prerenderExecutor") ThreadPoolExecutor prerenderExecutor,
+                                ProcessingConfig processingConfig) {
+        this.thumbnailService = thumbnailService;
+        this.assetCatalog = assetCatalog;
+        this.admissionController = admissionController;
+        this.cpuBulkhead = cpuBulkhead;
+        this.prerenderExecutor = prerenderExecutor;
+        this.config = processingConfig.getThumbnails();
+    }
+
+    /**
+     * Queue the previews of a freshly uploaded PDF. Never fails the caller, previews are best effort.
+     * The page count comes from the catalog entry written by the upload, the document is not parsed again.
+     */
+    public void schedule(String assetId) {
+        if (!config.isPrerenderEnabled()) {
+            return;
+        }
+
+        AssetMetadata metadata = assetCatalog.find(assetId).orElse(null);
+        if (metadata == null) {
+            log.debug("No catalog entry, not prerendering thumbnails for assetId: {}", assetId);
+            return;
+        }
+        int pageCount = metadata.getPageCount();
+
+        int width = config.getDefaultWidth();
+        for (int page = 1; page <= Math.min(config.getPrerenderPages(), pageCount); page++) {
+            String key = assetId + "#" + page + "@" + width;
+            if (!pending.add(key)) {
+                deduplicatedCount.incrementAndGet();
+                continue;
+            }
+            try {
+                prerenderExecutor.execute(new PrerenderTask(key, assetId, page, width, sequence.incrementAndGet()));
+                submittedCount.incrementAndGet();
+            } catch (RejectedExecutionException e) {
+                pending.remove(key);
+                droppedCount.incrementAndGet();
+                log.debug("Prerender queue full, dropping page {} of assetId: {}", page, assetId);
+            }
+        }
+    }
+
+    public int getQueuedCount() {
+        return prerenderExecutor.getQueue().size();
+    }
+
+    public int getCapacity() {
+        return config.getPrerenderQueueDepth();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getDeduplicatedCount() {
+        return deduplicatedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public double getAverageWaitMs() {
+        return averageWaitMs;
+    }
+
+    public double getAverageRenderMs() {
+        return averageRenderMs;
+    }
+
+    /**
+     * Conversions waiting for CPU or admission budget take precedence over previews nobody asked for yet.
+     */
+    private boolean isUnderLoad() {
+        return admissionController.getWaitingCount() > 0 || cpuBulkhead.getQueuedCount() > 0;
+    }
+
+    private void run(PrerenderTask task) {
+        pending.remove(task.key);
+        long waitedMs = System.currentTimeMillis() - task.enqueuedAt;
+        averageWaitMs = averageWaitMs * 0.9 + waitedMs * 0.1;
+
+        if (isUnderLoad()) {
+            droppedCount.incrementAndGet();
+            log.debug("Under load, dropping prerender of page {} of assetId: {}", task.page, task.assetId);
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            thumbnailService.getThumbnail(task.assetId, task.page, task.width);
+            completedCount.incrementAndGet();
+        } catch (AssetNotFoundException e) {
+            log.debug("Asset expired before its thumbnail was prerendered: {}", task.assetId);
+        } catch (AdmissionRejectedException e) {
+            droppedCount.incrementAndGet();
+            log.debug("CPU queue full, dropping prerender of page {} of assetId: {}", task.page, task.assetId);
+        } catch (Exception e) {
+            failedCount.incrementAndGet();
+            log.warn("Failed to prerender page {} of assetId: {}", task.page, task.assetId, e);
+        }
+        averageRenderMs = averageRenderMs * 0.9 + (System.currentTimeMillis() - start) * 0.1;
+    }
+
+    private final class PrerenderTask implements Runnable, Comparable<PrerenderTask> {
+
+        private static final Comparator<PrerenderTask> ORDER = Comparator
+                .<PrerenderTask>comparingInt(task -> task.page)
+                .thenComparingLong(task -> task.sequence);
+
+        final String key;
+        final String assetId;
+        final int page;
+        final int width;
+        final long sequence;
+        final long enqueuedAt = System.currentTimeMillis();
+
+        PrerenderTask(String key, String assetId, int page, int width, long sequence) {
+            this.key = key;
+            this.assetId = assetId;
+            this.page = page;
+            this.width = width;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            ThumbnailPrerenderer.this.run(this);
+        }
+
+        @Override
+        public int compareTo(PrerenderTask other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
@@ -1,38 +1,175 @@
 package com.convertlab.convertlab_backend.service_core;
 
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import com.convertlab.convertlab_backend.exception.InvalidPageInputException;
+import com.convertlab.convertlab_backend.exception.InvalidRequestException;
+import com.convertlab.convertlab_backend.service_core.pojos.AssetMetadata;
+import com.convertlab.convertlab_backend.service_metrics.StageTimer;
+import com.convertlab.convertlab_backend.service_storage.PdfDocumentCache;
+import com.convertlab.convertlab_backend.service_storage.PdfDocumentLease;
+import com.convertlab.convertlab_backend.service_storage.StorageLease;
 import com.convertlab.convertlab_backend.service_storage.StorageService;
-import lombok.RequiredArgsConstructor;
+import com.convertlab.convertlab_backend.service_storage.ThumbnailCache;
+import com.convertlab.convertlab_backend.service_util.CpuBulkhead;
+import com.convertlab.convertlab_backend.service_util.PdfUtils;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
-import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.springframework.stereotype.Service;
 
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
-import java.io.File;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Renders page thumbnails on demand at a requested pixel width.
+ * <p>
+ * Pages are rendered at the lowest scale that yields the width, with image subsampling, and encoded as JPEG.
+ * Thumbnails are keyed by content hash, so identical uploads share them.
+ */
 @Log4j2
 @Service
-@RequiredArgsConstructor
 public class ThumbnailService {
 
+    private static final RenderingHints RENDERING_HINTS = new RenderingHints(Map.of(
+            RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED,
+            RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR,
+            RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON
+    ));
+
+    private final PdfService pdfService;
+    private final PdfDocumentCache documentCache;
+    private final ThumbnailCache thumbnailCache;
     private final StorageService storageService;
+    private final CpuBulkhead cpuBulkhead;
+    private final ProcessingConfig.Thumbnails config;
+
+    public ThumbnailService(PdfService pdfService, PdfDocumentCache documentCache, ThumbnailCache thumbnailCache,
+                            StorageService storageService, CpuBulkhead cpuBulkhead,
+                            ProcessingConfig processingConfig) {
+        this.pdfService = pdfService;
+        this.documentCache = documentCache;
+        this.thumbnailCache = thumbnailCache;
+        this.storageService = storageService;
+        this.cpuBulkhead = cpuBulkhead;
+        this.config = processingConfig.getThumbnails();
+    }
+
+    /**
+     * @param pageNumber 1-based page number
+     * @param width      width in pixels, or null for the default width
+     * @return the thumbnail as JPEG
+     */
+    public byte[] getThumbnail(String assetId, int pageNumber, Integer width) throws Exception {
+        return getThumbnail(resolve(assetId, pageNumber, width));
+    }
+
+    public byte[] getThumbnail(ThumbnailKey key) throws IOException {
+        return thumbnailCache.get(key.getThumbnailId(),
+                () -> render(key.getAssetId(), key.getPageNumber(), key.getWidth()));
+    }
+
+    /**
+     * Validate a thumbnail request and name the thumbnail, without rendering it.
+     *
+     * @param pageNumber 1-based page number
+     * @param width      width in pixels, or null for the default width
+     */
+    public ThumbnailKey resolve(String assetId, int pageNumber, Integer width) throws Exception {
+        int targetWidth = width != null ? width : config.getDefaultWidth();
+        if (targetWidth < 1 || targetWidth > config.getMaxWidth()) {
+            throw new InvalidRequestException(
+                    "Thumbnail width must be between 1 and " + config.getMaxWidth() + " pixels.",
+                    "INVALID_THUMBNAIL_WIDTH");
+        }
+
+        AssetMetadata manifest = pdfService.getManifest(assetId);
+        if (pageNumber < 1 || pageNumber > manifest.getPageCount()) {
+            throw new InvalidPageInputException(
+                    "Page " + pageNumber + " does not exist. The document has " + manifest.getPageCount() + " pages.");
+        }
+
+        String thumbnailId = manifest.getContentHash() + "_p" + pageNumber + "_w" + targetWidth + ".jpg";
+        return new ThumbnailKey(assetId, pageNumber, targetWidth, thumbnailId);
+    }
+
+    private byte[] render(String assetId, int pageNumber, int width) throws IOException {
+        long start = System.currentTimeMillis();
+
+        // Rendering and JPEG encoding both run on the CPU bulkhead. Rendering fills caches that are not
+        // thread-safe, so the page is copied into a private document that shares its content with the cached one
+        byte[] thumbnail = cpuBulkhead.call(() -> {
+            BufferedImage image;
+            try (StorageLease storageLease = storageService.lease(List.of(assetId));
+                 PdfDocumentLease lease = documentCache.acquire(assetId);
+                 PDDocument copy = new PDDocument()) {
+                PdfUtils.copyPages(List.of(lease.getDocument().getPage(pageNumber - 1)), copy);
+                image = renderPage(copy, 0, width);
+            }
+            return encodeJpeg(image);
+        });
 
-    public String generateThumbnail(File file, String assetId) throws Exception {
-        log.debug("Generating thumbnail for assetId: {}, file: {}", assetId, file.getName());
+        log.debug("Rendered thumbnail for assetId: {}, page: {}, width: {} in {} ms ({} bytes)",
+                assetId, pageNumber, width, System.currentTimeMillis() - start, thumbnail.length);
+        return thumbnail;
+    }
+
+    private BufferedImage renderPage(PDDocument document, int pageIndex, int width) throws IOException {
+        PDPage page = document.getPage(pageIndex);
+        PDRectangle cropBox = page.getCropBox();
+        int rotation = page.getRotation();
+        float displayedWidth = rotation == 90 || rotation == 270 ? cropBox.getHeight() : cropBox.getWidth();
 
-        try (PDDocument document = Loader.loadPDF(file)) {
-            PDFRenderer renderer = new PDFRenderer(document);
-            BufferedImage image = renderer.renderImageWithDPI(0, 150);
+        PDFRenderer renderer = new PDFRenderer(document);
+        // Images are read at the resolution they are drawn at, not decoded in full and scaled down
+        renderer.setSubsamplingAllowed(true);
+        renderer.setRenderingHints(RENDERING_HINTS);
 
-            String thumbnailPath = storageService.saveThumbnail(assetId, image);
+        return StageTimer.time(StageTimer.THUMBNAIL_RENDER,
+                () -> renderer.renderImage(pageIndex, width / displayedWidth, ImageType.RGB));
+    }
 
-            log.info("Thumbnail generated successfully for assetId: {}", assetId);
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(config.getJpegQuality());
 
-            return thumbnailPath;
-        } catch (Exception e) {
-            log.error("Error generating thumbnail for assetId: {}", assetId, e);
-            throw e;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
         }
+        return out.toByteArray();
+    }
+
+    /**
+     * A validated thumbnail request. The thumbnail id is derived from the content hash, so it also identifies
+     * the rendered image.
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class ThumbnailKey {
+        private final String assetId;
+        private final int pageNumber;
+        private final int width;
+        private final String thumbnailId;
     }
-}
\ No newline at end of file
+}
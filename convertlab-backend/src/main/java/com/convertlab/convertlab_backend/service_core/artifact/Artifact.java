@@ -0,0 +1,52 @@
+package com.convertlab.convertlab_backend.service_core.artifact;
+
+import com.convertlab.convertlab_backend.service_admission.OperationCost;
+import org.springframework.http.MediaType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Result of a conversion that is written straight to its destination instead of being materialized in heap.
+ */
+public interface Artifact extends Closeable {
+
+    String getFileName();
+
+    MediaType getContentType();
+
+    /**
+     * @return the size in bytes, or -1 when it is only known once the artifact has been written
+     */
+    long getContentLength();
+
+    void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * Write the artifact and run {@code produced} once all of its content has been produced, which can be before
+     * the last bytes reach {@code out} when production runs ahead of the destination. Not run on failure.
+     */
+    default void writeTo(OutputStream out, Runnable produced) throws IOException {
+        writeTo(out);
+        produced.run();
+    }
+
+    /**
+     * @return the SHA-256 of the content, or null when it is only known once the artifact has been written
+     */
+    default String getContentHash() {
+        return null;
+    }
+
+    /**
+     * @return the estimated resources needed to write the artifact, reserved by admission control
+     */
+    default OperationCost getCost() {
+        return OperationCost.NONE;
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
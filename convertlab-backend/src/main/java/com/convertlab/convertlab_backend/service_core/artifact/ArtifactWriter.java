@@ -0,0 +1,17 @@
+package com.convertlab.convertlab_backend.service_core.artifact;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+@FunctionalInterface
+public interface ArtifactWriter {
+    void write(OutputStream out) throws IOException;
+
+    /**
+     * Write, running {@code produced} once all output has been produced. See {@link Artifact#writeTo(OutputStream, Runnable)}.
+     */
+    default void write(OutputStream out, Runnable produced) throws IOException {
+        write(out);
+        produced.run();
+    }
+}
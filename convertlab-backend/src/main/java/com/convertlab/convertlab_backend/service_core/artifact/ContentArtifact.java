@@ -0,0 +1,57 @@
+package com.convertlab.convertlab_backend.service_core.artifact;
+
+import com.convertlab.convertlab_backend.service_storage.AssetContent;
+import com.convertlab.convertlab_backend.service_storage.StorageLease;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Stored asset delivered from its content where it has no file, e.g. while it is held in memory. Closing it
+ * releases the lease, the asset stays.
+ */
+public class ContentArtifact implements Artifact {
+
+    @Getter
+    private final AssetContent content;
+
+    @Getter
+    private final String fileName;
+
+    @Getter
+    private final MediaType contentType;
+
+    @Getter
+    private final String contentHash;
+
+    private final StorageLease lease;
+
+    public ContentArtifact(AssetContent content, String fileName, MediaType contentType, String contentHash,
+                           StorageLease lease) {
+        this.content = content;
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.contentHash = contentHash;
+        this.lease = lease;
+    }
+
+    @Override
+    public long getContentLength() {
+        return content.getSize();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        try (InputStream in = content.openStream()) {
+            in.transferTo(out);
+        }
+    }
+
+    @Override
+    public void close() {
+        lease.close();
+    }
+}
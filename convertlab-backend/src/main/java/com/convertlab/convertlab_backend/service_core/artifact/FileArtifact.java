@@ -0,0 +1,56 @@
+package com.convertlab.convertlab_backend.service_core.artifact;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Artifact already stored on disk, optionally removed once it has been delivered.
+ */
+@AllArgsConstructor
+public class FileArtifact implements Artifact {
+
+    @Getter
+    private final Path path;
+
+    @Getter
+    private final String fileName;
+
+    @Getter
+    private final MediaType contentType;
+
+    private final boolean deleteOnClose;
+
+    @Getter
+    private final String contentHash;
+
+    public FileArtifact(Path path, String fileName, MediaType contentType, boolean deleteOnClose) {
+        this(path, fileName, contentType, deleteOnClose, null);
+    }
+
+    @Override
+    public long getContentLength() {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        Files.copy(path, out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (deleteOnClose) {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.convertlab.convertlab_backend.service_core.artifact;
+
+import com.convertlab.convertlab_backend.service_storage.StorageLease;
+import org.springframework.http.MediaType;
+
+import java.nio.file.Path;
+
+/**
+ * Stored file kept from expiring while it is delivered. Closing it releases the lease, the file stays.
+ */
+public class LeasedFileArtifact extends FileArtifact {
+
+    private final StorageLease lease;
+
+    public LeasedFileArtifact(Path path, String fileName, MediaType contentType, String contentHash,
+                              StorageLease lease) {
+        super(path, fileName, contentType, false, contentHash);
+        this.lease = lease;
+    }
+
+    @Override
+    public void close() {
+        lease.close();
+    }
+}
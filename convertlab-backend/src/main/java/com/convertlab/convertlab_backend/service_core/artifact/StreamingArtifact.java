@@ -0,0 +1,46 @@
+package com.convertlab.convertlab_backend.service_core.artifact;
+
+import com.convertlab.convertlab_backend.service_admission.OperationCost;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Artifact produced on demand while it is written, its length is not known upfront.
+ */
+@AllArgsConstructor
+public class StreamingArtifact implements Artifact {
+
+    @Getter
+    private final String fileName;
+
+    @Getter
+    private final MediaType contentType;
+
+    private final ArtifactWriter writer;
+
+    @Getter
+    private final OperationCost cost;
+
+    public StreamingArtifact(String fileName, MediaType contentType, ArtifactWriter writer) {
+        this(fileName, contentType, writer, OperationCost.NONE);
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        writer.write(out);
+    }
+
+    @Override
+    public void writeTo(OutputStream out, Runnable produced) throws IOException {
+        writer.write(out, produced);
+    }
+}
@@ -0,0 +1,18 @@
+package com.convertlab.convertlab_backend.service_core.pojos;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@Builder
+public class AssetMetadata {
+    private String assetId;
+    private String fileName;
+    private long byteSize;
+    private String contentHash; // SHA-256, hex
+    private boolean encrypted;
+    private int pageCount;
+    private List<PageMetadata> pages;
+}
@@ -0,0 +1,13 @@
+package com.convertlab.convertlab_backend.service_core.pojos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class PageMetadata {
+    private int number;
+    private float width;  // points, crop box
+    private float height; // points, crop box
+    private int rotation;
+}
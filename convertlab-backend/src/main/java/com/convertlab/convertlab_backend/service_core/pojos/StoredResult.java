@@ -3,9 +3,10 @@ package com.convertlab.convertlab_backend.service_core.pojos;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
-@AllArgsConstructor
 @Getter
-public class ExtractedFile {
-    private byte[] fileBytes;
-    private String fileName;
+@AllArgsConstructor
+public class StoredResult {
+    private String resultId;
+    private String contentHash; // SHA-256, hex
+    private long byteSize;
 }
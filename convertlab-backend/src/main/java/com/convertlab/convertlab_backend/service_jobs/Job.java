@@ -0,0 +1,59 @@
+package com.convertlab.convertlab_backend.service_jobs;
+
+import com.convertlab.convertlab_backend.api.ApiError;
+import com.convertlab.convertlab_backend.api.enums.JobStatus;
+import com.convertlab.convertlab_backend.api.enums.JobType;
+import com.convertlab.convertlab_backend.service_core.pojos.StoredResult;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+
+import java.time.Instant;
+
+/**
+ * State of one asynchronous conversion. Updated by the worker running it and read by pollers.
+ */
+@Getter
+public class Job {
+
+    private final String jobId;
+    private final JobType type;
+    private final String fileName;
+    private final MediaType contentType;
+    private final Instant createdAt = Instant.now();
+
+    private volatile JobStatus status = JobStatus.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String resultId;
+    private volatile String contentHash;
+    private volatile ApiError error;
+
+    Job(String jobId, JobType type, String fileName, MediaType contentType) {
+        this.jobId = jobId;
+        this.type = type;
+        this.fileName = fileName;
+        this.contentType = contentType;
+    }
+
+    boolean isFinished() {
+        return status == JobStatus.SUCCEEDED || status == JobStatus.FAILED;
+    }
+
+    void markRunning() {
+        startedAt = Instant.now();
+        status = JobStatus.RUNNING;
+    }
+
+    void markSucceeded(StoredResult result) {
+        this.resultId = result.getResultId();
+        this.contentHash = result.getContentHash();
+        finishedAt = Instant.now();
+        status = JobStatus.SUCCEEDED;
+    }
+
+    void markFailed(String message, String code) {
+        error = new ApiError(message, code);
+        finishedAt = Instant.now();
+        status = JobStatus.FAILED;
+    }
+}
@@ -0,0 +1,281 @@
+package com.convertlab.convertlab_backend.service_jobs;
+
+import com.convertlab.convertlab_backend.api.enums.JobStatus;
+import com.convertlab.convertlab_backend.api.enums.JobType;
+import com.convertlab.convertlab_backend.exception.AdmissionRejectedException;
+import com.convertlab.convertlab_backend.exception.AssetNotFoundException;
+import com.convertlab.convertlab_backend.exception.FileValidationException;
+import com.convertlab.convertlab_backend.exception.InvalidPageInputException;
+import com.convertlab.convertlab_backend.exception.InvalidRequestException;
+import com.convertlab.convertlab_backend.exception.JobNotFoundException;
+import com.convertlab.convertlab_backend.exception.JobNotReadyException;
+import com.convertlab.convertlab_backend.exception.JobQueueFullException;
+import com.convertlab.convertlab_backend.exception.StorageFullException;
+import com.convertlab.convertlab_backend.service_admission.AdmissionController;
+import com.convertlab.convertlab_backend.service_core.ImageService;
+import com.convertlab.convertlab_backend.service_core.PdfService;
+import com.convertlab.convertlab_backend.service_core.PdfSplitService;
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import com.convertlab.convertlab_backend.service_core.artifact.FileArtifact;
+import com.convertlab.convertlab_backend.service_core.artifact.LeasedFileArtifact;
+import com.convertlab.convertlab_backend.service_core.pojos.StoredResult;
+import com.convertlab.convertlab_backend.service_storage.StorageLease;
+import com.convertlab.convertlab_backend.service_storage.StorageService;
+import com.convertlab.convertlab_backend.service_web.controllers.dto.ExtractRequest;
+import com.convertlab.convertlab_backend.service_web.controllers.dto.ImageToPdfRequest;
+import com.convertlab.convertlab_backend.service_web.controllers.dto.MergeRequest;
+import com.convertlab.convertlab_backend.service_web.controllers.dto.SplitRequest;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs conversions in the background so clients do not hold a request open for their full duration.
+ * <p>
+ * Requests are validated and resolved into an {@link Artifact} on submission, so bad input still fails
+ * synchronously. The artifact is then written to result storage by the job executor. The inputs are leased from
+ * submission until the job ends, so they cannot expire while the job waits in the queue. Result files expire
+ * through the regular temp file cleanup, job records after the same TTL.
+ */
+@Log4j2
+@Service
+public class JobService {
+
+    private final PdfService pdfService;
+    private final PdfSplitService pdfSplitService;
+    private final ImageService imageService;
+    private final StorageService storageService;
+    private final ThreadPoolExecutor jobExecutor;
+    private final AdmissionController admissionController;
+    private final long ttlMs;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public JobService(PdfService pdfService, PdfSplitService pdfSplitService, ImageService imageService,
+                      StorageService storageService,
+                      @Qualifier("jobExecutor") ThreadPoolExecutor jobExecutor,
+                      AdmissionController admissionController,
+                      @Value("${temp.ttl-ms:3600000}") long ttlMs) {
+        this.pdfService = pdfService;
+        this.pdfSplitService = pdfSplitService;
+        this.imageService = imageService;
+        this.storageService = storageService;
+        this.jobExecutor = jobExecutor;
+        this.admissionController = admissionController;
+        this.ttlMs = ttlMs;
+    }
+
+    public Job submitExtract(ExtractRequest request) throws Exception {
+        return submit(JobType.EXTRACT, inputIds(request.getFileId()), () -> {
+            List<Integer> pagesToKeep = pdfService.resolvePages(request);
+            return pdfService.extractPages(request, pagesToKeep);
+        });
+    }
+
+    public Job submitMerge(MergeRequest request) throws Exception {
+        return submit(JobType.MERGE, inputIds(request), () -> pdfService.mergePdfs(request));
+    }
+
+    public Job submitSplit(SplitRequest request) throws Exception {
+        return submit(JobType.SPLIT, inputIds(request.getFileId()), () -> pdfSplitService.split(request));
+    }
+
+    public Job submitImagesToPdf(ImageToPdfRequest request) throws Exception {
+        List<String> inputIds = request.getImages() == null ? List.of() : request.getImages().stream()
+                .map(ImageToPdfRequest.ImageInfo::getFileId)
+                .filter(Objects::nonNull)
+                .toList();
+        return submit(JobType.IMAGES_TO_PDF, inputIds, () -> imageService.convertImagesToPdf(request));
+    }
+
+    public Job getJob(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new JobNotFoundException(jobId);
+        }
+
+        // The result was removed by the cleanup job before the record was purged
+        if (job.getStatus() == JobStatus.SUCCEEDED && !storageService.loadResult(job.getResultId()).exists()) {
+            jobs.remove(jobId, job);
+            throw new JobNotFoundException(jobId);
+        }
+        return job;
+    }
+
+    /**
+     * The stored result of a finished job. The file stays in place so the download can be repeated until it expires,
+     * the returned artifact only keeps it from expiring until it is closed.
+     */
+    public FileArtifact getResult(String jobId) {
+        Job job = getJob(jobId);
+
+        switch (job.getStatus()) {
+            case QUEUED, RUNNING -> throw new JobNotReadyException(
+                    "The job is still " + job.getStatus().name().toLowerCase() + ".", "JOB_NOT_READY");
+            case FAILED -> throw new JobNotReadyException(
+                    "The job failed: " + job.getError().getMessage(), "JOB_FAILED");
+            default -> {
+                File result = storageService.loadResult(job.getResultId());
+                StorageLease lease;
+                try {
+                    lease = storageService.leaseFile(result);
+                } catch (NoSuchFileException e) {
+                    // Expired since the status check
+                    jobs.remove(jobId, job);
+                    throw new JobNotFoundException(jobId);
+                }
+                return new LeasedFileArtifact(result.toPath(), job.getFileName(), job.getContentType(),
+                        job.getContentHash(), lease);
+            }
+        }
+    }
+
+    @Scheduled(fixedRateString = "${temp.cleanup-interval-ms:1800000}")
+    public void purgeExpiredJobs() {
+        Instant cutoff = Instant.now().minusMillis(ttlMs);
+        int before = jobs.size();
+
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+
+        log.info("Job purge completed. Removed {} expired jobs, {} remaining", before - jobs.size(), jobs.size());
+    }
+
+    public int getQueuedCount() {
+        return jobExecutor.getQueue().size();
+    }
+
+    public int getRunningCount() {
+        return jobExecutor.getActiveCount();
+    }
+
+    public long getSucceededCount() {
+        return succeeded.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Lease the inputs, then resolve the request into its artifact and queue it. The lease is handed to the job,
+     * or closed when the request fails before it is queued.
+     */
+    private Job submit(JobType type, Collection<String> inputIds, Callable<Artifact> resolve) throws Exception {
+        StorageLease inputs = storageService.lease(inputIds);
+        Artifact artifact;
+        try {
+            artifact = resolve.call();
+        } catch (Exception e) {
+            inputs.close();
+            throw e;
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), type, artifact.getFileName(), artifact.getContentType());
+        jobs.put(job.getJobId(), job);
+
+        try {
+            jobExecutor.execute(() -> run(job, artifact, inputs));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getJobId());
+            rejected.incrementAndGet();
+            closeQuietly(artifact);
+            inputs.close();
+            throw new JobQueueFullException(jobExecutor.getQueue().size());
+        }
+
+        log.info("Submitted {} job: {}", type, job.getJobId());
+        return job;
+    }
+
+    private void run(Job job, Artifact artifact, StorageLease inputs) {
+        try (inputs; artifact) {
+            // Jobs wait for budget on their worker, up to a much longer deadline than synchronous requests
+            try (Artifact admitted = admissionController.await(artifact)) {
+                job.markRunning();
+                log.debug("Running {} job: {}", job.getType(), job.getJobId());
+
+                StoredResult result = storageService.saveResult(admitted);
+                job.markSucceeded(result);
+                succeeded.incrementAndGet();
+            }
+
+            log.info("{} job {} completed in {} ms", job.getType(), job.getJobId(),
+                    job.getFinishedAt().toEpochMilli() - job.getStartedAt().toEpochMilli());
+        } catch (Exception e) {
+            log.error("{} job {} failed", job.getType(), job.getJobId(), e);
+            failWith(job, e);
+            failed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record the same message and code the synchronous endpoints would have answered with.
+     */
+    private void failWith(Job job, Exception e) {
+        if (e instanceof InvalidPageInputException) {
+            job.markFailed(e.getMessage(), "INVALID_PAGE_INPUT");
+        } else if (e instanceof InvalidRequestException ex) {
+            job.markFailed(ex.getMessage(), ex.getCode());
+        } else if (e instanceof FileValidationException ex) {
+            job.markFailed(ex.getMessage(), ex.getCode());
+        } else if (e instanceof AdmissionRejectedException) {
+            job.markFailed("The server stayed busy with other conversions. Please submit the job again.",
+                    "SERVER_BUSY");
+        } else if (e instanceof StorageFullException) {
+            job.markFailed("The server is out of storage. Please try again later.", "STORAGE_FULL");
+        } else if (e instanceof AssetNotFoundException) {
+            job.markFailed("The requested file no longer exists. Please upload it again.", "ASSET_NOT_FOUND");
+        } else {
+            job.markFailed("An unexpected error occurred", "INTERNAL_ERROR");
+        }
+    }
+
+    private static List<String> inputIds(String fileId) {
+        return fileId == null ? List.of() : List.of(fileId);
+    }
+
+    private static List<String> inputIds(MergeRequest request) {
+        if (request.getSources() != null && !request.getSources().isEmpty()) {
+            return request.getSources().stream()
+                    .map(MergeRequest.MergeSource::getFileId)
+                    .filter(Objects::nonNull)
+                    .toList();
+        }
+        return request.getFileIds() == null ? List.of() : request.getFileIds().stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private void closeQuietly(Artifact artifact) {
+        try {
+            artifact.close();
+        } catch (IOException e) {
+            log.warn("Failed to close rejected artifact: {}", artifact.getFileName(), e);
+        }
+    }
+}
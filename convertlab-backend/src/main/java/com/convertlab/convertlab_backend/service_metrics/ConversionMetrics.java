@@ -0,0 +1,93 @@
+package com.convertlab.convertlab_backend.service_metrics;
+
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters conversions where their work is done, so synchronous downloads and jobs are counted alike and results
+ * answered from the result cache are not counted as conversions. Endpoint latency is recorded by Spring as
+ * {@code http.server.requests}.
+ * <p>
+ * Pages are a counter, its rate is the number of pages processed per second.
+ */
+@Log4j2
+@Component
+public class ConversionMetrics {
+
+    public static final String EXTRACT = "extract";
+    public static final String MERGE = "merge";
+    public static final String SPLIT = "split";
+    public static final String IMAGES_TO_PDF = "images-to-pdf";
+
+    private final MeterRegistry registry;
+
+    public ConversionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Wrap an artifact so writing it is recorded as one conversion.
+     *
+     * @param inputBytes size of the inputs the conversion reads
+     * @param pages      pages the conversion produces
+     */
+    public Artifact meter(String operation, Artifact artifact, long inputBytes, long pages) {
+        return new MeteredArtifact(artifact, this, operation, inputBytes, pages);
+    }
+
+    /**
+     * Record an accepted upload.
+     *
+     * @param type pdf or image
+     */
+    public void recordUpload(String type, long bytes) {
+        DistributionSummary.builder("convertlab.upload")
+                .description("Size of accepted uploads")
+                .baseUnit("bytes")
+                .tag("type", type)
+                .register(registry)
+                .record(bytes);
+    }
+
+    void recordConversion(String operation, boolean success, long durationNanos, long inputBytes,
+                          long outputBytes, long pages) {
+        String outcome = success ? "success" : "error";
+        Timer.builder("convertlab.conversion")
+                .description("Time to produce and write the output of a conversion")
+                .tags("operation", operation, "outcome", outcome)
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+
+        if (!success) {
+            return;
+        }
+
+        DistributionSummary.builder("convertlab.conversion.input")
+                .description("Size of the inputs read by a conversion")
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .register(registry)
+                .record(inputBytes);
+        DistributionSummary.builder("convertlab.conversion.output")
+                .description("Size of the output written by a conversion")
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .register(registry)
+                .record(outputBytes);
+        Counter.builder("convertlab.conversion.pages")
+                .description("Pages produced by conversions")
+                .tag("operation", operation)
+                .register(registry)
+                .increment(pages);
+
+        log.debug("Recorded {} conversion: {} ms, {} bytes in, {} bytes out, {} pages",
+                operation, durationNanos / 1_000_000, inputBytes, outputBytes, pages);
+    }
+}
@@ -0,0 +1,99 @@
+package com.convertlab.convertlab_backend.service_metrics;
+
+import com.convertlab.convertlab_backend.service_admission.OperationCost;
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import org.springframework.http.MediaType;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Artifact recording how long it took to write, and how much, as a conversion.
+ */
+final class MeteredArtifact implements Artifact {
+
+    private final Artifact delegate;
+    private final ConversionMetrics metrics;
+    private final String operation;
+    private final long inputBytes;
+    private final long pages;
+
+    MeteredArtifact(Artifact delegate, ConversionMetrics metrics, String operation, long inputBytes, long pages) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.operation = operation;
+        this.inputBytes = inputBytes;
+        this.pages = pages;
+    }
+
+    @Override
+    public String getFileName() {
+        return delegate.getFileName();
+    }
+
+    @Override
+    public MediaType getContentType() {
+        return delegate.getContentType();
+    }
+
+    @Override
+    public long getContentLength() {
+        return delegate.getContentLength();
+    }
+
+    @Override
+    public String getContentHash() {
+        return delegate.getContentHash();
+    }
+
+    @Override
+    public OperationCost getCost() {
+        return delegate.getCost();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        writeTo(out, () -> {
+        });
+    }
+
+    @Override
+    public void writeTo(OutputStream out, Runnable produced) throws IOException {
+        CountingOutputStream counting = new CountingOutputStream(out);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            delegate.writeTo(counting, produced);
+            success = true;
+        } finally {
+            metrics.recordConversion(operation, success, System.nanoTime() - start, inputBytes, counting.count, pages);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
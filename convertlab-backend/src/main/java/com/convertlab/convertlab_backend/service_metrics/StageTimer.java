@@ -0,0 +1,60 @@
+package com.convertlab.convertlab_backend.service_metrics;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+
+/**
+ * Times the stages of a conversion that dominate its cost, such as parsing, saving and rendering. The stages run
+ * inside static utilities and worker tasks, so they are recorded on the global registry, which Spring Boot backs
+ * with the application registry.
+ */
+public final class StageTimer {
+
+    public static final String METER_NAME = "convertlab.stage";
+
+    public static final String PDF_PARSE = "pdf.parse";
+    public static final String EXTRACT_SAVE = "extract.save";
+    public static final String MERGE_SAVE = "merge.save";
+    public static final String SPLIT_SAVE = "split.save";
+    public static final String IMAGE_ENCODE = "image.encode";
+    public static final String IMAGES_SAVE = "images.save";
+    public static final String THUMBNAIL_RENDER = "thumbnail.render";
+
+    private StageTimer() {
+    }
+
+    public static <T> T time(String stage, IOCallable<T> work) throws IOException {
+        Timer.Sample sample = Timer.start();
+        try {
+            return work.call();
+        } finally {
+            sample.stop(timer(stage));
+        }
+    }
+
+    public static void run(String stage, IORunnable work) throws IOException {
+        time(stage, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    private static Timer timer(String stage) {
+        return Timer.builder(METER_NAME)
+                .description("Time spent in one stage of a conversion")
+                .tag("stage", stage)
+                .register(Metrics.globalRegistry);
+    }
+
+    @FunctionalInterface
+    public interface IOCallable<T> {
+        T call() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface IORunnable {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,152 @@
+package com.convertlab.convertlab_backend.service_metrics;
+
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
+import com.convertlab.convertlab_backend.service_storage.ResultCache;
+import com.convertlab.convertlab_backend.service_storage.ThumbnailCache;
+import com.convertlab.convertlab_backend.service_storage.impl.ContentAddressedStore;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalDiskQuota;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalFileCleaner;
+import com.convertlab.convertlab_backend.service_storage.impl.ObjectStorageService;
+import com.convertlab.convertlab_backend.service_storage.impl.TieredStorageService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes storage usage and cleanup activity, read from the counters the storage components already keep for
+ * the stats endpoint when the registry is scraped.
+ */
+@Component
+public class StorageMetrics implements MeterBinder {
+
+    private final ContentAddressedStore contentStore;
+    private final ExpiryIndex expiryIndex;
+    private final LocalDiskQuota diskQuota;
+    private final LocalFileCleaner fileCleaner;
+    private final ResultCache resultCache;
+    private final ThumbnailCache thumbnailCache;
+    private final ObjectProvider<TieredStorageService> tieredStorage;  // local backend only
+    private final ObjectProvider<ObjectStorageService> objectStorage;  // object backend only
+
+    public StorageMetrics(ContentAddressedStore contentStore, ExpiryIndex expiryIndex, LocalDiskQuota diskQuota,
+                          LocalFileCleaner fileCleaner, ResultCache resultCache, ThumbnailCache thumbnailCache,
+                          ObjectProvider<TieredStorageService> tieredStorage,
+                          ObjectProvider<ObjectStorageService> objectStorage) {
+        this.contentStore = contentStore;
+        this.expiryIndex = expiryIndex;
+        this.diskQuota = diskQuota;
+        this.fileCleaner = fileCleaner;
+        this.resultCache = resultCache;
+        this.thumbnailCache = thumbnailCache;
+        this.tieredStorage = tieredStorage;
+        this.objectStorage = objectStorage;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("convertlab.storage.used", diskQuota, LocalDiskQuota::getUsedBytes)
+                .description("Bytes of temp storage counted against the disk quota")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        Gauge.builder("convertlab.storage.quota", diskQuota, LocalDiskQuota::getQuotaBytes)
+                .description("Disk quota of temp storage")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        FunctionCounter.builder("convertlab.storage.pressure.evictions", diskQuota, LocalDiskQuota::getEvictedFiles)
+                .description("Files evicted early because temp storage was over its high-water mark")
+                .register(registry);
+        FunctionCounter.builder("convertlab.storage.rejected.uploads", diskQuota, LocalDiskQuota::getRejectedCount)
+                .description("Uploads rejected because temp storage was full")
+                .register(registry);
+        Gauge.builder("convertlab.storage.tracked.files", expiryIndex, ExpiryIndex::getTrackedCount)
+                .description("Temp files waiting to expire")
+                .register(registry);
+        Gauge.builder("convertlab.storage.blobs", contentStore, ContentAddressedStore::getBlobCount)
+                .description("Distinct stored uploads")
+                .register(registry);
+        FunctionCounter.builder("convertlab.storage.deduplicated", contentStore,
+                        ContentAddressedStore::getDeduplicatedBytes)
+                .description("Upload bytes not stored again because the same content was already stored")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+
+        FunctionTimer.builder("convertlab.cleanup", fileCleaner,
+                        LocalFileCleaner::getRunCount, LocalFileCleaner::getRunTimeMs, TimeUnit.MILLISECONDS)
+                .description("Runs of the temp file cleanup job")
+                .register(registry);
+        FunctionCounter.builder("convertlab.cleanup.files", fileCleaner, LocalFileCleaner::getDeletedCount)
+                .description("Expired temp files removed by the cleanup job")
+                .tag("action", "deleted")
+                .register(registry);
+        FunctionCounter.builder("convertlab.cleanup.files", fileCleaner, LocalFileCleaner::getReleasedCount)
+                .description("Expired temp files removed by the cleanup job")
+                .tag("action", "released")
+                .register(registry);
+
+        Gauge.builder("convertlab.results.disk", resultCache, ResultCache::getDiskBytes)
+                .description("Disk taken by stored conversion results")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        FunctionCounter.builder("convertlab.results.lookups", resultCache, ResultCache::getHits)
+                .description("Conversion requests looked up in the result cache")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("convertlab.results.lookups", resultCache, ResultCache::getMisses)
+                .description("Conversion requests looked up in the result cache")
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("convertlab.thumbnails.disk", thumbnailCache, ThumbnailCache::getDiskBytes)
+                .description("Disk taken by stored thumbnails")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+
+        tieredStorage.ifAvailable(tier -> {
+            Gauge.builder("convertlab.storage.memory.used", tier, TieredStorageService::getUsedBytes)
+                    .description("Off-heap memory taken by uploads kept in the memory tier")
+                    .baseUnit(BaseUnits.BYTES)
+                    .register(registry);
+            FunctionCounter.builder("convertlab.storage.memory.deduplicated", tier,
+                            TieredStorageService::getDeduplicatedBytes)
+                    .description("Upload bytes sharing the memory of the same content already held in memory")
+                    .baseUnit(BaseUnits.BYTES)
+                    .register(registry);
+            FunctionCounter.builder("convertlab.storage.memory.spilled", tier, TieredStorageService::getSpilledBytes)
+                    .description("Bytes moved from the memory tier to disk")
+                    .baseUnit(BaseUnits.BYTES)
+                    .register(registry);
+        });
+        objectStorage.ifAvailable(store -> {
+            FunctionCounter.builder("convertlab.objectstore.transferred", store,
+                            ObjectStorageService::getUploadedBytes)
+                    .description("Bytes transferred to and from the object store")
+                    .baseUnit(BaseUnits.BYTES)
+                    .tag("direction", "upload")
+                    .register(registry);
+            FunctionCounter.builder("convertlab.objectstore.transferred", store,
+                            ObjectStorageService::getDownloadedBytes)
+                    .description("Bytes transferred to and from the object store")
+                    .baseUnit(BaseUnits.BYTES)
+                    .tag("direction", "download")
+                    .register(registry);
+            FunctionCounter.builder("convertlab.objectstore.transferred", store, ObjectStorageService::getRangedBytes)
+                    .description("Bytes transferred to and from the object store")
+                    .baseUnit(BaseUnits.BYTES)
+                    .tag("direction", "ranged")
+                    .register(registry);
+            Gauge.builder("convertlab.objectstore.cache", store, ObjectStorageService::getCachedBytes)
+                    .description("Disk taken by local copies of stored objects")
+                    .baseUnit(BaseUnits.BYTES)
+                    .register(registry);
+            FunctionCounter.builder("convertlab.objectstore.expired", store, ObjectStorageService::getExpiredCount)
+                    .description("Objects deleted from the object store once expired")
+                    .register(registry);
+        });
+    }
+}
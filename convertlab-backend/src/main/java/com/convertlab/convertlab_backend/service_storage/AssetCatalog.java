@@ -0,0 +1,11 @@
+package com.convertlab.convertlab_backend.service_storage;
+
+import com.convertlab.convertlab_backend.service_core.pojos.AssetMetadata;
+
+import java.io.IOException;
+import java.util.Optional;
+
+public interface AssetCatalog {
+    void save(AssetMetadata metadata) throws IOException;
+    Optional<AssetMetadata> find(String assetId);
+}
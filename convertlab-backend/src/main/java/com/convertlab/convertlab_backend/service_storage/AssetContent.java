@@ -0,0 +1,37 @@
+package com.convertlab.convertlab_backend.service_storage;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * The stored bytes of an asset, on disk or in memory. Readers open their own view of it, reading it never copies
+ * the whole asset onto the heap.
+ */
+public interface AssetContent {
+
+    long getSize();
+
+    /**
+     * A fresh random access view, for PDFBox to parse from. Closing it does not affect other views.
+     */
+    RandomAccessRead openRandomAccess() throws IOException;
+
+    InputStream openStream() throws IOException;
+
+    /**
+     * Whether every read may go over the network, which makes reading the whole content up front expensive.
+     */
+    default boolean isRemote() {
+        return false;
+    }
+
+    /**
+     * @return the file holding the content, or null when it is held in memory
+     */
+    default Path getFile() {
+        return null;
+    }
+}
@@ -0,0 +1,244 @@
+package com.convertlab.convertlab_backend.service_storage;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Expiry times of the temp files, ordered by when they are due, so the cleanup job only touches files that
+ * have expired instead of walking and stating the whole temp folder.
+ * <p>
+ * Files are tracked by whoever writes them, and by their owners on startup from what is on disk. Tracking a file
+ * again restarts its TTL. The index also knows the size of every tracked file, which makes it the usage account
+ * of the disk quota. A file belonging to an asset that is leased, or a file leased itself, does not expire until the
+ * lease is closed, it is reconsidered on every cleanup run in the meantime.
+ */
+@Log4j2
+@Component
+public class ExpiryIndex {
+
+    private final long ttlMs;
+
+    private final PriorityBlockingQueue<Entry> queue = new PriorityBlockingQueue<>();
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>(); // the current entry of every file
+    private final Map<String, Integer> leases = new ConcurrentHashMap<>(); // assetId -> open leases
+    private final Map<Path, Integer> fileLeases = new ConcurrentHashMap<>(); // file -> open leases
+
+    private final AtomicLong trackedBytes = new AtomicLong();
+    private final AtomicLong deferredCount = new AtomicLong();
+
+    public ExpiryIndex(@Value("${temp.ttl-ms:3600000}") long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Track a file written now.
+     *
+     * @param assetId the asset the file belongs to, or null
+     */
+    public void track(Path file, String assetId) {
+        track(file, assetId, System.currentTimeMillis());
+    }
+
+    /**
+     * Track a file last written at the given time.
+     *
+     * @param assetId the asset the file belongs to, or null
+     */
+    public void track(Path file, String assetId, long modifiedMillis) {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            log.debug("Not tracking missing file: {}", file);
+            return;
+        }
+
+        Entry entry = new Entry(file.toAbsolutePath().normalize(), assetId, modifiedMillis + ttlMs, size);
+        trackedBytes.addAndGet(size);
+        removed(entries.put(entry.file, entry));
+        queue.add(entry);
+    }
+
+    /**
+     * Stop tracking a file, e.g. because it was deleted.
+     */
+    public void untrack(Path file) {
+        removed(entries.remove(file.toAbsolutePath().normalize()));
+    }
+
+    /**
+     * Put back an entry taken out by a poll whose file could not be deleted, so its size stays accounted for and
+     * the file is tried again. Does nothing when the file has been tracked again since.
+     */
+    public void restore(Entry entry) {
+        if (entries.putIfAbsent(entry.file, entry) == null) {
+            trackedBytes.addAndGet(entry.size);
+            queue.add(entry);
+        }
+    }
+
+    /**
+     * Keep the files of the given assets from expiring until the lease is closed.
+     */
+    public StorageLease lease(Collection<String> assetIds) {
+        List<String> leased = List.copyOf(assetIds);
+        leased.forEach(assetId -> leases.merge(assetId, 1, Integer::sum));
+
+        AtomicBoolean closed = new AtomicBoolean();
+        return () -> {
+            if (closed.compareAndSet(false, true)) {
+                leased.forEach(assetId -> leases.computeIfPresent(assetId, (id, count) -> count > 1 ? count - 1 : null));
+            }
+        };
+    }
+
+    /**
+     * Keep the given files from expiring until the lease is closed, whether they belong to an asset or not.
+     * Taken under the same lock as the polls, so a file still tracked once this returns is not deleted by them.
+     */
+    public synchronized StorageLease leaseFiles(Collection<Path> files) {
+        List<Path> leased = files.stream().map(file -> file.toAbsolutePath().normalize()).toList();
+        leased.forEach(file -> fileLeases.merge(file, 1, Integer::sum));
+
+        AtomicBoolean closed = new AtomicBoolean();
+        return () -> {
+            if (closed.compareAndSet(false, true)) {
+                leased.forEach(file -> fileLeases.computeIfPresent(file, (f, count) -> count > 1 ? count - 1 : null));
+            }
+        };
+    }
+
+    /**
+     * Take the entries that are due and not leased out of the index. The caller deletes their files.
+     */
+    public synchronized List<Entry> pollExpired(long now) {
+        List<Entry> expired = new ArrayList<>();
+        List<Entry> leased = new ArrayList<>();
+
+        Entry entry;
+        while ((entry = queue.peek()) != null && entry.expiresAt <= now) {
+            queue.poll();
+            if (entries.get(entry.file) != entry) {
+                continue; // tracked again since, or untracked
+            }
+            if (isLeased(entry)) {
+                leased.add(entry);
+                continue;
+            }
+            if (entries.remove(entry.file, entry)) {
+                removed(entry);
+                expired.add(entry);
+            }
+        }
+
+        if (!leased.isEmpty()) {
+            queue.addAll(leased);
+            deferredCount.addAndGet(leased.size());
+            log.debug("Deferred expiry of {} files of leased assets", leased.size());
+        }
+        return expired;
+    }
+
+    /**
+     * Take the entries closest to expiry that are not leased out of the index, whether they are due or not.
+     * Used to free space early. The caller deletes their files.
+     */
+    public synchronized List<Entry> pollOldest(int count) {
+        List<Entry> oldest = new ArrayList<>(count);
+        List<Entry> leased = new ArrayList<>();
+
+        Entry entry;
+        while (oldest.size() < count && (entry = queue.poll()) != null) {
+            if (entries.get(entry.file) != entry) {
+                continue;
+            }
+            if (isLeased(entry)) {
+                leased.add(entry);
+                continue;
+            }
+            if (entries.remove(entry.file, entry)) {
+                removed(entry);
+                oldest.add(entry);
+            }
+        }
+
+        queue.addAll(leased);
+        return oldest;
+    }
+
+    public boolean isLeased(String assetId) {
+        return leases.containsKey(assetId);
+    }
+
+    public boolean isTracked(Path file) {
+        return entries.containsKey(file.toAbsolutePath().normalize());
+    }
+
+    public long getTtlMs() {
+        return ttlMs;
+    }
+
+    public int getTrackedCount() {
+        return entries.size();
+    }
+
+    public long getTrackedBytes() {
+        return trackedBytes.get();
+    }
+
+    public int getLeasedAssetCount() {
+        return leases.size();
+    }
+
+    public int getLeasedFileCount() {
+        return fileLeases.size();
+    }
+
+    public long getDeferredCount() {
+        return deferredCount.get();
+    }
+
+    private boolean isLeased(Entry entry) {
+        return (entry.assetId != null && leases.containsKey(entry.assetId)) || fileLeases.containsKey(entry.file);
+    }
+
+    private void removed(Entry entry) {
+        if (entry != null) {
+            trackedBytes.addAndGet(-entry.size);
+        }
+    }
+
+    @Getter
+    public static class Entry implements Comparable<Entry> {
+        private final Path file;
+        private final String assetId;
+        private final long expiresAt;
+        private final long size;
+
+        Entry(Path file, String assetId, long expiresAt, long size) {
+            this.file = file;
+            this.assetId = assetId;
+            this.expiresAt = expiresAt;
+            this.size = size;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Long.compare(expiresAt, other.expiresAt);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.convertlab.convertlab_backend.service_storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Flat key/value store of immutable objects shared by all replicas, such as an S3 bucket.
+ * Keys use '/' as separator, objects are written whole and read whole or by range.
+ */
+public interface ObjectStore {
+
+    /**
+     * Store an object from a stream of the given length, replacing any object under the key.
+     *
+     * @param metadata small string values kept with the object, returned by {@link #head}
+     */
+    void put(String key, InputStream content, long size, Map<String, String> metadata) throws IOException;
+
+    Optional<ObjectInfo> head(String key) throws IOException;
+
+    /**
+     * @return the content of the object, or empty when there is none under the key
+     */
+    Optional<InputStream> get(String key) throws IOException;
+
+    /**
+     * Read part of an object, fails when the object is gone.
+     */
+    InputStream getRange(String key, long offset, long length) throws IOException;
+
+    /**
+     * Deleting a missing object is not an error.
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * All objects whose key starts with the prefix, without their metadata.
+     */
+    List<ObjectInfo> list(String prefix) throws IOException;
+
+    String describe();
+
+    @Getter
+    @AllArgsConstructor
+    class ObjectInfo {
+        private final String key;
+        private final long size;
+        private final long lastModified;
+        private final Map<String, String> metadata;
+    }
+}
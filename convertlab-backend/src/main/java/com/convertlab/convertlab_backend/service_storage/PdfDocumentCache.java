@@ -0,0 +1,306 @@
+package com.convertlab.convertlab_backend.service_storage;
+
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import com.convertlab.convertlab_backend.exception.AssetNotFoundException;
+import com.convertlab.convertlab_backend.service_util.CpuBulkhead;
+import com.convertlab.convertlab_backend.service_util.PdfMemoryPolicy;
+import com.convertlab.convertlab_backend.service_util.PdfUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.log4j.Log4j2;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bounded cache of parsed PDF documents keyed by assetId, sitting in front of {@link StorageService#findPdf}.
+ * <p>
+ * Entries are weighted by the size of the source file and expire after a period of inactivity.
+ * Access is handed out through {@link PdfDocumentLease}s which hold the entry lock for their lifetime. Documents are
+ * fully resolved when loaded, treated as read-only, and their source can be read concurrently, so copying pages out
+ * of a document takes a shared lease. Rendering fills caches of the document that are not thread-safe, so it renders a
+ * private copy of the page under a shared lease, or takes an exclusive one.
+ * An evicted document is closed once its last lease is released.
+ * <p>
+ * Concurrent requests for the same missing document parse it once: the first one loads it outside the cache while
+ * the others wait for its result, so parsing never runs inside a cache operation and does not block other keys.
+ */
+@Log4j2
+@Component
+public class PdfDocumentCache implements DisposableBean {
+
+    private final StorageService storageService;
+    private final PdfMemoryPolicy memoryPolicy;
+    private final CpuBulkhead cpuBulkhead;
+    private final boolean enabled;
+    private final Cache<String, CachedDocument> cache;
+    private final Map<String, CompletableFuture<CachedDocument>> loading = new ConcurrentHashMap<>();
+
+    public PdfDocumentCache(StorageService storageService, PdfMemoryPolicy memoryPolicy, CpuBulkhead cpuBulkhead,
+                            ProcessingConfig processingConfig) {
+        this.storageService = storageService;
+        this.memoryPolicy = memoryPolicy;
+        this.cpuBulkhead = cpuBulkhead;
+
+        ProcessingConfig.DocumentCache config = processingConfig.getDocumentCache();
+        this.enabled = config.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(processingConfig.getDocumentCacheMaxWeightKb())
+                .weigher((String assetId, CachedDocument entry) -> entry.weightKb)
+                .expireAfterAccess(Duration.ofMillis(config.getIdleMs()))
+                .removalListener((String assetId, CachedDocument entry, RemovalCause cause) -> {
+                    if (entry != null) {
+                        log.debug("Evicting parsed document for assetId: {} (cause: {})", assetId, cause);
+                        entry.evict();
+                    }
+                })
+                .recordStats()
+                .build();
+
+        log.info("PDF document cache initialized: enabled={}, maxWeight={}MB, idle={}ms",
+                enabled, config.getMaxWeightMb(), config.getIdleMs());
+    }
+
+    /**
+     * Acquire shared access to the parsed document of an asset, loading it on a miss.
+     * The returned lease must be closed on the thread that acquired it.
+     */
+    public PdfDocumentLease acquire(String assetId) throws IOException {
+        return acquire(assetId, false);
+    }
+
+    /**
+     * Acquire exclusive access to the parsed document of an asset, for work that is not read-only inside PDFBox,
+     * such as rendering.
+     */
+    public PdfDocumentLease acquireExclusive(String assetId) throws IOException {
+        return acquire(assetId, true);
+    }
+
+    /**
+     * Acquire shared leases for several assets at once. Locks are always taken in assetId order so a request
+     * waiting behind an exclusive lease cannot deadlock with another one touching the same documents.
+     *
+     * @return leases keyed by assetId, in the order of first appearance in the input
+     */
+    public Map<String, PdfDocumentLease> acquireAll(Collection<String> assetIds) throws IOException {
+        Map<String, PdfDocumentLease> acquired = new LinkedHashMap<>();
+        List<PdfDocumentLease> inLockOrder = new ArrayList<>();
+
+        try {
+            Map<String, PdfDocumentLease> byId = new LinkedHashMap<>();
+            for (String assetId : new TreeSet<>(assetIds)) {
+                PdfDocumentLease lease = acquire(assetId);
+                inLockOrder.add(lease);
+                byId.put(assetId, lease);
+            }
+            for (String assetId : assetIds) {
+                acquired.putIfAbsent(assetId, byId.get(assetId));
+            }
+            return acquired;
+        } catch (IOException | RuntimeException e) {
+            releaseAll(inLockOrder);
+            throw e;
+        }
+    }
+
+    /**
+     * Release leases obtained from {@link #acquireAll(Collection)}.
+     */
+    public void releaseAll(Collection<PdfDocumentLease> leases) {
+        List<PdfDocumentLease> reversed = new ArrayList<>(leases);
+        Collections.reverse(reversed);
+        for (PdfDocumentLease lease : reversed) {
+            lease.close();
+        }
+    }
+
+    /**
+     * Drop a document from the cache, e.g. when its file is deleted.
+     */
+    public void invalidate(String assetId) {
+        cache.invalidate(assetId);
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long getEntryCount() {
+        return cache.estimatedSize();
+    }
+
+    public long getWeightKb() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    @Override
+    public void destroy() {
+        cache.invalidateAll();
+        cache.cleanUp();
+    }
+
+    private PdfDocumentLease acquire(String assetId, boolean exclusive) throws IOException {
+        if (!enabled) {
+            CachedDocument entry = load(assetId);
+            entry.retain();
+            entry.evict();
+            return new PdfDocumentLease(assetId, entry, exclusive);
+        }
+
+        while (true) {
+            CachedDocument entry = cache.getIfPresent(assetId);
+            if (entry == null) {
+                CompletableFuture<CachedDocument> load = new CompletableFuture<>();
+                CompletableFuture<CachedDocument> inFlight = loading.putIfAbsent(assetId, load);
+                if (inFlight == null) {
+                    return loadAndAcquire(assetId, load, exclusive);
+                }
+                entry = await(assetId, inFlight);
+            }
+
+            if (entry.retain()) {
+                return new PdfDocumentLease(assetId, entry, exclusive);
+            }
+            // Lost a race with eviction, the stale entry is already gone from the cache
+            cache.asMap().remove(assetId, entry);
+        }
+    }
+
+    /**
+     * Parse a document outside the cache and publish it to the requests waiting for it. The loader holds its
+     * lease before the document is cached, so a document evicted as soon as it is added is not closed under it.
+     */
+    private PdfDocumentLease loadAndAcquire(String assetId, CompletableFuture<CachedDocument> load,
+                                            boolean exclusive) throws IOException {
+        try {
+            // Another request may have finished loading it just before
+            CachedDocument entry = cache.policy().getIfPresentQuietly(assetId);
+            if (entry == null || !entry.retain()) {
+                entry = load(assetId);
+                entry.retain();
+                cache.put(assetId, entry);
+            }
+            load.complete(entry);
+            return new PdfDocumentLease(assetId, entry, exclusive);
+        } catch (IOException | RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(assetId, load);
+        }
+    }
+
+    private static CachedDocument await(String assetId, CompletableFuture<CachedDocument> inFlight)
+            throws IOException {
+        try {
+            return inFlight.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for document: " + assetId);
+        }
+    }
+
+    private CachedDocument load(String assetId) throws IOException {
+        AssetContent content = storageService.findPdf(assetId)
+                .orElseThrow(() -> new AssetNotFoundException(assetId));
+        long start = System.currentTimeMillis();
+
+        // Resolved upfront, shared leases read the document from several threads. The form fixup PDFBox applies
+        // on every form lookup, e.g. by PDFMergerUtility, changes the document the first time only
+        PDDocument document = cpuBulkhead.call(() -> {
+            PDDocument parsed = memoryPolicy.load(content);
+            PdfUtils.resolveObjects(parsed);
+            parsed.getDocumentCatalog().getAcroForm();
+            return parsed;
+        });
+        int weightKb = (int) Math.min(Integer.MAX_VALUE, Math.max(1, content.getSize() / 1024));
+
+        log.debug("Parsed document for assetId: {} in {} ms (weight: {} KB)",
+                assetId, System.currentTimeMillis() - start, weightKb);
+
+        return new CachedDocument(document, weightKb);
+    }
+
+    /**
+     * Cache entry with a lease count, so an evicted document is closed only once nobody is using it.
+     */
+    static final class CachedDocument {
+        final PDDocument document;
+        final int weightKb;
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private int leases;
+        private boolean evicted;
+        private boolean closed;
+
+        CachedDocument(PDDocument document, int weightKb) {
+            this.document = document;
+            this.weightKb = weightKb;
+        }
+
+        synchronized boolean retain() {
+            if (evicted) {
+                return false;
+            }
+            leases++;
+            return true;
+        }
+
+        synchronized void release() {
+            leases--;
+            if (evicted && leases == 0) {
+                closeDocument();
+            }
+        }
+
+        synchronized void evict() {
+            evicted = true;
+            if (leases == 0) {
+                closeDocument();
+            }
+        }
+
+        private void closeDocument() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                document.close();
+            } catch (IOException e) {
+                log.warn("Failed to close evicted document", e);
+            }
+        }
+    }
+}
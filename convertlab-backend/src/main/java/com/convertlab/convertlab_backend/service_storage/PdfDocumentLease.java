@@ -0,0 +1,42 @@
+package com.convertlab.convertlab_backend.service_storage;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Shared or exclusive, thread-bound access to a cached {@link PDDocument}.
+ * Callers must treat the document as read-only and close the lease on the acquiring thread.
+ */
+public class PdfDocumentLease implements AutoCloseable {
+
+    private final String assetId;
+    private final PdfDocumentCache.CachedDocument entry;
+    private final Lock lock;
+    private boolean released;
+
+    PdfDocumentLease(String assetId, PdfDocumentCache.CachedDocument entry, boolean exclusive) {
+        this.assetId = assetId;
+        this.entry = entry;
+        this.lock = exclusive ? entry.lock.writeLock() : entry.lock.readLock();
+        lock.lock();
+    }
+
+    public String getAssetId() {
+        return assetId;
+    }
+
+    public PDDocument getDocument() {
+        return entry.document;
+    }
+
+    @Override
+    public void close() {
+        if (released) {
+            return;
+        }
+        released = true;
+        lock.unlock();
+        entry.release();
+    }
+}
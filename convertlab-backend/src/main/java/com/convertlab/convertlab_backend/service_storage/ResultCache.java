@@ -0,0 +1,399 @@
+package com.convertlab.convertlab_backend.service_storage;
+
+import com.convertlab.convertlab_backend.config.StorageConfig;
+import com.convertlab.convertlab_backend.service_admission.OperationCost;
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import com.convertlab.convertlab_backend.service_core.artifact.LeasedFileArtifact;
+import com.convertlab.convertlab_backend.service_util.HashUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the output of conversions on disk, keyed by what they were computed from, so replayed requests are
+ * answered from the stored file instead of being converted again.
+ * <p>
+ * A result is captured while it is first delivered and only kept when it was written completely. Results are
+ * bounded by a disk budget and expire after the temp file TTL, like the files the cleanup job removes. The
+ * index lives in memory, results left over from a previous run are deleted on startup.
+ * <p>
+ * A hit pins its result until the returned artifact is closed: an eviction in the meantime only deletes the file
+ * once the last reader is done, the file is leased so neither the cleanup job nor the disk quota deletes it, and
+ * the result is not replaced while it is being read.
+ */
+@Log4j2
+@Component
+public class ResultCache {
+
+    private final Path cacheDir;
+    private final boolean enabled;
+    private final Cache<String, CachedResult> index;
+    private final ExpiryIndex expiryIndex;
+
+    // Guarded by pins: open hits per key, and keys evicted while they were pinned
+    private final Map<String, Integer> pins = new HashMap<>();
+    private final Set<String> evictedWhilePinned = new HashSet<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+
+    public ResultCache(StorageConfig storageConfig, ExpiryIndex expiryIndex,
+                       @Value("${temp.folder:temp-files}") String tempFolder,
+                       @Value("${temp.ttl-ms:3600000}") long ttlMs) throws IOException {
+        this.cacheDir = Paths.get(tempFolder, "result-cache").toAbsolutePath().normalize();
+        this.enabled = storageConfig.getResultCache().isEnabled();
+        this.expiryIndex = expiryIndex;
+
+        this.index = Caffeine.newBuilder()
+                .maximumWeight(storageConfig.getResultCacheDiskBudgetBytes())
+                .weigher((String key, CachedResult result) -> (int) Math.min(result.size, Integer.MAX_VALUE))
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .removalListener((String key, CachedResult result, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        evicted(key);
+                    }
+                })
+                .build();
+
+        Files.createDirectories(cacheDir);
+        clearDirectory();
+        log.info("Result cache initialized: enabled={}, disk={}MB, dir={}",
+                enabled, storageConfig.getResultCache().getDiskBudgetMb(), cacheDir);
+    }
+
+    /**
+     * Canonical key of a conversion.
+     *
+     * @param operation   name of the conversion
+     * @param inputHashes content hashes of the inputs, in the order they are used
+     * @param parameters  parameters in a normalized form, equal for requests producing the same output
+     */
+    public static String key(String operation, List<String> inputHashes, String parameters) {
+        MessageDigest digest = HashUtils.newContentDigest();
+        String canonical = operation + "\n" + String.join(",", inputHashes) + "\n" + parameters;
+        digest.update(canonical.getBytes(StandardCharsets.UTF_8));
+        return HashUtils.toHex(digest);
+    }
+
+    /**
+     * The stored result for a key when there is one, otherwise the artifact, which then stores its output
+     * while it is written.
+     * The returned artifact always has the file name and content type of the given one.
+     */
+    public Artifact memoize(String key, Artifact artifact) throws IOException {
+        if (!enabled) {
+            return artifact;
+        }
+
+        // Pinned before the lookup, so a result found stays until the hit is closed
+        Path file = cacheDir.resolve(key);
+        pin(key);
+        StorageLease lease = expiryIndex.leaseFiles(List.of(file));
+        CachedResult result = index.getIfPresent(key);
+        if (result != null && expiryIndex.isTracked(file) && Files.exists(file)) {
+            hits.incrementAndGet();
+            log.debug("Result cache hit for key: {} ({} bytes)", key, result.size);
+
+            // Nothing has been computed yet, dropping the artifact releases whatever it holds
+            artifact.close();
+            return new CachedArtifact(key, lease, file, artifact.getFileName(), artifact.getContentType(),
+                    result.contentHash);
+        }
+        lease.close();
+        unpin(key);
+        if (result != null) {
+            index.invalidate(key);
+        }
+
+        misses.incrementAndGet();
+        return new CapturingArtifact(key, artifact);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getStoredCount() {
+        return stored.get();
+    }
+
+    public long getEntryCount() {
+        return index.estimatedSize();
+    }
+
+    public long getDiskBytes() {
+        return index.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    private void store(String key, Path tmp, String contentHash) throws IOException {
+        long size = Files.size(tmp);
+        synchronized (pins) {
+            if (pins.containsKey(key)) {
+                // The stored result is being read, it is kept instead of the equal one just computed
+                log.debug("Not replacing pinned result for key: {}", key);
+                return;
+            }
+            Files.move(tmp, cacheDir.resolve(key), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            expiryIndex.track(cacheDir.resolve(key), null);
+            index.put(key, new CachedResult(size, contentHash));
+        }
+        stored.incrementAndGet();
+        log.debug("Stored result for key: {} ({} bytes)", key, size);
+    }
+
+    private void pin(String key) {
+        synchronized (pins) {
+            pins.merge(key, 1, Integer::sum);
+        }
+    }
+
+    private void unpin(String key) {
+        synchronized (pins) {
+            if (pins.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null) == null
+                    && evictedWhilePinned.remove(key)) {
+                deleteQuietly(key);
+            }
+        }
+    }
+
+    /**
+     * Delete the file of an evicted result, or leave it to the last reader when it is pinned. A result stored
+     * again under the same key since then owns the file now and keeps it.
+     */
+    private void evicted(String key) {
+        synchronized (pins) {
+            if (pins.containsKey(key)) {
+                evictedWhilePinned.add(key);
+            } else if (!index.asMap().containsKey(key)) {
+                deleteQuietly(key);
+            }
+        }
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            Files.deleteIfExists(cacheDir.resolve(key));
+            expiryIndex.untrack(cacheDir.resolve(key));
+            log.debug("Evicted result: {}", key);
+        } catch (IOException e) {
+            log.warn("Failed to delete evicted result: {}", key, e);
+        }
+    }
+
+    private void clearDirectory() throws IOException {
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static class CachedResult {
+        final long size;
+        final String contentHash;
+
+        CachedResult(long size, String contentHash) {
+            this.size = size;
+            this.contentHash = contentHash;
+        }
+    }
+
+    /**
+     * A stored result, pinned until it is closed.
+     */
+    private class CachedArtifact extends LeasedFileArtifact {
+
+        private final String key;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        CachedArtifact(String key, StorageLease lease, Path file, String fileName, MediaType contentType,
+                       String contentHash) {
+            super(file, fileName, contentType, contentHash, lease);
+            this.key = key;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                super.close();
+                unpin(key);
+            }
+        }
+    }
+
+    /**
+     * Writes the wrapped artifact to its destination and to a temp file at the same time, and stores the file
+     * once the artifact has been written completely.
+     */
+    private class CapturingArtifact implements Artifact {
+
+        private final String key;
+        private final Artifact delegate;
+
+        CapturingArtifact(String key, Artifact delegate) {
+            this.key = key;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String getFileName() {
+            return delegate.getFileName();
+        }
+
+        @Override
+        public MediaType getContentType() {
+            return delegate.getContentType();
+        }
+
+        @Override
+        public long getContentLength() {
+            return delegate.getContentLength();
+        }
+
+        @Override
+        public OperationCost getCost() {
+            return delegate.getCost();
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            writeTo(out, () -> {
+            });
+        }
+
+        @Override
+        public void writeTo(OutputStream out, Runnable produced) throws IOException {
+            Path tmp = Files.createTempFile(cacheDir, "result_", ".tmp");
+            MessageDigest digest = HashUtils.newContentDigest();
+
+            try {
+                CopyingOutputStream copying = new CopyingOutputStream(out,
+                        new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)), digest));
+                try {
+                    delegate.writeTo(copying, produced);
+                    copying.flush();
+                } finally {
+                    copying.closeCopy();
+                }
+
+                // A result that could not be copied completely is still delivered, just not kept
+                if (copying.failed) {
+                    log.warn("Failed to copy result for key: {}", key);
+                    return;
+                }
+                try {
+                    store(key, tmp, HashUtils.toHex(digest));
+                } catch (IOException e) {
+                    log.warn("Failed to store result for key: {}", key, e);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    /**
+     * Forwards everything to the destination and a copy to a second stream. Failures of the copy never fail the
+     * destination, the copy is given up instead.
+     */
+    private static class CopyingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final OutputStream copy;
+        private boolean failed;
+
+        CopyingOutputStream(OutputStream out, OutputStream copy) {
+            this.out = out;
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (!failed) {
+                try {
+                    copy.write(b);
+                } catch (IOException e) {
+                    failed = true;
+                }
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (!failed) {
+                try {
+                    copy.write(b, off, len);
+                } catch (IOException e) {
+                    failed = true;
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+            if (!failed) {
+                try {
+                    copy.flush();
+                } catch (IOException e) {
+                    failed = true;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+        /**
+         * Close the copy only, the destination belongs to the caller.
+         */
+        void closeCopy() {
+            try {
+                copy.close();
+            } catch (IOException e) {
+                failed = true;
+            }
+        }
+    }
+}
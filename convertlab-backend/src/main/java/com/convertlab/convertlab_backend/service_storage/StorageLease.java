@@ -0,0 +1,13 @@
+package com.convertlab.convertlab_backend.service_storage;
+
+/**
+ * Keeps stored assets from expiring while an operation is reading them. Closing it more than once is harmless.
+ */
+public interface StorageLease extends AutoCloseable {
+
+    StorageLease NONE = () -> {
+    };
+
+    @Override
+    void close();
+}
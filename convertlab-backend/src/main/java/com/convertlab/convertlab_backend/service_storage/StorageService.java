@@ -1,17 +1,35 @@
 package com.convertlab.convertlab_backend.service_storage;
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import com.convertlab.convertlab_backend.service_core.pojos.StoredResult;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.Collection;
+import java.util.Optional;
 
 public interface StorageService {
     String saveTempPdf(MultipartFile file) throws Exception;
     File loadPdf(String fileId);
+    Optional<AssetContent> findPdf(String fileId);
     File loadThumbnail(String fileId);
     void delete(String fileId);
-    String saveThumbnail(String assetId, BufferedImage image) throws IOException;
+    void saveThumbnail(String thumbnailId, byte[] image) throws IOException;
+    void deleteThumbnail(String thumbnailId) throws IOException;
     String saveTempImage(MultipartFile file) throws Exception;
     File loadImage(String fileId);
+    Optional<AssetContent> findImage(String fileId);
+    StoredResult saveResult(Artifact artifact) throws IOException;
+    File loadResult(String resultId);
+    String getContentHash(String fileId) throws IOException;
+    StorageLease lease(Collection<String> fileIds);
+
+    /**
+     * Keep a stored file that belongs to no asset, a result or a thumbnail, from expiring until the lease is closed.
+     *
+     * @throws NoSuchFileException when the file is gone or already being deleted
+     */
+    StorageLease leaseFile(File file) throws NoSuchFileException;
 }
 
@@ -0,0 +1,195 @@
+package com.convertlab.convertlab_backend.service_storage;
+
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import com.convertlab.convertlab_backend.exception.StorageFullException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache of encoded thumbnails in front of the renderer: a heap cache bounded by bytes, backed by the
+ * thumbnail directory bounded by a disk budget.
+ * <p>
+ * Thumbnails evicted from disk for size are deleted. Files removed by the cleanup job in the meantime are
+ * simply rendered again, a file being read is leased so it is not removed halfway. Concurrent requests for the
+ * same missing thumbnail render it once: the first one loads it outside the cache while the others wait for its
+ * result, so rendering never runs inside a cache operation.
+ */
+@Log4j2
+@Component
+public class ThumbnailCache {
+
+    private final StorageService storageService;
+    private final Cache<String, byte[]> memory;
+    private final Cache<String, Integer> disk; // thumbnailId -> file size
+    private final Map<String, CompletableFuture<byte[]>> loading = new ConcurrentHashMap<>();
+
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong renders = new AtomicLong();
+
+    public ThumbnailCache(StorageService storageService, ProcessingConfig processingConfig) {
+        this.storageService = storageService;
+
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(processingConfig.getThumbnailMemoryCacheBytes())
+                .weigher((String thumbnailId, byte[] image) -> image.length)
+                .recordStats()
+                .build();
+
+        this.disk = Caffeine.newBuilder()
+                .maximumWeight(processingConfig.getThumbnailDiskBudgetBytes())
+                .weigher((String thumbnailId, Integer size) -> size)
+                .removalListener((String thumbnailId, Integer size, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        deleteQuietly(thumbnailId);
+                    }
+                })
+                .build();
+
+        log.info("Thumbnail cache initialized: memory={}MB, disk={}MB",
+                processingConfig.getThumbnails().getMemoryCacheMb(),
+                processingConfig.getThumbnails().getDiskBudgetMb());
+    }
+
+    /**
+     * Get an encoded thumbnail, from memory, from disk, or by rendering it.
+     */
+    public byte[] get(String thumbnailId, Callable<byte[]> renderer) throws IOException {
+        byte[] image = memory.getIfPresent(thumbnailId);
+        if (image != null) {
+            return image;
+        }
+
+        CompletableFuture<byte[]> load = new CompletableFuture<>();
+        CompletableFuture<byte[]> inFlight = loading.putIfAbsent(thumbnailId, load);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+
+        try {
+            // Another request may have finished loading it just before
+            image = memory.policy().getIfPresentQuietly(thumbnailId);
+            if (image == null) {
+                image = load(thumbnailId, renderer);
+                memory.put(thumbnailId, image);
+            }
+            load.complete(image);
+            return image;
+        } catch (IOException | RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(thumbnailId, load);
+        }
+    }
+
+    public CacheStats getMemoryStats() {
+        return memory.stats();
+    }
+
+    public long getMemoryBytes() {
+        return weightedSize(memory);
+    }
+
+    public long getDiskBytes() {
+        return weightedSize(disk);
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getRenders() {
+        return renders.get();
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> inFlight) throws IOException {
+        try {
+            return inFlight.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a thumbnail");
+        }
+    }
+
+    private byte[] load(String thumbnailId, Callable<byte[]> renderer) throws IOException {
+        File file = storageService.loadThumbnail(thumbnailId);
+        if (file.exists()) {
+            try (StorageLease lease = storageService.leaseFile(file)) {
+                byte[] image = Files.readAllBytes(file.toPath());
+                // Also picks up files written before a restart
+                disk.get(thumbnailId, id -> image.length);
+                diskHits.incrementAndGet();
+                return image;
+            } catch (NoSuchFileException e) {
+                log.debug("Thumbnail expired while reading: {}", thumbnailId);
+            }
+        }
+        disk.invalidate(thumbnailId);
+
+        byte[] image = render(renderer);
+        renders.incrementAndGet();
+
+        // A thumbnail that cannot be written to disk is still served from memory
+        try {
+            storageService.saveThumbnail(thumbnailId, image);
+            disk.put(thumbnailId, image.length);
+        } catch (IOException e) {
+            log.warn("Failed to save thumbnail: {}", thumbnailId, e);
+        } catch (StorageFullException e) {
+            log.debug("Not saving thumbnail: {}, {}", thumbnailId, e.getMessage());
+        }
+        return image;
+    }
+
+    private byte[] render(Callable<byte[]> renderer) throws IOException {
+        try {
+            return renderer.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void deleteQuietly(String thumbnailId) {
+        try {
+            storageService.deleteThumbnail(thumbnailId);
+            log.debug("Evicted thumbnail from disk: {}", thumbnailId);
+        } catch (IOException e) {
+            log.warn("Failed to delete evicted thumbnail: {}", thumbnailId, e);
+        }
+    }
+
+    private static long weightedSize(Cache<?, ?> cache) {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+}
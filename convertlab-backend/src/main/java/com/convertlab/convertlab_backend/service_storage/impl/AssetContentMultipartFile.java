@@ -0,0 +1,69 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.service_storage.AssetContent;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Presents stored content as an upload, so content moved between storage tiers goes through the same store path,
+ * quota and deduplication as a new upload.
+ */
+class AssetContentMultipartFile implements MultipartFile {
+
+    private final String assetId;
+    private final AssetContent content;
+
+    AssetContentMultipartFile(String assetId, AssetContent content) {
+        this.assetId = assetId;
+        this.content = content;
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return assetId;
+    }
+
+    @Override
+    public String getContentType() {
+        return null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return content.getSize() == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return content.getSize();
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        try (InputStream in = content.openStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return content.openStream();
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        try (InputStream in = content.openStream()) {
+            Files.copy(in, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
+import com.convertlab.convertlab_backend.service_util.HashUtils;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Stores upload contents once per SHA-256 under {@code blobs/}, with one small reference file per asset
+ * under {@code refs/} naming the blob it points to. Both are {@link ShardedDirectory sharded}.
+ * <p>
+ * Reference files carry the upload time of their asset and expire through the {@link ExpiryIndex} like any other
+ * temp file. Blobs do not expire by age, they are deleted when the last reference to them is released. Reference
+ * counts are kept in memory and rebuilt from the reference files on startup.
+ * <p>
+ * Every hash has one {@link Blob} whose monitor serializes creating, referencing and deleting that blob. The map of
+ * blobs is only used to look them up, no file is touched inside its atomic operations, so stores of different
+ * content never wait for each other's I/O.
+ */
+@Log4j2
+@Component
+public class ContentAddressedStore {
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+    private final ShardedDirectory blobs;
+    private final ShardedDirectory refs;
+    private final ExpiryIndex expiryIndex;
+
+    private final Map<String, String> hashByAsset = new ConcurrentHashMap<>();
+    private final Map<String, Blob> blobsByHash = new ConcurrentHashMap<>();
+
+    private final AtomicLong blobBytes = new AtomicLong();
+    private final AtomicLong deduplicatedCount = new AtomicLong();
+    private final AtomicLong deduplicatedBytes = new AtomicLong();
+
+    public ContentAddressedStore(@Value("${temp.folder:temp-files}") String tempFolder, ExpiryIndex expiryIndex)
+            throws IOException {
+        this.root = Paths.get(tempFolder, "store").toAbsolutePath().normalize();
+        this.blobs = new ShardedDirectory(root.resolve("blobs"));
+        this.refs = new ShardedDirectory(root.resolve("refs"));
+        this.expiryIndex = expiryIndex;
+
+        rebuildIndex();
+        log.info("Content addressed store initialized: {} blobs, {} references, root={}",
+                blobsByHash.size(), hashByAsset.size(), root);
+    }
+
+    /**
+     * Add an asset, hashing the upload where the container buffered it. When the content is already stored the
+     * upload is not written at all. Otherwise it is moved to a temp name next to the blobs, which is a rename on
+     * the same file system, and published under its hash with a second rename.
+     *
+     * @return the content hash
+     */
+    public String store(String assetId, MultipartFile file) throws IOException {
+        String hash = hash(file);
+
+        boolean duplicate = reference(hash, null);
+        if (!duplicate) {
+            Path tmp = blobs.getRoot().resolve(hash + "." + UUID.randomUUID() + ".tmp");
+            try {
+                // The container moves its buffered upload to an absolute File target instead of copying it
+                file.transferTo(tmp.toFile());
+                duplicate = reference(hash, tmp);
+            } finally {
+                deleteTemp(tmp);
+            }
+        }
+
+        try {
+            writeReference(assetId, hash);
+        } catch (IOException | RuntimeException e) {
+            releaseBlob(hash);
+            throw e;
+        }
+        hashByAsset.put(assetId, hash);
+
+        if (duplicate) {
+            deduplicatedCount.incrementAndGet();
+            deduplicatedBytes.addAndGet(file.getSize());
+            log.debug("Deduplicated upload for assetId: {} (hash: {})", assetId, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Add an asset whose content may already be stored, referencing its blob without the upload.
+     *
+     * @return whether the blob existed, nothing is added otherwise
+     */
+    public boolean storeDuplicate(String assetId, String hash, long size) throws IOException {
+        if (!reference(hash, null)) {
+            return false;
+        }
+
+        try {
+            writeReference(assetId, hash);
+        } catch (IOException | RuntimeException e) {
+            releaseBlob(hash);
+            throw e;
+        }
+        hashByAsset.put(assetId, hash);
+
+        deduplicatedCount.incrementAndGet();
+        deduplicatedBytes.addAndGet(size);
+        log.debug("Deduplicated upload for assetId: {} (hash: {})", assetId, hash);
+        return true;
+    }
+
+    /**
+     * @return the blob of an asset, or null when the asset was not stored here
+     */
+    public Path resolve(String assetId) {
+        String hash = hashByAsset.get(assetId);
+        return hash != null ? blobs.locate(hash) : null;
+    }
+
+    public String getContentHash(String assetId) {
+        return hashByAsset.get(assetId);
+    }
+
+    /**
+     * Drop the reference of an asset, deleting its blob when nothing else refers to it.
+     *
+     * @return whether the asset was stored here
+     */
+    public boolean release(String assetId) throws IOException {
+        String hash = hashByAsset.remove(assetId);
+        Path ref = refs.locate(assetId);
+        Files.deleteIfExists(ref);
+        expiryIndex.untrack(ref);
+        if (hash == null) {
+            return false;
+        }
+
+        releaseBlob(hash);
+        return true;
+    }
+
+    /**
+     * Whether a file is the reference of an asset, which expires by releasing the asset.
+     */
+    public boolean isReference(Path file) {
+        return file.toAbsolutePath().normalize().startsWith(refs.getRoot());
+    }
+
+    public int getBlobCount() {
+        return blobsByHash.size();
+    }
+
+    public int getReferenceCount() {
+        return hashByAsset.size();
+    }
+
+    public long getBlobBytes() {
+        return blobBytes.get();
+    }
+
+    public long getDeduplicatedCount() {
+        return deduplicatedCount.get();
+    }
+
+    public long getDeduplicatedBytes() {
+        return deduplicatedBytes.get();
+    }
+
+    private String hash(MultipartFile file) throws IOException {
+        MessageDigest digest = HashUtils.newContentDigest();
+        byte[] buffer = new byte[64 * 1024];
+
+        try (InputStream in = file.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HashUtils.toHex(digest);
+    }
+
+    /**
+     * Add a reference to the blob of a hash. Without content, only an existing blob is referenced. With content,
+     * a missing blob is published by moving the content into place, which needs no more than a rename.
+     *
+     * @return whether the blob already existed, false when it is missing and no content was given
+     */
+    private boolean reference(String hash, Path content) throws IOException {
+        while (true) {
+            Blob blob = blobsByHash.computeIfAbsent(hash, h -> new Blob());
+            synchronized (blob) {
+                if (blob.deleted) {
+                    // Released and deleted since the lookup, a new blob takes its place
+                    continue;
+                }
+                if (blob.refCount > 0) {
+                    blob.refCount++;
+                    return true;
+                }
+                if (content == null) {
+                    blobsByHash.remove(hash, blob);
+                    blob.deleted = true;
+                    return false;
+                }
+
+                Path path = blobs.prepare(hash);
+                try {
+                    Files.move(content, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    blobsByHash.remove(hash, blob);
+                    blob.deleted = true;
+                    throw e;
+                }
+                blob.refCount = 1;
+                blobBytes.addAndGet(Files.size(path));
+                log.debug("Stored new blob: {} ({} bytes)", hash, Files.size(path));
+                return false;
+            }
+        }
+    }
+
+    private void releaseBlob(String hash) {
+        Blob blob = blobsByHash.get(hash);
+        if (blob == null) {
+            return;
+        }
+
+        synchronized (blob) {
+            if (blob.deleted || --blob.refCount > 0) {
+                return;
+            }
+            // Deleted under the blob monitor, so a store of the same content waits and publishes a new blob after
+            try {
+                Path path = blobs.locate(hash);
+                long size = Files.size(path);
+                Files.delete(path);
+                blobBytes.addAndGet(-size);
+                log.debug("Deleted unreferenced blob: {}", hash);
+            } catch (NoSuchFileException e) {
+                log.warn("Unreferenced blob was already deleted: {}", hash);
+            } catch (IOException e) {
+                log.error("Failed to delete blob: {}", hash, e);
+            }
+            blob.deleted = true;
+            blobsByHash.remove(hash, blob);
+        }
+    }
+
+    private void deleteTemp(Path tmp) {
+        try {
+            Files.deleteIfExists(tmp);
+        } catch (IOException e) {
+            log.warn("Failed to delete temp blob: {}", tmp, e);
+        }
+    }
+
+    private void writeReference(String assetId, String hash) throws IOException {
+        Path tmp = Files.createTempFile(refs.getRoot(), "ref_", ".tmp");
+        try {
+            Files.writeString(tmp, hash, StandardCharsets.US_ASCII);
+            Path ref = refs.prepare(assetId);
+            Files.move(tmp, ref, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            expiryIndex.track(ref, assetId);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Load references from disk and delete blobs left without one, e.g. by a crash between writing both.
+     */
+    private void rebuildIndex() throws IOException {
+        // Blobs are listed first, so those left in the flat layout resolve while the references are checked
+        List<Path> blobFiles = blobs.scan();
+
+        for (Path ref : refs.scan()) {
+            String name = ref.getFileName().toString();
+            String hash = name.endsWith(".tmp") ? null : Files.readString(ref, StandardCharsets.US_ASCII).trim();
+            if (hash == null || !HASH_PATTERN.matcher(hash).matches() || !Files.exists(blobs.locate(hash))) {
+                Files.deleteIfExists(ref);
+                continue;
+            }
+            hashByAsset.put(name, hash);
+            blobsByHash.computeIfAbsent(hash, h -> new Blob()).refCount++;
+            expiryIndex.track(ref, name, Files.getLastModifiedTime(ref).toMillis());
+        }
+
+        for (Path blob : blobFiles) {
+            if (!blobsByHash.containsKey(blob.getFileName().toString())) {
+                log.debug("Deleting orphaned blob: {}", blob.getFileName());
+                Files.deleteIfExists(blob);
+            } else {
+                blobBytes.addAndGet(Files.size(blob));
+            }
+        }
+    }
+
+    /**
+     * Reference count of one blob. A blob marked deleted has left the map and is never referenced again.
+     */
+    private static final class Blob {
+
+        int refCount;
+        boolean deleted;
+    }
+}
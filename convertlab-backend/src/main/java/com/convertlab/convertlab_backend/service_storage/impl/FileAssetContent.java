@@ -0,0 +1,33 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.service_storage.AssetContent;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Asset content stored in a file.
+ */
+@Getter
+@AllArgsConstructor
+public class FileAssetContent implements AssetContent {
+
+    private final Path file;
+    private final long size;
+
+    @Override
+    public RandomAccessRead openRandomAccess() throws IOException {
+        return new RandomAccessReadBufferedFile(file);
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        return Files.newInputStream(file);
+    }
+}
@@ -0,0 +1,197 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.service_storage.ObjectStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Object store in a directory, standing in for a bucket in development and tests. Replicas sharing the directory,
+ * over a network file system for instance, share the objects.
+ * <p>
+ * Objects are files under objects/, their metadata, if any, a properties sidecar under metadata/. Both are written
+ * under a temp name and moved in place, so an object is never visible half-written.
+ */
+public class FileSystemObjectStore implements ObjectStore {
+
+    private static final String METADATA_EXTENSION = ".properties";
+
+    private final Path objectDir;
+    private final Path metadataDir;
+    private final Path tmpDir;
+
+    public FileSystemObjectStore(Path root) throws IOException {
+        this.objectDir = root.resolve("objects").toAbsolutePath().normalize();
+        this.metadataDir = root.resolve("metadata").toAbsolutePath().normalize();
+        this.tmpDir = root.resolve("tmp").toAbsolutePath().normalize();
+        Files.createDirectories(objectDir);
+        Files.createDirectories(metadataDir);
+        Files.createDirectories(tmpDir);
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size, Map<String, String> metadata) throws IOException {
+        Path target = objectPath(key);
+        Path sidecar = metadataPath(key);
+        Files.createDirectories(target.getParent());
+        Files.createDirectories(sidecar.getParent());
+
+        Properties props = new Properties();
+        props.putAll(metadata);
+        Path tmpMeta = Files.createTempFile(tmpDir, "meta_", ".tmp");
+        Path tmp = Files.createTempFile(tmpDir, "object_", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmpMeta)) {
+                props.store(out, null);
+            }
+            long copied = Files.copy(content, tmp, StandardCopyOption.REPLACE_EXISTING);
+            if (copied != size) {
+                throw new IOException("Object " + key + " has " + copied + " bytes, expected " + size);
+            }
+            if (metadata.isEmpty()) {
+                Files.deleteIfExists(sidecar);
+            } else {
+                Files.move(tmpMeta, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpMeta);
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public Optional<ObjectInfo> head(String key) throws IOException {
+        Path file = objectPath(key);
+        try {
+            long size = Files.size(file);
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            return Optional.of(new ObjectInfo(key, size, lastModified, readMetadata(key)));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<InputStream> get(String key) throws IOException {
+        try {
+            return Optional.of(Files.newInputStream(objectPath(key)));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(objectPath(key), StandardOpenOption.READ);
+        channel.position(offset);
+        InputStream in = Channels.newInputStream(channel);
+        return new InputStream() {
+            private long remaining = length;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = in.read();
+                if (b != -1) {
+                    remaining--;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int read = in.read(b, off, (int) Math.min(len, remaining));
+                if (read > 0) {
+                    remaining -= read;
+                }
+                return read;
+            }
+
+            @Override
+            public void close() throws IOException {
+                in.close();
+            }
+        };
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(objectPath(key));
+        Files.deleteIfExists(metadataPath(key));
+    }
+
+    @Override
+    public List<ObjectInfo> list(String prefix) throws IOException {
+        List<ObjectInfo> objects = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(objectDir)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                String key = objectDir.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                if (!key.startsWith(prefix)) {
+                    continue;
+                }
+                try {
+                    objects.add(new ObjectInfo(key, Files.size(file), Files.getLastModifiedTime(file).toMillis(),
+                            Map.of()));
+                } catch (NoSuchFileException e) {
+                    // deleted while listing
+                }
+            }
+        }
+        return objects;
+    }
+
+    @Override
+    public String describe() {
+        return "filesystem:" + objectDir.getParent();
+    }
+
+    private Map<String, String> readMetadata(String key) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(metadataPath(key))) {
+            props.load(in);
+        } catch (NoSuchFileException e) {
+            return Map.of();
+        }
+
+        Map<String, String> metadata = new HashMap<>();
+        props.stringPropertyNames().forEach(name -> metadata.put(name, props.getProperty(name)));
+        return metadata;
+    }
+
+    private Path objectPath(String key) throws IOException {
+        return resolve(objectDir, key);
+    }
+
+    private Path metadataPath(String key) throws IOException {
+        return resolve(metadataDir, key + METADATA_EXTENSION);
+    }
+
+    private static Path resolve(Path dir, String key) throws IOException {
+        Path path = dir.resolve(key).normalize();
+        if (!path.startsWith(dir)) {
+            throw new IOException("Invalid object key: " + key);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,145 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.service_core.pojos.AssetMetadata;
+import com.convertlab.convertlab_backend.service_core.pojos.PageMetadata;
+import com.convertlab.convertlab_backend.service_storage.AssetCatalog;
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Keeps asset metadata as a small properties sidecar per asset under the temp folder,
+ * so it expires together with the asset through the regular cleanup job.
+ */
+@Log4j2
+@Service
+@ConditionalOnProperty(prefix = "storage", name = "backend", havingValue = "local", matchIfMissing = true)
+public class LocalAssetCatalog implements AssetCatalog {
+
+    private static final String SIDECAR_EXTENSION = ".properties";
+
+    private final ShardedDirectory metaDir;
+    private final ExpiryIndex expiryIndex;
+
+    // Recently used entries, to avoid re-reading the sidecar on every request
+    private final Cache<String, AssetMetadata> recent = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
+
+    public LocalAssetCatalog(@Value("${temp.folder:temp-files}") String tempFolder, ExpiryIndex expiryIndex)
+            throws IOException {
+        this.metaDir = new ShardedDirectory(Paths.get(tempFolder, "meta"));
+        this.expiryIndex = expiryIndex;
+
+        for (Path sidecar : metaDir.scan()) {
+            String name = sidecar.getFileName().toString();
+            String assetId = name.endsWith(SIDECAR_EXTENSION)
+                    ? name.substring(0, name.length() - SIDECAR_EXTENSION.length())
+                    : null;
+            expiryIndex.track(sidecar, assetId, Files.getLastModifiedTime(sidecar).toMillis());
+        }
+        log.info("Asset catalog initialized: meta={}", metaDir.getRoot().toAbsolutePath());
+    }
+
+    @Override
+    public void save(AssetMetadata metadata) throws IOException {
+        Properties props = toProperties(metadata);
+
+        // Write to a temp file and move, so readers never see a half-written sidecar
+        Path target = metaDir.prepare(metadata.getAssetId() + SIDECAR_EXTENSION);
+        Path tmp = Files.createTempFile(metaDir.getRoot(), "meta_", ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            props.store(out, null);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        expiryIndex.track(target, metadata.getAssetId());
+
+        recent.put(metadata.getAssetId(), metadata);
+        log.debug("Saved metadata for assetId: {} ({} pages)", metadata.getAssetId(), metadata.getPageCount());
+    }
+
+    @Override
+    public Optional<AssetMetadata> find(String assetId) {
+        AssetMetadata cached = recent.getIfPresent(assetId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Path sidecar = metaDir.locate(assetId + SIDECAR_EXTENSION);
+        if (!Files.exists(sidecar)) {
+            log.debug("No metadata sidecar for assetId: {}", assetId);
+            return Optional.empty();
+        }
+
+        try (InputStream in = Files.newInputStream(sidecar)) {
+            Properties props = new Properties();
+            props.load(in);
+
+            AssetMetadata metadata = fromProperties(props);
+            recent.put(assetId, metadata);
+            return Optional.of(metadata);
+        } catch (Exception e) {
+            log.error("Failed to read metadata sidecar for assetId: {}", assetId, e);
+            return Optional.empty();
+        }
+    }
+
+    static Properties toProperties(AssetMetadata metadata) {
+        Properties props = new Properties();
+        props.setProperty("assetId", metadata.getAssetId());
+        // Multipart uploads may come without an original file name
+        props.setProperty("fileName", Objects.requireNonNullElse(metadata.getFileName(), ""));
+        props.setProperty("byteSize", String.valueOf(metadata.getByteSize()));
+        props.setProperty("contentHash", metadata.getContentHash());
+        props.setProperty("encrypted", String.valueOf(metadata.isEncrypted()));
+        props.setProperty("pageCount", String.valueOf(metadata.getPageCount()));
+
+        for (PageMetadata page : metadata.getPages()) {
+            props.setProperty("page." + page.getNumber(),
+                    page.getWidth() + "," + page.getHeight() + "," + page.getRotation());
+        }
+        return props;
+    }
+
+    static AssetMetadata fromProperties(Properties props) {
+        int pageCount = Integer.parseInt(props.getProperty("pageCount"));
+
+        List<PageMetadata> pages = new ArrayList<>(pageCount);
+        for (int i = 1; i <= pageCount; i++) {
+            String[] parts = props.getProperty("page." + i).split(",");
+            pages.add(new PageMetadata(
+                    i,
+                    Float.parseFloat(parts[0]),
+                    Float.parseFloat(parts[1]),
+                    Integer.parseInt(parts[2])
+            ));
+        }
+
+        return AssetMetadata.builder()
+                .assetId(props.getProperty("assetId"))
+                .fileName(props.getProperty("fileName"))
+                .byteSize(Long.parseLong(props.getProperty("byteSize")))
+                .contentHash(props.getProperty("contentHash"))
+                .encrypted(Boolean.parseBoolean(props.getProperty("encrypted")))
+                .pageCount(pageCount)
+                .pages(pages)
+                .build();
+    }
+}
@@ -0,0 +1,172 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.config.StorageConfig;
+import com.convertlab.convertlab_backend.exception.StorageFullException;
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the disk space used under the temp folder.
+ * <p>
+ * Usage is accounted live: the sizes of the files tracked by the {@link ExpiryIndex}, the shared blobs, and the
+ * space reserved by uploads, results and thumbnails being stored. Above the high-water mark the files closest to
+ * expiry are deleted early, skipping leased ones, until usage is back under the low-water mark. A file that does
+ * not fit even then is rejected before it is written. Reservations are checked and taken under one lock, so
+ * concurrent ones cannot overcommit the quota between them. A file that fails to be deleted is tracked again, so
+ * its space stays accounted for.
+ */
+@Log4j2
+@Component
+public class LocalDiskQuota {
+
+    private static final int EVICTION_BATCH = 16;
+
+    private final ExpiryIndex expiryIndex;
+    private final ContentAddressedStore contentStore;
+    private final LocalFileCleaner fileCleaner;
+
+    private final long quotaBytes;
+    private final long highWaterBytes;
+    private final long lowWaterBytes;
+
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final AtomicLong evictedFiles = new AtomicLong();
+    private final AtomicLong evictedBytes = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public LocalDiskQuota(ExpiryIndex expiryIndex, ContentAddressedStore contentStore, LocalFileCleaner fileCleaner,
+                          StorageConfig storageConfig) {
+        this.expiryIndex = expiryIndex;
+        this.contentStore = contentStore;
+        this.fileCleaner = fileCleaner;
+
+        StorageConfig.Quota config = storageConfig.getQuota();
+        this.quotaBytes = storageConfig.getQuotaBytes();
+        this.highWaterBytes = quotaBytes * config.getHighWaterPercent() / 100;
+        this.lowWaterBytes = quotaBytes * config.getLowWaterPercent() / 100;
+
+        log.info("Disk quota initialized: quota={}MB, highWater={}%, lowWater={}%, used={} bytes",
+                config.getMaxMb(), config.getHighWaterPercent(), config.getLowWaterPercent(), getUsedBytes());
+    }
+
+    /**
+     * Reserve space for a file about to be stored, freeing space early when needed.
+     * The reservation is closed once the file is stored and accounted for by its owner.
+     *
+     * @throws StorageFullException when the file does not fit in the quota
+     */
+    public Reservation reserve(long bytes) {
+        if (quotaBytes <= 0) {
+            return Reservation.NONE;
+        }
+        if (bytes > quotaBytes) {
+            // Would never fit, nothing is evicted for it
+            rejectedCount.incrementAndGet();
+            throw new StorageFullException("File of " + bytes + " bytes exceeds the disk quota of "
+                    + quotaBytes + " bytes", false);
+        }
+
+        synchronized (this) {
+            if (getUsedBytes() + bytes > highWaterBytes) {
+                freeUntil(lowWaterBytes - bytes);
+
+                if (getUsedBytes() + bytes > quotaBytes) {
+                    rejectedCount.incrementAndGet();
+                    // Leased assets and files give their space back once the operations reading them end
+                    throw new StorageFullException("Disk quota exceeded: " + getUsedBytes() + " of " + quotaBytes
+                            + " bytes used, " + bytes + " requested",
+                            expiryIndex.getLeasedAssetCount() > 0 || expiryIndex.getLeasedFileCount() > 0);
+                }
+            }
+            reservedBytes.addAndGet(bytes);
+        }
+
+        AtomicBoolean closed = new AtomicBoolean();
+        return () -> {
+            if (closed.compareAndSet(false, true)) {
+                reservedBytes.addAndGet(-bytes);
+            }
+        };
+    }
+
+    /**
+     * Cached outputs are not reserved upfront, usage they push over the high-water mark is freed here.
+     */
+    @Scheduled(fixedDelayString = "${storage.quota.check-interval-ms:5000}")
+    public void enforce() {
+        if (quotaBytes <= 0 || getUsedBytes() <= highWaterBytes) {
+            return;
+        }
+
+        synchronized (this) {
+            freeUntil(lowWaterBytes);
+        }
+    }
+
+    public long getUsedBytes() {
+        return expiryIndex.getTrackedBytes() + contentStore.getBlobBytes() + reservedBytes.get();
+    }
+
+    public long getQuotaBytes() {
+        return quotaBytes;
+    }
+
+    public long getEvictedFiles() {
+        return evictedFiles.get();
+    }
+
+    public long getEvictedBytes() {
+        return evictedBytes.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private void freeUntil(long targetBytes) {
+        long before = getUsedBytes();
+        int evicted = 0;
+
+        while (getUsedBytes() > targetBytes) {
+            List<ExpiryIndex.Entry> oldest = expiryIndex.pollOldest(EVICTION_BATCH);
+            int restored = 0;
+            for (ExpiryIndex.Entry entry : oldest) {
+                if (fileCleaner.expire(entry)) {
+                    evicted++;
+                } else if (expiryIndex.isTracked(entry.getFile())) {
+                    restored++;
+                }
+            }
+            // Files that failed to be deleted are back in the index and would be polled first once more
+            if (restored == oldest.size()) {
+                break;
+            }
+        }
+
+        if (evicted > 0) {
+            long freed = Math.max(0, before - getUsedBytes());
+            evictedFiles.addAndGet(evicted);
+            evictedBytes.addAndGet(freed);
+            log.warn("Disk usage over high-water mark, evicted {} files early ({} bytes freed, {} bytes used)",
+                    evicted, freed, getUsedBytes());
+        }
+    }
+
+    /**
+     * Space held for a file being stored.
+     */
+    public interface Reservation extends AutoCloseable {
+
+        Reservation NONE = () -> {
+        };
+
+        @Override
+        void close();
+    }
+}
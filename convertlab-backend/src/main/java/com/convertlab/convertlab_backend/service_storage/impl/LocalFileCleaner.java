@@ -1,75 +1,127 @@
 package com.convertlab.convertlab_backend.service_storage.impl;
 
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
 import com.convertlab.convertlab_backend.service_storage.FileCleanerStrategy;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.nio.file.*;
 import java.util.Comparator;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
+/**
+ * Deletes the temp files the {@link ExpiryIndex} reports as expired. Expired asset references release their asset,
+ * which deletes the shared blob once nothing else refers to it.
+ */
 @Log4j2
 @Component
 public class LocalFileCleaner implements FileCleanerStrategy {
 
-    @Value("${temp.folder:temp-files}")
-    private String tempFolder;
+    private final ContentAddressedStore contentStore;
+    private final ExpiryIndex expiryIndex;
 
-    @Value("${temp.ttl-ms:3600000}") // default 1 hour
-    private long ttlMs;
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong runTimeMs = new AtomicLong();
+    private final AtomicLong deletedCount = new AtomicLong();
+    private final AtomicLong releasedCount = new AtomicLong();
+
+    public LocalFileCleaner(ContentAddressedStore contentStore, ExpiryIndex expiryIndex,
+                            @Value("${temp.folder:temp-files}") String tempFolder) throws IOException {
+        this.contentStore = contentStore;
+        this.expiryIndex = expiryIndex;
+
+        // Scratch files only live as long as the operation that spilled them, any found now are from a crash
+        deleteScratchLeftovers(Paths.get(tempFolder, "scratch"));
+    }
 
     @Override
     public void cleanupExpiredFiles() {
-        log.info("Starting cleanup job for temp files in: {}", tempFolder);
-
         long now = System.currentTimeMillis();
-        Path root = Paths.get(tempFolder);
-
-        if (!Files.exists(root) || !Files.isDirectory(root)) {
-            log.warn("Temp folder does not exist or is not a directory: {}", tempFolder);
-            return;
+        List<ExpiryIndex.Entry> expired = expiryIndex.pollExpired(now);
+
+        int deletedCount = 0;
+        int releasedCount = 0;
+        for (ExpiryIndex.Entry entry : expired) {
+            if (!expire(entry)) {
+                continue;
+            }
+            if (contentStore.isReference(entry.getFile())) {
+                releasedCount++;
+            } else {
+                deletedCount++;
+            }
         }
 
-        int deletedCount = deleteExpiredFiles(root, now);
+        long durationMs = System.currentTimeMillis() - now;
+        runCount.incrementAndGet();
+        runTimeMs.addAndGet(durationMs);
+        this.deletedCount.addAndGet(deletedCount);
+        this.releasedCount.addAndGet(releasedCount);
 
-        log.info("Cleanup job completed. Deleted {} expired files", deletedCount);
+        log.info("Cleanup job completed in {} ms. Deleted {} expired files, released {} expired assets, "
+                        + "{} files tracked", durationMs, deletedCount, releasedCount,
+                expiryIndex.getTrackedCount());
 
         // Doesn't fit in current implementation as directories are required
         // deleteEmptyDirectories(root);
     }
 
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    public long getRunTimeMs() {
+        return runTimeMs.get();
+    }
+
+    public long getDeletedCount() {
+        return deletedCount.get();
+    }
+
+    public long getReleasedCount() {
+        return releasedCount.get();
+    }
+
     /**
-     * Deletes files older than TTL
-     * @return number of files deleted
+     * Delete the file of an entry taken out of the index. References release their asset instead, shared blobs
+     * are only deleted once the last asset referring to them expires. A file that could not be deleted goes back
+     * into the index.
+     *
+     * @return whether anything was deleted or released
      */
-    private int deleteExpiredFiles(Path root, long now) {
-        AtomicInteger deletedCount = new AtomicInteger(0);
-
-        try (Stream<Path> paths = Files.walk(root)) {
-            paths
-                    .filter(Files::isRegularFile)
-                    .forEach(file -> {
-                        try {
-                            long lastModified = Files.getLastModifiedTime(file).toMillis();
-                            long age = now - lastModified;
-
-                            if (age > ttlMs) {
-                                Files.deleteIfExists(file);
-                                deletedCount.incrementAndGet();
-                                log.debug("Deleted expired temp file: {} (age: {} ms)",
-                                        file.getFileName(), age);
-                            }
-                        } catch (Exception e) {
-                            log.error("Failed to delete file: {}", file, e);
-                        }
-                    });
+    boolean expire(ExpiryIndex.Entry entry) {
+        try {
+            if (contentStore.isReference(entry.getFile())) {
+                return contentStore.release(entry.getAssetId());
+            }
+            if (Files.deleteIfExists(entry.getFile())) {
+                log.debug("Deleted expired temp file: {}", entry.getFile().getFileName());
+                return true;
+            }
         } catch (Exception e) {
-            log.error("Error during file cleanup", e);
+            log.error("Failed to delete file: {}", entry.getFile(), e);
+            if (Files.exists(entry.getFile())) {
+                expiryIndex.restore(entry);
+            }
         }
+        return false;
+    }
 
-        return deletedCount.get();
+    private void deleteScratchLeftovers(Path scratchDir) throws IOException {
+        if (!Files.isDirectory(scratchDir)) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.list(scratchDir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+                log.debug("Deleted leftover scratch file: {}", file.getFileName());
+            }
+        }
     }
 
     /**
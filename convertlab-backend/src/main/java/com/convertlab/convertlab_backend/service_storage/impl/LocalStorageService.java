@@ -1,55 +1,123 @@
 package com.convertlab.convertlab_backend.service_storage.impl;
 
+import com.convertlab.convertlab_backend.config.StorageConfig;
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import com.convertlab.convertlab_backend.service_core.pojos.StoredResult;
+import com.convertlab.convertlab_backend.service_storage.AssetContent;
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
+import com.convertlab.convertlab_backend.service_storage.StorageLease;
 import com.convertlab.convertlab_backend.service_storage.StorageService;
+import com.convertlab.convertlab_backend.service_util.HashUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Log4j2
 @Service
 public class LocalStorageService implements StorageService {
 
-    private final Path pdfDir = Paths.get("temp-files/pdf");
-    // thumbnail not used currently
-    private final Path thumbnailDir = Paths.get("temp-files/thumbnail");
-    private final Path imageDir = Paths.get("temp-files/images");
+    private static final int UPLOAD_HASHES_MAX_SIZE = 100_000;
 
-    public LocalStorageService() throws IOException {
-        Files.createDirectories(pdfDir);
-        Files.createDirectories(thumbnailDir);
-        Files.createDirectories(imageDir);
-        log.info("Storage directories initialized: pdf={}, thumbnail={}",
-                pdfDir.toAbsolutePath(), thumbnailDir.toAbsolutePath());
+    private final ShardedDirectory pdfDir;
+    private final ShardedDirectory thumbnailDir;
+    private final ShardedDirectory imageDir;
+    private final ShardedDirectory resultDir;
+
+    private final ContentAddressedStore contentStore;
+    private final ExpiryIndex expiryIndex;
+    private final LocalDiskQuota diskQuota;
+    private final boolean contentAddressed;
+    // Hashes of assets not stored by content, computed while their upload was copied
+    private final Cache<String, String> uploadHashes;
+
+    public LocalStorageService(ContentAddressedStore contentStore, ExpiryIndex expiryIndex, LocalDiskQuota diskQuota,
+                               StorageConfig storageConfig,
+                               @Value("${temp.folder:temp-files}") String tempFolder) throws IOException {
+        this.contentStore = contentStore;
+        this.expiryIndex = expiryIndex;
+        this.diskQuota = diskQuota;
+        this.contentAddressed = storageConfig.isContentAddressed();
+        this.uploadHashes = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(expiryIndex.getTtlMs()))
+                .maximumSize(UPLOAD_HASHES_MAX_SIZE)
+                .build();
+        this.pdfDir = new ShardedDirectory(Paths.get(tempFolder, "pdf"));
+        this.thumbnailDir = new ShardedDirectory(Paths.get(tempFolder, "thumbnail"));
+        this.imageDir = new ShardedDirectory(Paths.get(tempFolder, "images"));
+        this.resultDir = new ShardedDirectory(Paths.get(tempFolder, "results"));
+
+        // Files written before a restart expire by their age on disk
+        trackExisting(pdfDir, true);
+        trackExisting(imageDir, true);
+        trackExisting(thumbnailDir, false);
+        trackExisting(resultDir, false);
+        log.info("Storage directories initialized: pdf={}, thumbnail={}, contentAddressed={}, legacy flat files={}",
+                pdfDir.getRoot().toAbsolutePath(), thumbnailDir.getRoot().toAbsolutePath(), contentAddressed,
+                pdfDir.getLegacyCount() + imageDir.getLegacyCount() + thumbnailDir.getLegacyCount()
+                        + resultDir.getLegacyCount());
     }
 
     @Override
     public String saveTempPdf(MultipartFile file) throws Exception {
-        String id = UUID.randomUUID().toString();
-        String name = id + "_" + file.getOriginalFilename();
-        Path dest = pdfDir.resolve(name);
+        String name = newAssetId(file);
+        storePdf(name, file);
+        return name;
+    }
 
-        log.debug("Saving PDF file: {} to {}", file.getOriginalFilename(), dest);
+    /**
+     * Store an uploaded PDF under the given asset id.
+     */
+    public void storePdf(String assetId, MultipartFile file) throws IOException {
+        // Fails before writing anything when the upload does not fit in the quota, the reservation covers
+        // the upload until the store accounts for it
+        try (LocalDiskQuota.Reservation reservation = diskQuota.reserve(file.getSize())) {
+            writePdf(assetId, file);
+        }
+    }
 
-        Files.copy(file.getInputStream(), dest, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Store a PDF whose space the caller already holds in the quota.
+     */
+    void writePdf(String assetId, MultipartFile file) throws IOException {
+        if (contentAddressed) {
+            String hash = contentStore.store(assetId, file);
+            log.info("PDF saved successfully: {} (size: {} bytes, blob: {})", assetId, file.getSize(), hash);
+            return;
+        }
 
-        log.info("PDF saved successfully: {} (size: {} bytes)", name, file.getSize());
+        Path dest = pdfDir.prepare(assetId);
 
-        return name;
+        log.debug("Saving PDF file: {} to {}", file.getOriginalFilename(), dest);
+
+        copyHashed(assetId, file, dest);
+        expiryIndex.track(dest, assetId);
+
+        log.info("PDF saved successfully: {} (size: {} bytes)", assetId, file.getSize());
     }
 
     @Override
     public File loadPdf(String fileId) {
-        File file = pdfDir.resolve(fileId).toFile();
+        File file = resolve(pdfDir, fileId);
 
         if (!file.exists()) {
             log.warn("PDF file not found: {}", fileId);
@@ -60,11 +128,17 @@ public class LocalStorageService implements StorageService {
         return file;
     }
 
+    @Override
+    public Optional<AssetContent> findPdf(String fileId) {
+        return find(pdfDir, fileId);
+    }
+
     public File loadThumbnail(String fileId) {
-        File file = thumbnailDir.resolve(fileId).toFile();
+        File file = thumbnailDir.locate(fileId).toFile();
 
+        // Thumbnails are rendered on demand, a missing one is not unusual
         if (!file.exists()) {
-            log.warn("Thumbnail file not found: {}", fileId);
+            log.debug("Thumbnail file not found: {}", fileId);
         } else {
             log.debug("Loading thumbnail: {}", fileId);
         }
@@ -75,7 +149,13 @@ public class LocalStorageService implements StorageService {
     @Override
     public void delete(String fileId) {
         try {
-            Path filePath = pdfDir.resolve(fileId + ".pdf");
+            if (contentStore.release(fileId)) {
+                log.info("Deleted file: {}", fileId);
+                return;
+            }
+
+            uploadHashes.invalidate(fileId);
+            Path filePath = pdfDir.locate(fileId + ".pdf");
             boolean deleted = Files.deleteIfExists(filePath);
 
             if (deleted) {
@@ -90,22 +170,60 @@ public class LocalStorageService implements StorageService {
 
     @Override
     public String saveTempImage(MultipartFile file) throws Exception {
-        String id = UUID.randomUUID().toString();
-        String name = id + "_" + file.getOriginalFilename();
-        Path dest = imageDir.resolve(name);
+        String name = newAssetId(file);
+        storeImage(name, file);
+        return name;
+    }
+
+    /**
+     * Store an uploaded image under the given asset id.
+     */
+    public void storeImage(String assetId, MultipartFile file) throws IOException {
+        try (LocalDiskQuota.Reservation reservation = diskQuota.reserve(file.getSize())) {
+            writeImage(assetId, file);
+        }
+    }
+
+    /**
+     * Store an image whose space the caller already holds in the quota.
+     */
+    void writeImage(String assetId, MultipartFile file) throws IOException {
+        if (contentAddressed) {
+            String hash = contentStore.store(assetId, file);
+            log.info("Image saved successfully: {} (size: {} bytes, blob: {})", assetId, file.getSize(), hash);
+            return;
+        }
+
+        Path dest = imageDir.prepare(assetId);
 
         log.debug("Saving image file: {} to {}", file.getOriginalFilename(), dest);
 
-        Files.copy(file.getInputStream(), dest, StandardCopyOption.REPLACE_EXISTING);
+        copyHashed(assetId, file, dest);
+        expiryIndex.track(dest, assetId);
 
-        log.info("Image saved successfully: {} (size: {} bytes)", name, file.getSize());
+        log.info("Image saved successfully: {} (size: {} bytes)", assetId, file.getSize());
+    }
 
-        return name;
+    /**
+     * Store an asset by reference to content already on disk, without writing it again.
+     *
+     * @return false when assets are not stored by content, or no blob holds the content
+     */
+    boolean storeDuplicate(String assetId, String contentHash, long size) throws IOException {
+        if (!contentAddressed || !contentStore.storeDuplicate(assetId, contentHash, size)) {
+            return false;
+        }
+        log.info("Asset saved by reference: {} (size: {} bytes, blob: {})", assetId, size, contentHash);
+        return true;
+    }
+
+    boolean isContentAddressed() {
+        return contentAddressed;
     }
 
     @Override
     public File loadImage(String fileId) {
-        File file = imageDir.resolve(fileId).toFile();
+        File file = resolve(imageDir, fileId);
 
         if (!file.exists()) {
             log.warn("Image file not found: {}", fileId);
@@ -116,15 +234,157 @@ public class LocalStorageService implements StorageService {
         return file;
     }
 
-    public String saveThumbnail(String assetId, BufferedImage image) throws IOException {
-        Path output = thumbnailDir.resolve(assetId + ".png");
+    @Override
+    public Optional<AssetContent> findImage(String fileId) {
+        return find(imageDir, fileId);
+    }
+
+    @Override
+    public void saveThumbnail(String thumbnailId, byte[] image) throws IOException {
+        Path output = thumbnailDir.prepare(thumbnailId);
 
-        log.debug("Saving thumbnail for assetId: {} to {}", assetId, output);
+        log.debug("Saving thumbnail: {} to {}", thumbnailId, output);
 
-        ImageIO.write(image, "png", output.toFile());
+        // Write under a temp name, so a thumbnail is never read half-written
+        try (LocalDiskQuota.Reservation reservation = diskQuota.reserve(image.length)) {
+            Path tmp = Files.createTempFile(thumbnailDir.getRoot(), "thumb_", ".tmp");
+            try {
+                Files.write(tmp, image);
+                Files.move(tmp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                expiryIndex.track(output, null);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
 
-        log.info("Thumbnail saved successfully: {}", assetId);
+        log.debug("Thumbnail saved successfully: {} (size: {} bytes)", thumbnailId, image.length);
+    }
+
+    @Override
+    public void deleteThumbnail(String thumbnailId) throws IOException {
+        Path thumbnail = thumbnailDir.locate(thumbnailId);
+        Files.deleteIfExists(thumbnail);
+        expiryIndex.untrack(thumbnail);
+    }
+
+    @Override
+    public StoredResult saveResult(Artifact artifact) throws IOException {
+        String name = UUID.randomUUID() + "_" + artifact.getFileName();
+        Path dest = resultDir.prepare(name);
 
-        return thumbnailDir.getFileName() + "/" + output.getFileName();
+        log.debug("Saving result: {} to {}", artifact.getFileName(), dest);
+
+        // Hashed while it is written, the hash becomes the ETag of the download
+        MessageDigest digest = HashUtils.newContentDigest();
+
+        // Write under a temp name, so a result is never visible half-written. Its size is only known once it is
+        // written, quota is reserved as it grows
+        Path tmp = Files.createTempFile(resultDir.getRoot(), "result_", ".tmp");
+        QuotaOutputStream out = new QuotaOutputStream(new DigestOutputStream(Files.newOutputStream(tmp), digest),
+                diskQuota);
+        try {
+            try (out) {
+                artifact.writeTo(out);
+            }
+            Files.move(tmp, dest, StandardCopyOption.ATOMIC_MOVE);
+            expiryIndex.track(dest, null);
+        } finally {
+            Files.deleteIfExists(tmp);
+            out.release();
+        }
+
+        long size = Files.size(dest);
+        log.info("Result saved successfully: {} (size: {} bytes)", name, size);
+
+        return new StoredResult(name, HashUtils.toHex(digest), size);
+    }
+
+    @Override
+    public File loadResult(String resultId) {
+        File file = resultDir.locate(resultId).toFile();
+
+        if (!file.exists()) {
+            log.warn("Result file not found: {}", resultId);
+        } else {
+            log.debug("Loading result file: {}", resultId);
+        }
+
+        return file;
+    }
+
+    @Override
+    public StorageLease lease(Collection<String> fileIds) {
+        return expiryIndex.lease(fileIds);
+    }
+
+    @Override
+    public StorageLease leaseFile(File file) throws NoSuchFileException {
+        Path path = file.toPath();
+        StorageLease lease = expiryIndex.leaseFiles(List.of(path));
+        // Untracked once leased means the cleanup job or the quota took it before the lease
+        if (!expiryIndex.isTracked(path) || !Files.exists(path)) {
+            lease.close();
+            throw new NoSuchFileException(path.toString());
+        }
+        return lease;
+    }
+
+    @Override
+    public String getContentHash(String fileId) throws IOException {
+        String hash = contentStore.getContentHash(fileId);
+        if (hash == null) {
+            hash = uploadHashes.getIfPresent(fileId);
+        }
+        if (hash == null) {
+            // Only files uploaded before a restart, or whose hash was evicted, are read again
+            log.debug("Hashing stored file: {}", fileId);
+            hash = HashUtils.sha256(loadPdf(fileId));
+            uploadHashes.put(fileId, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * A new asset id for an upload, which keeps the original file name readable in it.
+     */
+    static String newAssetId(MultipartFile file) {
+        return UUID.randomUUID() + "_" + file.getOriginalFilename();
+    }
+
+    /**
+     * Copy an upload to its file, hashing it on the way.
+     */
+    private void copyHashed(String assetId, MultipartFile file, Path dest) throws IOException {
+        MessageDigest digest = HashUtils.newContentDigest();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(in, dest, StandardCopyOption.REPLACE_EXISTING);
+        }
+        uploadHashes.put(assetId, HashUtils.toHex(digest));
+    }
+
+    /**
+     * Assets stored by content resolve to their blob, the others to their own file under the type directory.
+     * Both can exist side by side when the mode is switched.
+     */
+    private File resolve(ShardedDirectory typeDir, String fileId) {
+        Path blob = contentStore.resolve(fileId);
+        return (blob != null ? blob : typeDir.locate(fileId)).toFile();
+    }
+
+    private Optional<AssetContent> find(ShardedDirectory typeDir, String fileId) {
+        Path file = resolve(typeDir, fileId).toPath();
+        try {
+            return Optional.of(new FileAssetContent(file, Files.size(file)));
+        } catch (IOException e) {
+            log.warn("Asset file not found: {}", fileId);
+            return Optional.empty();
+        }
+    }
+
+    private void trackExisting(ShardedDirectory dir, boolean assets) throws IOException {
+        for (Path file : dir.scan()) {
+            String assetId = assets ? file.getFileName().toString() : null;
+            expiryIndex.track(file, assetId, Files.getLastModifiedTime(file).toMillis());
+        }
     }
-}
\ No newline at end of file
+}
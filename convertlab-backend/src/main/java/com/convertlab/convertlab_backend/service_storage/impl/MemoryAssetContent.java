@@ -0,0 +1,78 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.service_storage.AssetContent;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Asset content held in a direct buffer. Every view reads through its own duplicate of the buffer, so views have
+ * independent positions and share the memory.
+ * <p>
+ * The buffer is freed by the garbage collector once neither the memory tier nor any open view refers to it, so a
+ * document parsed from an asset stays readable after the asset is evicted.
+ */
+public class MemoryAssetContent implements AssetContent {
+
+    private final ByteBuffer buffer;
+
+    public MemoryAssetContent(ByteBuffer buffer) {
+        this.buffer = buffer.asReadOnlyBuffer();
+    }
+
+    @Override
+    public long getSize() {
+        return buffer.limit();
+    }
+
+    @Override
+    public RandomAccessRead openRandomAccess() {
+        return new RandomAccessReadBuffer(buffer.duplicate());
+    }
+
+    @Override
+    public InputStream openStream() {
+        return new BufferInputStream(buffer.duplicate());
+    }
+
+    private static final class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.service_core.pojos.AssetMetadata;
+import com.convertlab.convertlab_backend.service_storage.AssetCatalog;
+import com.convertlab.convertlab_backend.service_storage.ObjectStore;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Keeps asset metadata next to the assets in the object store, in the same properties format as
+ * {@link LocalAssetCatalog}, so a replica serving an asset uploaded elsewhere does not parse it to describe it.
+ * The sidecars expire with the assets.
+ */
+@Log4j2
+@Service
+@ConditionalOnProperty(prefix = "storage", name = "backend", havingValue = "object")
+public class ObjectAssetCatalog implements AssetCatalog {
+
+    static final String KEY_PREFIX = "meta/";
+    static final String KEY_SUFFIX = ".properties";
+
+    private final ObjectStore objectStore;
+
+    // Metadata never changes once written, entries only leave to bound the memory
+    private final Cache<String, AssetMetadata> recent = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
+
+    public ObjectAssetCatalog(ObjectStore objectStore) {
+        this.objectStore = objectStore;
+    }
+
+    @Override
+    public void save(AssetMetadata metadata) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LocalAssetCatalog.toProperties(metadata).store(out, null);
+        byte[] sidecar = out.toByteArray();
+
+        objectStore.put(key(metadata.getAssetId()), new ByteArrayInputStream(sidecar), sidecar.length, Map.of());
+
+        recent.put(metadata.getAssetId(), metadata);
+        log.debug("Saved metadata for assetId: {} ({} pages)", metadata.getAssetId(), metadata.getPageCount());
+    }
+
+    @Override
+    public Optional<AssetMetadata> find(String assetId) {
+        AssetMetadata cached = recent.getIfPresent(assetId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        try {
+            Optional<InputStream> sidecar = objectStore.get(key(assetId));
+            if (sidecar.isEmpty()) {
+                log.debug("No metadata sidecar for assetId: {}", assetId);
+                return Optional.empty();
+            }
+
+            Properties props = new Properties();
+            try (InputStream in = sidecar.get()) {
+                props.load(in);
+            }
+
+            AssetMetadata metadata = LocalAssetCatalog.fromProperties(props);
+            recent.put(assetId, metadata);
+            return Optional.of(metadata);
+        } catch (Exception e) {
+            log.error("Failed to read metadata sidecar for assetId: {}", assetId, e);
+            return Optional.empty();
+        }
+    }
+
+    private static String key(String assetId) {
+        return KEY_PREFIX + assetId + KEY_SUFFIX;
+    }
+}
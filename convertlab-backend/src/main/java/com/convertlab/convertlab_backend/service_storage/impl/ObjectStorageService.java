@@ -0,0 +1,468 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.config.StorageConfig;
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import com.convertlab.convertlab_backend.service_core.pojos.StoredResult;
+import com.convertlab.convertlab_backend.service_storage.AssetContent;
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
+import com.convertlab.convertlab_backend.service_storage.ObjectStore;
+import com.convertlab.convertlab_backend.service_storage.StorageLease;
+import com.convertlab.convertlab_backend.service_storage.StorageService;
+import com.convertlab.convertlab_backend.service_util.HashUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Storage of uploads in an object store shared by all replicas, so any replica can serve any asset and a replica
+ * going away loses nothing. Thumbnails and job results stay on the replica in {@link LocalStorageService}, they
+ * are rendered again on a miss or belong to a job tracked by the replica anyway.
+ * <p>
+ * Assets are read through a local disk cache bounded by a byte budget. Uploads are written to it on the way to the
+ * store, other assets are fetched into it on first use. PDFs larger than a threshold are not fetched whole but read
+ * by ranges as they are parsed. A copy evicted while its asset is leased stays on disk until the lease is gone, so a
+ * caller never finds the file it was just handed deleted under it.
+ * <p>
+ * Every replica expires objects older than the TTL. Leases only protect assets from the replica holding them, an
+ * operation on another replica reads from its cached copy or its open view until it completes.
+ */
+@Log4j2
+@Primary
+@Service
+@ConditionalOnProperty(prefix = "storage", name = "backend", havingValue = "object")
+public class ObjectStorageService implements StorageService {
+
+    static final String PDF_PREFIX = "pdf/";
+    static final String IMAGE_PREFIX = "images/";
+    static final String HASH_METADATA = "sha256";
+
+    private final ObjectStore objectStore;
+    private final LocalStorageService local;
+    private final ExpiryIndex expiryIndex;
+    private final long rangedReadThresholdBytes;
+    private final int rangeChunkBytes;
+
+    private final ShardedDirectory cacheDir;
+    private final Cache<String, CachedObject> cache; // object key -> local copy
+    private final Map<String, Path> evictedWhileLeased = new ConcurrentHashMap<>(); // object key -> copy to delete
+
+    private final AtomicLong uploadedCount = new AtomicLong();
+    private final AtomicLong uploadedBytes = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong downloadedCount = new AtomicLong();
+    private final AtomicLong downloadedBytes = new AtomicLong();
+    private final AtomicLong rangedReads = new AtomicLong();
+    private final AtomicLong rangedBytes = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    public ObjectStorageService(ObjectStore objectStore, LocalStorageService local, ExpiryIndex expiryIndex,
+                                StorageConfig storageConfig,
+                                @Value("${temp.folder:temp-files}") String tempFolder) throws IOException {
+        this.objectStore = objectStore;
+        this.local = local;
+        this.expiryIndex = expiryIndex;
+        this.rangedReadThresholdBytes = storageConfig.getObjectStoreRangedReadThresholdBytes();
+        this.rangeChunkBytes = storageConfig.getObjectStoreRangeChunkBytes();
+        this.cacheDir = new ShardedDirectory(Paths.get(tempFolder, "object-cache"));
+
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(storageConfig.getObjectStoreCacheBytes())
+                .weigher((String key, CachedObject cached) -> (int) Math.min(cached.size, Integer.MAX_VALUE))
+                .expireAfterWrite(Duration.ofMillis(expiryIndex.getTtlMs()))
+                .removalListener((String key, CachedObject cached, RemovalCause cause) -> {
+                    if (cached != null && cause != RemovalCause.REPLACED) {
+                        if (expiryIndex.isLeased(assetId(key))) {
+                            evictedWhileLeased.put(key, cached.file);
+                        } else {
+                            deleteQuietly(cached.file);
+                        }
+                    }
+                })
+                .build();
+
+        // The store is the source of truth, copies left over from a previous run may be stale
+        for (Path file : cacheDir.scan()) {
+            Files.deleteIfExists(file);
+        }
+        log.info("Object storage initialized: store={}, cache={}MB, rangedReadThreshold={} bytes, dir={}",
+                objectStore.describe(), storageConfig.getObjectStore().getCacheMb(), rangedReadThresholdBytes,
+                cacheDir.getRoot().toAbsolutePath());
+    }
+
+    @Override
+    public String saveTempPdf(MultipartFile file) throws Exception {
+        String assetId = LocalStorageService.newAssetId(file);
+        long size = upload(PDF_PREFIX + assetId, file);
+        log.info("PDF saved successfully: {} (size: {} bytes)", assetId, size);
+        return assetId;
+    }
+
+    @Override
+    public String saveTempImage(MultipartFile file) throws Exception {
+        String assetId = LocalStorageService.newAssetId(file);
+        long size = upload(IMAGE_PREFIX + assetId, file);
+        log.info("Image saved successfully: {} (size: {} bytes)", assetId, size);
+        return assetId;
+    }
+
+    @Override
+    public File loadPdf(String fileId) {
+        return load(PDF_PREFIX + fileId);
+    }
+
+    @Override
+    public File loadImage(String fileId) {
+        return load(IMAGE_PREFIX + fileId);
+    }
+
+    @Override
+    public Optional<AssetContent> findPdf(String fileId) {
+        return find(PDF_PREFIX + fileId, true);
+    }
+
+    @Override
+    public Optional<AssetContent> findImage(String fileId) {
+        return find(IMAGE_PREFIX + fileId, false);
+    }
+
+    @Override
+    public void delete(String fileId) {
+        try {
+            for (String key : List.of(PDF_PREFIX + fileId, IMAGE_PREFIX + fileId)) {
+                objectStore.delete(key);
+                cache.invalidate(key);
+            }
+            log.info("Deleted file: {}", fileId);
+        } catch (IOException e) {
+            log.error("Error deleting file: {}", fileId, e);
+        }
+    }
+
+    /**
+     * The hash computed when the asset was uploaded or fetched, otherwise the one stored with the object. An object
+     * stored without one is fetched into the cache, which hashes it while writing the copy.
+     */
+    @Override
+    public String getContentHash(String fileId) throws IOException {
+        String key = PDF_PREFIX + fileId;
+        CachedObject cached = cached(key);
+        if (cached != null) {
+            return cached.contentHash;
+        }
+
+        String hash = objectStore.head(key)
+                .map(info -> info.getMetadata().get(HASH_METADATA))
+                .orElse(null);
+        if (hash != null) {
+            return hash;
+        }
+        CachedObject fetched = download(key);
+        if (fetched == null) {
+            throw new NoSuchFileException(key);
+        }
+        return fetched.contentHash;
+    }
+
+    @Override
+    public StorageLease lease(Collection<String> fileIds) {
+        return expiryIndex.lease(fileIds);
+    }
+
+    @Override
+    public StorageLease leaseFile(File file) throws NoSuchFileException {
+        return local.leaseFile(file);
+    }
+
+    @Override
+    public File loadThumbnail(String fileId) {
+        return local.loadThumbnail(fileId);
+    }
+
+    @Override
+    public void saveThumbnail(String thumbnailId, byte[] image) throws IOException {
+        local.saveThumbnail(thumbnailId, image);
+    }
+
+    @Override
+    public void deleteThumbnail(String thumbnailId) throws IOException {
+        local.deleteThumbnail(thumbnailId);
+    }
+
+    @Override
+    public StoredResult saveResult(Artifact artifact) throws IOException {
+        return local.saveResult(artifact);
+    }
+
+    @Override
+    public File loadResult(String resultId) {
+        return local.loadResult(resultId);
+    }
+
+    /**
+     * Delete objects older than the TTL, on the same schedule as the file cleanup. Replicas doing this at the same
+     * time only delete the same objects twice.
+     */
+    @Scheduled(fixedRateString = "${temp.cleanup-interval-ms:1800000}")
+    public void expireObjects() {
+        deleteEvictedCopies();
+
+        long cutoff = System.currentTimeMillis() - expiryIndex.getTtlMs();
+        int expired = 0;
+
+        for (String prefix : List.of(PDF_PREFIX, IMAGE_PREFIX, ObjectAssetCatalog.KEY_PREFIX)) {
+            try {
+                for (ObjectStore.ObjectInfo object : objectStore.list(prefix)) {
+                    String assetId = object.getKey().substring(prefix.length())
+                            .replace(ObjectAssetCatalog.KEY_SUFFIX, "");
+                    if (object.getLastModified() <= cutoff && !expiryIndex.isLeased(assetId)) {
+                        objectStore.delete(object.getKey());
+                        cache.invalidate(object.getKey());
+                        expired++;
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Failed to expire objects under: {}", prefix, e);
+            }
+        }
+
+        if (expired > 0) {
+            expiredCount.addAndGet(expired);
+            log.info("Expired {} objects from the object store", expired);
+        }
+    }
+
+    public long getCachedCount() {
+        return cache.estimatedSize();
+    }
+
+    public long getCachedBytes() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getDownloadedCount() {
+        return downloadedCount.get();
+    }
+
+    public long getDownloadedBytes() {
+        return downloadedBytes.get();
+    }
+
+    public long getRangedReads() {
+        return rangedReads.get();
+    }
+
+    public long getRangedBytes() {
+        return rangedBytes.get();
+    }
+
+    public long getUploadedCount() {
+        return uploadedCount.get();
+    }
+
+    public long getUploadedBytes() {
+        return uploadedBytes.get();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * Copy an upload into the cache, hashing it on the way, and stream it to the store from there. The replica
+     * receiving an upload usually parses it right after, from the cached copy.
+     */
+    private long upload(String key, MultipartFile file) throws IOException {
+        Path target = cacheDir.prepare(cacheName(key));
+        Path tmp = Files.createTempFile(cacheDir.getRoot(), "upload_", ".tmp");
+        try {
+            MessageDigest digest = HashUtils.newContentDigest();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = HashUtils.toHex(digest);
+            long size = Files.size(tmp);
+
+            try (InputStream in = Files.newInputStream(tmp)) {
+                objectStore.put(key, in, size, Map.of(HASH_METADATA, hash));
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            cache.put(key, new CachedObject(target, size, hash));
+
+            uploadedCount.incrementAndGet();
+            uploadedBytes.addAndGet(size);
+            return size;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private Optional<AssetContent> find(String key, boolean rangedReads) {
+        CachedObject cached = cached(key);
+        if (cached != null) {
+            return Optional.of(new FileAssetContent(cached.file, cached.size));
+        }
+
+        try {
+            Optional<ObjectStore.ObjectInfo> info = objectStore.head(key);
+            if (info.isEmpty()) {
+                log.warn("Asset not found in object store: {}", key);
+                return Optional.empty();
+            }
+
+            long size = info.get().getSize();
+            if (rangedReads && size > rangedReadThresholdBytes) {
+                this.rangedReads.incrementAndGet();
+                log.debug("Reading {} by ranges ({} bytes)", key, size);
+                return Optional.of(new RangedAssetContent(objectStore, key, size, rangeChunkBytes, rangedBytes));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + key + " from the object store", e);
+        }
+
+        return Optional.ofNullable(download(key))
+                .map(downloaded -> new FileAssetContent(downloaded.file, downloaded.size));
+    }
+
+    private File load(String key) {
+        CachedObject cached = cached(key);
+        if (cached == null) {
+            cached = download(key);
+        }
+        if (cached == null) {
+            log.warn("Asset not found in object store: {}", key);
+            return cacheDir.locate(cacheName(key)).toFile();
+        }
+
+        log.debug("Loading {} from the object cache", key);
+        return cached.file.toFile();
+    }
+
+    /**
+     * The cached copy of an object, when it is still there.
+     */
+    private CachedObject cached(String key) {
+        CachedObject cached = cache.getIfPresent(key);
+        if (cached == null) {
+            return null;
+        }
+        if (!Files.exists(cached.file)) {
+            cache.invalidate(key);
+            return null;
+        }
+        cacheHits.incrementAndGet();
+        return cached;
+    }
+
+    /**
+     * Fetch an object into the cache. Concurrent callers for the same object wait for a single download.
+     *
+     * @return null when there is no such object
+     */
+    private CachedObject download(String key) {
+        return cache.get(key, k -> {
+            try {
+                return fetch(k);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to fetch " + k + " from the object store", e);
+            }
+        });
+    }
+
+    private CachedObject fetch(String key) throws IOException {
+        Optional<InputStream> content = objectStore.get(key);
+        if (content.isEmpty()) {
+            return null;
+        }
+
+        Path target = cacheDir.prepare(cacheName(key));
+        Path tmp = Files.createTempFile(cacheDir.getRoot(), "download_", ".tmp");
+        try {
+            MessageDigest digest = HashUtils.newContentDigest();
+            try (InputStream in = new DigestInputStream(content.get(), digest)) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            long size = Files.size(tmp);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            downloadedCount.incrementAndGet();
+            downloadedBytes.addAndGet(size);
+            log.debug("Fetched {} into the object cache ({} bytes)", key, size);
+            return new CachedObject(target, size, HashUtils.toHex(digest));
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Delete the copies evicted while their asset was leased, once it no longer is. A copy fetched again since uses
+     * the same file and is kept.
+     */
+    void deleteEvictedCopies() {
+        evictedWhileLeased.forEach((key, file) -> {
+            if (!expiryIndex.isLeased(assetId(key)) && evictedWhileLeased.remove(key, file)
+                    && cache.getIfPresent(key) == null) {
+                deleteQuietly(file);
+            }
+        });
+    }
+
+    private static String assetId(String key) {
+        return key.substring(key.indexOf('/') + 1);
+    }
+
+    private static String cacheName(String key) {
+        return key.replace('/', '_');
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete cached object: {}", file, e);
+        }
+    }
+
+    private static final class CachedObject {
+        final Path file;
+        final long size;
+        final String contentHash;
+
+        CachedObject(Path file, long size, String contentHash) {
+            this.file = file;
+            this.size = size;
+            this.contentHash = contentHash;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.exception.StorageFullException;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stream of a file whose size is not known before it is written, reserving disk quota in steps ahead of the
+ * bytes written. A write that does not fit fails with {@link StorageFullException} before it reaches the file.
+ * The reservations are held until {@link #release()}, once the file is tracked by its owner or deleted.
+ */
+final class QuotaOutputStream extends FilterOutputStream {
+
+    private static final long STEP = 1024 * 1024;
+
+    private final LocalDiskQuota diskQuota;
+    private final List<LocalDiskQuota.Reservation> reservations = new ArrayList<>();
+    private long written;
+    private long reserved;
+
+    QuotaOutputStream(OutputStream out, LocalDiskQuota diskQuota) {
+        super(out);
+        this.diskQuota = diskQuota;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureReserved(1);
+        out.write(b);
+        written++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureReserved(len);
+        out.write(b, off, len);
+        written += len;
+    }
+
+    void release() {
+        reservations.forEach(LocalDiskQuota.Reservation::close);
+        reservations.clear();
+        reserved = 0;
+    }
+
+    private void ensureReserved(long bytes) {
+        long missing = written + bytes - reserved;
+        if (missing > 0) {
+            long step = Math.max(STEP, missing);
+            reservations.add(diskQuota.reserve(step));
+            reserved += step;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.service_storage.AssetContent;
+import com.convertlab.convertlab_backend.service_storage.ObjectStore;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadView;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asset content read from the object store by ranges, for PDFs too large to fetch whole before parsing. PDFBox
+ * starts at the cross-reference table at the end and then only reads the objects it needs, so working on a few
+ * pages of a large document only fetches those parts of it.
+ * <p>
+ * Every view fetches aligned chunks and keeps the most recently used of them.
+ */
+public class RangedAssetContent implements AssetContent {
+
+    private static final int CHUNKS_PER_VIEW = 8;
+
+    private final ObjectStore objectStore;
+    private final String key;
+    private final long size;
+    private final int chunkSize;
+    private final AtomicLong fetchedBytes;
+
+    /**
+     * @param fetchedBytes counts the bytes fetched by all views
+     */
+    public RangedAssetContent(ObjectStore objectStore, String key, long size, int chunkSize, AtomicLong fetchedBytes) {
+        this.objectStore = objectStore;
+        this.key = key;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.fetchedBytes = fetchedBytes;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public boolean isRemote() {
+        return true;
+    }
+
+    @Override
+    public RandomAccessRead openRandomAccess() {
+        return new RangedRead();
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        return objectStore.get(key).orElseThrow(() -> new IOException("Object not found: " + key));
+    }
+
+    private final class RangedRead implements RandomAccessRead {
+
+        // Access ordered, so the eldest entry is the least recently used chunk
+        private final Map<Long, byte[]> chunks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > CHUNKS_PER_VIEW;
+            }
+        };
+        private long position;
+        private boolean closed;
+
+        @Override
+        public int read() throws IOException {
+            if (position >= size) {
+                return -1;
+            }
+            byte[] chunk = chunk(position / chunkSize);
+            int b = chunk[(int) (position % chunkSize)] & 0xff;
+            position++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= size) {
+                return -1;
+            }
+
+            int total = 0;
+            while (total < len && position < size) {
+                byte[] chunk = chunk(position / chunkSize);
+                int offset = (int) (position % chunkSize);
+                int count = Math.min(len - total, chunk.length - offset);
+                System.arraycopy(chunk, offset, b, off + total, count);
+                position += count;
+                total += count;
+            }
+            return total;
+        }
+
+        @Override
+        public long getPosition() {
+            return position;
+        }
+
+        @Override
+        public void seek(long newPosition) throws IOException {
+            if (newPosition < 0) {
+                throw new IOException("Invalid position " + newPosition);
+            }
+            position = Math.min(newPosition, size);
+        }
+
+        @Override
+        public long length() {
+            return size;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public boolean isEOF() {
+            return position >= size;
+        }
+
+        @Override
+        public RandomAccessReadView createView(long startPosition, long streamLength) {
+            return new RandomAccessReadView(this, startPosition, streamLength);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            chunks.clear();
+        }
+
+        private byte[] chunk(long index) throws IOException {
+            if (closed) {
+                throw new IOException("Reading from a closed view of " + key);
+            }
+
+            byte[] chunk = chunks.get(index);
+            if (chunk == null) {
+                long offset = index * chunkSize;
+                int length = (int) Math.min(chunkSize, size - offset);
+                try (InputStream in = objectStore.getRange(key, offset, length)) {
+                    chunk = in.readNBytes(length);
+                }
+                if (chunk.length != length) {
+                    throw new IOException("Object " + key + " ended at " + (offset + chunk.length) + " of " + size);
+                }
+                fetchedBytes.addAndGet(length);
+                chunks.put(index, chunk);
+            }
+            return chunk;
+        }
+    }
+}
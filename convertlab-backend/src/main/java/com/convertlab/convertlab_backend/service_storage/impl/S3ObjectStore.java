@@ -0,0 +1,436 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.config.StorageConfig;
+import com.convertlab.convertlab_backend.service_storage.ObjectStore;
+import lombok.extern.log4j.Log4j2;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Object store in a bucket of an S3-compatible service, talking to its REST API with requests signed by
+ * AWS Signature Version 4. Payloads are not signed, so uploads stream from their source without being read twice.
+ * <p>
+ * Objects up to the part size are uploaded with a single PUT, larger ones as a multipart upload whose parts are
+ * streamed one after the other from the same source. A failed multipart upload is aborted, so no parts are left
+ * behind in the bucket.
+ */
+@Log4j2
+public class S3ObjectStore implements ObjectStore {
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final String METADATA_HEADER_PREFIX = "x-amz-meta-";
+    private static final DateTimeFormatter AMZ_DATE =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final URI endpoint;
+    private final String region;
+    private final String bucket;
+    private final String accessKey;
+    private final String secretKey;
+    private final boolean pathStyle;
+    private final String prefix;
+    private final long partSizeBytes;
+
+    public S3ObjectStore(StorageConfig.ObjectStore settings, long partSizeBytes) {
+        this.endpoint = URI.create(settings.getEndpoint());
+        this.region = settings.getRegion();
+        this.bucket = settings.getBucket();
+        this.accessKey = settings.getAccessKey();
+        this.secretKey = settings.getSecretKey();
+        this.pathStyle = settings.isPathStyle();
+        this.prefix = settings.getPrefix();
+        this.partSizeBytes = partSizeBytes;
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size, Map<String, String> metadata) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        metadata.forEach((name, value) -> headers.put(METADATA_HEADER_PREFIX + name.toLowerCase(), value));
+
+        if (size <= partSizeBytes) {
+            HttpResponse<String> response = send("PUT", key, new TreeMap<>(), headers,
+                    streamOf(content, size), HttpResponse.BodyHandlers.ofString());
+            check(response, "PUT " + key);
+            return;
+        }
+
+        HttpResponse<String> created = send("POST", key, new TreeMap<>(Map.of("uploads", "")), headers,
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofString());
+        check(created, "CreateMultipartUpload " + key);
+        String uploadId = text(parse(created.body()).getDocumentElement(), "UploadId");
+
+        try {
+            List<String> etags = new ArrayList<>();
+            long remaining = size;
+            while (remaining > 0) {
+                long partBytes = Math.min(partSizeBytes, remaining);
+                int partNumber = etags.size() + 1;
+
+                HttpResponse<String> part = send("PUT", key,
+                        new TreeMap<>(Map.of("partNumber", String.valueOf(partNumber), "uploadId", uploadId)),
+                        Map.of(), streamOf(content, partBytes), HttpResponse.BodyHandlers.ofString());
+                check(part, "UploadPart " + partNumber + " of " + key);
+                etags.add(part.headers().firstValue("ETag")
+                        .orElseThrow(() -> new IOException("No ETag for part " + partNumber + " of " + key)));
+                remaining -= partBytes;
+            }
+
+            StringBuilder body = new StringBuilder("<CompleteMultipartUpload>");
+            for (int i = 0; i < etags.size(); i++) {
+                body.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                        .append(etags.get(i)).append("</ETag></Part>");
+            }
+            body.append("</CompleteMultipartUpload>");
+
+            HttpResponse<String> completed = send("POST", key, new TreeMap<>(Map.of("uploadId", uploadId)), Map.of(),
+                    HttpRequest.BodyPublishers.ofString(body.toString()), HttpResponse.BodyHandlers.ofString());
+            // Completing can fail after the status line was sent, the error is then in the body of a 200
+            if (completed.statusCode() / 100 != 2 || completed.body().contains("<Error>")) {
+                throw failure(completed.statusCode(), completed.body(), "CompleteMultipartUpload " + key);
+            }
+            log.debug("Uploaded {} in {} parts ({} bytes)", key, etags.size(), size);
+        } catch (IOException | RuntimeException e) {
+            abort(key, uploadId);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<ObjectInfo> head(String key) throws IOException {
+        HttpResponse<Void> response = send("HEAD", key, new TreeMap<>(), Map.of(),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return Optional.empty();
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw failure(response.statusCode(), "", "HEAD " + key);
+        }
+
+        HttpHeaders headers = response.headers();
+        Map<String, String> metadata = new HashMap<>();
+        headers.map().forEach((name, values) -> {
+            if (name.toLowerCase().startsWith(METADATA_HEADER_PREFIX) && !values.isEmpty()) {
+                metadata.put(name.substring(METADATA_HEADER_PREFIX.length()).toLowerCase(), values.getFirst());
+            }
+        });
+        long lastModified = headers.firstValue("Last-Modified")
+                .map(value -> ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli())
+                .orElse(0L);
+
+        return Optional.of(new ObjectInfo(key, headers.firstValueAsLong("Content-Length").orElse(0L),
+                lastModified, metadata));
+    }
+
+    @Override
+    public Optional<InputStream> get(String key) throws IOException {
+        HttpResponse<InputStream> response = send("GET", key, new TreeMap<>(), Map.of(),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == 404) {
+            response.body().close();
+            return Optional.empty();
+        }
+        checkStream(response, "GET " + key);
+        return Optional.of(response.body());
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        HttpResponse<InputStream> response = send("GET", key, new TreeMap<>(),
+                Map.of("range", "bytes=" + offset + "-" + (offset + length - 1)),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofInputStream());
+        checkStream(response, "GET range of " + key);
+        if (response.statusCode() != 206) {
+            // A server ignoring the range sends the whole object
+            response.body().close();
+            throw new IOException("Range request for " + key + " answered with HTTP " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        HttpResponse<String> response = send("DELETE", key, new TreeMap<>(), Map.of(),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 404) {
+            check(response, "DELETE " + key);
+        }
+    }
+
+    @Override
+    public List<ObjectInfo> list(String keyPrefix) throws IOException {
+        List<ObjectInfo> objects = new ArrayList<>();
+        String continuationToken = null;
+
+        do {
+            SortedMap<String, String> query = new TreeMap<>(Map.of("list-type", "2", "prefix", prefix + keyPrefix));
+            if (continuationToken != null) {
+                query.put("continuation-token", continuationToken);
+            }
+            HttpResponse<String> response = send("GET", null, query, Map.of(),
+                    HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofString());
+            check(response, "ListObjectsV2 " + keyPrefix);
+
+            Element result = parse(response.body()).getDocumentElement();
+            NodeList contents = result.getElementsByTagName("Contents");
+            for (int i = 0; i < contents.getLength(); i++) {
+                Element object = (Element) contents.item(i);
+                objects.add(new ObjectInfo(
+                        text(object, "Key").substring(prefix.length()),
+                        Long.parseLong(text(object, "Size")),
+                        Instant.parse(text(object, "LastModified")).toEpochMilli(),
+                        Map.of()));
+            }
+
+            continuationToken = Boolean.parseBoolean(text(result, "IsTruncated"))
+                    ? text(result, "NextContinuationToken")
+                    : null;
+        } while (continuationToken != null);
+
+        return objects;
+    }
+
+    @Override
+    public String describe() {
+        return "s3:" + endpoint + "/" + bucket + "/" + prefix;
+    }
+
+    private void abort(String key, String uploadId) {
+        try {
+            send("DELETE", key, new TreeMap<>(Map.of("uploadId", uploadId)), Map.of(),
+                    HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            log.warn("Failed to abort multipart upload {} of {}", uploadId, key, e);
+        }
+    }
+
+    /**
+     * Send a signed request.
+     *
+     * @param key     object key without the configured prefix, or null for a request on the bucket
+     * @param headers extra headers to send and sign, with lower case names
+     */
+    private <T> HttpResponse<T> send(String method, String key, SortedMap<String, String> query,
+                                     Map<String, String> headers, HttpRequest.BodyPublisher body,
+                                     HttpResponse.BodyHandler<T> handler) throws IOException {
+        String host = endpoint.getHost();
+        if (!pathStyle) {
+            host = bucket + "." + host;
+        }
+        if (endpoint.getPort() != -1) {
+            host = host + ":" + endpoint.getPort();
+        }
+
+        String path = pathStyle ? "/" + bucket : "";
+        path += key != null ? "/" + encode(prefix + key, false) : "/";
+
+        String queryString = query.entrySet().stream()
+                .map(e -> encode(e.getKey(), true) + "=" + encode(e.getValue(), true))
+                .collect(Collectors.joining("&"));
+
+        SortedMap<String, String> signedHeaders = new TreeMap<>(headers);
+        signedHeaders.put("host", host);
+        signedHeaders.put("x-amz-content-sha256", UNSIGNED_PAYLOAD);
+        signedHeaders.put("x-amz-date", AMZ_DATE.format(Instant.now()));
+
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(endpoint.getScheme() + "://" + host + path
+                        + (queryString.isEmpty() ? "" : "?" + queryString)))
+                .method(method, body);
+        signedHeaders.forEach((name, value) -> {
+            if (!name.equals("host")) {
+                request.header(name, value);
+            }
+        });
+        if (!accessKey.isBlank()) {
+            request.header("Authorization", authorization(method, path, queryString, signedHeaders,
+                    UNSIGNED_PAYLOAD, region, accessKey, secretKey));
+        }
+
+        try {
+            return client.send(request.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during " + method + " " + path);
+        }
+    }
+
+    /**
+     * Authorization header of a request, per AWS Signature Version 4.
+     *
+     * @param headers all signed headers with lower case names, including host and x-amz-date
+     */
+    static String authorization(String method, String canonicalUri, String canonicalQuery,
+                                SortedMap<String, String> headers, String payloadHash,
+                                String region, String accessKey, String secretKey) {
+        String amzDate = headers.get("x-amz-date");
+        String dateStamp = amzDate.substring(0, 8);
+        String scope = dateStamp + "/" + region + "/s3/aws4_request";
+
+        String canonicalHeaders = headers.entrySet().stream()
+                .map(e -> e.getKey() + ":" + e.getValue().trim() + "\n")
+                .collect(Collectors.joining());
+        String signedHeaderNames = String.join(";", headers.keySet());
+
+        String canonicalRequest = method + "\n" + canonicalUri + "\n" + canonicalQuery + "\n"
+                + canonicalHeaders + "\n" + signedHeaderNames + "\n" + payloadHash;
+        String stringToSign = ALGORITHM + "\n" + amzDate + "\n" + scope + "\n" + sha256Hex(canonicalRequest);
+
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), dateStamp);
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, "s3");
+        signingKey = hmac(signingKey, "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+
+        return ALGORITHM + " Credential=" + accessKey + "/" + scope
+                + ", SignedHeaders=" + signedHeaderNames + ", Signature=" + signature;
+    }
+
+    /**
+     * URI encoding of AWS Signature Version 4, every byte outside the unreserved characters is percent-encoded.
+     */
+    static String encode(String value, boolean encodeSlash) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (c == '/' && !encodeSlash)) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(HexFormat.of().withUpperCase().toHexDigits(b));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static String sha256Hex(String data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(data.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Body of exactly the given length, read from the source without closing it, so the next part can follow.
+     */
+    private static HttpRequest.BodyPublisher streamOf(InputStream source, long length) {
+        InputStream part = new FilterInputStream(source) {
+            private long remaining = length;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = super.read();
+                if (b != -1) {
+                    remaining--;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int read = super.read(b, off, (int) Math.min(len, remaining));
+                if (read > 0) {
+                    remaining -= read;
+                }
+                return read;
+            }
+
+            @Override
+            public void close() {
+                // the source outlives the part
+            }
+        };
+        return HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofInputStream(() -> part), length);
+    }
+
+    private static void check(HttpResponse<String> response, String operation) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw failure(response.statusCode(), response.body(), operation);
+        }
+    }
+
+    private static void checkStream(HttpResponse<InputStream> response, String operation) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            String body;
+            try (InputStream in = response.body()) {
+                body = new String(in.readNBytes(1024), StandardCharsets.UTF_8);
+            }
+            throw failure(response.statusCode(), body, operation);
+        }
+    }
+
+    private static IOException failure(int status, String body, String operation) {
+        String detail = body == null || body.isBlank() ? "" : ": " + body.substring(0, Math.min(body.length(), 512));
+        return new IOException("Object store " + operation + " failed with HTTP " + status + detail);
+    }
+
+    private static Document parse(String xml) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IOException("Unreadable object store response", e);
+        }
+    }
+
+    private static String text(Element parent, String tag) {
+        NodeList nodes = parent.getElementsByTagName(tag);
+        return nodes.getLength() > 0 ? nodes.item(0).getTextContent() : "";
+    }
+}
@@ -0,0 +1,116 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.service_util.HashUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A directory whose files are spread over two levels of subdirectories named after the first two hex digits of the
+ * SHA-256 of the file name, e.g. {@code pdf/3/f/<name>}. With 256 shards a million files make a few thousand entries
+ * per directory, small enough for any file system to create, open and delete in without scanning, while a startup
+ * scan stays close to the cost of listing a flat directory. Wider shards mostly add directories to visit.
+ * <p>
+ * Files left at the top level by the former flat layout are found by {@link #scan()} on startup and keep resolving
+ * at their old location until they are deleted. New files are always written sharded.
+ */
+public class ShardedDirectory {
+
+    private static final Pattern SHARD_PATTERN = Pattern.compile("[0-9a-f]");
+
+    private final Path root;
+
+    private final Set<Path> createdShards = ConcurrentHashMap.newKeySet();
+    private final Set<String> legacyNames = ConcurrentHashMap.newKeySet(); // files found in the flat layout
+
+    public ShardedDirectory(Path root) throws IOException {
+        this.root = root;
+        Files.createDirectories(root);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Where a file is read from: its old location when it was written by the flat layout, otherwise its shard.
+     * The result does not necessarily exist.
+     */
+    public Path locate(String name) {
+        if (!legacyNames.isEmpty() && legacyNames.contains(name)) {
+            Path flat = root.resolve(name);
+            if (Files.exists(flat)) {
+                return flat;
+            }
+            legacyNames.remove(name);
+        }
+        return shardPath(name);
+    }
+
+    /**
+     * Where a new file is written, creating its shard directories when needed.
+     */
+    public Path prepare(String name) throws IOException {
+        Path file = shardPath(name);
+        Path shard = file.getParent();
+        if (!createdShards.contains(shard)) {
+            Files.createDirectories(shard);
+            createdShards.add(shard);
+        }
+        return file;
+    }
+
+    /**
+     * List every file, sharded or left at the top level by the flat layout. Meant for startup, it visits every
+     * shard directory.
+     */
+    public List<Path> scan() throws IOException {
+        List<Path> files = new ArrayList<>();
+
+        for (Path entry : list(root)) {
+            String name = entry.getFileName().toString();
+            if (!Files.isDirectory(entry)) {
+                legacyNames.add(name);
+                files.add(entry);
+            } else if (SHARD_PATTERN.matcher(name).matches()) {
+                for (Path shard : list(entry)) {
+                    if (Files.isDirectory(shard)) {
+                        createdShards.add(shard);
+                        files.addAll(list(shard));
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Number of files still resolving at their flat layout location.
+     */
+    public int getLegacyCount() {
+        return legacyNames.size();
+    }
+
+    private Path shardPath(String name) {
+        MessageDigest digest = HashUtils.newContentDigest();
+        int first = digest.digest(name.getBytes(StandardCharsets.UTF_8))[0] & 0xff;
+        return root.resolve(String.valueOf(Character.forDigit(first >> 4, 16)))
+                .resolve(String.valueOf(Character.forDigit(first & 0xf, 16)))
+                .resolve(name);
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths.toList();
+        }
+    }
+}
@@ -0,0 +1,505 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.config.StorageConfig;
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import com.convertlab.convertlab_backend.service_core.pojos.StoredResult;
+import com.convertlab.convertlab_backend.service_storage.AssetContent;
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
+import com.convertlab.convertlab_backend.service_storage.StorageLease;
+import com.convertlab.convertlab_backend.service_storage.StorageService;
+import com.convertlab.convertlab_backend.service_util.HashUtils;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Storage with a memory tier in front of {@link LocalStorageService}. Uploads up to a size limit are kept in direct
+ * buffers outside the heap, within a byte budget, and parsed straight from there without touching the disk.
+ * <p>
+ * When the budget is full the least recently used assets move to disk, through the same store path as uploads.
+ * Assets somebody needs a {@link File} of move to disk too, and all of them do on shutdown. Larger uploads,
+ * thumbnails and results go to disk directly. Assets in memory expire after the same TTL as files, unless leased.
+ * <p>
+ * Assets in memory hold their size in the {@link LocalDiskQuota}, as that is where they end up. When assets are
+ * stored by content, an upload whose content is already in memory shares its buffer, and one whose content is
+ * already on disk references the blob there instead of taking memory.
+ */
+@Log4j2
+@Primary
+@Service
+@ConditionalOnProperty(prefix = "storage", name = "backend", havingValue = "local", matchIfMissing = true)
+public class TieredStorageService implements StorageService, DisposableBean {
+
+    private final LocalStorageService disk;
+    private final ExpiryIndex expiryIndex;
+    private final LocalDiskQuota diskQuota;
+
+    private final boolean enabled;
+    private final long budgetBytes;
+    private final long maxAssetBytes;
+
+    // Access ordered, so iteration starts at the least recently used asset. Guarded by this
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Buffers by content hash, shared by assets with the same content when storing by content. Guarded by this
+    private final Map<String, Buffer> buffers = new HashMap<>();
+    private long usedBytes;
+    private long evictingBytes;
+
+    private final AtomicLong storedCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong deduplicatedCount = new AtomicLong();
+    private final AtomicLong deduplicatedBytes = new AtomicLong();
+    private final AtomicLong spilledCount = new AtomicLong();
+    private final AtomicLong spilledBytes = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    public TieredStorageService(LocalStorageService disk, ExpiryIndex expiryIndex, LocalDiskQuota diskQuota,
+                                StorageConfig storageConfig) {
+        this.disk = disk;
+        this.expiryIndex = expiryIndex;
+        this.diskQuota = diskQuota;
+        this.enabled = storageConfig.getMemoryTier().isEnabled();
+        this.budgetBytes = storageConfig.getMemoryTierBudgetBytes();
+        this.maxAssetBytes = Math.min(storageConfig.getMemoryTierMaxAssetBytes(), budgetBytes);
+
+        log.info("Memory storage tier initialized: enabled={}, budget={}MB, maxAsset={}KB", enabled,
+                storageConfig.getMemoryTier().getBudgetMb(), storageConfig.getMemoryTier().getMaxAssetKb());
+    }
+
+    @Override
+    public String saveTempPdf(MultipartFile file) throws Exception {
+        return save(file, true);
+    }
+
+    @Override
+    public String saveTempImage(MultipartFile file) throws Exception {
+        return save(file, false);
+    }
+
+    /**
+     * Moves an asset held in memory to disk first, file consumers are expected to be rare. Readers that can take
+     * the content go through {@link #findPdf} instead, which serves it from memory.
+     */
+    @Override
+    public File loadPdf(String fileId) {
+        moveToDisk(fileId);
+        return disk.loadPdf(fileId);
+    }
+
+    @Override
+    public File loadImage(String fileId) {
+        moveToDisk(fileId);
+        return disk.loadImage(fileId);
+    }
+
+    @Override
+    public Optional<AssetContent> findPdf(String fileId) {
+        Entry entry = get(fileId);
+        if (entry == null) {
+            return disk.findPdf(fileId);
+        }
+        hitCount.incrementAndGet();
+        return Optional.of(entry.buffer.content);
+    }
+
+    @Override
+    public Optional<AssetContent> findImage(String fileId) {
+        Entry entry = get(fileId);
+        if (entry == null) {
+            return disk.findImage(fileId);
+        }
+        hitCount.incrementAndGet();
+        return Optional.of(entry.buffer.content);
+    }
+
+    @Override
+    public void delete(String fileId) {
+        synchronized (this) {
+            Entry entry = entries.get(fileId);
+            if (entry != null) {
+                entry.dropped = true;
+                forget(entry);
+                log.info("Deleted file from memory: {}", fileId);
+                return;
+            }
+        }
+        disk.delete(fileId);
+    }
+
+    @Override
+    public String getContentHash(String fileId) throws IOException {
+        Entry entry = get(fileId);
+        return entry != null ? entry.buffer.contentHash : disk.getContentHash(fileId);
+    }
+
+    @Override
+    public StorageLease lease(Collection<String> fileIds) {
+        return disk.lease(fileIds);
+    }
+
+    @Override
+    public StorageLease leaseFile(File file) throws NoSuchFileException {
+        return disk.leaseFile(file);
+    }
+
+    @Override
+    public File loadThumbnail(String fileId) {
+        return disk.loadThumbnail(fileId);
+    }
+
+    @Override
+    public void saveThumbnail(String thumbnailId, byte[] image) throws IOException {
+        disk.saveThumbnail(thumbnailId, image);
+    }
+
+    @Override
+    public void deleteThumbnail(String thumbnailId) throws IOException {
+        disk.deleteThumbnail(thumbnailId);
+    }
+
+    @Override
+    public StoredResult saveResult(Artifact artifact) throws IOException {
+        return disk.saveResult(artifact);
+    }
+
+    @Override
+    public File loadResult(String resultId) {
+        return disk.loadResult(resultId);
+    }
+
+    /**
+     * Drop assets in memory that outlived the TTL, on the same schedule as the file cleanup.
+     */
+    @Scheduled(fixedRateString = "${temp.cleanup-interval-ms:1800000}")
+    public void expireAssets() {
+        long cutoff = System.currentTimeMillis() - expiryIndex.getTtlMs();
+        int expired = 0;
+
+        synchronized (this) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.storedAt <= cutoff && !entry.buffer.evicting && !expiryIndex.isLeased(entry.assetId)) {
+                    it.remove();
+                    entry.dropped = true;
+                    release(entry);
+                    expired++;
+                }
+            }
+        }
+
+        if (expired > 0) {
+            expiredCount.addAndGet(expired);
+            log.info("Expired {} assets held in memory", expired);
+        }
+    }
+
+    /**
+     * Keep what is in memory across a restart.
+     */
+    @Override
+    public void destroy() {
+        List<Entry> remaining;
+        synchronized (this) {
+            remaining = new ArrayList<>(entries.values());
+        }
+        remaining.forEach(this::spill);
+        log.info("Moved {} assets from memory to disk on shutdown", remaining.size());
+    }
+
+    public synchronized int getAssetCount() {
+        return entries.size();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getBudgetBytes() {
+        return enabled ? budgetBytes : 0;
+    }
+
+    public long getStoredCount() {
+        return storedCount.get();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getDeduplicatedCount() {
+        return deduplicatedCount.get();
+    }
+
+    public long getDeduplicatedBytes() {
+        return deduplicatedBytes.get();
+    }
+
+    public long getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    public long getSpilledBytes() {
+        return spilledBytes.get();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    private String save(MultipartFile file, boolean pdf) throws Exception {
+        if (!enabled || file.getSize() > maxAssetBytes) {
+            return pdf ? disk.saveTempPdf(file) : disk.saveTempImage(file);
+        }
+
+        String assetId = LocalStorageService.newAssetId(file);
+        // Held until the asset leaves memory, so moving it to disk never finds the disk full
+        LocalDiskQuota.Reservation reservation = diskQuota.reserve(file.getSize());
+        boolean held = false;
+        try {
+            Buffer buffer = read(assetId, file, reservation);
+            if (buffer == null) {
+                write(assetId, pdf, file);
+                return assetId;
+            }
+            if (disk.isContentAddressed() && storeDuplicate(assetId, pdf, buffer)) {
+                return assetId;
+            }
+
+            put(new Entry(assetId, pdf, buffer));
+            held = true;
+        } finally {
+            if (!held) {
+                reservation.close();
+            }
+        }
+
+        storedCount.incrementAndGet();
+        log.info("{} saved in memory: {} (size: {} bytes)", pdf ? "PDF" : "Image", assetId, file.getSize());
+        return assetId;
+    }
+
+    /**
+     * Read an upload into a direct buffer, hashing it on the way.
+     *
+     * @return null when no direct memory is left
+     */
+    private Buffer read(String assetId, MultipartFile file, LocalDiskQuota.Reservation reservation)
+            throws IOException {
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.allocateDirect((int) file.getSize());
+        } catch (OutOfMemoryError e) {
+            log.warn("No direct memory left for {} bytes, storing on disk: {}", file.getSize(), assetId);
+            return null;
+        }
+
+        try (InputStream in = file.getInputStream(); ReadableByteChannel channel = Channels.newChannel(in)) {
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // keep reading
+            }
+        }
+        if (buffer.hasRemaining()) {
+            throw new IOException("Upload ended after " + buffer.position() + " of " + file.getSize() + " bytes");
+        }
+        buffer.flip();
+
+        MessageDigest digest = HashUtils.newContentDigest();
+        digest.update(buffer.duplicate());
+        return new Buffer(new MemoryAssetContent(buffer), HashUtils.toHex(digest), reservation);
+    }
+
+    /**
+     * Add an asset whose content is already stored, sharing the buffer of an asset in memory or the blob on disk.
+     * The buffer just read is then dropped.
+     *
+     * @return whether the content was found
+     */
+    private boolean storeDuplicate(String assetId, boolean pdf, Buffer read) throws IOException {
+        synchronized (this) {
+            Buffer stored = buffers.get(read.contentHash);
+            if (stored != null && !stored.evicting) {
+                Entry entry = new Entry(assetId, pdf, stored);
+                entries.put(assetId, entry);
+                stored.entries.add(entry);
+                deduplicatedCount.incrementAndGet();
+                deduplicatedBytes.addAndGet(stored.size);
+                log.info("{} saved in memory by reference: {} (size: {} bytes)", pdf ? "PDF" : "Image", assetId,
+                        stored.size);
+                return true;
+            }
+        }
+        return disk.storeDuplicate(assetId, read.contentHash, read.size);
+    }
+
+    private void put(Entry entry) {
+        List<Buffer> victims = new ArrayList<>();
+
+        synchronized (this) {
+            entries.put(entry.assetId, entry);
+            entry.buffer.entries.add(entry);
+            usedBytes += entry.buffer.size;
+            if (disk.isContentAddressed()) {
+                buffers.put(entry.buffer.contentHash, entry.buffer);
+            }
+
+            // Buffers already on their way to disk no longer count against the budget
+            Iterator<Entry> it = entries.values().iterator();
+            while (usedBytes - evictingBytes > budgetBytes && it.hasNext()) {
+                Buffer eldest = it.next().buffer;
+                if (eldest != entry.buffer && !eldest.evicting) {
+                    eldest.evicting = true;
+                    evictingBytes += eldest.size;
+                    victims.add(eldest);
+                }
+            }
+        }
+
+        for (Buffer victim : victims) {
+            List<Entry> owners;
+            synchronized (this) {
+                owners = new ArrayList<>(victim.entries);
+            }
+            owners.forEach(this::spill);
+            synchronized (this) {
+                evictingBytes -= victim.size;
+                victim.evicting = false;
+            }
+        }
+    }
+
+    private synchronized Entry get(String fileId) {
+        return entries.get(fileId);
+    }
+
+    private void moveToDisk(String fileId) {
+        Entry entry = get(fileId);
+        if (entry != null) {
+            spill(entry);
+        }
+    }
+
+    /**
+     * Store an asset on disk and drop it from memory. Readers keep finding it in memory until it is on disk.
+     * An asset that cannot be written stays in memory, over budget rather than lost. Its space in the quota is
+     * already held by the buffer, which keeps it until its last asset is gone from memory.
+     */
+    private void spill(Entry entry) {
+        synchronized (entry) {
+            if (!entry.onDisk) {
+                Buffer buffer = entry.buffer;
+                try {
+                    // The asset sharing the buffer that moved first already wrote the blob
+                    if (!disk.storeDuplicate(entry.assetId, buffer.contentHash, buffer.size)) {
+                        write(entry.assetId, entry.pdf, new AssetContentMultipartFile(entry.assetId, buffer.content));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Failed to move asset to disk, keeping it in memory: {}", entry.assetId, e);
+                    return;
+                }
+                entry.onDisk = true;
+                spilledCount.incrementAndGet();
+                spilledBytes.addAndGet(buffer.size);
+            }
+        }
+
+        boolean dropped;
+        synchronized (this) {
+            forget(entry);
+            dropped = entry.dropped;
+        }
+        if (dropped) {
+            // Deleted or expired while it was written, the copy on disk must not outlive it
+            disk.delete(entry.assetId);
+        }
+        log.debug("Moved asset from memory to disk: {} ({} bytes)", entry.assetId, entry.buffer.size);
+    }
+
+    private void write(String assetId, boolean pdf, MultipartFile file) throws IOException {
+        if (pdf) {
+            disk.writePdf(assetId, file);
+        } else {
+            disk.writeImage(assetId, file);
+        }
+    }
+
+    /**
+     * Drop an asset from memory, if it still is there. Guarded by this.
+     */
+    private void forget(Entry entry) {
+        if (entries.remove(entry.assetId, entry)) {
+            release(entry);
+        }
+    }
+
+    /**
+     * Let go of the buffer of an asset no longer in memory, freeing it with its last asset. Guarded by this.
+     */
+    private void release(Entry entry) {
+        Buffer buffer = entry.buffer;
+        buffer.entries.remove(entry);
+        if (buffer.entries.isEmpty()) {
+            usedBytes -= buffer.size;
+            buffers.remove(buffer.contentHash, buffer);
+            buffer.reservation.close();
+        }
+    }
+
+    private static final class Entry {
+        final String assetId;
+        final boolean pdf;
+        final Buffer buffer;
+        final long storedAt = System.currentTimeMillis();
+
+        boolean dropped;  // deleted or expired, guarded by the tier
+        boolean onDisk;   // guarded by the entry
+
+        Entry(String assetId, boolean pdf, Buffer buffer) {
+            this.assetId = assetId;
+            this.pdf = pdf;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Content held in memory, with the quota it holds until the last asset sharing it leaves memory.
+     */
+    private static final class Buffer {
+        final MemoryAssetContent content;
+        final String contentHash;
+        final long size;
+        final LocalDiskQuota.Reservation reservation;
+        final List<Entry> entries = new ArrayList<>(1); // guarded by the tier
+
+        boolean evicting; // guarded by the tier
+
+        Buffer(MemoryAssetContent content, String contentHash, LocalDiskQuota.Reservation reservation) {
+            this.content = content;
+            this.contentHash = contentHash;
+            this.size = content.getSize();
+            this.reservation = reservation;
+        }
+    }
+}
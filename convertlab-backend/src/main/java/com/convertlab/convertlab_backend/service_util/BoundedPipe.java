@@ -0,0 +1,215 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A fixed-size buffer between one thread producing output through {@link #sink()} and one thread copying it
+ * elsewhere with {@link #drainTo(OutputStream)}. The producer blocks while the buffer is full, so output is never
+ * produced further ahead of the consumer than the buffer size.
+ * <p>
+ * Given an overflow, the producer does not block: once the buffer is full, the rest of the output goes to the
+ * overflow and the consumer copies it after the producer is done. A slow consumer then costs scratch space
+ * instead of holding the producing thread.
+ */
+public class BoundedPipe {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final byte[] buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+    private final Supplier<SpoolingOutputStream> overflowFactory;
+
+    // Written by the producer outside the lock once created, read by the consumer after the pipe is closed
+    private SpoolingOutputStream overflow;
+    private boolean overflowDiscarded;
+
+    private int head;
+    private int count;
+    private boolean closed;  // the producer is done, successfully or not
+    private boolean aborted; // the consumer gave up, further writes fail
+
+    private final OutputStream sink = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int offset, int length) throws IOException {
+            BoundedPipe.this.write(b, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            BoundedPipe.this.close();
+        }
+    };
+
+    public BoundedPipe(int capacity) {
+        this(capacity, null);
+    }
+
+    public BoundedPipe(int capacity, Supplier<SpoolingOutputStream> overflowFactory) {
+        this.buffer = new byte[capacity];
+        this.overflowFactory = overflowFactory;
+    }
+
+    public OutputStream sink() {
+        return sink;
+    }
+
+    /**
+     * End of output. The consumer drains what is left and returns.
+     */
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (overflow != null) {
+                overflow.close();
+            }
+            closed = true;
+            notEmpty.signalAll();
+            if (aborted) {
+                // Nobody reads the overflow anymore
+                discardOverflow();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether the producer ran ahead of the consumer by more than the buffer and continued in the overflow.
+     */
+    public boolean isOverflowed() {
+        lock.lock();
+        try {
+            return overflow != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop consuming. A producer blocked on the full buffer, and any later write, fails.
+     */
+    public void abort() {
+        lock.lock();
+        try {
+            aborted = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copy everything written to the pipe until it is closed. Returns the number of bytes copied.
+     */
+    public long drainTo(OutputStream out) throws IOException {
+        byte[] chunk = new byte[Math.min(buffer.length, CHUNK_SIZE)];
+        long total = 0;
+        while (true) {
+            int length;
+            lock.lock();
+            try {
+                while (count == 0 && !closed) {
+                    notEmpty.await();
+                }
+                if (count == 0) {
+                    break;
+                }
+
+                length = Math.min(Math.min(count, chunk.length), buffer.length - head);
+                System.arraycopy(buffer, head, chunk, 0, length);
+                head = (head + length) % buffer.length;
+                count -= length;
+                notFull.signal();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for output");
+            } finally {
+                lock.unlock();
+            }
+
+            // Outside the lock, the producer keeps filling the buffer while the client takes this chunk
+            out.write(chunk, 0, length);
+            total += length;
+        }
+
+        // Closed, the producer no longer touches the overflow
+        try {
+            if (overflow != null) {
+                overflow.transferTo(out);
+                total += overflow.size();
+            }
+            return total;
+        } finally {
+            lock.lock();
+            try {
+                discardOverflow();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void write(byte[] b, int offset, int length) throws IOException {
+        SpoolingOutputStream spill;
+        lock.lock();
+        try {
+            while (true) {
+                if (aborted) {
+                    throw new IOException("Pipe closed by the reader");
+                }
+                if (closed) {
+                    throw new IOException("Pipe already closed");
+                }
+                if (overflow != null || length == 0) {
+                    break;
+                }
+                if (count == buffer.length) {
+                    if (overflowFactory != null) {
+                        overflow = overflowFactory.get();
+                        break;
+                    }
+                    notFull.await();
+                    continue;
+                }
+
+                int tail = (head + count) % buffer.length;
+                int copied = Math.min(length, Math.min(buffer.length - count, buffer.length - tail));
+                System.arraycopy(b, offset, buffer, tail, copied);
+                count += copied;
+                offset += copied;
+                length -= copied;
+                notEmpty.signal();
+            }
+            spill = overflow;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the reader");
+        } finally {
+            lock.unlock();
+        }
+
+        // Outside the lock, the consumer keeps draining the buffer meanwhile
+        if (spill != null && length > 0) {
+            spill.write(b, offset, length);
+        }
+    }
+
+    private void discardOverflow() throws IOException {
+        if (overflow != null && !overflowDiscarded) {
+            overflowDiscarded = true;
+            overflow.discard();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * Priority queue refusing elements beyond a capacity, for an executor that rejects work instead of queueing it
+ * without bound. {@link #offer} checks and inserts atomically, so concurrent submitters cannot overshoot the
+ * capacity. {@link #put} and {@link #add} go through {@link #offer} as well.
+ */
+public class BoundedPriorityBlockingQueue<E> extends PriorityBlockingQueue<E> {
+
+    private final int capacity;
+
+    public BoundedPriorityBlockingQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized boolean offer(E e) {
+        if (size() >= capacity) {
+            return false;
+        }
+        return super.offer(e);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - size());
+    }
+}
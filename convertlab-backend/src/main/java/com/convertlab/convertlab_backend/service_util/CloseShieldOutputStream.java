@@ -0,0 +1,27 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Keeps the wrapped stream open when the writer closes it.
+ * PDDocument.save(OutputStream) closes its target, which must not happen to a ZIP or response stream
+ * that still has more data to receive.
+ */
+public class CloseShieldOutputStream extends FilterOutputStream {
+
+    public CloseShieldOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
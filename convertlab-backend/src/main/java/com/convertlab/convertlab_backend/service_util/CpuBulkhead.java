@@ -0,0 +1,187 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import com.convertlab.convertlab_backend.exception.AdmissionRejectedException;
+import com.convertlab.convertlab_backend.service_core.artifact.ArtifactWriter;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Confines CPU-bound PDFBox and ImageIO work to a pool of platform threads sized to the cores.
+ * <p>
+ * Only virtual threads are offloaded: they are unbounded in number, while platform callers already come from
+ * bounded pools (Tomcat workers, job and split executors) and keep running their work inline.
+ * Output is produced on the pool thread into a bounded pipe and copied to the client by the calling thread,
+ * so the client receives bytes as they are produced and a response never holds more than the pipe on the heap.
+ * When the client falls behind by more than the pipe, the rest of the output goes to a scratch file instead,
+ * so a slow client never keeps a pool thread, nor the documents and reservations its task holds.
+ * The queue in front of the pool is bounded too; once it is full, requests are rejected as busy.
+ */
+@Log4j2
+@Component
+public class CpuBulkhead {
+
+    private final ThreadPoolExecutor cpuExecutor;
+    private final boolean enabled;
+    private final int pipeBufferBytes;
+    private final Path scratchDir;
+
+    private final AtomicLong offloadedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong spilledCount = new AtomicLong();
+
+    public CpuBulkhead(@Qualifier("cpuExecutor") ThreadPoolExecutor cpuExecutor, ProcessingConfig processingConfig,
+                       @Value("${temp.folder:temp-files}") String tempFolder) throws IOException {
+        this.cpuExecutor = cpuExecutor;
+        this.enabled = processingConfig.getCpu().isBulkheadEnabled();
+        this.pipeBufferBytes = processingConfig.getCpuPipeBufferBytes();
+        this.scratchDir = Paths.get(tempFolder, "scratch");
+        Files.createDirectories(scratchDir);
+
+        log.info("CPU bulkhead initialized: enabled={}, threads={}, pipe buffer: {} bytes",
+                enabled, cpuExecutor.getMaximumPoolSize(), pipeBufferBytes);
+    }
+
+    /**
+     * Run a CPU-bound task, on the bulkhead when called from a virtual thread and inline otherwise.
+     */
+    public <T> T call(Callable<T> task) throws IOException {
+        if (!shouldOffload()) {
+            try {
+                return task.call();
+            } catch (Exception e) {
+                throw rethrow(e);
+            }
+        }
+
+        return await(submit(task));
+    }
+
+    /**
+     * Wrap an artifact writer so its output is produced on the bulkhead and copied to the client on the calling
+     * thread while it is produced. Once the pipe is full, the producer continues into a scratch file that is
+     * copied after the pipe, and it fails once the client is gone.
+     */
+    public ArtifactWriter offload(ArtifactWriter writer) {
+        return new ArtifactWriter() {
+            @Override
+            public void write(OutputStream out) throws IOException {
+                write(out, () -> {
+                });
+            }
+
+            @Override
+            public void write(OutputStream out, Runnable produced) throws IOException {
+                if (!shouldOffload()) {
+                    writer.write(out, produced);
+                    return;
+                }
+
+                BoundedPipe pipe = new BoundedPipe(pipeBufferBytes, () -> {
+                    spilledCount.incrementAndGet();
+                    return new SpoolingOutputStream(pipeBufferBytes, scratchDir);
+                });
+                Future<Void> production = submit(() -> {
+                    try (OutputStream sink = pipe.sink()) {
+                        writer.write(sink, produced);
+                    }
+                    return null;
+                });
+
+                try {
+                    pipe.drainTo(out);
+                } catch (IOException | RuntimeException e) {
+                    // The client is gone, stop the producer and wait for it so whatever it holds is released first
+                    pipe.abort();
+                    try {
+                        await(production);
+                    } catch (IOException | RuntimeException ignored) {
+                        // Failing on the aborted pipe
+                    }
+                    throw e;
+                }
+                await(production);
+            }
+        };
+    }
+
+    public int getThreads() {
+        return cpuExecutor.getMaximumPoolSize();
+    }
+
+    public int getActiveCount() {
+        return cpuExecutor.getActiveCount();
+    }
+
+    public int getQueuedCount() {
+        return cpuExecutor.getQueue().size();
+    }
+
+    public long getOffloadedCount() {
+        return offloadedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        try {
+            Future<T> future = cpuExecutor.submit(task);
+            offloadedCount.incrementAndGet();
+            return future;
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            throw new AdmissionRejectedException(
+                    "CPU queue is full (depth: " + cpuExecutor.getQueue().size() + ")", 1);
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw rethrow((Exception) e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for CPU work");
+        }
+    }
+
+    private boolean shouldOffload() {
+        return enabled && Thread.currentThread().isVirtual();
+    }
+
+    private static IOException rethrow(Exception e) {
+        if (e instanceof IOException io) {
+            return io;
+        }
+        if (e instanceof RuntimeException re) {
+            throw re;
+        }
+        return new IOException(e);
+    }
+}
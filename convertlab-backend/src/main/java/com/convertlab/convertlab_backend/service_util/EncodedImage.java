@@ -0,0 +1,67 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Image XObject encoded outside of the document it ends up in: the stream parameters and the still filtered data,
+ * plus the soft mask if the image has transparency.
+ * <p>
+ * A PDDocument must not be used from several threads, so images are encoded concurrently into throwaway documents
+ * and only embedded, by copying the encoded bytes, on the thread that owns the target document.
+ */
+public final class EncodedImage {
+
+    private final COSDictionary parameters;
+    private final byte[] data;
+    private final EncodedImage softMask;
+
+    private EncodedImage(COSDictionary parameters, byte[] data, EncodedImage softMask) {
+        this.parameters = parameters;
+        this.data = data;
+        this.softMask = softMask;
+    }
+
+    /**
+     * Snapshot an image of another document, which may be closed afterwards.
+     */
+    static EncodedImage of(PDImageXObject image) throws IOException {
+        COSStream stream = image.getCOSObject();
+
+        COSDictionary parameters = new COSDictionary();
+        for (COSName key : stream.keySet()) {
+            if (!COSName.LENGTH.equals(key) && !COSName.SMASK.equals(key)) {
+                parameters.setItem(key, stream.getDictionaryObject(key));
+            }
+        }
+
+        byte[] data;
+        try (InputStream in = stream.createRawInputStream()) {
+            data = in.readAllBytes();
+        }
+
+        PDImageXObject mask = image.getSoftMask();
+        return new EncodedImage(parameters, data, mask != null ? of(mask) : null);
+    }
+
+    PDImageXObject embed(PDDocument document) throws IOException {
+        COSStream stream = document.getDocument().createCOSStream();
+        stream.addAll(parameters);
+        try (OutputStream out = stream.createRawOutputStream()) {
+            out.write(data);
+        }
+
+        if (softMask != null) {
+            stream.setItem(COSName.SMASK, softMask.embed(document));
+        }
+        return new PDImageXObject(new PDStream(stream), null);
+    }
+}
@@ -6,9 +6,11 @@ import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.imageio.IIOException;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -99,23 +101,44 @@ public class FileValidationService {
     }
 
     /**
-     * Validate image dimensions
+     * Validate image dimensions. Only the format headers are read, the image is decoded only when they cannot be
      */
     public void validateImageDimensions(MultipartFile file) throws IOException {
         log.debug("Validating image dimensions for: {}", file.getOriginalFilename());
 
-        BufferedImage image = ImageIO.read(file.getInputStream());
+        ImageDimensionProbe.ProbedImage probed;
+        try (InputStream in = file.getInputStream()) {
+            probed = ImageDimensionProbe.probe(in);
+        }
 
-        if (image == null) {
-            throw new FileValidationException(
-                    "Unable to read image file. File may be corrupted.",
-                    "CORRUPTED_IMAGE"
-            );
+        int width;
+        int height;
+        if (probed != null) {
+            width = probed.getWidth();
+            height = probed.getHeight();
+        } else {
+            log.debug("No readable image header in: {}, decoding it", file.getOriginalFilename());
+
+            BufferedImage image;
+            try (InputStream in = file.getInputStream()) {
+                image = ImageIO.read(in);
+            } catch (IIOException e) {
+                // A reader recognized the format but the data is broken
+                log.debug("Failed to decode image: {}", file.getOriginalFilename(), e);
+                image = null;
+            }
+
+            if (image == null) {
+                throw new FileValidationException(
+                        "Unable to read image file. File may be corrupted.",
+                        "CORRUPTED_IMAGE"
+                );
+            }
+            width = image.getWidth();
+            height = image.getHeight();
         }
 
         int maxDimension = validationConfig.getImage().getMaxDimensionPx();
-        int width = image.getWidth();
-        int height = image.getHeight();
 
         if (width > maxDimension || height > maxDimension) {
             throw new FileValidationException(
@@ -125,6 +148,15 @@ public class FileValidationService {
             );
         }
 
+        // The JDK can size a WebP image from its header but not decode it for conversion
+        if (probed != null && ImageDimensionProbe.WEBP.equals(probed.getFormat())
+                && !ImageIO.getImageReadersByFormatName(ImageDimensionProbe.WEBP).hasNext()) {
+            throw new FileValidationException(
+                    "WebP images are not supported yet. Please upload PNG or JPEG.",
+                    "UNSUPPORTED_IMAGE_FORMAT"
+            );
+        }
+
         log.debug("Image dimensions validation passed: {}x{}", width, height);
     }
 
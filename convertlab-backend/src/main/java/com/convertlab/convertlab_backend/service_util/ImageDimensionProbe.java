@@ -0,0 +1,121 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Reads image dimensions from the format headers without decoding any pixel data.
+ * <p>
+ * PNG (IHDR), JPEG (SOF), GIF and BMP go through the header parsing of the matching {@link ImageReader}.
+ * The JDK has no WebP reader, so the RIFF header of WebP files is parsed here.
+ */
+public final class ImageDimensionProbe {
+
+    public static final String WEBP = "webp";
+
+    // RIFF header, chunk header and the fixed part of any of the VP8, VP8L and VP8X chunks
+    private static final int WEBP_HEADER_LENGTH = 30;
+
+    private ImageDimensionProbe() {
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class ProbedImage {
+        private final String format;
+        private final int width;
+        private final int height;
+    }
+
+    /**
+     * @return format and size of the first image in the stream, or null when its headers cannot be read
+     */
+    public static ProbedImage probe(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+
+        buffered.mark(WEBP_HEADER_LENGTH);
+        byte[] header = buffered.readNBytes(WEBP_HEADER_LENGTH);
+        buffered.reset();
+
+        if (isWebP(header)) {
+            return probeWebP(header);
+        }
+
+        // Memory cache, the default file cache would write a temp file for a few header bytes
+        try (ImageInputStream iis = new MemoryCacheImageInputStream(buffered)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                return width > 0 && height > 0
+                        ? new ProbedImage(reader.getFormatName().toLowerCase(), width, height)
+                        : null;
+            } catch (IOException | RuntimeException e) {
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static boolean isWebP(byte[] header) {
+        return header.length == WEBP_HEADER_LENGTH
+                && header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P';
+    }
+
+    private static ProbedImage probeWebP(byte[] header) {
+        String chunk = new String(header, 12, 4, StandardCharsets.US_ASCII);
+
+        switch (chunk) {
+            case "VP8 " -> {
+                // Lossy: key frame start code, then 14-bit width and height
+                if ((header[23] & 0xFF) != 0x9D || (header[24] & 0xFF) != 0x01 || (header[25] & 0xFF) != 0x2A) {
+                    return null;
+                }
+                int width = uint16(header, 26) & 0x3FFF;
+                int height = uint16(header, 28) & 0x3FFF;
+                return new ProbedImage(WEBP, width, height);
+            }
+            case "VP8L" -> {
+                // Lossless: signature byte, then width - 1 and height - 1 packed in 14 bits each
+                if ((header[20] & 0xFF) != 0x2F) {
+                    return null;
+                }
+                int bits = uint16(header, 21) | uint16(header, 23) << 16;
+                return new ProbedImage(WEBP, (bits & 0x3FFF) + 1, ((bits >> 14) & 0x3FFF) + 1);
+            }
+            case "VP8X" -> {
+                // Extended: canvas width - 1 and height - 1 in 24 bits each
+                return new ProbedImage(WEBP, uint24(header, 24) + 1, uint24(header, 27) + 1);
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private static int uint16(byte[] b, int offset) {
+        return (b[offset] & 0xFF) | (b[offset + 1] & 0xFF) << 8;
+    }
+
+    private static int uint24(byte[] b, int offset) {
+        return uint16(b, offset) | (b[offset + 2] & 0xFF) << 16;
+    }
+}
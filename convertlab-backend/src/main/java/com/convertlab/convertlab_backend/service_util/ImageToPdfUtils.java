@@ -1,90 +1,128 @@
 package com.convertlab.convertlab_backend.service_util;
 
+import com.convertlab.convertlab_backend.exception.AssetNotFoundException;
+import com.convertlab.convertlab_backend.service_metrics.StageTimer;
+import com.convertlab.convertlab_backend.service_storage.AssetContent;
 import com.convertlab.convertlab_backend.service_storage.StorageService;
 import com.convertlab.convertlab_backend.service_web.controllers.dto.ImageToPdfRequest;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 
 import javax.imageio.ImageIO;
-import java.awt.geom.AffineTransform;
-import java.awt.image.AffineTransformOp;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 public class ImageToPdfUtils {
 
-    public static byte[] convertImagesToPdf(
+    public static void convertImagesToPdf(
             List<ImageToPdfRequest.ImageInfo> images,
-            StorageService storageService
+            StorageService storageService,
+            OutputStream out,
+            StreamCacheCreateFunction streamCache
     ) throws IOException {
 
-        try (PDDocument document = new PDDocument();
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+        try (PDDocument document = new PDDocument(streamCache)) {
 
             for (ImageToPdfRequest.ImageInfo imageInfo : images) {
-                File imageFile = storageService.loadImage(imageInfo.getFileId());
-                BufferedImage bufferedImage = ImageIO.read(imageFile);
-
-                // Apply rotation if needed
-                if (imageInfo.getRotation() != 0) {
-                    bufferedImage = rotateImage(bufferedImage, imageInfo.getRotation());
-                }
-
-                // Create temporary file for rotated image
-                File tempFile = File.createTempFile("rotated_", ".png");
-                ImageIO.write(bufferedImage, "png", tempFile);
-
-                // Create PDF page with image dimensions
-                float width = bufferedImage.getWidth();
-                float height = bufferedImage.getHeight();
-                PDRectangle pageSize = new PDRectangle(width, height);
-                PDPage page = new PDPage(pageSize);
-                document.addPage(page);
-
-                // Add image to page
-                PDImageXObject pdImage = PDImageXObject.createFromFile(
-                        tempFile.getAbsolutePath(),
-                        document
-                );
-
-                try (PDPageContentStream contentStream = new PDPageContentStream(
-                        document, page, PDPageContentStream.AppendMode.APPEND, true)) {
-                    contentStream.drawImage(pdImage, 0, 0, width, height);
-                }
-
-                // Clean up temp file
-                tempFile.delete();
+                AssetContent image = storageService.findImage(imageInfo.getFileId())
+                        .orElseThrow(() -> new AssetNotFoundException(imageInfo.getFileId()));
+                addImagePage(document, createImage(document, image), imageInfo.getRotation());
             }
 
-            document.save(baos);
-            return baos.toByteArray();
+            StageTimer.run(StageTimer.IMAGES_SAVE, () -> document.save(new CloseShieldOutputStream(out)));
         }
     }
 
-    private static BufferedImage rotateImage(BufferedImage image, int rotation) {
-        double radians = Math.toRadians(rotation);
-        double sin = Math.abs(Math.sin(radians));
-        double cos = Math.abs(Math.cos(radians));
+    /**
+     * Encode an image without a target document, safe to call from several threads at once.
+     */
+    public static EncodedImage encodeImage(AssetContent image) throws IOException {
+        try (PDDocument scratch = new PDDocument()) {
+            return EncodedImage.of(createImage(scratch, image));
+        }
+    }
 
-        int newWidth = (int) Math.floor(image.getWidth() * cos + image.getHeight() * sin);
-        int newHeight = (int) Math.floor(image.getHeight() * cos + image.getWidth() * sin);
+    /**
+     * Add a page showing an image encoded by {@link #encodeImage(AssetContent)}.
+     */
+    public static void addImagePage(PDDocument document, EncodedImage image, int rotation) throws IOException {
+        addImagePage(document, image.embed(document), rotation);
+    }
 
-        BufferedImage rotated = new BufferedImage(newWidth, newHeight, image.getType());
-        AffineTransform transform = new AffineTransform();
-        transform.translate((newWidth - image.getWidth()) / 2.0, (newHeight - image.getHeight()) / 2.0);
+    private static void addImagePage(PDDocument document, PDImageXObject pdImage, int rotation) throws IOException {
+        // Create PDF page with image dimensions, rotation is applied by the viewer
+        float width = pdImage.getWidth();
+        float height = pdImage.getHeight();
+        PDRectangle pageSize = new PDRectangle(width, height);
+        PDPage page = new PDPage(pageSize);
+        page.setRotation(normalizeRotation(rotation));
+        document.addPage(page);
+
+        try (PDPageContentStream contentStream = new PDPageContentStream(
+                document, page, PDPageContentStream.AppendMode.APPEND, true)) {
+            contentStream.drawImage(pdImage, 0, 0, width, height);
+        }
+    }
 
-        int x = image.getWidth() / 2;
-        int y = image.getHeight() / 2;
+    /**
+     * Clockwise rotation as a page /Rotate value, which must be a multiple of 90.
+     */
+    public static int normalizeRotation(int rotation) {
+        return ((rotation % 360) + 360) % 360;
+    }
+
+    public static boolean isValidRotation(int rotation) {
+        return rotation % 90 == 0;
+    }
 
-        transform.rotate(radians, x, y);
-        AffineTransformOp op = new AffineTransformOp(transform, AffineTransformOp.TYPE_BILINEAR);
+    private static PDImageXObject createImage(PDDocument document, AssetContent image) throws IOException {
+        return StageTimer.time(StageTimer.IMAGE_ENCODE, () -> encode(document, image));
+    }
 
-        return op.filter(image, rotated);
+    /**
+     * JPEGs are embedded as they are, as a DCT stream, without being decoded.
+     * Everything else is decoded once and encoded losslessly straight from the raster.
+     */
+    private static PDImageXObject encode(PDDocument document, AssetContent image) throws IOException {
+        if (isJpeg(image)) {
+            try (InputStream in = new BufferedInputStream(image.openStream())) {
+                return JPEGFactory.createFromStream(document, in);
+            }
+        }
+
+        BufferedImage bufferedImage;
+        if (image.getFile() != null) {
+            bufferedImage = ImageIO.read(image.getFile().toFile());
+        } else {
+            // Not ImageIO.read(InputStream), which caches the stream in a temp file
+            try (InputStream in = image.openStream()) {
+                bufferedImage = ImageIO.read(new MemoryCacheImageInputStream(in));
+            }
+        }
+        return LosslessFactory.createFromImage(document, bufferedImage);
+    }
+
+    /**
+     * Detect JPEG by its SOI marker rather than trusting the file extension.
+     */
+    private static boolean isJpeg(AssetContent image) throws IOException {
+        try (InputStream in = image.openStream()) {
+            byte[] header = in.readNBytes(3);
+            return header.length == 3
+                    && (header[0] & 0xFF) == 0xFF
+                    && (header[1] & 0xFF) == 0xD8
+                    && (header[2] & 0xFF) == 0xFF;
+        }
     }
-}
\ No newline at end of file
+}
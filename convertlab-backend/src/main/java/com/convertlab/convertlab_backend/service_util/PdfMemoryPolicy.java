@@ -0,0 +1,148 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import com.convertlab.convertlab_backend.service_metrics.StageTimer;
+import com.convertlab.convertlab_backend.service_storage.AssetContent;
+import lombok.extern.log4j.Log4j2;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses how PDFBox buffers stream data for a document.
+ * Small inputs stay in main memory, larger ones get a bounded heap budget and spill to a scratch directory
+ * under the temp folder, so a few concurrent large documents cannot exhaust the heap.
+ */
+@Log4j2
+@Service
+public class PdfMemoryPolicy {
+
+    // Rough heap taken by the parsed object graph of a page, on top of its buffered stream data
+    private static final long PAGE_OVERHEAD_BYTES = 32 * 1024;
+
+    private final boolean budgetEnabled;
+    private final long spillThresholdBytes;
+    private final long maxMainMemoryBytes;
+    private final File scratchDir;
+
+    private final AtomicLong mainMemoryCount = new AtomicLong();
+    private final AtomicLong spillCount = new AtomicLong();
+
+    public PdfMemoryPolicy(ProcessingConfig processingConfig,
+                           @Value("${temp.folder:temp-files}") String tempFolder) throws IOException {
+        this.budgetEnabled = processingConfig.getMemory().isBudgetEnabled();
+        this.spillThresholdBytes = processingConfig.getSpillThresholdBytes();
+        this.maxMainMemoryBytes = processingConfig.getMaxMainMemoryBytes();
+
+        Path scratchPath = Paths.get(tempFolder, "scratch");
+        Files.createDirectories(scratchPath);
+        this.scratchDir = scratchPath.toFile();
+
+        log.info("PDF memory policy initialized: budgetEnabled={}, spillThreshold={} bytes, maxMainMemory={} bytes, scratch={}",
+                budgetEnabled, spillThresholdBytes, maxMainMemoryBytes, scratchPath.toAbsolutePath());
+    }
+
+    /**
+     * Stream cache for a document whose data is expected to be about the given size.
+     */
+    public StreamCacheCreateFunction streamCacheFor(long expectedBytes) {
+        MemoryUsageSetting setting;
+
+        if (!budgetEnabled || expectedBytes <= spillThresholdBytes) {
+            mainMemoryCount.incrementAndGet();
+            setting = MemoryUsageSetting.setupMainMemoryOnly();
+        } else {
+            spillCount.incrementAndGet();
+            log.debug("Using scratch-file buffering for {} bytes (heap ceiling: {} bytes)",
+                    expectedBytes, maxMainMemoryBytes);
+            setting = MemoryUsageSetting.setupMixed(maxMainMemoryBytes).setTempDir(scratchDir);
+        }
+
+        return () -> new ScratchFile(setting);
+    }
+
+    /**
+     * Parse a stored asset. The document reads its content lazily through its own view of it, and closes the view.
+     * The view may be read by several threads at once, see {@link SharedRandomAccessRead}.
+     * <p>
+     * Remote content is parsed strictly first. Lenient parsing checks the offset of every object while loading,
+     * which reads all of the document, strict parsing only reads the cross-reference data until objects are used.
+     * Documents strict parsing rejects are parsed again leniently.
+     */
+    public PDDocument load(AssetContent content) throws IOException {
+        return StageTimer.time(StageTimer.PDF_PARSE, () -> parse(content));
+    }
+
+    private PDDocument parse(AssetContent content) throws IOException {
+        if (content.isRemote()) {
+            RandomAccessRead source = new SharedRandomAccessRead(content.openRandomAccess());
+            try {
+                return new PDFParser(source, "", null, null, streamCacheFor(content.getSize())).parse(false);
+            } catch (IOException | RuntimeException e) {
+                IOUtils.closeQuietly(source);
+                log.debug("Strict parsing failed, parsing leniently: {}", e.getMessage());
+            }
+        }
+
+        RandomAccessRead source = new SharedRandomAccessRead(content.openRandomAccess());
+        try {
+            return Loader.loadPDF(source, streamCacheFor(content.getSize()));
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(source);
+            throw e;
+        }
+    }
+
+    public PDDocument newDocument(long expectedBytes) {
+        return new PDDocument(streamCacheFor(expectedBytes));
+    }
+
+    /**
+     * Buffer for one of several outputs held at the same time, spilling to the scratch directory so that all of
+     * them together stay within the spill threshold.
+     */
+    public SpoolingOutputStream newSpool(int heldAtOnce) {
+        long threshold = budgetEnabled ? spillThresholdBytes / Math.max(1, heldAtOnce) : Long.MAX_VALUE;
+        return new SpoolingOutputStream(threshold, scratchDir.toPath());
+    }
+
+    /**
+     * Heap taken by several outputs of about the given size held at once in buffers from {@link #newSpool(int)}.
+     */
+    public long estimateSpooledBytes(long expectedBytes, int heldAtOnce) {
+        long total = expectedBytes * heldAtOnce;
+        return budgetEnabled ? Math.min(total, spillThresholdBytes) : total;
+    }
+
+    /**
+     * Peak heap a document of about the given size is expected to take, given how its stream data is buffered.
+     */
+    public long estimateHeapBytes(long expectedBytes, int pages) {
+        long buffered = !budgetEnabled || expectedBytes <= spillThresholdBytes
+                ? expectedBytes
+                : Math.min(expectedBytes, maxMainMemoryBytes);
+        return buffered + pages * PAGE_OVERHEAD_BYTES;
+    }
+
+    public long getMainMemoryCount() {
+        return mainMemoryCount.get();
+    }
+
+    public long getSpillCount() {
+        return spillCount.get();
+    }
+}
@@ -1,57 +1,265 @@
 package com.convertlab.convertlab_backend.service_util;
 
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
 import com.convertlab.convertlab_backend.exception.InvalidPageInputException;
+import com.convertlab.convertlab_backend.service_core.pojos.PageMetadata;
+import com.convertlab.convertlab_backend.service_metrics.StageTimer;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSDocument;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
 import org.apache.pdfbox.multipdf.PDFMergerUtility;
 import org.apache.pdfbox.pdmodel.*;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageFitDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineNode;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
 
 public class PdfUtils {
 
     final static String FILE_NAME_SEPARATOR = "_";
 
+    private static final COSName GO_TO = COSName.getPDFName("GoTo");
+    private static final COSName IN_REPLY_TO = COSName.getPDFName("IRT");
+
     public static int getPageCount(File pdfFile) throws IOException {
         try (PDDocument doc = Loader.loadPDF(pdfFile)) {
             return doc.getNumberOfPages();
         }
     }
 
-    public static byte[] extractPages(File pdfFile, List<Integer> pagesToKeep) throws IOException {
-        try (PDDocument original = Loader.loadPDF(pdfFile);
-             PDDocument output = new PDDocument();
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+    public static void extractPages(PDDocument original, List<Integer> pagesToKeep, OutputStream out,
+                                    StreamCacheCreateFunction streamCache) throws IOException {
+        try (PDDocument output = new PDDocument(streamCache)) {
 
             PDPageTree allPages = original.getDocumentCatalog().getPages();
 
+            List<PDPage> selected = new ArrayList<>(pagesToKeep.size());
             for (Integer pageNum : pagesToKeep) {
-                output.addPage(allPages.get(pageNum - 1)); // 0-based index
+                selected.add(allPages.get(pageNum - 1)); // 0-based index
             }
+            copyPages(selected, output);
+
+            StageTimer.run(StageTimer.EXTRACT_SAVE, () -> output.save(new CloseShieldOutputStream(out)));
+        }
+    }
+
+    /**
+     * Add pages of (possibly cached) source documents to the target without touching the source page trees.
+     * Only the page and annotation dictionaries are shallow-copied, content streams and resources are shared until
+     * save. Inherited attributes are resolved against the source tree before the copy is re-parented.
+     * <p>
+     * Annotations refer back to their page and link to other pages, which would write the whole source page tree
+     * into the target. They are pointed at the copies, and links to pages that are not copied are dropped.
+     */
+    public static List<PDPage> copyPages(List<PDPage> sourcePages, PDDocument target) {
+        return copyPages(sourcePages, target, new IdentityHashMap<>(), new IdentityHashMap<>());
+    }
+
+    /**
+     * @param copies           filled with the copy of every source page, the first one for a page copied twice
+     * @param annotationCopies filled with the copy of every source annotation, the first one likewise
+     */
+    private static List<PDPage> copyPages(List<PDPage> sourcePages, PDDocument target,
+                                          Map<COSDictionary, COSDictionary> copies,
+                                          Map<COSDictionary, COSDictionary> annotationCopies) {
+        List<PDPage> copied = new ArrayList<>(sourcePages.size());
+
+        for (PDPage sourcePage : sourcePages) {
+            PDPage copy = new PDPage(new COSDictionary(sourcePage.getCOSObject()));
+            copy.setMediaBox(sourcePage.getMediaBox());
+            copy.setCropBox(sourcePage.getCropBox());
+            copy.setRotation(sourcePage.getRotation());
+            copy.setResources(sourcePage.getResources());
+            // Article beads link into threads of the source document
+            copy.getCOSObject().removeItem(COSName.B);
+
+            target.addPage(copy);
+            copies.putIfAbsent(sourcePage.getCOSObject(), copy.getCOSObject());
+            copied.add(copy);
+        }
+
+        for (PDPage copy : copied) {
+            copyAnnotations(copy.getCOSObject(), copies, annotationCopies);
+        }
+        return copied;
+    }
+
+    /**
+     * Replace the annotations of a copied page by copies pointing at the target document.
+     */
+    private static void copyAnnotations(COSDictionary page, Map<COSDictionary, COSDictionary> pageCopies,
+                                        Map<COSDictionary, COSDictionary> annotationCopies) {
+        COSArray annotations = page.getCOSArray(COSName.ANNOTS);
+        if (annotations == null) {
+            return;
+        }
+
+        Map<COSDictionary, COSDictionary> copies = new IdentityHashMap<>();
+        COSArray copied = new COSArray();
+        for (COSBase item : annotations) {
+            COSBase resolved = item instanceof COSObject object ? object.getObject() : item;
+            if (resolved instanceof COSDictionary annotation) {
+                COSDictionary copy = new COSDictionary(annotation);
+                copies.put(annotation, copy);
+                annotationCopies.putIfAbsent(annotation, copy);
+                copied.add(copy);
+            }
+        }
+
+        for (int i = 0; i < copied.size(); i++) {
+            COSDictionary annotation = (COSDictionary) copied.getObject(i);
+            annotation.setItem(COSName.P, page);
+            // Popups and replies on the same page point at the copies, the rest would reach into the source
+            relink(annotation, COSName.POPUP, copies);
+            relink(annotation, IN_REPLY_TO, copies);
+            relink(annotation, COSName.PARENT, copies);
+
+            COSBase destination = annotation.getDictionaryObject(COSName.DEST);
+            if (destination != null) {
+                COSBase target = copyDestination(destination, pageCopies);
+                if (target != null) {
+                    annotation.setItem(COSName.DEST, target);
+                } else {
+                    annotation.removeItem(COSName.DEST);
+                }
+            }
+
+            if (annotation.getDictionaryObject(COSName.A) instanceof COSDictionary action) {
+                COSBase actionCopy = copyAction(action, pageCopies);
+                if (actionCopy != null) {
+                    annotation.setItem(COSName.A, actionCopy);
+                } else {
+                    annotation.removeItem(COSName.A);
+                }
+            }
+        }
+        page.setItem(COSName.ANNOTS, copied);
+    }
+
+    private static void relink(COSDictionary annotation, COSName key, Map<COSDictionary, COSDictionary> copies) {
+        if (!annotation.containsKey(key)) {
+            return;
+        }
+        COSBase target = annotation.getDictionaryObject(key);
+        COSDictionary copy = target instanceof COSDictionary dictionary ? copies.get(dictionary) : null;
+        if (copy != null) {
+            annotation.setItem(key, copy);
+        } else {
+            annotation.removeItem(key);
+        }
+    }
+
+    /**
+     * A go-to action pointing at the copied page, or null when its page is not copied. Other actions, such as
+     * URIs, are kept as they are without the actions chained after them.
+     */
+    private static COSBase copyAction(COSDictionary action, Map<COSDictionary, COSDictionary> pageCopies) {
+        COSDictionary copy = new COSDictionary(action);
+        copy.removeItem(COSName.NEXT);
+
+        if (!GO_TO.equals(action.getCOSName(COSName.S))) {
+            return copy;
+        }
+        COSBase target = copyDestination(action.getDictionaryObject(COSName.D), pageCopies);
+        if (target == null) {
+            return null;
+        }
+        copy.setItem(COSName.D, target);
+        return copy;
+    }
+
+    /**
+     * An explicit destination pointing at the copied page, or null when its page is not copied. Named
+     * destinations are resolved through the source catalog, which is not copied, so they are dropped too.
+     */
+    private static COSBase copyDestination(COSBase destination, Map<COSDictionary, COSDictionary> pageCopies) {
+        if (!(destination instanceof COSArray array) || array.size() == 0
+                || !(array.getObject(0) instanceof COSDictionary page)) {
+            return null;
+        }
+        COSDictionary pageCopy = pageCopies.get(page);
+        if (pageCopy == null) {
+            return null;
+        }
 
-            output.save(baos);
-            return baos.toByteArray();
+        COSArray copy = new COSArray();
+        copy.add(pageCopy);
+        for (int i = 1; i < array.size(); i++) {
+            copy.add(array.get(i));
         }
+        return copy;
+    }
+
+    /**
+     * Parse every object of a loaded document now instead of when it is first used. PDFBox resolves references
+     * lazily and not atomically, a document read by several threads at once must be fully resolved first.
+     * Stream data is not read.
+     */
+    public static void resolveObjects(PDDocument document) {
+        COSDocument cosDocument = document.getDocument();
+        for (COSObjectKey key : new ArrayList<>(cosDocument.getXrefTable().keySet())) {
+            cosDocument.getObjectFromPool(key).getObject();
+        }
+    }
+
+    /**
+     * Describe the size and rotation of every page, 1-based in document order.
+     */
+    public static List<PageMetadata> describePages(PDDocument document) {
+        List<PageMetadata> pages = new ArrayList<>(document.getNumberOfPages());
+
+        int number = 1;
+        for (PDPage page : document.getPages()) {
+            PDRectangle cropBox = page.getCropBox();
+            pages.add(new PageMetadata(number++, cropBox.getWidth(), cropBox.getHeight(), page.getRotation()));
+        }
+        return pages;
     }
 
     public static String getOriginalUserFileName(File pdfFile) {
         if (null == pdfFile) {
             return null;
         }
-        String[] fileNameParts = pdfFile.getName().split(FILE_NAME_SEPARATOR);
+        return getOriginalUserFileName(pdfFile.getName());
+    }
+
+    /**
+     * The user's file name from an assetId, which does not have to match the name of the stored file.
+     */
+    public static String getOriginalUserFileName(String fileId) {
+        if (null == fileId) {
+            return null;
+        }
+        // Split only on the first separator, the user's file name may contain it as well
+        String[] fileNameParts = fileId.split(FILE_NAME_SEPARATOR, 2);
         if (fileNameParts.length == 1) {
             return fileNameParts[0];
         }
         if (fileNameParts.length > 1) {
             return fileNameParts[1];
         }
-        return pdfFile.getName();
+        return fileId;
     }
 
     public static void validateInputRangePattern(String input) {
@@ -187,18 +395,221 @@ public class PdfUtils {
         }
     }
 
-    public static byte[] mergePdfs(List<File> pdfFiles) throws IOException {
+    /**
+     * Merge pages of several documents in one pass. A source taken whole is appended by {@link PDFMergerUtility},
+     * which carries its form fields and bookmarks along. A page selection is added with {@link #copyPages}, which
+     * shares content with the source instead of cloning it, and the form fields and bookmarks of the selected
+     * pages are rebuilt for the copies.
+     *
+     * @param pages 1-based page numbers to take from each source, sorted and distinct
+     */
+    public static void mergePdfs(List<PDDocument> sources, List<List<Integer>> pages, OutputStream out,
+                                 StreamCacheCreateFunction streamCache) throws IOException {
         PDFMergerUtility merger = new PDFMergerUtility();
 
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            for (File pdfFile : pdfFiles) {
-                merger.addSource(pdfFile);
+        try (PDDocument output = new PDDocument(streamCache)) {
+            for (int i = 0; i < sources.size(); i++) {
+                PDDocument source = sources.get(i);
+                if (pages.get(i).size() == source.getNumberOfPages()) {
+                    merger.appendDocument(output, source);
+                } else {
+                    appendSelection(source, pages.get(i), output);
+                }
             }
-            merger.setDestinationStream(baos);
-            merger.mergeDocuments(null);
+            StageTimer.run(StageTimer.MERGE_SAVE, () -> output.save(new CloseShieldOutputStream(out)));
+        }
+    }
 
-            return baos.toByteArray();
+    private static void appendSelection(PDDocument source, List<Integer> selection, PDDocument output) {
+        PDPageTree sourcePages = source.getDocumentCatalog().getPages();
+        List<PDPage> selected = new ArrayList<>(selection.size());
+        for (Integer pageNum : selection) {
+            selected.add(sourcePages.get(pageNum - 1));
         }
+
+        Map<COSDictionary, COSDictionary> pageCopies = new IdentityHashMap<>();
+        Map<COSDictionary, COSDictionary> annotationCopies = new IdentityHashMap<>();
+        copyPages(selected, output, pageCopies, annotationCopies);
+        copyFields(source, annotationCopies, output);
+        copyOutline(source, pageCopies, output);
+    }
+
+    /**
+     * Add the form fields of the copied widgets to the target form. Fields keep their values and are cut down to
+     * the widgets that were copied. A top-level name already taken in the target gets a numbered suffix.
+     */
+    private static void copyFields(PDDocument source, Map<COSDictionary, COSDictionary> widgetCopies,
+                                   PDDocument target) {
+        // Without the default fixup, which would change the shared source
+        PDAcroForm sourceForm = source.getDocumentCatalog().getAcroForm(null);
+        COSArray fields = sourceForm != null ? sourceForm.getCOSObject().getCOSArray(COSName.FIELDS) : null;
+        if (fields == null || widgetCopies.isEmpty()) {
+            return;
+        }
+
+        List<COSDictionary> copies = new ArrayList<>();
+        Set<COSDictionary> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.getObject(i) instanceof COSDictionary field) {
+                COSDictionary copy = copyField(field, widgetCopies, visited);
+                if (copy != null) {
+                    copy.removeItem(COSName.PARENT);
+                    copies.add(copy);
+                }
+            }
+        }
+        if (copies.isEmpty()) {
+            return;
+        }
+
+        PDAcroForm targetForm = target.getDocumentCatalog().getAcroForm(null);
+        if (targetForm == null) {
+            targetForm = new PDAcroForm(target);
+            target.getDocumentCatalog().setAcroForm(targetForm);
+        }
+        COSDictionary form = targetForm.getCOSObject();
+        for (COSName key : List.of(COSName.DA, COSName.DR, COSName.NEED_APPEARANCES)) {
+            if (!form.containsKey(key) && sourceForm.getCOSObject().containsKey(key)) {
+                form.setItem(key, sourceForm.getCOSObject().getItem(key));
+            }
+        }
+
+        COSArray targetFields = form.getCOSArray(COSName.FIELDS);
+        if (targetFields == null) {
+            targetFields = new COSArray();
+            form.setItem(COSName.FIELDS, targetFields);
+        }
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < targetFields.size(); i++) {
+            if (targetFields.getObject(i) instanceof COSDictionary field && field.getString(COSName.T) != null) {
+                names.add(field.getString(COSName.T));
+            }
+        }
+        for (COSDictionary copy : copies) {
+            String name = copy.getString(COSName.T);
+            if (name != null && !names.add(name)) {
+                int suffix = 2;
+                while (!names.add(name + "_" + suffix)) {
+                    suffix++;
+                }
+                copy.setString(COSName.T, name + "_" + suffix);
+            }
+            targetFields.add(copy);
+        }
+    }
+
+    /**
+     * A copy of a field holding only its copied widgets, or null when none of them was copied. A field merged
+     * with its widget is the copied widget itself.
+     */
+    private static COSDictionary copyField(COSDictionary field, Map<COSDictionary, COSDictionary> widgetCopies,
+                                           Set<COSDictionary> visited) {
+        if (!visited.add(field)) {
+            return null;
+        }
+        COSDictionary widget = widgetCopies.get(field);
+        if (widget != null) {
+            return widget;
+        }
+        COSArray kids = field.getCOSArray(COSName.KIDS);
+        if (kids == null) {
+            return null;
+        }
+
+        COSDictionary copy = new COSDictionary(field);
+        COSArray kept = new COSArray();
+        for (int i = 0; i < kids.size(); i++) {
+            if (kids.getObject(i) instanceof COSDictionary kid) {
+                COSDictionary kidCopy = copyField(kid, widgetCopies, visited);
+                if (kidCopy != null) {
+                    kidCopy.setItem(COSName.PARENT, copy);
+                    kept.add(kidCopy);
+                }
+            }
+        }
+        if (kept.size() == 0) {
+            return null;
+        }
+        copy.setItem(COSName.KIDS, kept);
+        return copy;
     }
-}
 
+    /**
+     * Add the bookmarks of a source leading to copied pages, pointed at the copies. A bookmark leading elsewhere
+     * is kept as a heading when some of its children are kept.
+     */
+    private static void copyOutline(PDDocument source, Map<COSDictionary, COSDictionary> pageCopies,
+                                    PDDocument target) {
+        PDDocumentOutline outline = source.getDocumentCatalog().getDocumentOutline();
+        if (outline == null) {
+            return;
+        }
+        List<PDOutlineItem> items = copyOutlineItems(outline, source, pageCopies,
+                Collections.newSetFromMap(new IdentityHashMap<>()));
+        if (items.isEmpty()) {
+            return;
+        }
+
+        PDDocumentOutline targetOutline = target.getDocumentCatalog().getDocumentOutline();
+        if (targetOutline == null) {
+            targetOutline = new PDDocumentOutline();
+            target.getDocumentCatalog().setDocumentOutline(targetOutline);
+        }
+        items.forEach(targetOutline::addLast);
+    }
+
+    private static List<PDOutlineItem> copyOutlineItems(PDOutlineNode node, PDDocument source,
+                                                        Map<COSDictionary, COSDictionary> pageCopies,
+                                                        Set<COSDictionary> visited) {
+        List<PDOutlineItem> copies = new ArrayList<>();
+        for (PDOutlineItem item : node.children()) {
+            if (!visited.add(item.getCOSObject())) {
+                continue;
+            }
+
+            PDOutlineItem copy = new PDOutlineItem();
+            copy.setTitle(item.getTitle());
+            copy.getCOSObject().setItem(COSName.C, item.getCOSObject().getDictionaryObject(COSName.C));
+            copy.getCOSObject().setItem(COSName.F, item.getCOSObject().getDictionaryObject(COSName.F));
+            COSBase destination = copyOutlineDestination(item, source, pageCopies);
+            if (destination != null) {
+                copy.getCOSObject().setItem(COSName.DEST, destination);
+            }
+            copyOutlineItems(item, source, pageCopies, visited).forEach(copy::addLast);
+
+            if (destination != null || copy.hasChildren()) {
+                if (item.isNodeOpen()) {
+                    copy.openNode();
+                }
+                copies.add(copy);
+            }
+        }
+        return copies;
+    }
+
+    /**
+     * The destination of a bookmark leading to a copied page, or null. An explicit destination keeps its view,
+     * a named one or a go-to action becomes a fit of the copied page. One that cannot be resolved is dropped.
+     */
+    private static COSBase copyOutlineDestination(PDOutlineItem item, PDDocument source,
+                                                  Map<COSDictionary, COSDictionary> pageCopies) {
+        try {
+            PDPage page = item.findDestinationPage(source);
+            COSDictionary pageCopy = page != null ? pageCopies.get(page.getCOSObject()) : null;
+            if (pageCopy == null) {
+                return null;
+            }
+            if (item.getDestination() instanceof PDPageDestination explicit) {
+                COSBase copy = copyDestination(explicit.getCOSObject(), pageCopies);
+                if (copy != null) {
+                    return copy;
+                }
+            }
+            PDPageFitDestination fit = new PDPageFitDestination();
+            fit.setPage(new PDPage(pageCopy));
+            return fit.getCOSObject();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
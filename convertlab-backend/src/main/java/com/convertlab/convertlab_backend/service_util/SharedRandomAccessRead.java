@@ -0,0 +1,181 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadView;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Source of a parsed document that several threads read at once.
+ * <p>
+ * PDFBox reads stream data through views that seek the source before every read, and all readers of a stream share
+ * its one view, seeking it to their own position first. Reads of the source are serialized here, views read at
+ * their own offset and put the source back where the parser left it, and keep their position per thread so two
+ * readers of the same stream do not move each other. Objects are still parsed one at a time by PDFBox itself.
+ */
+public class SharedRandomAccessRead implements RandomAccessRead {
+
+    private final RandomAccessRead source;
+
+    public SharedRandomAccessRead(RandomAccessRead source) {
+        this.source = source;
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+        return source.read();
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int offset, int length) throws IOException {
+        return source.read(b, offset, length);
+    }
+
+    @Override
+    public synchronized long getPosition() throws IOException {
+        return source.getPosition();
+    }
+
+    @Override
+    public synchronized void seek(long position) throws IOException {
+        source.seek(position);
+    }
+
+    @Override
+    public synchronized long length() throws IOException {
+        return source.length();
+    }
+
+    @Override
+    public synchronized boolean isClosed() {
+        return source.isClosed();
+    }
+
+    @Override
+    public synchronized boolean isEOF() throws IOException {
+        return source.isEOF();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        source.close();
+    }
+
+    @Override
+    public RandomAccessReadView createView(long startPosition, long streamLength) {
+        return new SharedView(this, startPosition, streamLength);
+    }
+
+    /**
+     * Read at an absolute offset without moving the source.
+     */
+    private synchronized int readAt(long position, byte[] b, int offset, int length) throws IOException {
+        long saved = source.getPosition();
+        try {
+            source.seek(position);
+            return source.read(b, offset, length);
+        } finally {
+            source.seek(saved);
+        }
+    }
+
+    private static final class SharedView extends RandomAccessReadView {
+
+        private final SharedRandomAccessRead shared;
+        private final long startPosition;
+        private final long streamLength;
+        private final ThreadLocal<long[]> position = ThreadLocal.withInitial(() -> new long[1]);
+        private volatile boolean closed;
+
+        SharedView(SharedRandomAccessRead shared, long startPosition, long streamLength) {
+            super(shared, startPosition, streamLength, false);
+            this.shared = shared;
+            this.startPosition = startPosition;
+            this.streamLength = streamLength;
+        }
+
+        @Override
+        public long getPosition() throws IOException {
+            checkClosed();
+            return position.get()[0];
+        }
+
+        @Override
+        public void seek(long newPosition) throws IOException {
+            checkClosed();
+            if (newPosition < 0) {
+                throw new IOException("Invalid position " + newPosition);
+            }
+            position.get()[0] = Math.min(newPosition, streamLength);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == 1 ? single[0] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int offset, int length) throws IOException {
+            checkClosed();
+            long[] current = position.get();
+            if (current[0] >= streamLength) {
+                return -1;
+            }
+            if (length == 0) {
+                return 0;
+            }
+
+            int count = (int) Math.min(length, streamLength - current[0]);
+            int read = shared.readAt(startPosition + current[0], b, offset, count);
+            if (read > 0) {
+                current[0] += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long length() throws IOException {
+            checkClosed();
+            return streamLength;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed || shared.isClosed();
+        }
+
+        @Override
+        public boolean isEOF() throws IOException {
+            checkClosed();
+            return position.get()[0] >= streamLength;
+        }
+
+        @Override
+        public void rewind(int bytes) throws IOException {
+            checkClosed();
+            long[] current = position.get();
+            if (bytes > current[0]) {
+                throw new EOFException("Cannot rewind " + bytes + " bytes from position " + current[0]);
+            }
+            current[0] -= bytes;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public RandomAccessReadView createView(long viewStart, long viewLength) {
+            return new SharedView(shared, startPosition + viewStart, viewLength);
+        }
+
+        private void checkClosed() throws IOException {
+            if (isClosed()) {
+                throw new IOException("RandomAccessReadView already closed");
+            }
+        }
+    }
+}
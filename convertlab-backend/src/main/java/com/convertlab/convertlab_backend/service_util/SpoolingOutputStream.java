@@ -0,0 +1,97 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Buffers written bytes in memory up to a threshold and continues in a scratch file beyond it,
+ * so a producer can finish at its own pace while the bytes are drained to a slow consumer afterwards.
+ * <p>
+ * {@link #close()} only ends the writing side, the spooled bytes stay available until {@link #discard()}.
+ */
+public class SpoolingOutputStream extends OutputStream {
+
+    private final long threshold;
+    private final Path spoolDir;
+
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private Path file;
+    private OutputStream fileOut;
+    private long size;
+
+    public SpoolingOutputStream(long threshold, Path spoolDir) {
+        this.threshold = threshold;
+        this.spoolDir = spoolDir;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        target(1).write(b);
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        target(len).write(b, off, len);
+        size += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (fileOut != null) {
+            fileOut.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (fileOut != null) {
+            fileOut.close();
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * Copy everything written so far to the target stream.
+     */
+    public void transferTo(OutputStream out) throws IOException {
+        if (memory != null) {
+            memory.writeTo(out);
+        } else {
+            close();
+            Files.copy(file, out);
+        }
+    }
+
+    /**
+     * Release the buffer and remove the scratch file, if any.
+     */
+    public void discard() throws IOException {
+        close();
+        memory = null;
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private OutputStream target(int len) throws IOException {
+        if (memory != null && memory.size() + (long) len > threshold) {
+            file = Files.createTempFile(spoolDir, "spool_", ".tmp");
+            fileOut = new BufferedOutputStream(Files.newOutputStream(file));
+            memory.writeTo(fileOut);
+            memory = null;
+        }
+        return memory != null ? memory : fileOut;
+    }
+}
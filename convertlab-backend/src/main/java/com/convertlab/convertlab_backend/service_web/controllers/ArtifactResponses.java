@@ -0,0 +1,276 @@
+package com.convertlab.convertlab_backend.service_web.controllers;
+
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import com.convertlab.convertlab_backend.service_core.artifact.ContentArtifact;
+import com.convertlab.convertlab_backend.service_core.artifact.FileArtifact;
+import com.convertlab.convertlab_backend.service_storage.AssetContent;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Turns artifacts into download responses, shared by the synchronous and the job endpoints.
+ */
+@Log4j2
+final class ArtifactResponses {
+
+    // Request attributes through which Tomcat hands a file region to sendfile instead of the servlet copying it
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Below this a plain copy is cheaper than the sendfile setup, the same threshold Tomcat uses for static files
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    // Request attribute holding the artifact of a download until the request is over, see PendingArtifactListener
+    static final String PENDING_ARTIFACT = ArtifactResponses.class.getName() + ".pendingArtifact";
+
+    // Stored content never changes under its URL, but expires, so clients revalidate instead of reusing it blindly
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private ArtifactResponses() {
+    }
+
+    /**
+     * Stream an artifact straight to the servlet output stream.
+     * Content-Length is only sent when the artifact knows its size upfront. The artifact is closed once written,
+     * or at the end of the request when the body never runs, e.g. because the client left before it started.
+     */
+    static ResponseEntity<StreamingResponseBody> download(Artifact artifact, String description) {
+        Closeable closeOnce = closeOnce(artifact);
+        RequestContextHolder.currentRequestAttributes()
+                .setAttribute(PENDING_ARTIFACT, closeOnce, RequestAttributes.SCOPE_REQUEST);
+
+        StreamingResponseBody responseBody = outputStream -> {
+            try (closeOnce) {
+                artifact.writeTo(outputStream);
+                log.info("Streaming completed for {}", description);
+            } catch (Exception e) {
+                log.error("Error during streaming for {}", description, e);
+                throw e;
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + artifact.getFileName() + "\"")
+                .contentType(artifact.getContentType());
+
+        if (artifact.getContentLength() >= 0) {
+            response.contentLength(artifact.getContentLength());
+        }
+
+        return response.body(responseBody);
+    }
+
+    /**
+     * Serve an artifact stored on disk, with its content hash as a strong ETag and the file time as Last-Modified.
+     * Conditional requests are answered with 304, single ranges and full bodies are sent from the file by the
+     * container, multiple ranges by Spring. A range whose If-Range validator no longer matches is ignored and the
+     * full body sent instead, so a client resuming a download never splices parts of two different files.
+     * The artifact is closed once the request is over, which releases a lease it holds, the file itself stays.
+     *
+     * @return null when the client copy is still current, the 304 is then already prepared
+     */
+    static ResponseEntity<Resource> stored(ServletWebRequest webRequest, FileArtifact artifact,
+                                           boolean attachment) throws IOException {
+        webRequest.setAttribute(PENDING_ARTIFACT, closeOnce(artifact), RequestAttributes.SCOPE_REQUEST);
+
+        String eTag = eTag(artifact.getContentHash());
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        Path path = artifact.getPath();
+        long length = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+
+        HttpHeaders headers = storedHeaders(artifact, eTag, attachment);
+        headers.setLastModified(lastModified);
+
+        HttpServletRequest request = webRequest.getRequest();
+        String rangeHeader = rangeMatches(request, eTag, lastModified) ? request.getHeader(HttpHeaders.RANGE) : null;
+        if (length >= SENDFILE_MIN_SIZE && HttpMethod.GET.matches(request.getMethod())
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            if (rangeHeader == null) {
+                sendfile(request, path, 0, length);
+                headers.setContentLength(length);
+                return ResponseEntity.ok().headers(headers).build();
+            }
+
+            HttpRange range = singleRange(rangeHeader, length);
+            if (range != null) {
+                long start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length);
+                sendfile(request, path, start, end + 1);
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                headers.setContentLength(end - start + 1);
+                return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers).build();
+            }
+        }
+
+        if (rangeHeader == null && request.getHeader(HttpHeaders.RANGE) != null) {
+            // Spring would answer the range of any other resource type
+            headers.setContentLength(length);
+            return ResponseEntity.ok().headers(headers).body(new InputStreamResource(() -> Files.newInputStream(path)));
+        }
+
+        // Spring answers ranges of a resource body itself, including unsatisfiable ones
+        return ResponseEntity.ok().headers(headers).body(new FileSystemResource(path));
+    }
+
+    /**
+     * Serve a stored artifact that has no file, e.g. an asset held in memory, with the same ETag as a file but
+     * no Last-Modified. Ranges are answered by Spring from the content, which skips to them without copying it.
+     *
+     * @return null when the client copy is still current, the 304 is then already prepared
+     */
+    static ResponseEntity<Resource> stored(ServletWebRequest webRequest, ContentArtifact artifact,
+                                           boolean attachment) {
+        webRequest.setAttribute(PENDING_ARTIFACT, closeOnce(artifact), RequestAttributes.SCOPE_REQUEST);
+
+        String eTag = eTag(artifact.getContentHash());
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        AssetContent content = artifact.getContent();
+        HttpHeaders headers = storedHeaders(artifact, eTag, attachment);
+
+        HttpServletRequest request = webRequest.getRequest();
+        if (request.getHeader(HttpHeaders.RANGE) != null && !rangeMatches(request, eTag, -1)) {
+            headers.setContentLength(content.getSize());
+            return ResponseEntity.ok().headers(headers).body(new InputStreamResource(content::openStream));
+        }
+
+        return ResponseEntity.ok().headers(headers).body(new AbstractResource() {
+            @Override
+            public String getDescription() {
+                return "Stored content [" + artifact.getFileName() + "]";
+            }
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return content.openStream();
+            }
+
+            @Override
+            public long contentLength() {
+                return content.getSize();
+            }
+        });
+    }
+
+    /**
+     * Serve content held in memory, with a strong ETag. Range requests are answered by Spring.
+     */
+    static ResponseEntity<Resource> cached(byte[] content, MediaType contentType, String contentHash) {
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .cacheControl(CACHE_CONTROL)
+                .eTag(eTag(contentHash))
+                .body(new ByteArrayResource(content));
+    }
+
+    /**
+     * Answer a conditional request before doing any work for it.
+     *
+     * @return whether the client copy is still current, the 304 is then already prepared
+     */
+    static boolean notModified(ServletWebRequest webRequest, String contentHash) {
+        return webRequest.checkNotModified(eTag(contentHash));
+    }
+
+    private static Closeable closeOnce(Artifact artifact) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return () -> {
+            if (closed.compareAndSet(false, true)) {
+                artifact.close();
+            }
+        };
+    }
+
+    private static HttpHeaders storedHeaders(Artifact artifact, String eTag, boolean attachment) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_DISPOSITION,
+                (attachment ? "attachment" : "inline") + "; filename=\"" + artifact.getFileName() + "\"");
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setContentType(artifact.getContentType());
+        headers.setCacheControl(CACHE_CONTROL);
+        if (eTag != null) {
+            headers.setETag(eTag);
+        }
+        return headers;
+    }
+
+    private static String eTag(String contentHash) {
+        return contentHash != null ? "\"" + contentHash + "\"" : null;
+    }
+
+    /**
+     * Whether a Range header may be honored: without If-Range, or when its validator still matches. An entity tag
+     * must match strongly, a date must equal Last-Modified to the second, and never matches without one.
+     */
+    private static boolean rangeMatches(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(eTag);
+        }
+        try {
+            long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return lastModified >= 0 && date / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the range when the header asks for exactly one satisfiable range, otherwise null
+     */
+    private static HttpRange singleRange(String rangeHeader, long length) {
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            if (ranges.size() != 1) {
+                return null;
+            }
+            HttpRange range = ranges.getFirst();
+            long start = range.getRangeStart(length);
+            return start < length && start <= range.getRangeEnd(length) ? range : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void sendfile(HttpServletRequest request, Path path, long start, long end) {
+        request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+        request.setAttribute(SENDFILE_START, start);
+        request.setAttribute(SENDFILE_END, end); // exclusive
+    }
+}
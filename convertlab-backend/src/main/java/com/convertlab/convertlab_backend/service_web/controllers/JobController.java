@@ -0,0 +1,91 @@
+package com.convertlab.convertlab_backend.service_web.controllers;
+
+import com.convertlab.convertlab_backend.api.ApiResponse;
+import com.convertlab.convertlab_backend.service_jobs.Job;
+import com.convertlab.convertlab_backend.service_jobs.JobService;
+import com.convertlab.convertlab_backend.service_web.controllers.dto.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+
+/**
+ * Asynchronous variants of the {@link PdfController} conversions: submit, poll the status, then download.
+ */
+@Log4j2
+@RestController
+@RequestMapping("/jobs")
+@RequiredArgsConstructor
+public class JobController {
+
+    private final JobService jobService;
+
+    @PostMapping("/extract")
+    public ResponseEntity<ApiResponse<JobResponse>> extract(@RequestBody ExtractRequest request) throws Exception {
+        log.info("Extract job requested for fileId: {}, pageRange: {}, actionType: {}",
+                request.getFileId(), request.getPageRange(), request.getActionType());
+
+        return accepted(jobService.submitExtract(request));
+    }
+
+    @PostMapping("/merge")
+    public ResponseEntity<ApiResponse<JobResponse>> merge(@RequestBody MergeRequest request) throws Exception {
+        log.info("Merge job requested: {}", request);
+
+        return accepted(jobService.submitMerge(request));
+    }
+
+    @PostMapping("/split")
+    public ResponseEntity<ApiResponse<JobResponse>> split(@RequestBody SplitRequest request) throws Exception {
+        log.info("Split job requested for fileId: {}, pageRange: {}, splitType: {}",
+                request.getFileId(), request.getPageRange(), request.getSplitType());
+
+        return accepted(jobService.submitSplit(request));
+    }
+
+    @PostMapping("/images-to-pdf")
+    public ResponseEntity<ApiResponse<JobResponse>> imagesToPdf(@RequestBody ImageToPdfRequest request) throws Exception {
+        log.info("Image to PDF job requested for {} images", request.getImages().size());
+
+        return accepted(jobService.submitImagesToPdf(request));
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ApiResponse<JobResponse>> getStatus(@PathVariable String jobId) {
+        log.debug("Status request for jobId: {}", jobId);
+
+        return ResponseEntity.ok(ApiResponse.success(toResponse(jobService.getJob(jobId))));
+    }
+
+    @GetMapping("/{jobId}/result")
+    public ResponseEntity<Resource> getResult(@PathVariable String jobId, ServletWebRequest webRequest)
+            throws IOException {
+        log.info("Result download requested for jobId: {}", jobId);
+
+        return ArtifactResponses.stored(webRequest, jobService.getResult(jobId), true);
+    }
+
+    private ResponseEntity<ApiResponse<JobResponse>> accepted(Job job) {
+        return ResponseEntity
+                .status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(toResponse(job)));
+    }
+
+    private JobResponse toResponse(Job job) {
+        return JobResponse.builder()
+                .jobId(job.getJobId())
+                .type(job.getType())
+                .status(job.getStatus())
+                .fileName(job.getFileName())
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .error(job.getError())
+                .build();
+    }
+}
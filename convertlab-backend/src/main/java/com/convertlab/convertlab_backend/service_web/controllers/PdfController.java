@@ -1,30 +1,28 @@
 package com.convertlab.convertlab_backend.service_web.controllers;
 
 import com.convertlab.convertlab_backend.api.ApiResponse;
-import com.convertlab.convertlab_backend.api.enums.ActionType;
-import com.convertlab.convertlab_backend.api.enums.SplitType;
+import com.convertlab.convertlab_backend.service_admission.AdmissionController;
 import com.convertlab.convertlab_backend.service_core.ImageService;
 import com.convertlab.convertlab_backend.service_core.PdfService;
 import com.convertlab.convertlab_backend.service_core.PdfSplitService;
-import com.convertlab.convertlab_backend.service_core.pojos.ExtractedFile;
-import com.convertlab.convertlab_backend.service_storage.StorageService;
-import com.convertlab.convertlab_backend.service_util.PdfUtils;
+import com.convertlab.convertlab_backend.service_core.ThumbnailPrerenderer;
+import com.convertlab.convertlab_backend.service_core.ThumbnailService;
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import com.convertlab.convertlab_backend.service_core.artifact.ContentArtifact;
+import com.convertlab.convertlab_backend.service_core.artifact.FileArtifact;
+import com.convertlab.convertlab_backend.service_core.pojos.AssetMetadata;
 import com.convertlab.convertlab_backend.service_web.controllers.dto.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
-import java.nio.file.Files;
 import java.util.List;
-import java.util.zip.ZipOutputStream;
 
 @Log4j2
 @RestController
@@ -33,9 +31,11 @@ import java.util.zip.ZipOutputStream;
 public class PdfController {
 
     private final PdfService pdfService;
-    private final StorageService storageService;
+    private final ThumbnailService thumbnailService;
+    private final ThumbnailPrerenderer thumbnailPrerenderer;
     private final PdfSplitService pdfSplitService;
     private final ImageService imageService;
+    private final AdmissionController admissionController;
 
     @GetMapping("/test/{pathVariable}")
     public ResponseEntity<ApiResponse<String>> test(@PathVariable String pathVariable) {
@@ -52,6 +52,9 @@ public class PdfController {
             UploadResponse response = pdfService.uploadPdf(file);
             log.info("File uploaded successfully: {}, assetId: {}",
                     file.getOriginalFilename(), response.getFileId());
+
+            // The client asks for previews next, start rendering them now
+            thumbnailPrerenderer.schedule(response.getFileId());
             return ResponseEntity.ok(ApiResponse.success(response));
         } catch (Exception e) {
             log.error("Error uploading file: {}", file.getOriginalFilename(), e);
@@ -76,55 +79,74 @@ public class PdfController {
     }
 
     @PostMapping("/extract")
-    public ResponseEntity<Resource> extract(@RequestBody ExtractRequest request) throws Exception {
+    public ResponseEntity<StreamingResponseBody> extract(@RequestBody ExtractRequest request) throws Exception {
         log.info("Extract request received for fileId: {}, pageRange: {}, actionType: {}",
                 request.getFileId(), request.getPageRange(), request.getActionType());
 
         try {
-            PdfUtils.validateInputRangePattern(request.getPageRange());
-            File pdfFile = storageService.loadPdf(request.getFileId());
-            int totalPages = PdfUtils.getPageCount(pdfFile);
-            List<Integer> pagesToKeep = PdfUtils.getPageRanges(
-                    request.getPageRange(),
-                    totalPages,
-                    request.getActionType().equals(ActionType.KEEP)
-            );
-
-            log.debug("Extracting pages: {} from total pages: {}", pagesToKeep, totalPages);
-
-            ExtractedFile extractedFile = pdfService.extractPages(request, pagesToKeep);
-
-            ByteArrayResource resource = new ByteArrayResource(extractedFile.getFileBytes());
-
-            log.info("Pages extracted successfully for fileId: {}, output size: {} bytes",
-                    request.getFileId(), extractedFile.getFileBytes().length);
-
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + "extracted_" + extractedFile.getFileName() + "\"")
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .contentLength(extractedFile.getFileBytes().length)
-                    .body(resource);
+            List<Integer> pagesToKeep = pdfService.resolvePages(request);
+
+            Artifact extractedFile = admissionController.admit(pdfService.extractPages(request, pagesToKeep));
+
+            return ArtifactResponses.download(extractedFile, "extract for fileId: " + request.getFileId());
         } catch (Exception e) {
             log.error("Error extracting pages for fileId: {}", request.getFileId(), e);
             throw e;
         }
     }
 
+    @GetMapping("/{assetId}/manifest")
+    public ResponseEntity<ApiResponse<AssetMetadata>> getManifest(@PathVariable String assetId) throws Exception {
+        log.debug("Manifest request for assetId: {}", assetId);
+
+        try {
+            AssetMetadata manifest = pdfService.getManifest(assetId);
+            return ResponseEntity.ok(ApiResponse.success(manifest));
+        } catch (Exception e) {
+            log.error("Error loading manifest for assetId: {}", assetId, e);
+            throw e;
+        }
+    }
+
+    @GetMapping("/{assetId}/file")
+    public ResponseEntity<Resource> getFile(@PathVariable String assetId, ServletWebRequest webRequest)
+            throws Exception {
+        log.debug("File request for assetId: {}", assetId);
+
+        try {
+            Artifact original = pdfService.getOriginal(assetId);
+            if (original instanceof ContentArtifact content) {
+                return ArtifactResponses.stored(webRequest, content, false);
+            }
+            return ArtifactResponses.stored(webRequest, (FileArtifact) original, false);
+        } catch (Exception e) {
+            log.error("Error loading file for assetId: {}", assetId, e);
+            throw e;
+        }
+    }
+
     @GetMapping("/thumbnail/{assetId}")
-    public ResponseEntity<byte[]> getThumbnail(@PathVariable String assetId) throws Exception {
-        log.debug("Thumbnail request for assetId: {}", assetId);
+    public ResponseEntity<Resource> getThumbnail(@PathVariable String assetId,
+                                                 @RequestParam(defaultValue = "1") int page,
+                                                 @RequestParam(required = false) Integer width,
+                                                 ServletWebRequest webRequest) throws Exception {
+        log.debug("Thumbnail request for assetId: {}, page: {}, width: {}", assetId, page, width);
 
         try {
-            File image = storageService.loadThumbnail(assetId);
-            byte[] bytes = Files.readAllBytes(image.toPath());
+            ThumbnailService.ThumbnailKey key = thumbnailService.resolve(assetId, page, width);
+
+            // The thumbnail id names the content, a client holding it does not need the page rendered
+            if (ArtifactResponses.notModified(webRequest, key.getThumbnailId())) {
+                log.debug("Thumbnail not modified for assetId: {}, page: {}", assetId, page);
+                return null;
+            }
+
+            byte[] bytes = thumbnailService.getThumbnail(key);
 
             log.debug("Thumbnail loaded successfully for assetId: {}, size: {} bytes",
                     assetId, bytes.length);
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.IMAGE_PNG)
-                    .body(bytes);
+            return ArtifactResponses.cached(bytes, MediaType.IMAGE_JPEG, key.getThumbnailId());
         } catch (Exception e) {
             log.error("Error loading thumbnail for assetId: {}", assetId, e);
             throw e;
@@ -132,26 +154,15 @@ public class PdfController {
     }
 
     @PostMapping("/merge")
-    public ResponseEntity<Resource> merge(@RequestBody MergeRequest request) throws Exception {
-        log.info("Merge request received for {} files: {}",
-                request.getFileIds().size(), request.getFileIds());
+    public ResponseEntity<StreamingResponseBody> merge(@RequestBody MergeRequest request) throws Exception {
+        log.info("Merge request received: {}", request);
 
         try {
-            ExtractedFile mergedFile = pdfService.mergePdfs(request);
+            Artifact mergedFile = admissionController.admit(pdfService.mergePdfs(request));
 
-            ByteArrayResource resource = new ByteArrayResource(mergedFile.getFileBytes());
-
-            log.info("PDFs merged successfully, output size: {} bytes",
-                    mergedFile.getFileBytes().length);
-
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + mergedFile.getFileName() + "\"")
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .contentLength(mergedFile.getFileBytes().length)
-                    .body(resource);
+            return ArtifactResponses.download(mergedFile, "merge");
         } catch (Exception e) {
-            log.error("Error merging PDFs for fileIds: {}", request.getFileIds(), e);
+            log.error("Error merging PDFs: {}", request, e);
             throw e;
         }
     }
@@ -162,74 +173,23 @@ public class PdfController {
                 request.getFileId(), request.getPageRange(), request.getSplitType());
 
         try {
-            // Validate input if split by range
-            if (request.getSplitType() == SplitType.BY_RANGE) {
-                PdfUtils.validateInputRangePattern(request.getPageRange());
-            }
-
-            // Load PDF file
-            File pdfFile = storageService.loadPdf(request.getFileId());
-
-            if (!pdfFile.exists()) {
-                log.error("PDF file not found for fileId: {}", request.getFileId());
-                throw new RuntimeException("PDF file not found");
-            }
-
-            String originalFileName = PdfUtils.getOriginalUserFileName(pdfFile);
-            String baseFileName = originalFileName.replaceFirst("[.][^.]+$", ""); // Remove extension
-
-            // Create streaming response
-            StreamingResponseBody responseBody = outputStream -> {
-                try (ZipOutputStream zipOut = new ZipOutputStream(outputStream)) {
-                    pdfSplitService.splitIntoZip(
-                            pdfFile,
-                            request.getPageRange(),
-                            request.getSplitType(),
-                            zipOut
-                    );
-                    zipOut.finish();
-                    log.info("Split PDF streaming completed for fileId: {}", request.getFileId());
-                } catch (Exception e) {
-                    log.error("Error during PDF split streaming for fileId: {}", request.getFileId(), e);
-                    throw new RuntimeException("Error splitting PDF", e);
-                }
-            };
-
-            String zipFileName = baseFileName + "_split.zip";
-
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + zipFileName + "\"")
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(responseBody);
+            Artifact zipFile = admissionController.admit(pdfSplitService.split(request));
 
+            return ArtifactResponses.download(zipFile, "split for fileId: " + request.getFileId());
         } catch (Exception e) {
             log.error("Error splitting PDF for fileId: {}", request.getFileId(), e);
             throw e;
         }
-
-
     }
 
-
     @PostMapping("/images-to-pdf")
-    public ResponseEntity<Resource> imagesToPdf(@RequestBody ImageToPdfRequest request) throws Exception {
+    public ResponseEntity<StreamingResponseBody> imagesToPdf(@RequestBody ImageToPdfRequest request) throws Exception {
         log.info("Image to PDF conversion request received for {} images", request.getImages().size());
 
         try {
-            ExtractedFile pdfFile = imageService.convertImagesToPdf(request);
-
-            ByteArrayResource resource = new ByteArrayResource(pdfFile.getFileBytes());
-
-            log.info("Images converted to PDF successfully, output size: {} bytes",
-                    pdfFile.getFileBytes().length);
+            Artifact pdfFile = admissionController.admit(imageService.convertImagesToPdf(request));
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + pdfFile.getFileName() + "\"")
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .contentLength(pdfFile.getFileBytes().length)
-                    .body(resource);
+            return ArtifactResponses.download(pdfFile, "conversion of " + request.getImages().size() + " images");
         } catch (Exception e) {
             log.error("Error converting images to PDF", e);
             throw e;
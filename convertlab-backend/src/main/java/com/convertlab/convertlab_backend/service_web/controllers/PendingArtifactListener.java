@@ -0,0 +1,32 @@
+package com.convertlab.convertlab_backend.service_web.controllers;
+
+import jakarta.servlet.ServletRequestEvent;
+import jakarta.servlet.ServletRequestListener;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Closes the artifact of a streamed download whose body never ran, so its admission reservation and leases are
+ * not held forever, and the artifact of a stored download, whose file is sent after the controller returned.
+ * The container fires this once the request is over, after the asynchronous body of a streamed response has
+ * completed, timed out or failed. Artifacts that were written are already closed and closing them again does
+ * nothing.
+ */
+@Log4j2
+@Component
+class PendingArtifactListener implements ServletRequestListener {
+
+    @Override
+    public void requestDestroyed(ServletRequestEvent event) {
+        if (event.getServletRequest().getAttribute(ArtifactResponses.PENDING_ARTIFACT) instanceof Closeable artifact) {
+            try {
+                artifact.close();
+            } catch (IOException e) {
+                log.warn("Failed to close the artifact of an abandoned download", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.convertlab.convertlab_backend.service_web.controllers;
+
+import com.convertlab.convertlab_backend.api.ApiResponse;
+import com.convertlab.convertlab_backend.service_admission.AdmissionController;
+import com.convertlab.convertlab_backend.service_core.ThumbnailPrerenderer;
+import com.convertlab.convertlab_backend.service_jobs.JobService;
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
+import com.convertlab.convertlab_backend.service_storage.PdfDocumentCache;
+import com.convertlab.convertlab_backend.service_storage.ResultCache;
+import com.convertlab.convertlab_backend.service_storage.ThumbnailCache;
+import com.convertlab.convertlab_backend.service_storage.impl.ContentAddressedStore;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalDiskQuota;
+import com.convertlab.convertlab_backend.service_storage.impl.ObjectStorageService;
+import com.convertlab.convertlab_backend.service_storage.impl.TieredStorageService;
+import com.convertlab.convertlab_backend.service_util.CpuBulkhead;
+import com.convertlab.convertlab_backend.service_util.PdfMemoryPolicy;
+import com.convertlab.convertlab_backend.service_web.controllers.dto.StatsResponse;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Log4j2
+@RestController
+@RequestMapping("/stats")
+@RequiredArgsConstructor
+public class StatsController {
+
+    private final PdfDocumentCache documentCache;
+    private final PdfMemoryPolicy memoryPolicy;
+    private final JobService jobService;
+    private final CpuBulkhead cpuBulkhead;
+    private final AdmissionController admissionController;
+    private final ContentAddressedStore contentStore;
+    private final ExpiryIndex expiryIndex;
+    private final LocalDiskQuota diskQuota;
+    private final ThumbnailCache thumbnailCache;
+    private final ThumbnailPrerenderer thumbnailPrerenderer;
+    private final ResultCache resultCache;
+    private final ObjectProvider<TieredStorageService> tieredStorage;  // local backend only
+    private final ObjectProvider<ObjectStorageService> objectStorage;  // object backend only
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<StatsResponse>> getStats() {
+        log.debug("Stats endpoint accessed");
+
+        CacheStats cacheStats = documentCache.getStats();
+
+        StatsResponse.StatsResponseBuilder statsResponse = StatsResponse.builder()
+                .documentCache(StatsResponse.DocumentCacheStats.builder()
+                        .hits(cacheStats.hitCount())
+                        .misses(cacheStats.missCount())
+                        .hitRate(cacheStats.hitRate())
+                        .evictions(cacheStats.evictionCount())
+                        .entries(documentCache.getEntryCount())
+                        .weightKb(documentCache.getWeightKb())
+                        .build())
+                .memory(StatsResponse.MemoryStats.builder()
+                        .mainMemoryDocuments(memoryPolicy.getMainMemoryCount())
+                        .spilledDocuments(memoryPolicy.getSpillCount())
+                        .build())
+                .jobs(StatsResponse.JobStats.builder()
+                        .queued(jobService.getQueuedCount())
+                        .running(jobService.getRunningCount())
+                        .succeeded(jobService.getSucceededCount())
+                        .failed(jobService.getFailedCount())
+                        .rejected(jobService.getRejectedCount())
+                        .build())
+                .cpu(StatsResponse.CpuStats.builder()
+                        .threads(cpuBulkhead.getThreads())
+                        .active(cpuBulkhead.getActiveCount())
+                        .queued(cpuBulkhead.getQueuedCount())
+                        .offloaded(cpuBulkhead.getOffloadedCount())
+                        .rejected(cpuBulkhead.getRejectedCount())
+                        .spilled(cpuBulkhead.getSpilledCount())
+                        .build())
+                .admission(StatsResponse.AdmissionStats.builder()
+                        .pageBudget(admissionController.getPageBudget())
+                        .reservedPages(admissionController.getReservedPages())
+                        .heapBudgetBytes(admissionController.getHeapBudget())
+                        .reservedHeapBytes(admissionController.getReservedHeap())
+                        .active(admissionController.getActiveCount())
+                        .waiting(admissionController.getWaitingCount())
+                        .admitted(admissionController.getAdmittedCount())
+                        .queued(admissionController.getQueuedCount())
+                        .rejected(admissionController.getRejectedCount())
+                        .build())
+                .storage(StatsResponse.StorageStats.builder()
+                        .blobs(contentStore.getBlobCount())
+                        .references(contentStore.getReferenceCount())
+                        .deduplicatedUploads(contentStore.getDeduplicatedCount())
+                        .deduplicatedBytes(contentStore.getDeduplicatedBytes())
+                        .trackedFiles(expiryIndex.getTrackedCount())
+                        .leasedAssets(expiryIndex.getLeasedAssetCount())
+                        .leasedFiles(expiryIndex.getLeasedFileCount())
+                        .deferredExpiries(expiryIndex.getDeferredCount())
+                        .usedBytes(diskQuota.getUsedBytes())
+                        .quotaBytes(diskQuota.getQuotaBytes())
+                        .pressureEvictions(diskQuota.getEvictedFiles())
+                        .pressureEvictedBytes(diskQuota.getEvictedBytes())
+                        .rejectedUploads(diskQuota.getRejectedCount())
+                        .build())
+                .thumbnails(StatsResponse.ThumbnailStats.builder()
+                        .memoryHits(thumbnailCache.getMemoryStats().hitCount())
+                        .diskHits(thumbnailCache.getDiskHits())
+                        .renders(thumbnailCache.getRenders())
+                        .memoryBytes(thumbnailCache.getMemoryBytes())
+                        .diskBytes(thumbnailCache.getDiskBytes())
+                        .build())
+                .prerender(StatsResponse.PrerenderStats.builder()
+                        .queued(thumbnailPrerenderer.getQueuedCount())
+                        .capacity(thumbnailPrerenderer.getCapacity())
+                        .submitted(thumbnailPrerenderer.getSubmittedCount())
+                        .completed(thumbnailPrerenderer.getCompletedCount())
+                        .dropped(thumbnailPrerenderer.getDroppedCount())
+                        .deduplicated(thumbnailPrerenderer.getDeduplicatedCount())
+                        .failed(thumbnailPrerenderer.getFailedCount())
+                        .averageWaitMs(thumbnailPrerenderer.getAverageWaitMs())
+                        .averageRenderMs(thumbnailPrerenderer.getAverageRenderMs())
+                        .build())
+                .results(StatsResponse.ResultCacheStats.builder()
+                        .hits(resultCache.getHits())
+                        .misses(resultCache.getMisses())
+                        .stored(resultCache.getStoredCount())
+                        .entries(resultCache.getEntryCount())
+                        .diskBytes(resultCache.getDiskBytes())
+                        .build());
+
+        tieredStorage.ifAvailable(tier -> statsResponse.memoryTier(StatsResponse.MemoryTierStats.builder()
+                .assets(tier.getAssetCount())
+                .usedBytes(tier.getUsedBytes())
+                .budgetBytes(tier.getBudgetBytes())
+                .stored(tier.getStoredCount())
+                .hits(tier.getHitCount())
+                .deduplicated(tier.getDeduplicatedCount())
+                .deduplicatedBytes(tier.getDeduplicatedBytes())
+                .spilled(tier.getSpilledCount())
+                .spilledBytes(tier.getSpilledBytes())
+                .expired(tier.getExpiredCount())
+                .build()));
+        objectStorage.ifAvailable(store -> statsResponse.objectStore(StatsResponse.ObjectStoreStats.builder()
+                .uploads(store.getUploadedCount())
+                .uploadedBytes(store.getUploadedBytes())
+                .cachedObjects(store.getCachedCount())
+                .cachedBytes(store.getCachedBytes())
+                .cacheHits(store.getCacheHits())
+                .downloads(store.getDownloadedCount())
+                .downloadedBytes(store.getDownloadedBytes())
+                .rangedReads(store.getRangedReads())
+                .rangedBytes(store.getRangedBytes())
+                .expired(store.getExpiredCount())
+                .build()));
+
+        return ResponseEntity.ok(ApiResponse.success(statsResponse.build()));
+    }
+}
@@ -0,0 +1,22 @@
+package com.convertlab.convertlab_backend.service_web.controllers.dto;
+
+import com.convertlab.convertlab_backend.api.ApiError;
+import com.convertlab.convertlab_backend.api.enums.JobStatus;
+import com.convertlab.convertlab_backend.api.enums.JobType;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+
+@Getter
+@Builder
+public class JobResponse {
+    private String jobId;
+    private JobType type;
+    private JobStatus status;
+    private String fileName;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private ApiError error;
+}
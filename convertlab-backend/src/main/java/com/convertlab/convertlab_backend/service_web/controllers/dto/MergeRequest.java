@@ -5,5 +5,12 @@ import java.util.List;
 
 @Data
 public class MergeRequest {
-    private List<String> fileIds;
-}
\ No newline at end of file
+    private List<String> fileIds;      // whole files, in order
+    private List<MergeSource> sources; // pages of files, in order, used instead of fileIds when given
+
+    @Data
+    public static class MergeSource {
+        private String fileId;
+        private String pageRange; // e.g. "1-3, 7", taken in page order, empty for all pages
+    }
+}
@@ -1,6 +1,7 @@
 package com.convertlab.convertlab_backend.service_web.controllers.dto;
 
 import com.convertlab.convertlab_backend.api.enums.SplitType;
+import com.convertlab.convertlab_backend.api.enums.ZipCompression;
 import lombok.Data;
 
 @Data
@@ -8,4 +9,6 @@ public class SplitRequest {
     private String fileId;
     private String pageRange;
     private SplitType splitType;
+    private ZipCompression compression; // optional, server default when null
+    private Integer compressionLevel;   // 0-9, only used with DEFLATED
 }
\ No newline at end of file
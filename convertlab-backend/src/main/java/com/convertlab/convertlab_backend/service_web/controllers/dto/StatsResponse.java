@@ -0,0 +1,155 @@
+package com.convertlab.convertlab_backend.service_web.controllers.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class StatsResponse {
+    private DocumentCacheStats documentCache;
+    private MemoryStats memory;
+    private JobStats jobs;
+    private CpuStats cpu;
+    private AdmissionStats admission;
+    private StorageStats storage;
+    private ThumbnailStats thumbnails;
+    private PrerenderStats prerender;
+    private ResultCacheStats results;
+    private MemoryTierStats memoryTier;
+    private ObjectStoreStats objectStore;
+
+    @Getter
+    @Builder
+    public static class DocumentCacheStats {
+        private long hits;
+        private long misses;
+        private double hitRate;
+        private long evictions;
+        private long entries;
+        private long weightKb;
+    }
+
+    @Getter
+    @Builder
+    public static class MemoryStats {
+        private long mainMemoryDocuments;
+        private long spilledDocuments;
+    }
+
+    @Getter
+    @Builder
+    public static class JobStats {
+        private int queued;
+        private int running;
+        private long succeeded;
+        private long failed;
+        private long rejected;
+    }
+
+    @Getter
+    @Builder
+    public static class CpuStats {
+        private int threads;
+        private int active;
+        private int queued;
+        private long offloaded;
+        private long rejected;
+        private long spilled;
+    }
+
+    @Getter
+    @Builder
+    public static class AdmissionStats {
+        private long pageBudget;
+        private long reservedPages;
+        private long heapBudgetBytes;
+        private long reservedHeapBytes;
+        private int active;
+        private int waiting;
+        private long admitted;
+        private long queued;
+        private long rejected;
+    }
+
+    @Getter
+    @Builder
+    public static class StorageStats {
+        private int blobs;
+        private int references;
+        private long deduplicatedUploads;
+        private long deduplicatedBytes;
+        private int trackedFiles;
+        private int leasedAssets;
+        private int leasedFiles;
+        private long deferredExpiries;
+        private long usedBytes;
+        private long quotaBytes;
+        private long pressureEvictions;
+        private long pressureEvictedBytes;
+        private long rejectedUploads;
+    }
+
+    @Getter
+    @Builder
+    public static class ThumbnailStats {
+        private long memoryHits;
+        private long diskHits;
+        private long renders;
+        private long memoryBytes;
+        private long diskBytes;
+    }
+
+    @Getter
+    @Builder
+    public static class PrerenderStats {
+        private int queued;
+        private int capacity;
+        private long submitted;
+        private long completed;
+        private long dropped;
+        private long deduplicated;
+        private long failed;
+        private double averageWaitMs;
+        private double averageRenderMs;
+    }
+
+    @Getter
+    @Builder
+    public static class ResultCacheStats {
+        private long hits;
+        private long misses;
+        private long stored;
+        private long entries;
+        private long diskBytes;
+    }
+
+    @Getter
+    @Builder
+    public static class MemoryTierStats {
+        private int assets;
+        private long usedBytes;
+        private long budgetBytes;
+        private long stored;
+        private long hits;
+        private long deduplicated;
+        private long deduplicatedBytes;
+        private long spilled;
+        private long spilledBytes;
+        private long expired;
+    }
+
+    @Getter
+    @Builder
+    public static class ObjectStoreStats {
+        private long uploads;
+        private long uploadedBytes;
+        private long cachedObjects;
+        private long cachedBytes;
+        private long cacheHits;
+        private long downloads;
+        private long downloadedBytes;
+        private long rangedReads;
+        private long rangedBytes;
+        private long expired;
+    }
+}
@@ -0,0 +1,69 @@
+package com.convertlab.convertlab_backend.config;
+
+import com.convertlab.convertlab_backend.service_admission.AdmissionController;
+import com.convertlab.convertlab_backend.service_jobs.JobService;
+import com.convertlab.convertlab_backend.service_util.CpuBulkhead;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsConfigTest {
+
+    @TempDir
+    Path temp;
+
+    private final ThreadPoolExecutor executor =
+            new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(4));
+
+    private final MetricsConfig metricsConfig = new MetricsConfig();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void executorsAreMeteredByName() {
+        metricsConfig.executorMetrics(executor, executor, executor, executor, executor).bindTo(registry);
+
+        assertThat(registry.get("executor.active").meters())
+                .extracting(meter -> meter.getId().getTag("name"))
+                .containsExactlyInAnyOrder("pdf-split", "image-encode", "job", "prerender", "cpu");
+        assertThat(registry.get("executor.queued").tag("name", "cpu").gauge()).isNotNull();
+    }
+
+    @Test
+    void admissionAndRejectionMetersAreRegistered() throws Exception {
+        ProcessingConfig processingConfig = new ProcessingConfig();
+        AdmissionController admissionController = new AdmissionController(processingConfig);
+        JobService jobService = new JobService(null, null, null, null, executor, admissionController, 3_600_000);
+        CpuBulkhead cpuBulkhead = new CpuBulkhead(executor, processingConfig, temp.toString());
+
+        metricsConfig.admissionMetrics(admissionController, jobService, cpuBulkhead).bindTo(registry);
+
+        assertThat(registry.getMeters()).extracting(meter -> meter.getId().getName()).containsExactlyInAnyOrder(
+                "convertlab.admission.pages.reserved",
+                "convertlab.admission.pages.budget",
+                "convertlab.admission.heap.reserved",
+                "convertlab.admission.heap.budget",
+                "convertlab.admission.waiting",
+                "convertlab.admission.rejected",
+                "convertlab.jobs.rejected",
+                "convertlab.cpu.offloaded",
+                "convertlab.cpu.rejected",
+                "convertlab.cpu.spilled");
+        assertThat(registry.get("convertlab.admission.pages.budget").gauge().value())
+                .isEqualTo(admissionController.getPageBudget());
+        assertThat(registry.get("convertlab.admission.heap.budget").gauge().getId().getBaseUnit())
+                .isEqualTo("bytes");
+    }
+}
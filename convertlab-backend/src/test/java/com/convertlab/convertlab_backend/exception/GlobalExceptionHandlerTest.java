@@ -0,0 +1,24 @@
+package com.convertlab.convertlab_backend.exception;
+
+import com.convertlab.convertlab_backend.api.ApiResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GlobalExceptionHandlerTest {
+
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+    @Test
+    void admissionRejectionIsTooManyRequestsWithRetryAfter() {
+        ResponseEntity<ApiResponse<?>> response =
+                handler.handleAdmissionRejected(new AdmissionRejectedException("No budget", 7));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("7");
+        assertThat(response.getBody().getError().getCode()).isEqualTo("SERVER_BUSY");
+    }
+}
@@ -0,0 +1,90 @@
+package com.convertlab.convertlab_backend.service_admission;
+
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import com.convertlab.convertlab_backend.exception.AdmissionRejectedException;
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import com.convertlab.convertlab_backend.service_core.artifact.StreamingArtifact;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControllerTest {
+
+    private final AdmissionController controller = new AdmissionController(config());
+
+    @Test
+    void requestOverTheWholeBudgetRunsAloneAndOthersAreRejectedWithARetryHint() throws IOException {
+        try (Artifact oversized = controller.admit(artifact(Long.MAX_VALUE))) {
+            assertThat(controller.getReservedPages()).isEqualTo(controller.getPageBudget());
+
+            assertThatThrownBy(() -> controller.admit(artifact(1)))
+                    .isInstanceOfSatisfying(AdmissionRejectedException.class,
+                            e -> assertThat(e.getRetryAfterSeconds()).isPositive());
+            assertThat(controller.getRejectedCount()).isEqualTo(1);
+            assertThat(controller.getWaitingCount()).isZero();
+        }
+        assertThat(controller.getReservedPages()).isZero();
+    }
+
+    @Test
+    void jobsWaitLongerButNotForever() throws IOException {
+        try (Artifact oversized = controller.admit(artifact(Long.MAX_VALUE))) {
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> controller.await(artifact(1)))
+                    .isInstanceOf(AdmissionRejectedException.class);
+            assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(200_000_000L);
+        }
+    }
+
+    @Test
+    void reservationIsReleasedOnceTheOutputIsProduced() throws IOException {
+        AtomicLong reservedWhileProducing = new AtomicLong(-1);
+        AtomicLong reservedAfterProduced = new AtomicLong(-1);
+        Artifact admitted = controller.admit(new StreamingArtifact("out.pdf", MediaType.APPLICATION_PDF,
+                out -> {
+                    reservedWhileProducing.set(controller.getReservedPages());
+                    out.write(1);
+                }, new OperationCost(1, 0)));
+
+        admitted.writeTo(new ByteArrayOutputStream(),
+                () -> reservedAfterProduced.set(controller.getReservedPages()));
+
+        assertThat(reservedWhileProducing.get()).isEqualTo(1);
+        assertThat(reservedAfterProduced.get()).isZero();
+        assertThat(controller.getActiveCount()).isZero();
+
+        // Closing afterwards does not release a second time
+        admitted.close();
+        assertThat(controller.getActiveCount()).isZero();
+        assertThat(controller.getReservedPages()).isZero();
+    }
+
+    @Test
+    void artifactClosedWithoutBeingWrittenReleasesItsReservation() throws IOException {
+        Artifact admitted = controller.admit(artifact(1));
+        assertThat(controller.getActiveCount()).isEqualTo(1);
+
+        admitted.close();
+        assertThat(controller.getActiveCount()).isZero();
+        assertThat(controller.getReservedPages()).isZero();
+    }
+
+    private static Artifact artifact(long pages) {
+        return new StreamingArtifact("out.pdf", MediaType.APPLICATION_PDF, out -> out.write(1),
+                new OperationCost(pages, 0));
+    }
+
+    private static ProcessingConfig config() {
+        ProcessingConfig config = new ProcessingConfig();
+        config.getAdmission().setPageUnitsPerCore(1);
+        config.getAdmission().setMaxWaitMs(50);
+        config.getAdmission().setJobMaxWaitMs(200);
+        return config;
+    }
+}
@@ -0,0 +1,160 @@
+package com.convertlab.convertlab_backend.service_core;
+
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import com.convertlab.convertlab_backend.config.StorageConfig;
+import com.convertlab.convertlab_backend.config.ValidationConfig;
+import com.convertlab.convertlab_backend.exception.InvalidRequestException;
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import com.convertlab.convertlab_backend.service_metrics.ConversionMetrics;
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
+import com.convertlab.convertlab_backend.service_storage.impl.ContentAddressedStore;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalDiskQuota;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalFileCleaner;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalStorageService;
+import com.convertlab.convertlab_backend.service_util.CpuBulkhead;
+import com.convertlab.convertlab_backend.service_util.FileValidationService;
+import com.convertlab.convertlab_backend.service_util.PdfMemoryPolicy;
+import com.convertlab.convertlab_backend.service_util.TestImages;
+import com.convertlab.convertlab_backend.service_web.controllers.dto.ImageToPdfRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImageServiceTest {
+
+    @TempDir
+    Path temp;
+
+    private ThreadPoolExecutor cpuExecutor;
+    private ThreadPoolExecutor imageEncodeExecutor;
+    private LocalStorageService storage;
+    private ImageService imageService;
+
+    @BeforeEach
+    void createImageService() throws IOException {
+        String tempFolder = temp.toString();
+        StorageConfig storageConfig = new StorageConfig();
+        ExpiryIndex expiryIndex = new ExpiryIndex(3_600_000);
+        ContentAddressedStore contentStore = new ContentAddressedStore(tempFolder, expiryIndex);
+        LocalDiskQuota quota = new LocalDiskQuota(expiryIndex, contentStore,
+                new LocalFileCleaner(contentStore, expiryIndex, tempFolder), storageConfig);
+        storage = new LocalStorageService(contentStore, expiryIndex, quota, storageConfig, tempFolder);
+
+        cpuExecutor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16));
+        imageEncodeExecutor = new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        imageService = imageService(false);
+    }
+
+    @AfterEach
+    void shutdown() {
+        imageEncodeExecutor.shutdownNow();
+        cpuExecutor.shutdownNow();
+    }
+
+    @Test
+    void rotationIsSetAsPageRotateWithoutTurningTheImage() throws Exception {
+        String image = upload(TestImages.encoded("png", 40, 20));
+        int[] rotations = {0, 90, -90, 180, 450, -360};
+
+        List<ImageToPdfRequest.ImageInfo> images = new ArrayList<>();
+        for (int rotation : rotations) {
+            images.add(image(image, rotation));
+        }
+
+        try (PDDocument document = convert(imageService, images)) {
+            assertThat(document.getPages()).extracting(PDPage::getRotation)
+                    .containsExactly(0, 90, 270, 180, 90, 0);
+            assertThat(document.getPages()).allSatisfy(page -> {
+                assertThat(page.getMediaBox().getWidth()).isEqualTo(40);
+                assertThat(page.getMediaBox().getHeight()).isEqualTo(20);
+            });
+        }
+    }
+
+    @Test
+    void rotationThatIsNotAMultipleOf90IsRejected() throws Exception {
+        String image = upload(TestImages.encoded("png", 40, 20));
+        ImageToPdfRequest request = new ImageToPdfRequest();
+        request.setImages(List.of(image(image, 90), image(image, 45)));
+
+        assertThatThrownBy(() -> imageService.convertImagesToPdf(request))
+                .isInstanceOfSatisfying(InvalidRequestException.class,
+                        e -> assertThat(e.getCode()).isEqualTo("INVALID_ROTATION"));
+    }
+
+    @Test
+    void parallelConversionKeepsTheRequestOrder() throws Exception {
+        // Large PNGs first, so the images behind them, down to JPEGs embedded without decoding, finish earlier
+        List<ImageToPdfRequest.ImageInfo> images = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            int width = 600 - i * 40;
+            String format = i % 3 == 2 ? "jpeg" : "png";
+            images.add(image(upload(TestImages.encoded(format, width, 300)), i * 90));
+        }
+
+        try (PDDocument document = convert(imageService(true), images)) {
+            assertThat(document.getNumberOfPages()).isEqualTo(12);
+            for (int i = 0; i < 12; i++) {
+                PDPage page = document.getPage(i);
+                assertThat(page.getMediaBox().getWidth()).as("width of page %d", i + 1).isEqualTo(600 - i * 40);
+                assertThat(page.getRotation()).as("rotation of page %d", i + 1).isEqualTo(i * 90 % 360);
+            }
+        }
+        // Every image was encoded on the image executor
+        assertThat(imageEncodeExecutor.getTaskCount()).isEqualTo(12);
+    }
+
+    private ImageService imageService(boolean parallel) throws IOException {
+        ProcessingConfig processingConfig = new ProcessingConfig();
+        processingConfig.getImages().setParallel(parallel);
+        processingConfig.getImages().setParallelism(4);
+        processingConfig.getImages().setWindow(2);
+
+        return new ImageService(storage, new FileValidationService(new ValidationConfig()),
+                new PdfMemoryPolicy(processingConfig, temp.toString()),
+                new CpuBulkhead(cpuExecutor, processingConfig, temp.toString()), processingConfig,
+                imageEncodeExecutor, new ConversionMetrics(new SimpleMeterRegistry()));
+    }
+
+    private static PDDocument convert(ImageService service, List<ImageToPdfRequest.ImageInfo> images)
+            throws Exception {
+        ImageToPdfRequest request = new ImageToPdfRequest();
+        request.setImages(images);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Artifact artifact = service.convertImagesToPdf(request)) {
+            artifact.writeTo(out);
+        }
+        return Loader.loadPDF(out.toByteArray());
+    }
+
+    private String upload(byte[] content) throws Exception {
+        return storage.saveTempImage(new MockMultipartFile("file", "image.png", "image/png", content));
+    }
+
+    private static ImageToPdfRequest.ImageInfo image(String fileId, int rotation) {
+        ImageToPdfRequest.ImageInfo image = new ImageToPdfRequest.ImageInfo();
+        image.setFileId(fileId);
+        image.setRotation(rotation);
+        return image;
+    }
+}
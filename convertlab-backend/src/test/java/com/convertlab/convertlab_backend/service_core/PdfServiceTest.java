@@ -0,0 +1,63 @@
+package com.convertlab.convertlab_backend.service_core;
+
+import com.convertlab.convertlab_backend.exception.InvalidPageInputException;
+import com.convertlab.convertlab_backend.exception.InvalidRequestException;
+import com.convertlab.convertlab_backend.service_web.controllers.dto.MergeRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PdfServiceTest {
+
+    @Test
+    void fileIdsAreMergedAsWholeFiles() {
+        MergeRequest request = new MergeRequest();
+        request.setFileIds(List.of("a", "b"));
+
+        List<MergeRequest.MergeSource> sources = PdfService.resolveSources(request);
+
+        assertThat(sources).extracting(MergeRequest.MergeSource::getFileId).containsExactly("a", "b");
+        assertThat(PdfService.resolvePages(sources.get(0), 4)).containsExactly(1, 2, 3, 4);
+    }
+
+    @Test
+    void sourcesAreUsedInsteadOfFileIds() {
+        MergeRequest request = new MergeRequest();
+        request.setFileIds(List.of("a"));
+        request.setSources(List.of(source("b", "2"), source("a", null)));
+
+        assertThat(PdfService.resolveSources(request)).extracting(MergeRequest.MergeSource::getFileId)
+                .containsExactly("b", "a");
+    }
+
+    @Test
+    void mergeWithoutFilesIsRejected() {
+        MergeRequest request = new MergeRequest();
+        request.setSources(List.of());
+
+        assertThatThrownBy(() -> PdfService.resolveSources(request))
+                .isInstanceOfSatisfying(InvalidRequestException.class,
+                        e -> assertThat(e.getCode()).isEqualTo("NO_MERGE_SOURCES"));
+    }
+
+    @Test
+    void pageRangeOfASourceIsTakenInPageOrder() {
+        assertThat(PdfService.resolvePages(source("a", "7, 1-3, 2"), 10)).containsExactly(1, 2, 3, 7);
+        assertThat(PdfService.resolvePages(source("a", " "), 3)).containsExactly(1, 2, 3);
+
+        assertThatThrownBy(() -> PdfService.resolvePages(source("a", "1,,3"), 10))
+                .isInstanceOf(InvalidPageInputException.class);
+        assertThatThrownBy(() -> PdfService.resolvePages(source("a", "4-6"), 5))
+                .isInstanceOf(InvalidPageInputException.class);
+    }
+
+    private static MergeRequest.MergeSource source(String fileId, String pageRange) {
+        MergeRequest.MergeSource source = new MergeRequest.MergeSource();
+        source.setFileId(fileId);
+        source.setPageRange(pageRange);
+        return source;
+    }
+}
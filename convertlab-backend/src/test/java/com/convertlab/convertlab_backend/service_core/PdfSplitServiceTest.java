@@ -0,0 +1,38 @@
+package com.convertlab.convertlab_backend.service_core;
+
+import com.convertlab.convertlab_backend.exception.InvalidPageInputException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PdfSplitServiceTest {
+
+    @Test
+    void everyRangeBecomesOneEntryInInputOrder() {
+        List<PdfSplitService.PageRangeSegment> segments = PdfSplitService.parseRangeSegments("5, 1-3, 9-7", 10);
+
+        assertThat(segments).extracting(segment -> segment.entryName)
+                .containsExactly("page-5.pdf", "pages-1-3.pdf", "pages-7-9.pdf");
+        assertThat(segments.get(2).pages).containsExactly(7, 8, 9);
+    }
+
+    @Test
+    void rangesOutsideTheDocumentAreRejected() {
+        assertThatThrownBy(() -> PdfSplitService.parseRangeSegments("1-11", 10))
+                .isInstanceOf(InvalidPageInputException.class);
+        assertThatThrownBy(() -> PdfSplitService.parseRangeSegments("x", 10))
+                .isInstanceOf(InvalidPageInputException.class);
+    }
+
+    @Test
+    void eachPageIsNumberedForSorting() {
+        List<PdfSplitService.PageRangeSegment> segments = PdfSplitService.eachPageSegments(12);
+
+        assertThat(segments).hasSize(12);
+        assertThat(segments.get(0).entryName).isEqualTo("page-001.pdf");
+        assertThat(segments.get(11).entryName).isEqualTo("page-012.pdf");
+    }
+}
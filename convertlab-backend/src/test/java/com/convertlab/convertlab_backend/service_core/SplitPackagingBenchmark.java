@@ -0,0 +1,125 @@
+package com.convertlab.convertlab_backend.service_core;
+
+import com.convertlab.convertlab_backend.service_util.PdfUtils;
+import com.convertlab.convertlab_backend.service_util.TestPdfs;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * CPU time against archive size for the split packaging options, over generated corpora: text pages whose content
+ * streams PDFBox already compresses, scanned pages holding one JPEG each, and a mix of both. Only runs with
+ * {@code -Dbenchmarks=true}, the pages per corpus are set with {@code -Dbenchmark.pages} (default 200).
+ * <p>
+ * Every corpus is split into one document per page the way {@link PdfSplitService} does, the parts are serialized
+ * once, and only the packaging into the ZIP is timed, on the CPU clock of the packaging thread.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class SplitPackagingBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final int STORED = Integer.MIN_VALUE;
+
+    @Test
+    void storedAgainstDeflateLevels() throws IOException {
+        int pages = Integer.getInteger("benchmark.pages", 200);
+
+        Map<String, List<byte[]>> corpora = new LinkedHashMap<>();
+        corpora.put("text", splitPerPage(TestPdfs.numberedPages(pages)));
+        corpora.put("scanned", splitPerPage(TestPdfs.scannedPages(pages, 850, 1100)));
+        List<byte[]> mixed = new ArrayList<>(corpora.get("text").subList(0, pages / 2));
+        mixed.addAll(corpora.get("scanned").subList(0, pages / 2));
+        corpora.put("mixed", mixed);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        for (Map.Entry<String, List<byte[]>> corpus : corpora.entrySet()) {
+            long partBytes = corpus.getValue().stream().mapToLong(part -> part.length).sum();
+            for (int level : new int[]{STORED, Deflater.BEST_SPEED, 6, Deflater.BEST_COMPRESSION}) {
+                // One warm-up round, then the best of the timed ones
+                long archiveBytes = zip(corpus.getValue(), level);
+                long bestCpu = Long.MAX_VALUE;
+                for (int round = 0; round < ROUNDS; round++) {
+                    long start = threads.getCurrentThreadCpuTime();
+                    zip(corpus.getValue(), level);
+                    bestCpu = Math.min(bestCpu, threads.getCurrentThreadCpuTime() - start);
+                }
+
+                // Printed rather than logged, the Spring logging configuration is not loaded here
+                System.out.printf("%-8s %-12s parts %6d KB, archive %6d KB (%5.1f%%), cpu %7.1f ms%n",
+                        corpus.getKey(), level == STORED ? "STORED" : "DEFLATED(" + level + ")",
+                        partBytes / 1024, archiveBytes / 1024, 100.0 * archiveBytes / partBytes,
+                        bestCpu / 1_000_000.0);
+            }
+        }
+    }
+
+    private static List<byte[]> splitPerPage(byte[] pdf) throws IOException {
+        List<byte[]> parts = new ArrayList<>();
+        try (PDDocument source = Loader.loadPDF(pdf)) {
+            for (int i = 0; i < source.getNumberOfPages(); i++) {
+                try (PDDocument target = new PDDocument()) {
+                    PdfUtils.copyPages(List.of(source.getPage(i)), target);
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    target.save(out);
+                    parts.add(out.toByteArray());
+                }
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Package the parts like the split does: stored entries with their size and CRC up front, or deflated at the
+     * given level. Returns the archive size.
+     */
+    private static long zip(List<byte[]> parts, int level) throws IOException {
+        long[] archiveBytes = new long[1];
+        OutputStream counted = new OutputStream() {
+            @Override
+            public void write(int b) {
+                archiveBytes[0]++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                archiveBytes[0] += len;
+            }
+        };
+        try (ZipOutputStream zipOut = new ZipOutputStream(counted)) {
+            if (level != STORED) {
+                zipOut.setLevel(level);
+            }
+            for (int i = 0; i < parts.size(); i++) {
+                byte[] part = parts.get(i);
+                ZipEntry entry = new ZipEntry("page-" + (i + 1) + ".pdf");
+                if (level == STORED) {
+                    CRC32 crc = new CRC32();
+                    crc.update(part);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(part.length);
+                    entry.setCompressedSize(part.length);
+                    entry.setCrc(crc.getValue());
+                }
+                zipOut.putNextEntry(entry);
+                zipOut.write(part);
+                zipOut.closeEntry();
+            }
+        }
+        return archiveBytes[0];
+    }
+}
@@ -0,0 +1,195 @@
+package com.convertlab.convertlab_backend.service_jobs;
+
+import com.convertlab.convertlab_backend.api.enums.ActionType;
+import com.convertlab.convertlab_backend.api.enums.JobStatus;
+import com.convertlab.convertlab_backend.api.enums.JobType;
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import com.convertlab.convertlab_backend.config.StorageConfig;
+import com.convertlab.convertlab_backend.config.ValidationConfig;
+import com.convertlab.convertlab_backend.exception.InvalidPageInputException;
+import com.convertlab.convertlab_backend.exception.JobNotFoundException;
+import com.convertlab.convertlab_backend.exception.JobNotReadyException;
+import com.convertlab.convertlab_backend.exception.JobQueueFullException;
+import com.convertlab.convertlab_backend.service_admission.AdmissionController;
+import com.convertlab.convertlab_backend.service_core.PdfService;
+import com.convertlab.convertlab_backend.service_core.artifact.FileArtifact;
+import com.convertlab.convertlab_backend.service_metrics.ConversionMetrics;
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
+import com.convertlab.convertlab_backend.service_storage.PdfDocumentCache;
+import com.convertlab.convertlab_backend.service_storage.ResultCache;
+import com.convertlab.convertlab_backend.service_storage.impl.ContentAddressedStore;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalAssetCatalog;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalDiskQuota;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalFileCleaner;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalStorageService;
+import com.convertlab.convertlab_backend.service_util.CpuBulkhead;
+import com.convertlab.convertlab_backend.service_util.FileValidationService;
+import com.convertlab.convertlab_backend.service_util.PdfMemoryPolicy;
+import com.convertlab.convertlab_backend.service_util.TestPdfs;
+import com.convertlab.convertlab_backend.service_web.controllers.dto.ExtractRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JobServiceTest {
+
+    @TempDir
+    Path temp;
+
+    private ThreadPoolExecutor cpuExecutor;
+    private ThreadPoolExecutor jobExecutor;
+    private PdfService pdfService;
+    private JobService jobService;
+    private String assetId;
+
+    @BeforeEach
+    void createJobService() throws Exception {
+        String tempFolder = temp.toString();
+        StorageConfig storageConfig = new StorageConfig();
+        ProcessingConfig processingConfig = new ProcessingConfig();
+
+        ExpiryIndex expiryIndex = new ExpiryIndex(3_600_000);
+        ContentAddressedStore contentStore = new ContentAddressedStore(tempFolder, expiryIndex);
+        LocalDiskQuota quota = new LocalDiskQuota(expiryIndex, contentStore,
+                new LocalFileCleaner(contentStore, expiryIndex, tempFolder), storageConfig);
+        LocalStorageService storage = new LocalStorageService(contentStore, expiryIndex, quota, storageConfig,
+                tempFolder);
+
+        cpuExecutor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16));
+        CpuBulkhead cpuBulkhead = new CpuBulkhead(cpuExecutor, processingConfig, tempFolder);
+        PdfMemoryPolicy memoryPolicy = new PdfMemoryPolicy(processingConfig, tempFolder);
+        PdfDocumentCache documentCache = new PdfDocumentCache(storage, memoryPolicy, cpuBulkhead, processingConfig);
+        AdmissionController admissionController = new AdmissionController(processingConfig);
+        pdfService = new PdfService(storage, new FileValidationService(new ValidationConfig()), documentCache,
+                new LocalAssetCatalog(tempFolder, expiryIndex), memoryPolicy, cpuBulkhead,
+                new ResultCache(storageConfig, expiryIndex, tempFolder, 3_600_000),
+                new ConversionMetrics(new SimpleMeterRegistry()), admissionController);
+
+        // One worker and room for one queued job
+        jobExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        // Finished jobs expire at once, so the purge removes every finished job
+        jobService = new JobService(pdfService, null, null, storage, jobExecutor, admissionController, 0);
+
+        assetId = pdfService.uploadPdf(new MockMultipartFile("file", "report.pdf", "application/pdf",
+                TestPdfs.numberedPages(5))).getFileId();
+    }
+
+    @AfterEach
+    void shutdown() {
+        jobExecutor.shutdownNow();
+        cpuExecutor.shutdownNow();
+    }
+
+    @Test
+    void finishedJobDeliversItsResultUntilPurged() throws Exception {
+        Job job = jobService.submitExtract(extract("2-3"));
+        assertThat(job.getType()).isEqualTo(JobType.EXTRACT);
+        assertThat(job.getFileName()).isEqualTo("extracted_report.pdf");
+
+        Job finished = awaitFinished(job.getJobId());
+        assertThat(finished.getStatus()).isEqualTo(JobStatus.SUCCEEDED);
+        assertThat(finished.getStartedAt()).isNotNull();
+        assertThat(finished.getContentHash()).isNotBlank();
+        assertThat(jobService.getSucceededCount()).isEqualTo(1);
+
+        // The result can be downloaded more than once
+        for (int i = 0; i < 2; i++) {
+            try (FileArtifact result = jobService.getResult(job.getJobId())) {
+                assertThat(result.getContentType()).isEqualTo(MediaType.APPLICATION_PDF);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                result.writeTo(out);
+                try (PDDocument extracted = Loader.loadPDF(out.toByteArray())) {
+                    assertThat(extracted.getNumberOfPages()).isEqualTo(2);
+                    assertThat(TestPdfs.pageText(extracted, 1)).startsWith("Page 2");
+                }
+            }
+        }
+
+        Thread.sleep(5);
+        jobService.purgeExpiredJobs();
+        assertThatThrownBy(() -> jobService.getJob(job.getJobId())).isInstanceOf(JobNotFoundException.class);
+        assertThatThrownBy(() -> jobService.getResult(job.getJobId())).isInstanceOf(JobNotFoundException.class);
+    }
+
+    @Test
+    void queuedJobHasNoResultAndIsNotPurged() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        jobExecutor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        try {
+            Job job = jobService.submitExtract(extract("1"));
+            assertThat(jobService.getJob(job.getJobId()).getStatus()).isEqualTo(JobStatus.QUEUED);
+            assertThat(jobService.getQueuedCount()).isEqualTo(1);
+            assertThatThrownBy(() -> jobService.getResult(job.getJobId()))
+                    .isInstanceOfSatisfying(JobNotReadyException.class,
+                            e -> assertThat(e.getCode()).isEqualTo("JOB_NOT_READY"));
+
+            jobService.purgeExpiredJobs();
+            assertThat(jobService.getJob(job.getJobId()).getStatus()).isEqualTo(JobStatus.QUEUED);
+
+            // The queue is full
+            assertThatThrownBy(() -> jobService.submitExtract(extract("1")))
+                    .isInstanceOf(JobQueueFullException.class);
+            assertThat(jobService.getRejectedCount()).isEqualTo(1);
+
+            release.countDown();
+            assertThat(awaitFinished(job.getJobId()).getStatus()).isEqualTo(JobStatus.SUCCEEDED);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void invalidRequestFailsOnSubmission() {
+        assertThatThrownBy(() -> jobService.submitExtract(extract("9")))
+                .isInstanceOf(InvalidPageInputException.class);
+        assertThat(jobService.getQueuedCount()).isZero();
+        assertThat(jobService.getFailedCount()).isZero();
+    }
+
+    @Test
+    void unknownJobIsNotFound() {
+        assertThatThrownBy(() -> jobService.getJob("missing")).isInstanceOf(JobNotFoundException.class);
+    }
+
+    private ExtractRequest extract(String pageRange) {
+        ExtractRequest request = new ExtractRequest();
+        request.setFileId(assetId);
+        request.setPageRange(pageRange);
+        request.setActionType(ActionType.KEEP);
+        return request;
+    }
+
+    private Job awaitFinished(String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        Job job = jobService.getJob(jobId);
+        while (!job.isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            job = jobService.getJob(jobId);
+        }
+        assertThat(job.isFinished()).as("job finished").isTrue();
+        return job;
+    }
+}
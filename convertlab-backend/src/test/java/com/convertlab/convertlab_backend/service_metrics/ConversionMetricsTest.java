@@ -0,0 +1,78 @@
+package com.convertlab.convertlab_backend.service_metrics;
+
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import com.convertlab.convertlab_backend.service_core.artifact.StreamingArtifact;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConversionMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ConversionMetrics metrics = new ConversionMetrics(registry);
+
+    @Test
+    void writtenConversionIsRecordedByOperation() throws IOException {
+        Artifact artifact = metrics.meter(ConversionMetrics.MERGE, artifact(new byte[300]), 1000, 7);
+
+        artifact.writeTo(new ByteArrayOutputStream());
+
+        assertThat(registry.get("convertlab.conversion").tags("operation", "merge", "outcome", "success")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.get("convertlab.conversion.input").tag("operation", "merge")
+                .summary().totalAmount()).isEqualTo(1000);
+        assertThat(registry.get("convertlab.conversion.output").tag("operation", "merge")
+                .summary().totalAmount()).isEqualTo(300);
+        assertThat(registry.get("convertlab.conversion.pages").tag("operation", "merge")
+                .counter().count()).isEqualTo(7);
+    }
+
+    @Test
+    void failedConversionOnlyCountsAsAnError() {
+        Artifact failing = new StreamingArtifact("out.pdf", MediaType.APPLICATION_PDF, out -> {
+            throw new IOException("broken");
+        });
+
+        assertThatThrownBy(() -> metrics.meter(ConversionMetrics.SPLIT, failing, 1000, 7)
+                .writeTo(new ByteArrayOutputStream())).isInstanceOf(IOException.class);
+
+        assertThat(registry.get("convertlab.conversion").tags("operation", "split", "outcome", "error")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.find("convertlab.conversion").tags("outcome", "success").timer()).isNull();
+        assertThat(registry.find("convertlab.conversion.pages").counter()).isNull();
+    }
+
+    @Test
+    void uploadsAreRecordedByType() {
+        metrics.recordUpload("pdf", 2048);
+        metrics.recordUpload("image", 512);
+
+        assertThat(registry.get("convertlab.upload").tag("type", "pdf").summary().totalAmount()).isEqualTo(2048);
+        assertThat(registry.get("convertlab.upload").tag("type", "image").summary().count()).isEqualTo(1);
+    }
+
+    @Test
+    void stagesAreTimedOnTheGlobalRegistry() throws IOException {
+        SimpleMeterRegistry global = new SimpleMeterRegistry();
+        Metrics.addRegistry(global);
+        try {
+            StageTimer.run(StageTimer.PDF_PARSE, () -> {
+            });
+
+            assertThat(global.get(StageTimer.METER_NAME).tag("stage", "pdf.parse").timer().count()).isEqualTo(1);
+        } finally {
+            Metrics.removeRegistry(global);
+        }
+    }
+
+    private static Artifact artifact(byte[] content) {
+        return new StreamingArtifact("out.pdf", MediaType.APPLICATION_PDF, out -> out.write(content));
+    }
+}
@@ -0,0 +1,84 @@
+package com.convertlab.convertlab_backend.service_metrics;
+
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import com.convertlab.convertlab_backend.config.StorageConfig;
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
+import com.convertlab.convertlab_backend.service_storage.ResultCache;
+import com.convertlab.convertlab_backend.service_storage.ThumbnailCache;
+import com.convertlab.convertlab_backend.service_storage.impl.ContentAddressedStore;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalDiskQuota;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalFileCleaner;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalStorageService;
+import com.convertlab.convertlab_backend.service_storage.impl.ObjectStorageService;
+import com.convertlab.convertlab_backend.service_storage.impl.TieredStorageService;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StorageMetricsTest {
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void localStorageMetersAreRegisteredWithTheirTags() throws Exception {
+        String tempFolder = temp.toString();
+        StorageConfig storageConfig = new StorageConfig();
+        storageConfig.getQuota().setMaxMb(4);
+
+        ExpiryIndex expiryIndex = new ExpiryIndex(3_600_000);
+        ContentAddressedStore contentStore = new ContentAddressedStore(tempFolder, expiryIndex);
+        LocalFileCleaner fileCleaner = new LocalFileCleaner(contentStore, expiryIndex, tempFolder);
+        LocalDiskQuota quota = new LocalDiskQuota(expiryIndex, contentStore, fileCleaner, storageConfig);
+        LocalStorageService disk = new LocalStorageService(contentStore, expiryIndex, quota, storageConfig,
+                tempFolder);
+
+        // The local backend, which has a memory tier and no object store
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("tieredStorage", new TieredStorageService(disk, expiryIndex, quota, storageConfig));
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new StorageMetrics(contentStore, expiryIndex, quota, fileCleaner,
+                new ResultCache(storageConfig, expiryIndex, tempFolder, 3_600_000),
+                new ThumbnailCache(disk, new ProcessingConfig()),
+                beans.getBeanProvider(TieredStorageService.class),
+                beans.getBeanProvider(ObjectStorageService.class)).bindTo(registry);
+
+        assertThat(registry.getMeters()).extracting(meter -> meter.getId().getName()).contains(
+                "convertlab.storage.used",
+                "convertlab.storage.quota",
+                "convertlab.storage.pressure.evictions",
+                "convertlab.storage.rejected.uploads",
+                "convertlab.storage.tracked.files",
+                "convertlab.storage.blobs",
+                "convertlab.storage.deduplicated",
+                "convertlab.cleanup",
+                "convertlab.results.disk",
+                "convertlab.thumbnails.disk",
+                "convertlab.storage.memory.used",
+                "convertlab.storage.memory.deduplicated",
+                "convertlab.storage.memory.spilled");
+        assertThat(registry.find("convertlab.objectstore.transferred").meters()).isEmpty();
+
+        assertThat(registry.get("convertlab.cleanup.files").meters()).extracting(this::tags)
+                .containsExactlyInAnyOrder("action=deleted", "action=released");
+        assertThat(registry.get("convertlab.results.lookups").meters()).extracting(this::tags)
+                .containsExactlyInAnyOrder("result=hit", "result=miss");
+
+        assertThat(registry.get("convertlab.storage.quota").gauge().value()).isEqualTo(4 * 1024 * 1024);
+        assertThat(registry.get("convertlab.storage.used").gauge().getId().getBaseUnit()).isEqualTo("bytes");
+    }
+
+    private String tags(Meter meter) {
+        return meter.getId().getTags().stream()
+                .map(tag -> tag.getKey() + "=" + tag.getValue())
+                .reduce((a, b) -> a + "," + b)
+                .orElse("");
+    }
+}
@@ -0,0 +1,93 @@
+package com.convertlab.convertlab_backend.service_storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiryIndexTest {
+
+    private static final long TTL_MS = 1000;
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void leasedAssetDoesNotExpireUntilTheLeaseIsClosed() throws IOException {
+        ExpiryIndex index = new ExpiryIndex(TTL_MS);
+        Path upload = file("upload.pdf", 10);
+        index.track(upload, "asset", 0);
+
+        StorageLease lease = index.lease(List.of("asset"));
+        assertThat(index.pollExpired(TTL_MS)).isEmpty();
+        assertThat(index.pollOldest(10)).isEmpty();
+        assertThat(index.getDeferredCount()).isEqualTo(1);
+
+        lease.close();
+        assertThat(files(index.pollExpired(TTL_MS))).containsExactly(upload);
+    }
+
+    @Test
+    void filesOfNoAssetCanBeLeased() throws IOException {
+        ExpiryIndex index = new ExpiryIndex(TTL_MS);
+        Path result = file("result.pdf", 10);
+        Path thumbnail = file("thumbnail.jpg", 20);
+        index.track(result, null, 0);
+        index.track(thumbnail, null, 0);
+
+        StorageLease first = index.leaseFiles(List.of(result));
+        StorageLease second = index.leaseFiles(List.of(result));
+        assertThat(files(index.pollOldest(10))).containsExactly(thumbnail);
+        assertThat(index.pollExpired(TTL_MS)).isEmpty();
+        assertThat(index.isTracked(result)).isTrue();
+        assertThat(index.getTrackedBytes()).isEqualTo(10);
+
+        // Closing a lease twice does not release the other one
+        first.close();
+        first.close();
+        assertThat(index.getLeasedFileCount()).isEqualTo(1);
+        assertThat(index.pollExpired(TTL_MS)).isEmpty();
+
+        second.close();
+        assertThat(index.getLeasedFileCount()).isZero();
+        assertThat(files(index.pollExpired(TTL_MS))).containsExactly(result);
+        assertThat(index.getTrackedBytes()).isZero();
+    }
+
+    @Test
+    void leasedFilesAreMatchedByTheirNormalizedPath() throws IOException {
+        ExpiryIndex index = new ExpiryIndex(TTL_MS);
+        Path result = file("result.pdf", 10);
+        index.track(result, null, 0);
+
+        try (StorageLease lease = index.leaseFiles(List.of(folder.resolve("sub/../result.pdf")))) {
+            assertThat(index.pollOldest(10)).isEmpty();
+        }
+        assertThat(files(index.pollOldest(10))).containsExactly(result.toAbsolutePath().normalize());
+    }
+
+    @Test
+    void trackingAgainRestartsTheTtl() throws IOException {
+        ExpiryIndex index = new ExpiryIndex(TTL_MS);
+        Path result = file("result.pdf", 10);
+        index.track(result, null, 0);
+        index.track(result, null, TTL_MS);
+
+        assertThat(index.pollExpired(TTL_MS)).isEmpty();
+        assertThat(index.getTrackedCount()).isEqualTo(1);
+        assertThat(files(index.pollExpired(2 * TTL_MS))).containsExactly(result);
+    }
+
+    private Path file(String name, int size) throws IOException {
+        return Files.write(folder.resolve(name), new byte[size]).toAbsolutePath().normalize();
+    }
+
+    private static List<Path> files(List<ExpiryIndex.Entry> entries) {
+        return entries.stream().map(ExpiryIndex.Entry::getFile).toList();
+    }
+}
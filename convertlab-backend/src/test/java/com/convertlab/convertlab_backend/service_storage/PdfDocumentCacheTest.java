@@ -0,0 +1,157 @@
+package com.convertlab.convertlab_backend.service_storage;
+
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import com.convertlab.convertlab_backend.config.StorageConfig;
+import com.convertlab.convertlab_backend.exception.AssetNotFoundException;
+import com.convertlab.convertlab_backend.service_storage.impl.ContentAddressedStore;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalDiskQuota;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalFileCleaner;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalStorageService;
+import com.convertlab.convertlab_backend.service_util.CpuBulkhead;
+import com.convertlab.convertlab_backend.service_util.PdfMemoryPolicy;
+import com.convertlab.convertlab_backend.service_util.TestPdfs;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PdfDocumentCacheTest {
+
+    @TempDir
+    Path temp;
+
+    private final CountDownLatch loadStarted = new CountDownLatch(1);
+    private final CountDownLatch finishLoad = new CountDownLatch(1);
+    private volatile String blockedAsset;
+
+    private ThreadPoolExecutor cpuExecutor;
+    private ExecutorService requests;
+    private LocalStorageService storage;
+    private PdfMemoryPolicy memoryPolicy;
+    private PdfDocumentCache cache;
+
+    @BeforeEach
+    void createCache() throws IOException {
+        String tempFolder = temp.toString();
+        StorageConfig storageConfig = new StorageConfig();
+        ProcessingConfig processingConfig = new ProcessingConfig();
+
+        ExpiryIndex expiryIndex = new ExpiryIndex(3_600_000);
+        ContentAddressedStore contentStore = new ContentAddressedStore(tempFolder, expiryIndex);
+        LocalDiskQuota quota = new LocalDiskQuota(expiryIndex, contentStore,
+                new LocalFileCleaner(contentStore, expiryIndex, tempFolder), storageConfig);
+        // Lookups of the blocked asset wait, which holds its load in progress
+        storage = new LocalStorageService(contentStore, expiryIndex, quota, storageConfig, tempFolder) {
+            @Override
+            public Optional<AssetContent> findPdf(String fileId) {
+                if (fileId.equals(blockedAsset)) {
+                    loadStarted.countDown();
+                    try {
+                        finishLoad.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.findPdf(fileId);
+            }
+        };
+
+        cpuExecutor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16));
+        requests = Executors.newVirtualThreadPerTaskExecutor();
+        memoryPolicy = new PdfMemoryPolicy(processingConfig, tempFolder);
+        cache = new PdfDocumentCache(storage, memoryPolicy,
+                new CpuBulkhead(cpuExecutor, processingConfig, tempFolder), processingConfig);
+    }
+
+    @AfterEach
+    void shutdown() {
+        finishLoad.countDown();
+        cache.destroy();
+        requests.shutdownNow();
+        cpuExecutor.shutdownNow();
+    }
+
+    @Test
+    void concurrentRequestsShareOneParse() throws Exception {
+        String assetId = upload(TestPdfs.numberedPages(3));
+        blockedAsset = assetId;
+
+        List<Future<PDDocument>> leases = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            leases.add(requests.submit(() -> {
+                try (PdfDocumentLease lease = cache.acquire(assetId)) {
+                    return lease.getDocument();
+                }
+            }));
+        }
+        assertThat(loadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        finishLoad.countDown();
+
+        PDDocument document = leases.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<PDDocument> lease : leases) {
+            assertThat(lease.get(5, TimeUnit.SECONDS)).isSameAs(document);
+        }
+        assertThat(memoryPolicy.getMainMemoryCount()).isEqualTo(1);
+        assertThat(cache.getEntryCount()).isEqualTo(1);
+    }
+
+    @Test
+    void parseInProgressDoesNotBlockTheCache() throws Exception {
+        String slow = upload(TestPdfs.numberedPages(3));
+        String other = upload(TestPdfs.numberedPages(2));
+        blockedAsset = slow;
+
+        Future<Integer> loading = requests.submit(() -> {
+            try (PdfDocumentLease lease = cache.acquire(slow)) {
+                return lease.getDocument().getNumberOfPages();
+            }
+        });
+        assertThat(loadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Neither the key being loaded nor any other waits for the parse
+        requests.submit(() -> cache.invalidate(slow)).get(5, TimeUnit.SECONDS);
+        Future<Integer> unrelated = requests.submit(() -> {
+            try (PdfDocumentLease lease = cache.acquire(other)) {
+                return lease.getDocument().getNumberOfPages();
+            }
+        });
+        assertThat(unrelated.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+        assertThat(loading.isDone()).isFalse();
+
+        finishLoad.countDown();
+        assertThat(loading.get(5, TimeUnit.SECONDS)).isEqualTo(3);
+    }
+
+    @Test
+    void failedLoadIsNotCached() throws Exception {
+        assertThatThrownBy(() -> cache.acquire("missing_file.pdf")).isInstanceOf(AssetNotFoundException.class);
+        assertThat(cache.getEntryCount()).isZero();
+
+        String assetId = upload(TestPdfs.numberedPages(1));
+        try (PdfDocumentLease lease = cache.acquire(assetId)) {
+            assertThat(lease.getDocument().getNumberOfPages()).isEqualTo(1);
+        }
+    }
+
+    private String upload(byte[] pdf) throws Exception {
+        return storage.saveTempPdf(new MockMultipartFile("file", "document.pdf", "application/pdf", pdf));
+    }
+}
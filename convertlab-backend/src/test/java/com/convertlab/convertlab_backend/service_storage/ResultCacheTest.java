@@ -0,0 +1,127 @@
+package com.convertlab.convertlab_backend.service_storage;
+
+import com.convertlab.convertlab_backend.config.StorageConfig;
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import com.convertlab.convertlab_backend.service_core.artifact.FileArtifact;
+import com.convertlab.convertlab_backend.service_core.artifact.StreamingArtifact;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResultCacheTest {
+
+    private static final byte[] OUTPUT = "converted output".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path tempFolder;
+
+    @Test
+    void keysDependOnOperationInputsAndParameters() {
+        String key = ResultCache.key("extract", List.of("a", "b"), "pages=[1, 2]");
+
+        assertThat(ResultCache.key("extract", List.of("a", "b"), "pages=[1, 2]")).isEqualTo(key);
+        assertThat(ResultCache.key("merge", List.of("a", "b"), "pages=[1, 2]")).isNotEqualTo(key);
+        assertThat(ResultCache.key("extract", List.of("b", "a"), "pages=[1, 2]")).isNotEqualTo(key);
+        assertThat(ResultCache.key("extract", List.of("a", "b"), "pages=[1, 3]")).isNotEqualTo(key);
+        assertThat(ResultCache.key("extract", List.of("a"), "pages=[1, 2]")).isNotEqualTo(key);
+    }
+
+    @Test
+    void replayedConversionIsAnsweredFromTheStoredResult() throws IOException {
+        ResultCache cache = new ResultCache(new StorageConfig(), new ExpiryIndex(3_600_000), tempFolder.toString(),
+                3_600_000);
+        AtomicInteger conversions = new AtomicInteger();
+
+        Artifact first = cache.memoize("key", conversion(conversions, new AtomicBoolean()));
+        assertThat(write(first)).isEqualTo(OUTPUT);
+        first.close();
+
+        AtomicBoolean dropped = new AtomicBoolean();
+        Artifact second = cache.memoize("key", conversion(conversions, dropped));
+        assertThat(second).isInstanceOf(FileArtifact.class);
+        assertThat(second.getFileName()).isEqualTo("result.pdf");
+        assertThat(second.getContentHash()).isNotNull();
+        assertThat(write(second)).isEqualTo(OUTPUT);
+        second.close();
+
+        assertThat(conversions).hasValue(1);
+        assertThat(dropped).isTrue();
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getStoredCount()).isEqualTo(1);
+    }
+
+    @Test
+    void resultIsOnlyStoredWhenWrittenCompletely() throws IOException {
+        ResultCache cache = new ResultCache(new StorageConfig(), new ExpiryIndex(3_600_000), tempFolder.toString(),
+                3_600_000);
+        Artifact failing = cache.memoize("key", new StreamingArtifact("result.pdf", MediaType.APPLICATION_PDF,
+                out -> {
+                    out.write(OUTPUT, 0, 4);
+                    throw new IOException("Conversion failed");
+                }));
+
+        assertThatThrownBy(() -> write(failing)).hasMessage("Conversion failed");
+
+        assertThat(cache.getStoredCount()).isZero();
+        assertThat(cache.memoize("key", conversion(new AtomicInteger(), new AtomicBoolean())))
+                .isNotInstanceOf(FileArtifact.class);
+    }
+
+    @Test
+    void hitKeepsItsFileUntilClosed() throws Exception {
+        long ttlMs = 200;
+        ExpiryIndex expiryIndex = new ExpiryIndex(ttlMs);
+        ResultCache cache = new ResultCache(new StorageConfig(), expiryIndex, tempFolder.toString(), ttlMs);
+
+        write(cache.memoize("key", conversion(new AtomicInteger(), new AtomicBoolean())));
+        FileArtifact hit = (FileArtifact) cache.memoize("key", conversion(new AtomicInteger(), new AtomicBoolean()));
+        Path file = hit.getPath();
+
+        Thread.sleep(ttlMs * 2);
+        // Neither the cleanup job nor the cache expiry removes the result being read
+        assertThat(expiryIndex.pollExpired(System.currentTimeMillis())).isEmpty();
+        assertThat(cache.memoize("key", conversion(new AtomicInteger(), new AtomicBoolean())))
+                .isNotInstanceOf(FileArtifact.class);
+        Thread.sleep(100);
+        assertThat(write(hit)).isEqualTo(OUTPUT);
+
+        hit.close();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Files.exists(file) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(file).doesNotExist();
+        assertThat(expiryIndex.isTracked(file)).isFalse();
+    }
+
+    private static Artifact conversion(AtomicInteger conversions, AtomicBoolean closed) {
+        return new StreamingArtifact("result.pdf", MediaType.APPLICATION_PDF, out -> {
+            conversions.incrementAndGet();
+            out.write(OUTPUT);
+        }) {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+    }
+
+    private static byte[] write(Artifact artifact) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        artifact.writeTo(out);
+        return out.toByteArray();
+    }
+}
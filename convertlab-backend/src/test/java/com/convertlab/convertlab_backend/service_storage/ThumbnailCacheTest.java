@@ -0,0 +1,98 @@
+package com.convertlab.convertlab_backend.service_storage;
+
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import com.convertlab.convertlab_backend.config.StorageConfig;
+import com.convertlab.convertlab_backend.service_storage.impl.ContentAddressedStore;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalDiskQuota;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalFileCleaner;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ThumbnailCacheTest {
+
+    private static final byte[] IMAGE = {1, 2, 3};
+
+    @TempDir
+    Path temp;
+
+    private LocalStorageService storage;
+    private ThumbnailCache cache;
+
+    @BeforeEach
+    void createCache() throws IOException {
+        StorageConfig storageConfig = new StorageConfig();
+        ExpiryIndex expiryIndex = new ExpiryIndex(3_600_000);
+        ContentAddressedStore contentStore = new ContentAddressedStore(temp.toString(), expiryIndex);
+        LocalDiskQuota quota = new LocalDiskQuota(expiryIndex, contentStore,
+                new LocalFileCleaner(contentStore, expiryIndex, temp.toString()), storageConfig);
+        storage = new LocalStorageService(contentStore, expiryIndex, quota, storageConfig, temp.toString());
+        cache = new ThumbnailCache(storage, new ProcessingConfig());
+    }
+
+    @Test
+    void concurrentRequestsForAMissingThumbnailRenderItOnce() throws Exception {
+        AtomicInteger renders = new AtomicInteger();
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        List<Future<byte[]>> requests = new ArrayList<>();
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 4; i++) {
+                requests.add(threads.submit(() -> cache.get("t.jpg", () -> {
+                    renders.incrementAndGet();
+                    rendering.countDown();
+                    finish.await();
+                    return IMAGE;
+                })));
+            }
+            assertThat(rendering.await(5, TimeUnit.SECONDS)).isTrue();
+            finish.countDown();
+
+            for (Future<byte[]> request : requests) {
+                assertThat(request.get(5, TimeUnit.SECONDS)).isEqualTo(IMAGE);
+            }
+        }
+        assertThat(renders).hasValue(1);
+        assertThat(cache.getRenders()).isEqualTo(1);
+        assertThat(cache.get("t.jpg", () -> {
+            throw new AssertionError("rendered again");
+        })).isEqualTo(IMAGE);
+    }
+
+    @Test
+    void failedRenderIsNotKept() throws Exception {
+        assertThatThrownBy(() -> cache.get("t.jpg", () -> {
+            throw new IOException("broken page");
+        })).isInstanceOf(IOException.class).hasMessage("broken page");
+
+        assertThat(cache.get("t.jpg", () -> IMAGE)).isEqualTo(IMAGE);
+        assertThat(cache.getRenders()).isEqualTo(1);
+    }
+
+    @Test
+    void thumbnailOnDiskIsNotRenderedAgain() throws Exception {
+        cache.get("t.jpg", () -> IMAGE);
+
+        ThumbnailCache restarted = new ThumbnailCache(storage, new ProcessingConfig());
+        assertThat(restarted.get("t.jpg", () -> {
+            throw new AssertionError("rendered again");
+        })).isEqualTo(IMAGE);
+        assertThat(restarted.getDiskHits()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,87 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentAddressedStoreTest {
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void identicalUploadsShareOneBlobUntilTheLastIsReleased() throws Exception {
+        ContentAddressedStore store = new ContentAddressedStore(temp.toString(), new ExpiryIndex(3_600_000));
+
+        String first = store.store("a", upload("same content"));
+        String second = store.store("b", upload("same content"));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(store.getBlobCount()).isEqualTo(1);
+        assertThat(store.getDeduplicatedCount()).isEqualTo(1);
+        assertThat(store.resolve("a")).isEqualTo(store.resolve("b"));
+
+        Path blob = store.resolve("a");
+        store.release("a");
+        assertThat(blob).exists();
+        store.release("b");
+        assertThat(blob).doesNotExist();
+        assertThat(store.getBlobCount()).isZero();
+        assertThat(store.getBlobBytes()).isZero();
+    }
+
+    @Test
+    void concurrentStoresAndReleasesOfTheSameContentKeepTheBlobWhileReferenced() throws Exception {
+        ContentAddressedStore store = new ContentAddressedStore(temp.toString(), new ExpiryIndex(3_600_000));
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String assetId = "asset-" + i;
+                tasks.add(executor.submit(() -> {
+                    store.store(assetId, upload("shared"));
+                    assertThat(Files.readString(store.resolve(assetId))).isEqualTo("shared");
+                    store.release(assetId);
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        }
+
+        assertThat(store.getBlobCount()).isZero();
+        assertThat(store.getReferenceCount()).isZero();
+        assertThat(store.getBlobBytes()).isZero();
+    }
+
+    @Test
+    void referencesSurviveARestart() throws Exception {
+        ContentAddressedStore store = new ContentAddressedStore(temp.toString(), new ExpiryIndex(3_600_000));
+        String hash = store.store("a", upload("kept"));
+        store.store("b", upload("kept"));
+
+        ContentAddressedStore restarted = new ContentAddressedStore(temp.toString(), new ExpiryIndex(3_600_000));
+        assertThat(restarted.getContentHash("a")).isEqualTo(hash);
+        assertThat(restarted.getBlobCount()).isEqualTo(1);
+
+        restarted.release("a");
+        assertThat(restarted.resolve("b")).exists();
+    }
+
+    private static MockMultipartFile upload(String content) {
+        return new MockMultipartFile("file", "file.pdf", "application/pdf", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,168 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.config.StorageConfig;
+import com.convertlab.convertlab_backend.exception.StorageFullException;
+import com.convertlab.convertlab_backend.service_core.artifact.StreamingArtifact;
+import com.convertlab.convertlab_backend.service_core.pojos.StoredResult;
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
+import com.convertlab.convertlab_backend.service_storage.StorageLease;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalDiskQuotaTest {
+
+    private static final int MB = 1024 * 1024;
+    private static final long TTL_MS = 3_600_000;
+
+    @TempDir
+    Path temp;
+
+    private StorageConfig storageConfig;
+    private ExpiryIndex expiryIndex;
+    private ContentAddressedStore contentStore;
+    private LocalDiskQuota quota;
+
+    @BeforeEach
+    void createQuota() throws IOException {
+        storageConfig = new StorageConfig();
+        storageConfig.getQuota().setMaxMb(4);
+        expiryIndex = new ExpiryIndex(TTL_MS);
+        contentStore = new ContentAddressedStore(temp.toString(), expiryIndex);
+        quota = new LocalDiskQuota(expiryIndex, contentStore,
+                new LocalFileCleaner(contentStore, expiryIndex, temp.toString()), storageConfig);
+    }
+
+    @Test
+    void concurrentReservationsNeverOvercommitTheQuota() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> attempts = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < 16; i++) {
+                attempts.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        quota.reserve(MB);
+                        return true;
+                    } catch (StorageFullException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int reserved = 0;
+            for (Future<Boolean> attempt : attempts) {
+                reserved += attempt.get() ? 1 : 0;
+            }
+            assertThat(reserved).isEqualTo(4);
+        }
+        assertThat(quota.getUsedBytes()).isEqualTo(4L * MB);
+        assertThat(quota.getRejectedCount()).isEqualTo(12);
+    }
+
+    @Test
+    void oldestFilesAreEvictedToMakeRoom() throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            files.add(tracked("file-" + i, 200 * 1024, i));
+        }
+
+        // Evicted in batches of 16 until usage is under the low-water mark with the reservation
+        try (LocalDiskQuota.Reservation reservation = quota.reserve(MB)) {
+            assertThat(files.subList(0, 16)).noneMatch(Files::exists);
+            assertThat(files.subList(16, 20)).allMatch(Files::exists);
+            assertThat(quota.getUsedBytes()).isEqualTo(4 * 200 * 1024 + MB);
+        }
+        assertThat(quota.getUsedBytes()).isEqualTo(4 * 200 * 1024);
+        assertThat(quota.getEvictedFiles()).isEqualTo(16);
+    }
+
+    @Test
+    void leasedFilesAreKeptAndTheRejectionIsTemporary() throws IOException {
+        List<Path> files = List.of(tracked("a", MB, 1), tracked("b", MB, 2), tracked("c", MB, 3));
+
+        try (StorageLease lease = expiryIndex.leaseFiles(files)) {
+            assertThatThrownBy(() -> quota.reserve(2L * MB))
+                    .isInstanceOfSatisfying(StorageFullException.class, e -> assertThat(e.isTemporary()).isTrue());
+            assertThat(files).allMatch(Files::exists);
+        }
+
+        quota.reserve(2L * MB).close();
+        assertThat(files.get(0)).doesNotExist();
+    }
+
+    @Test
+    void fileThatFailsToBeDeletedStaysAccountedFor() throws IOException {
+        // A directory with content cannot be deleted like a file
+        Path stuck = Files.createDirectory(temp.resolve("stuck"));
+        Files.write(stuck.resolve("content"), new byte[16]);
+        expiryIndex.track(stuck, null, 1);
+        long stuckBytes = expiryIndex.getTrackedBytes();
+
+        quota.reserve(4L * MB - stuckBytes).close();
+
+        assertThat(expiryIndex.isTracked(stuck)).isTrue();
+        assertThat(expiryIndex.getTrackedBytes()).isEqualTo(stuckBytes);
+        assertThat(quota.getEvictedFiles()).isZero();
+    }
+
+    @Test
+    void resultsAreStoredWithinTheQuota() throws IOException {
+        LocalStorageService storage = new LocalStorageService(contentStore, expiryIndex, quota, storageConfig,
+                temp.toString());
+
+        assertThatThrownBy(() -> storage.saveResult(result(5 * MB)))
+                .isInstanceOf(StorageFullException.class);
+        assertThat(quota.getUsedBytes()).isZero();
+        try (Stream<Path> files = Files.list(temp.resolve("results"))) {
+            assertThat(files.filter(Files::isRegularFile)).isEmpty();
+        }
+
+        StoredResult stored = storage.saveResult(result(MB / 2));
+        assertThat(quota.getUsedBytes()).isEqualTo(stored.getByteSize());
+    }
+
+    @Test
+    void thumbnailsAreStoredWithinTheQuota() throws IOException {
+        LocalStorageService storage = new LocalStorageService(contentStore, expiryIndex, quota, storageConfig,
+                temp.toString());
+        tracked("leased", 3 * MB, 1);
+
+        try (StorageLease lease = expiryIndex.leaseFiles(List.of(temp.resolve("leased")))) {
+            assertThatThrownBy(() -> storage.saveThumbnail("page.jpg", new byte[2 * MB]))
+                    .isInstanceOf(StorageFullException.class);
+        }
+        assertThat(storage.loadThumbnail("page.jpg")).doesNotExist();
+    }
+
+    private Path tracked(String name, int size, long modifiedMillis) throws IOException {
+        Path file = Files.write(temp.resolve(name), new byte[size]);
+        expiryIndex.track(file, null, modifiedMillis);
+        return file;
+    }
+
+    private static StreamingArtifact result(int size) {
+        return new StreamingArtifact("result.pdf", MediaType.APPLICATION_PDF, out -> {
+            byte[] chunk = new byte[64 * 1024];
+            for (int written = 0; written < size; written += chunk.length) {
+                out.write(chunk, 0, Math.min(chunk.length, size - written));
+            }
+        });
+    }
+}
@@ -0,0 +1,201 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.config.StorageConfig;
+import com.convertlab.convertlab_backend.service_storage.AssetContent;
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
+import com.convertlab.convertlab_backend.service_storage.StorageLease;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ObjectStorageServiceTest {
+
+    private static final int KB = 1024;
+
+    @TempDir
+    Path temp;
+
+    private FileSystemObjectStore bucket;
+
+    @BeforeEach
+    void createBucket() throws IOException {
+        bucket = new FileSystemObjectStore(temp.resolve("bucket"));
+    }
+
+    @Test
+    void uploadIsStoredInTheBucketAndLoadedFromTheCache() throws Exception {
+        ObjectStorageService storage = replica("a", 16);
+        byte[] content = content(300 * KB, 1);
+
+        String fileId = storage.saveTempPdf(upload(content));
+
+        assertThat(bucket.head(ObjectStorageService.PDF_PREFIX + fileId)).get()
+                .satisfies(info -> assertThat(info.getSize()).isEqualTo(content.length))
+                .satisfies(info -> assertThat(info.getMetadata())
+                        .containsEntry(ObjectStorageService.HASH_METADATA, sha256(content)));
+        assertThat(Files.readAllBytes(storage.loadPdf(fileId).toPath())).isEqualTo(content);
+        assertThat(storage.getContentHash(fileId)).isEqualTo(sha256(content));
+        assertThat(storage.getUploadedBytes()).isEqualTo(content.length);
+        assertThat(storage.getDownloadedCount()).isZero();
+
+        // Another replica fetches it from the bucket once
+        ObjectStorageService other = replica("b", 16);
+        AssetContent found = other.findPdf(fileId).orElseThrow();
+        assertThat(found.isRemote()).isFalse();
+        try (InputStream in = found.openStream()) {
+            assertThat(in.readAllBytes()).isEqualTo(content);
+        }
+        assertThat(Files.readAllBytes(other.loadPdf(fileId).toPath())).isEqualTo(content);
+        assertThat(other.getDownloadedCount()).isEqualTo(1);
+        assertThat(other.getCacheHits()).isEqualTo(1);
+    }
+
+    @Test
+    void largePdfOnAnotherReplicaIsReadByRanges() throws Exception {
+        byte[] content = content(300 * KB, 2);
+        String fileId = replica("a", 16).saveTempPdf(upload(content));
+
+        StorageConfig storageConfig = config(16);
+        storageConfig.getObjectStore().setRangedReadThresholdMb(0);
+        storageConfig.getObjectStore().setRangeChunkKb(4);
+        ObjectStorageService other = replica("b", storageConfig);
+
+        AssetContent found = other.findPdf(fileId).orElseThrow();
+        assertThat(found.isRemote()).isTrue();
+        assertThat(found.getSize()).isEqualTo(content.length);
+
+        byte[] read = new byte[100];
+        try (RandomAccessRead view = found.openRandomAccess()) {
+            view.seek(200_000);
+            assertThat(view.read(read, 0, read.length)).isEqualTo(read.length);
+        }
+        assertThat(read).containsExactly(Arrays.copyOfRange(content, 200_000, 200_100));
+        assertThat(other.getRangedReads()).isEqualTo(1);
+        assertThat(other.getRangedBytes()).isBetween(100L, 8L * KB);
+        assertThat(other.getDownloadedCount()).isZero();
+
+        // Images are always fetched whole
+        String imageId = replica("a", 16).saveTempImage(upload(content));
+        assertThat(other.findImage(imageId).orElseThrow().isRemote()).isFalse();
+    }
+
+    @Test
+    void evictedCopyIsDeletedAndFetchedAgain() throws Exception {
+        ObjectStorageService storage = replica("a", 1);
+        byte[] first = content(600 * KB, 3);
+        byte[] second = content(600 * KB, 4);
+
+        String firstId = storage.saveTempPdf(upload(first));
+        String secondId = storage.saveTempPdf(upload(second));
+
+        // Both do not fit the 1 MB cache, one copy goes
+        awaitCachedFiles(storage, 1, 1);
+        assertThat(storage.getCachedBytes()).isEqualTo(600 * KB);
+
+        // Fetching the evicted one evicts again, a copy handed out stays while its asset is leased
+        try (StorageLease lease = storage.lease(List.of(firstId, secondId))) {
+            Path firstCopy = storage.loadPdf(firstId).toPath();
+            Path secondCopy = storage.loadPdf(secondId).toPath();
+            awaitCachedFiles(storage, 1, 2);
+
+            assertThat(Files.readAllBytes(firstCopy)).isEqualTo(first);
+            assertThat(Files.readAllBytes(secondCopy)).isEqualTo(second);
+        }
+        assertThat(storage.getDownloadedCount()).isGreaterThanOrEqualTo(1);
+
+        storage.deleteEvictedCopies();
+        assertThat(cachedFiles()).isEqualTo(storage.getCachedCount());
+    }
+
+    @Test
+    void deleteRemovesTheObjectAndTheCachedCopy() throws Exception {
+        ObjectStorageService storage = replica("a", 16);
+        String fileId = storage.saveTempPdf(upload(content(10 * KB, 5)));
+        Path cached = storage.loadPdf(fileId).toPath();
+
+        storage.delete(fileId);
+
+        assertThat(bucket.head(ObjectStorageService.PDF_PREFIX + fileId)).isEmpty();
+        assertThat(bucket.list(ObjectStorageService.PDF_PREFIX)).isEmpty();
+        awaitDeleted(cached);
+        assertThat(storage.findPdf(fileId)).isEmpty();
+        assertThat(replica("b", 16).findPdf(fileId)).isEmpty();
+    }
+
+    private ObjectStorageService replica(String name, int cacheMb) throws IOException {
+        return replica(name, config(cacheMb));
+    }
+
+    private ObjectStorageService replica(String name, StorageConfig storageConfig) throws IOException {
+        String tempFolder = temp.resolve(name).toString();
+        ExpiryIndex expiryIndex = new ExpiryIndex(3_600_000);
+        ContentAddressedStore contentStore = new ContentAddressedStore(tempFolder, expiryIndex);
+        LocalDiskQuota quota = new LocalDiskQuota(expiryIndex, contentStore,
+                new LocalFileCleaner(contentStore, expiryIndex, tempFolder), storageConfig);
+        LocalStorageService local = new LocalStorageService(contentStore, expiryIndex, quota, storageConfig,
+                tempFolder);
+        return new ObjectStorageService(bucket, local, expiryIndex, storageConfig, tempFolder);
+    }
+
+    private static StorageConfig config(int cacheMb) {
+        StorageConfig storageConfig = new StorageConfig();
+        storageConfig.getObjectStore().setCacheMb(cacheMb);
+        return storageConfig;
+    }
+
+    /**
+     * Cache removals are handled asynchronously.
+     */
+    private static void awaitDeleted(Path file) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Files.exists(file) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(file).doesNotExist();
+    }
+
+    private void awaitCachedFiles(ObjectStorageService storage, long entries, long files) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((storage.getCachedCount() != entries || cachedFiles() != files)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(storage.getCachedCount()).isEqualTo(entries);
+        assertThat(cachedFiles()).isEqualTo(files);
+    }
+
+    private long cachedFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(temp.resolve("a").resolve("object-cache"))) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static byte[] content(int size, long seed) {
+        byte[] content = new byte[size];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+
+    private static MockMultipartFile upload(byte[] content) {
+        return new MockMultipartFile("file", "document.pdf", "application/pdf", content);
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
@@ -0,0 +1,140 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * File operations in a full flat directory against a {@link ShardedDirectory} holding the same files. Only runs
+ * with {@code -Dbenchmarks=true}, the number of files is set with {@code -Dbenchmark.files} (default 100000).
+ * <p>
+ * The directories are filled with empty files named like uploads, then create, open and delete are timed on a
+ * sample of them while the directory is full, and the startup listing over all of them.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class ShardedDirectoryBenchmark {
+
+    private static final int SAMPLE = 20_000;
+
+    @TempDir
+    Path base;
+
+    @Test
+    void flatAgainstSharded() throws IOException {
+        int files = Integer.getInteger("benchmark.files", 100_000);
+        List<String> names = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            names.add(UUID.randomUUID() + "_document.pdf");
+        }
+
+        Path flat = Files.createDirectories(base.resolve("flat"));
+        run("flat", names, new FileLayout() {
+            @Override
+            public Path write(String name) {
+                return flat.resolve(name);
+            }
+
+            @Override
+            public Path read(String name) {
+                return flat.resolve(name);
+            }
+
+            @Override
+            public int list() throws IOException {
+                try (Stream<Path> paths = Files.list(flat)) {
+                    return (int) paths.count();
+                }
+            }
+        });
+
+        ShardedDirectory sharded = new ShardedDirectory(base.resolve("sharded"));
+        run("sharded", names, new FileLayout() {
+            @Override
+            public Path write(String name) throws IOException {
+                return sharded.prepare(name);
+            }
+
+            @Override
+            public Path read(String name) {
+                return sharded.locate(name);
+            }
+
+            @Override
+            public int list() throws IOException {
+                return sharded.scan().size();
+            }
+        });
+    }
+
+    private void run(String label, List<String> names, FileLayout layout) throws IOException {
+        int files = names.size();
+        int sample = Math.min(SAMPLE, files / 2);
+
+        for (int i = 0; i < files - sample; i++) {
+            Files.createFile(layout.write(names.get(i)));
+        }
+
+        long[] create = new long[sample];
+        for (int i = 0; i < sample; i++) {
+            long start = System.nanoTime();
+            Files.createFile(layout.write(names.get(files - sample + i)));
+            create[i] = System.nanoTime() - start;
+        }
+
+        Random random = new Random(42);
+        long[] open = new long[sample];
+        for (int i = 0; i < sample; i++) {
+            Path file = layout.read(names.get(random.nextInt(files)));
+            long start = System.nanoTime();
+            try (var channel = Files.newByteChannel(file)) {
+                channel.size();
+            }
+            open[i] = System.nanoTime() - start;
+        }
+
+        long listStart = System.nanoTime();
+        int listed = layout.list();
+        long listMs = (System.nanoTime() - listStart) / 1_000_000;
+
+        List<String> victims = new ArrayList<>(names);
+        Collections.shuffle(victims, random);
+        long[] delete = new long[sample];
+        for (int i = 0; i < sample; i++) {
+            Path file = layout.read(victims.get(i));
+            long start = System.nanoTime();
+            Files.delete(file);
+            delete[i] = System.nanoTime() - start;
+        }
+
+        // Printed rather than logged, the Spring logging configuration is not loaded here
+        System.out.printf("%s with %d files: create %s, open %s, delete %s, startup listing of %d files %d ms%n",
+                label, files, summarize(create), summarize(open), summarize(delete), listed, listMs);
+    }
+
+    private static String summarize(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format("mean %.1f us p99 %.1f us", Arrays.stream(sorted).average().orElse(0) / 1000,
+                sorted[(int) (sorted.length * 0.99)] / 1000.0);
+    }
+
+    private interface FileLayout {
+
+        Path write(String name) throws IOException;
+
+        Path read(String name);
+
+        int list() throws IOException;
+    }
+}
@@ -0,0 +1,119 @@
+package com.convertlab.convertlab_backend.service_storage.impl;
+
+import com.convertlab.convertlab_backend.config.StorageConfig;
+import com.convertlab.convertlab_backend.exception.StorageFullException;
+import com.convertlab.convertlab_backend.service_storage.AssetContent;
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
+import com.convertlab.convertlab_backend.service_storage.StorageLease;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TieredStorageServiceTest {
+
+    private static final int KB = 1024;
+    private static final int MB = 1024 * KB;
+
+    @TempDir
+    Path temp;
+
+    private ExpiryIndex expiryIndex;
+    private ContentAddressedStore contentStore;
+    private LocalDiskQuota quota;
+    private LocalStorageService disk;
+    private TieredStorageService tier;
+
+    @BeforeEach
+    void createTier() throws IOException {
+        StorageConfig storageConfig = new StorageConfig();
+        storageConfig.getQuota().setMaxMb(4);
+        storageConfig.getMemoryTier().setBudgetMb(1);
+        storageConfig.getMemoryTier().setMaxAssetKb(600);
+
+        expiryIndex = new ExpiryIndex(3_600_000);
+        contentStore = new ContentAddressedStore(temp.toString(), expiryIndex);
+        quota = new LocalDiskQuota(expiryIndex, contentStore,
+                new LocalFileCleaner(contentStore, expiryIndex, temp.toString()), storageConfig);
+        disk = new LocalStorageService(contentStore, expiryIndex, quota, storageConfig, temp.toString());
+        tier = new TieredStorageService(disk, expiryIndex, quota, storageConfig);
+    }
+
+    @Test
+    void identicalUploadsShareOneBufferHeldInTheQuota() throws Exception {
+        String first = tier.saveTempPdf(upload(400 * KB, 1));
+        String second = tier.saveTempPdf(upload(400 * KB, 1));
+
+        assertThat(tier.getAssetCount()).isEqualTo(2);
+        assertThat(tier.getUsedBytes()).isEqualTo(400 * KB);
+        assertThat(tier.getDeduplicatedCount()).isEqualTo(1);
+        assertThat(quota.getUsedBytes()).isEqualTo(400 * KB);
+        assertThat(tier.findPdf(first).orElseThrow()).isSameAs(tier.findPdf(second).orElseThrow());
+
+        tier.delete(first);
+        assertThat(tier.getUsedBytes()).isEqualTo(400 * KB);
+        tier.delete(second);
+        assertThat(tier.getUsedBytes()).isZero();
+        assertThat(quota.getUsedBytes()).isZero();
+    }
+
+    @Test
+    void uploadOfContentAlreadyOnDiskReferencesTheBlob() throws Exception {
+        String stored = disk.saveTempPdf(upload(400 * KB, 1));
+        String duplicate = tier.saveTempPdf(upload(400 * KB, 1));
+
+        assertThat(tier.getAssetCount()).isZero();
+        assertThat(contentStore.getBlobCount()).isEqualTo(1);
+        assertThat(contentStore.resolve(duplicate)).isEqualTo(contentStore.resolve(stored));
+        assertThat(tier.findPdf(duplicate).orElseThrow().getFile()).isNotNull();
+    }
+
+    @Test
+    void uploadIsRejectedWhenTheQuotaIsFull() throws Exception {
+        Path leased = Files.write(temp.resolve("leased"), new byte[3 * MB + 600 * KB]);
+        expiryIndex.track(leased, null);
+
+        try (StorageLease lease = expiryIndex.leaseFiles(List.of(leased))) {
+            assertThatThrownBy(() -> tier.saveTempPdf(upload(500 * KB, 1)))
+                    .isInstanceOf(StorageFullException.class);
+        }
+        assertThat(tier.getAssetCount()).isZero();
+        assertThat(tier.getUsedBytes()).isZero();
+    }
+
+    @Test
+    void assetsSharingABufferMoveToDiskTogether() throws Exception {
+        String first = tier.saveTempPdf(upload(500 * KB, 1));
+        String second = tier.saveTempPdf(upload(500 * KB, 1));
+        String other = tier.saveTempPdf(upload(600 * KB, 2));
+
+        assertThat(tier.getAssetCount()).isEqualTo(1);
+        assertThat(tier.getUsedBytes()).isEqualTo(600 * KB);
+        assertThat(contentStore.getBlobCount()).isEqualTo(1);
+        assertThat(contentStore.resolve(first)).isEqualTo(contentStore.resolve(second));
+        assertThat(tier.findPdf(other).orElseThrow().getFile()).isNull();
+
+        // The blob on disk and the buffer still in memory, the spilled buffer gave its reservation back
+        assertThat(quota.getUsedBytes()).isEqualTo(expiryIndex.getTrackedBytes() + 500 * KB + 600 * KB);
+
+        AssetContent content = tier.findPdf(first).orElseThrow();
+        try (var in = content.openStream()) {
+            assertThat(in.readAllBytes()).containsOnly((byte) 1);
+        }
+    }
+
+    private static MockMultipartFile upload(int size, int fill) {
+        byte[] content = new byte[size];
+        Arrays.fill(content, (byte) fill);
+        return new MockMultipartFile("file", "document.pdf", "application/pdf", content);
+    }
+}
@@ -0,0 +1,105 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPipeTest {
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void outputLargerThanTheBufferArrivesIntact() throws Exception {
+        byte[] data = new byte[1_000_000];
+        new Random(7).nextBytes(data);
+        BoundedPipe pipe = new BoundedPipe(4096);
+
+        CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+            try (OutputStream sink = pipe.sink()) {
+                for (int offset = 0; offset < data.length; offset += 1000) {
+                    sink.write(data, offset, Math.min(1000, data.length - offset));
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(pipe.drainTo(out)).isEqualTo(data.length);
+        producer.get();
+        assertThat(out.toByteArray()).isEqualTo(data);
+    }
+
+    @Test
+    void producerFailsOnceTheReaderAborts() {
+        BoundedPipe pipe = new BoundedPipe(16);
+
+        CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+            try {
+                // Blocks on the full buffer until the abort
+                pipe.sink().write(new byte[64]);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        pipe.abort();
+
+        assertThatThrownBy(producer::get)
+                .isInstanceOf(ExecutionException.class)
+                .rootCause()
+                .hasMessageContaining("closed by the reader");
+    }
+
+    @Test
+    void producerContinuesInTheOverflowWithoutAReader() throws Exception {
+        byte[] data = new byte[100_000];
+        new Random(11).nextBytes(data);
+        BoundedPipe pipe = new BoundedPipe(4096, () -> new SpoolingOutputStream(1024, temp));
+
+        // Nobody drains yet, the producer still gets through all of it
+        try (OutputStream sink = pipe.sink()) {
+            for (int offset = 0; offset < data.length; offset += 1000) {
+                sink.write(data, offset, Math.min(1000, data.length - offset));
+            }
+        }
+        assertThat(pipe.isOverflowed()).isTrue();
+        assertThat(listFiles()).hasSize(1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(pipe.drainTo(out)).isEqualTo(data.length);
+        assertThat(out.toByteArray()).isEqualTo(data);
+        assertThat(listFiles()).isEmpty();
+    }
+
+    @Test
+    void overflowIsRemovedWhenTheReaderAborts() throws Exception {
+        BoundedPipe pipe = new BoundedPipe(16, () -> new SpoolingOutputStream(0, temp));
+
+        OutputStream sink = pipe.sink();
+        sink.write(new byte[64]);
+        pipe.abort();
+
+        assertThatThrownBy(() -> sink.write(1)).hasMessageContaining("closed by the reader");
+        sink.close();
+        assertThat(listFiles()).isEmpty();
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (var files = Files.list(temp)) {
+            return files.toList();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPriorityBlockingQueueTest {
+
+    @Test
+    void elementsBeyondTheCapacityAreRefusedAndTheRestTakenInOrder() throws Exception {
+        BoundedPriorityBlockingQueue<Integer> queue = new BoundedPriorityBlockingQueue<>(3);
+
+        assertThat(queue.offer(5)).isTrue();
+        assertThat(queue.offer(1)).isTrue();
+        assertThat(queue.offer(3)).isTrue();
+        assertThat(queue.offer(2)).isFalse();
+        assertThat(queue.remainingCapacity()).isZero();
+
+        assertThat(queue.take()).isEqualTo(1);
+        assertThat(queue.offer(2)).isTrue();
+        assertThat(List.of(queue.take(), queue.take(), queue.take())).containsExactly(2, 3, 5);
+    }
+
+    @Test
+    void concurrentOffersNeverExceedTheCapacity() throws Exception {
+        BoundedPriorityBlockingQueue<Integer> queue = new BoundedPriorityBlockingQueue<>(100);
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService submitters = Executors.newFixedThreadPool(8)) {
+            for (int t = 0; t < 8; t++) {
+                submitters.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 100; i++) {
+                        if (queue.offer(i)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            start.countDown();
+        }
+        assertThat(accepted).hasValue(100);
+        assertThat(queue).hasSize(100);
+    }
+
+    @Test
+    void executorRejectsTasksBeyondTheQueue() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new BoundedPriorityBlockingQueue<>(2));
+        try {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                    // Shutting down
+                }
+            });
+            executor.execute(new Ranked(2));
+            executor.execute(new Ranked(1));
+
+            assertThatThrownBy(() -> executor.execute(new Ranked(3))).isInstanceOf(RejectedExecutionException.class);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    private static final class Ranked implements Runnable, Comparable<Ranked> {
+        private final int rank;
+
+        Ranked(int rank) {
+            this.rank = rank;
+        }
+
+        @Override
+        public void run() {
+        }
+
+        @Override
+        public int compareTo(Ranked other) {
+            return Integer.compare(rank, other.rank);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import com.convertlab.convertlab_backend.service_core.artifact.ArtifactWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CpuBulkheadTest {
+
+    @TempDir
+    Path temp;
+
+    private ThreadPoolExecutor cpuExecutor;
+    private ExecutorService requests;
+    private CpuBulkhead bulkhead;
+
+    @BeforeEach
+    void createBulkhead() throws IOException {
+        ProcessingConfig processingConfig = new ProcessingConfig();
+        processingConfig.getCpu().setPipeBufferKb(4);
+
+        cpuExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(4));
+        requests = Executors.newVirtualThreadPerTaskExecutor();
+        bulkhead = new CpuBulkhead(cpuExecutor, processingConfig, temp.toString());
+    }
+
+    @AfterEach
+    void shutdown() {
+        requests.shutdownNow();
+        cpuExecutor.shutdownNow();
+    }
+
+    @Test
+    void clientThatDoesNotReadDoesNotKeepTheCpuThread() throws Exception {
+        byte[] data = new byte[1_000_000];
+        new Random(3).nextBytes(data);
+        ArtifactWriter writer = out -> {
+            for (int offset = 0; offset < data.length; offset += 1000) {
+                out.write(data, offset, Math.min(1000, data.length - offset));
+            }
+        };
+
+        CountDownLatch produced = new CountDownLatch(1);
+        CountDownLatch clientReads = new CountDownLatch(1);
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        OutputStream stalledClient = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int offset, int length) throws IOException {
+                try {
+                    clientReads.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                received.write(b, offset, length);
+            }
+        };
+
+        Future<?> response = requests.submit(() -> {
+            bulkhead.offload(writer).write(stalledClient, produced::countDown);
+            return null;
+        });
+
+        // The whole output is produced while the client has not taken a byte
+        assertThat(produced.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(bulkhead.getSpilledCount()).isEqualTo(1);
+        assertThat(scratchFiles()).isEqualTo(1);
+
+        // and the only CPU thread is free for the next request
+        CompletableFuture<String> next = CompletableFuture.supplyAsync(() -> {
+            try {
+                return bulkhead.call(() -> "next");
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, requests);
+        assertThat(next.get(10, TimeUnit.SECONDS)).isEqualTo("next");
+
+        clientReads.countDown();
+        response.get(10, TimeUnit.SECONDS);
+        assertThat(received.toByteArray()).isEqualTo(data);
+        assertThat(scratchFiles()).isZero();
+    }
+
+    private long scratchFiles() throws IOException {
+        try (var files = Files.list(temp.resolve("scratch"))) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import com.convertlab.convertlab_backend.config.ValidationConfig;
+import com.convertlab.convertlab_backend.exception.FileValidationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileValidationServiceTest {
+
+    private final FileValidationService validation = new FileValidationService(new ValidationConfig());
+
+    @Test
+    void imagesWithinTheMaximumDimensionPass() {
+        assertThatCode(() -> validation.validateImageDimensions(image("png", TestImages.encoded("png", 10000, 1))))
+                .doesNotThrowAnyException();
+        assertThatCode(() -> validation.validateImageDimensions(image("jpg", TestImages.encoded("jpeg", 30, 20))))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void imagesOverTheMaximumDimensionAreRejected() throws Exception {
+        assertRejected(image("png", TestImages.encoded("png", 10001, 1)), "IMAGE_DIMENSION_EXCEEDED");
+        assertRejected(image("gif", TestImages.encoded("gif", 1, 10001)), "IMAGE_DIMENSION_EXCEEDED");
+        assertRejected(image("webp", TestImages.losslessWebP(12000, 10)), "IMAGE_DIMENSION_EXCEEDED");
+        assertRejected(image("webp", TestImages.extendedWebP(20000, 300)), "IMAGE_DIMENSION_EXCEEDED");
+    }
+
+    @Test
+    void webPWithinTheLimitIsSizedButNotSupported() {
+        assertRejected(image("webp", TestImages.lossyWebP()), "UNSUPPORTED_IMAGE_FORMAT");
+    }
+
+    @Test
+    void unreadableImageIsRejectedAsCorrupted() throws Exception {
+        byte[] truncated = Arrays.copyOf(TestImages.encoded("png", 300, 200), 20);
+        assertRejected(image("png", truncated), "CORRUPTED_IMAGE");
+    }
+
+    private void assertRejected(MockMultipartFile image, String code) {
+        assertThatThrownBy(() -> validation.validateImageDimensions(image))
+                .isInstanceOfSatisfying(FileValidationException.class,
+                        e -> assertThat(e.getCode()).isEqualTo(code));
+    }
+
+    private static MockMultipartFile image(String extension, byte[] content) {
+        return new MockMultipartFile("file", "image." + extension, "image/" + extension, content);
+    }
+}
@@ -0,0 +1,108 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reading the dimensions of an upload from its headers against decoding it, per format. Only runs with
+ * {@code -Dbenchmarks=true}, the image size is set with {@code -Dbenchmark.width} and {@code -Dbenchmark.height}
+ * (default 4000x3000).
+ * <p>
+ * Reports the average time and the bytes allocated by the measuring thread per call, decodes averaged over
+ * 5 calls and probes over 200, after one warm-up call each.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class ImageDimensionProbeBenchmark {
+
+    private static final int DECODE_RUNS = 5;
+    private static final int PROBE_RUNS = 200;
+
+    @Test
+    void probeAgainstDecode() throws IOException {
+        int width = Integer.getInteger("benchmark.width", 4000);
+        int height = Integer.getInteger("benchmark.height", 3000);
+        BufferedImage image = image(width, height);
+
+        for (String format : new String[]{"png", "jpg", "bmp"}) {
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            ImageIO.write(image, format, encoded);
+            byte[] bytes = encoded.toByteArray();
+
+            ImageDimensionProbe.ProbedImage probed = ImageDimensionProbe.probe(new ByteArrayInputStream(bytes));
+            assertThat(probed.getWidth()).isEqualTo(width);
+            assertThat(probed.getHeight()).isEqualTo(height);
+
+            Measurement decode = measure(DECODE_RUNS, () -> {
+                BufferedImage decoded = ImageIO.read(new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes)));
+                return decoded.getWidth();
+            });
+            Measurement probe = measure(PROBE_RUNS,
+                    () -> ImageDimensionProbe.probe(new ByteArrayInputStream(bytes)).getWidth());
+
+            // Printed rather than logged, the Spring logging configuration is not loaded here
+            System.out.printf("%s %5.1f MB: decode %6.1f ms / %5.1f MB alloc, probe %5.2f ms / %3d KB%n",
+                    format, bytes.length / 1048576.0, decode.millis, decode.allocatedBytes / 1048576.0,
+                    probe.millis, probe.allocatedBytes / 1024);
+        }
+    }
+
+    private static Measurement measure(int runs, Probe probe) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        probe.run();
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            probe.run();
+        }
+        double millis = (System.nanoTime() - start) / 1_000_000.0 / runs;
+        long allocated = (threads.getThreadAllocatedBytes(thread) - allocatedBefore) / runs;
+        return new Measurement(millis, allocated);
+    }
+
+    private static BufferedImage image(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, new Color(40, 90, 160), width, height, new Color(230, 190, 120)));
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+
+        // Some noise, so PNG and JPEG do not compress the image away
+        Random random = new Random(42);
+        for (int i = 0; i < width * height / 8; i++) {
+            image.setRGB(random.nextInt(width), random.nextInt(height), random.nextInt(0xFFFFFF));
+        }
+        return image;
+    }
+
+    private interface Probe {
+
+        int run() throws IOException;
+    }
+
+    private static final class Measurement {
+
+        final double millis;
+        final long allocatedBytes;
+
+        Measurement(double millis, long allocatedBytes) {
+            this.millis = millis;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageDimensionProbeTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"png", "jpeg", "gif", "bmp"})
+    void sizeIsReadFromTheHeaderOfEachImageIoFormat(String format) throws IOException {
+        ImageDimensionProbe.ProbedImage probed = probe(TestImages.encoded(format, 300, 200));
+
+        assertThat(probed.getFormat()).isEqualTo(format);
+        assertThat(probed.getWidth()).isEqualTo(300);
+        assertThat(probed.getHeight()).isEqualTo(200);
+    }
+
+    @Test
+    void lossyWebP() throws IOException {
+        assertWebP(probe(TestImages.lossyWebP()), 16, 16);
+    }
+
+    @Test
+    void losslessWebP() throws IOException {
+        assertWebP(probe(TestImages.losslessWebP(300, 200)), 300, 200);
+        assertWebP(probe(TestImages.losslessWebP(1, 16384)), 1, 16384);
+    }
+
+    @Test
+    void extendedWebP() throws IOException {
+        assertWebP(probe(TestImages.extendedWebP()), 16, 16);
+        // The canvas takes 24 bits per side, beyond the 14 bits of the simple formats
+        assertWebP(probe(TestImages.extendedWebP(20000, 300)), 20000, 300);
+    }
+
+    @Test
+    void truncatedHeadersAreNotRead() throws IOException {
+        for (byte[] image : new byte[][]{
+                TestImages.encoded("png", 300, 200),
+                TestImages.encoded("jpeg", 300, 200),
+                TestImages.encoded("gif", 300, 200),
+                TestImages.encoded("bmp", 300, 200),
+                TestImages.lossyWebP(),
+                TestImages.losslessWebP(300, 200),
+                TestImages.extendedWebP()}) {
+            assertThat(probe(Arrays.copyOf(image, 20))).isNull();
+        }
+        assertThat(probe(new byte[0])).isNull();
+    }
+
+    @Test
+    void corruptHeadersAreNotRead() throws IOException {
+        byte[] lossy = TestImages.lossyWebP();
+        lossy[23] = 0; // start code of the key frame
+        assertThat(probe(lossy)).isNull();
+
+        byte[] lossless = TestImages.losslessWebP(300, 200);
+        lossless[20] = 0; // signature
+        assertThat(probe(lossless)).isNull();
+
+        byte[] unknownChunk = TestImages.lossyWebP();
+        unknownChunk[12] = 'X';
+        assertThat(probe(unknownChunk)).isNull();
+
+        // A PNG signature followed by something else than the IHDR chunk
+        byte[] png = TestImages.encoded("png", 300, 200);
+        Arrays.fill(png, 8, png.length, (byte) 0x55);
+        assertThat(probe(png)).isNull();
+
+        byte[] noise = new byte[4096];
+        new Random(13).nextBytes(noise);
+        assertThat(probe(noise)).isNull();
+    }
+
+    private static void assertWebP(ImageDimensionProbe.ProbedImage probed, int width, int height) {
+        assertThat(probed.getFormat()).isEqualTo(ImageDimensionProbe.WEBP);
+        assertThat(probed.getWidth()).isEqualTo(width);
+        assertThat(probed.getHeight()).isEqualTo(height);
+    }
+
+    private static ImageDimensionProbe.ProbedImage probe(byte[] image) throws IOException {
+        return ImageDimensionProbe.probe(new ByteArrayInputStream(image));
+    }
+}
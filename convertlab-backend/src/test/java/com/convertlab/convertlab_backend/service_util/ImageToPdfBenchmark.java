@@ -0,0 +1,141 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import com.convertlab.convertlab_backend.service_storage.impl.FileAssetContent;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * One image per page the way images-to-pdf builds it now, against the earlier path that decoded every upload,
+ * wrote it to a temporary PNG and read that back. Only runs with {@code -Dbenchmarks=true}, the image size is set
+ * with {@code -Dbenchmark.width} and {@code -Dbenchmark.height} (default 3000x4000).
+ * <p>
+ * The image is generated like a photo, gradients with sensor-like noise, and saved as JPEG and as PNG.
+ * Each path is timed end to end including saving the PDF, averaged over a few runs after a warm-up.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class ImageToPdfBenchmark {
+
+    private static final int RUNS = 3;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void embeddedAgainstDecodedThroughTempPng() throws IOException {
+        int width = Integer.getInteger("benchmark.width", 3000);
+        int height = Integer.getInteger("benchmark.height", 4000);
+        BufferedImage photo = photo(width, height);
+
+        for (String format : new String[]{"jpg", "png"}) {
+            Path image = dir.resolve("photo." + format);
+            ImageIO.write(photo, format, image.toFile());
+            FileAssetContent content = new FileAssetContent(image, Files.size(image));
+
+            Result before = measure(() -> decodedThroughTempPng(image));
+            Result after = measure(() -> {
+                try (PDDocument document = new PDDocument()) {
+                    ImageToPdfUtils.addImagePage(document, ImageToPdfUtils.encodeImage(content), 0);
+                    return save(document);
+                }
+            });
+
+            // Printed rather than logged, the Spring logging configuration is not loaded here
+            System.out.printf("%s %dx%d, %d KB: before %d ms / %d KB PDF, after %d ms / %d KB PDF%n",
+                    format, width, height, Files.size(image) / 1024,
+                    before.millis, before.pdfBytes / 1024, after.millis, after.pdfBytes / 1024);
+        }
+    }
+
+    /**
+     * The earlier conversion of one image: decode, write a temporary PNG, embed it from the file.
+     */
+    private static byte[] decodedThroughTempPng(Path image) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            BufferedImage decoded = ImageIO.read(image.toFile());
+            File tempFile = File.createTempFile("rotated_", ".png");
+            try {
+                ImageIO.write(decoded, "png", tempFile);
+                PDImageXObject pdImage = PDImageXObject.createFromFile(tempFile.getAbsolutePath(), document);
+
+                PDPage page = new PDPage(new PDRectangle(decoded.getWidth(), decoded.getHeight()));
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.drawImage(pdImage, 0, 0, decoded.getWidth(), decoded.getHeight());
+                }
+                return save(document);
+            } finally {
+                Files.deleteIfExists(tempFile.toPath());
+            }
+        }
+    }
+
+    private static Result measure(Conversion conversion) throws IOException {
+        long pdfBytes = conversion.run().length;
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            conversion.run();
+        }
+        return new Result((System.nanoTime() - start) / RUNS / 1_000_000, pdfBytes);
+    }
+
+    private static byte[] save(PDDocument document) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        document.save(out);
+        return out.toByteArray();
+    }
+
+    private static BufferedImage photo(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, new Color(40, 90, 160), width, height, new Color(230, 190, 120)));
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb = image.getRGB(x, y);
+                int noise = random.nextInt(17) - 8;
+                int r = Math.clamp(((rgb >> 16) & 0xFF) + noise, 0, 255);
+                int gr = Math.clamp(((rgb >> 8) & 0xFF) + noise, 0, 255);
+                int b = Math.clamp((rgb & 0xFF) + noise, 0, 255);
+                image.setRGB(x, y, r << 16 | gr << 8 | b);
+            }
+        }
+        return image;
+    }
+
+    private interface Conversion {
+
+        byte[] run() throws IOException;
+    }
+
+    private static final class Result {
+
+        final long millis;
+        final long pdfBytes;
+
+        Result(long millis, long pdfBytes) {
+            this.millis = millis;
+            this.pdfBytes = pdfBytes;
+        }
+    }
+}
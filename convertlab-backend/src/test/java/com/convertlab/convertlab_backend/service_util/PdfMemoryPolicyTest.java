@@ -0,0 +1,114 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import org.apache.pdfbox.io.RandomAccess;
+import org.apache.pdfbox.io.RandomAccessStreamCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PdfMemoryPolicyTest {
+
+    private static final int KB = 1024;
+    private static final int MB = 1024 * KB;
+    private static final long PAGE_OVERHEAD = 32 * KB;
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void documentsUpToTheThresholdStayInMemory() throws IOException {
+        PdfMemoryPolicy policy = policy(true);
+
+        try (RandomAccessStreamCache cache = policy.streamCacheFor(2 * MB).create()) {
+            fill(cache, 5 * MB);
+            assertThat(scratchFiles()).isZero();
+        }
+        assertThat(policy.getMainMemoryCount()).isEqualTo(1);
+        assertThat(policy.getSpillCount()).isZero();
+    }
+
+    @Test
+    void largerDocumentsSpillBeyondTheHeapCeiling() throws IOException {
+        PdfMemoryPolicy policy = policy(true);
+
+        try (RandomAccessStreamCache cache = policy.streamCacheFor(2 * MB + 1).create()) {
+            fill(cache, 512 * KB);
+            assertThat(scratchFiles()).isZero();
+
+            fill(cache, 2 * MB);
+            assertThat(scratchFiles()).isEqualTo(1);
+        }
+        assertThat(scratchFiles()).isZero();
+        assertThat(policy.getSpillCount()).isEqualTo(1);
+        assertThat(policy.getMainMemoryCount()).isZero();
+    }
+
+    @Test
+    void withoutABudgetNothingSpills() throws IOException {
+        PdfMemoryPolicy policy = policy(false);
+
+        try (RandomAccessStreamCache cache = policy.streamCacheFor(64 * MB).create()) {
+            fill(cache, 3 * MB);
+            assertThat(scratchFiles()).isZero();
+        }
+        assertThat(policy.getMainMemoryCount()).isEqualTo(1);
+
+        try (SpoolingOutputStream spool = policy.newSpool(8)) {
+            spool.write(new byte[3 * MB]);
+            assertThat(spool.isSpilled()).isFalse();
+        }
+    }
+
+    @Test
+    void heapEstimateFollowsTheBuffering() throws IOException {
+        PdfMemoryPolicy policy = policy(true);
+
+        assertThat(policy.estimateHeapBytes(2 * MB, 10)).isEqualTo(2 * MB + 10 * PAGE_OVERHEAD);
+        assertThat(policy.estimateHeapBytes(50 * MB, 10)).isEqualTo(MB + 10 * PAGE_OVERHEAD);
+        assertThat(policy(false).estimateHeapBytes(50 * MB, 10)).isEqualTo(50 * MB + 10 * PAGE_OVERHEAD);
+    }
+
+    @Test
+    void spoolsHeldTogetherShareTheThreshold() throws IOException {
+        PdfMemoryPolicy policy = policy(true);
+
+        try (SpoolingOutputStream kept = policy.newSpool(4);
+             SpoolingOutputStream spilled = policy.newSpool(4)) {
+            kept.write(new byte[512 * KB]);
+            spilled.write(new byte[512 * KB + 1]);
+
+            assertThat(kept.isSpilled()).isFalse();
+            assertThat(spilled.isSpilled()).isTrue();
+        }
+        assertThat(policy.estimateSpooledBytes(100 * KB, 4)).isEqualTo(400 * KB);
+        assertThat(policy.estimateSpooledBytes(MB, 4)).isEqualTo(2 * MB);
+    }
+
+    /**
+     * Spill threshold 2 MB, heap ceiling 1 MB.
+     */
+    private PdfMemoryPolicy policy(boolean budgetEnabled) throws IOException {
+        ProcessingConfig processingConfig = new ProcessingConfig();
+        processingConfig.getMemory().setBudgetEnabled(budgetEnabled);
+        processingConfig.getMemory().setSpillThresholdMb(2);
+        processingConfig.getMemory().setMaxMainMemoryMb(1);
+        return new PdfMemoryPolicy(processingConfig, temp.toString());
+    }
+
+    private static void fill(RandomAccessStreamCache cache, int bytes) throws IOException {
+        RandomAccess buffer = cache.createBuffer();
+        buffer.write(new byte[bytes]);
+    }
+
+    private long scratchFiles() throws IOException {
+        try (var files = Files.list(temp.resolve("scratch"))) {
+            return files.count();
+        }
+    }
+}
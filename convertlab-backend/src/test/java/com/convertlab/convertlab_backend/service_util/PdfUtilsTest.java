@@ -0,0 +1,205 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import com.convertlab.convertlab_backend.exception.InvalidPageInputException;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.interactive.action.PDActionGoTo;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageFitDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.apache.pdfbox.pdmodel.interactive.form.PDField;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PdfUtilsTest {
+
+    @Test
+    void pageRangesAreSortedDistinctAndAcceptReversedRanges() {
+        assertThat(PdfUtils.parsePageRanges("5, 1-3, 2, 9-7", 10)).containsExactly(1, 2, 3, 5, 7, 8, 9);
+    }
+
+    @Test
+    void pageRangesOutsideTheDocumentAreRejected() {
+        assertThatThrownBy(() -> PdfUtils.parsePageRanges("0", 10))
+                .isInstanceOf(InvalidPageInputException.class);
+        assertThatThrownBy(() -> PdfUtils.parsePageRanges("8-11", 10))
+                .isInstanceOf(InvalidPageInputException.class)
+                .hasMessageContaining("1 to 10");
+        assertThatThrownBy(() -> PdfUtils.parsePageRanges("1-2-3", 10))
+                .isInstanceOf(InvalidPageInputException.class);
+        assertThatThrownBy(() -> PdfUtils.parsePageRanges(" ", 10))
+                .isInstanceOf(InvalidPageInputException.class);
+    }
+
+    @Test
+    void removingPagesKeepsTheRest() {
+        assertThat(PdfUtils.getPageRanges("2-4, 6", 7, false)).containsExactly(1, 5, 7);
+        assertThat(PdfUtils.getPageRanges("2-4, 6", 7, true)).containsExactly(2, 3, 4, 6);
+    }
+
+    @Test
+    void rangePatternRejectsMalformedInput() {
+        PdfUtils.validateInputRangePattern("1-3, 5");
+        assertThatThrownBy(() -> PdfUtils.validateInputRangePattern("1-3,,5"))
+                .isInstanceOf(InvalidPageInputException.class);
+        assertThatThrownBy(() -> PdfUtils.validateInputRangePattern("1-a"))
+                .isInstanceOf(InvalidPageInputException.class);
+        assertThatThrownBy(() -> PdfUtils.validateInputRangePattern("3-"))
+                .isInstanceOf(InvalidPageInputException.class);
+    }
+
+    @Test
+    void copiedAnnotationsBelongToTheCopiedPage() throws IOException {
+        try (PDDocument source = Loader.loadPDF(documentWithLinks());
+             PDDocument target = new PDDocument()) {
+            List<PDPage> copies = PdfUtils.copyPages(List.of(source.getPage(0)), target);
+
+            List<PDAnnotation> annotations = copies.get(0).getAnnotations();
+            assertThat(annotations).hasSize(2);
+            for (PDAnnotation annotation : annotations) {
+                assertThat(annotation.getCOSObject().getDictionaryObject(COSName.P))
+                        .isSameAs(copies.get(0).getCOSObject());
+            }
+            // The source page still refers to its own annotations
+            assertThat(source.getPage(0).getAnnotations().get(0).getCOSObject().getDictionaryObject(COSName.P))
+                    .isSameAs(source.getPage(0).getCOSObject());
+        }
+    }
+
+    @Test
+    void linksToCopiedPagesFollowTheCopyAndOthersAreDropped() throws IOException {
+        try (PDDocument source = Loader.loadPDF(documentWithLinks());
+             PDDocument target = new PDDocument()) {
+            // Page 1 links to pages 2 and 3, only page 2 is copied along
+            List<PDPage> copies = PdfUtils.copyPages(List.of(source.getPage(0), source.getPage(1)), target);
+
+            List<PDAnnotation> annotations = copies.get(0).getAnnotations();
+            PDAnnotationLink toSecond = (PDAnnotationLink) annotations.get(0);
+            PDAnnotationLink toThird = (PDAnnotationLink) annotations.get(1);
+
+            PDPageFitDestination destination = (PDPageFitDestination) toSecond.getDestination();
+            assertThat(destination.getPage().getCOSObject()).isSameAs(copies.get(1).getCOSObject());
+            assertThat(toThird.getCOSObject().containsKey(COSName.A)).isFalse();
+            assertThat(toThird.getCOSObject().containsKey(COSName.DEST)).isFalse();
+        }
+    }
+
+    @Test
+    void savedSelectionDoesNotCarryTheSourcePageTree() throws IOException {
+        try (PDDocument source = Loader.loadPDF(documentWithLinks());
+             PDDocument target = new PDDocument()) {
+            PdfUtils.copyPages(List.of(source.getPage(0)), target);
+
+            try (PDDocument saved = Loader.loadPDF(TestPdfs.save(target))) {
+                assertThat(saved.getNumberOfPages()).isEqualTo(1);
+                long pageObjects = saved.getDocument().getObjectsByType(COSName.PAGE).size();
+                assertThat(pageObjects).isEqualTo(1);
+            }
+        }
+    }
+
+    @Test
+    void mergeTakesTheSelectedPagesOfEachSourceInRequestOrder() throws IOException {
+        try (PDDocument first = Loader.loadPDF(TestPdfs.numberedPages(5));
+             PDDocument second = Loader.loadPDF(TestPdfs.numberedPages(3))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            // The same source may be selected twice, its pages are copied again
+            PdfUtils.mergePdfs(List.of(second, first, second), List.of(List.of(3), List.of(2, 4), List.of(1, 2)),
+                    out, IOUtils.createMemoryOnlyStreamCache());
+
+            try (PDDocument merged = Loader.loadPDF(out.toByteArray())) {
+                assertThat(merged.getNumberOfPages()).isEqualTo(5);
+                List<String> firstLines = new ArrayList<>();
+                for (int page = 1; page <= merged.getNumberOfPages(); page++) {
+                    firstLines.add(TestPdfs.pageText(merged, page).lines().findFirst().orElse(""));
+                }
+                assertThat(firstLines).containsExactly("Page 3", "Page 2", "Page 4", "Page 1", "Page 2");
+            }
+        }
+    }
+
+    @Test
+    void wholeFormsAreMergedWithTheirFieldsAndBookmarks() throws IOException {
+        try (PDDocument first = Loader.loadPDF(TestPdfs.formWithBookmarks("a", 2));
+             PDDocument second = Loader.loadPDF(TestPdfs.formWithBookmarks("b", 2));
+             PDDocument merged = merge(List.of(first, second), List.of(List.of(1, 2), List.of(1, 2)))) {
+            assertThat(fieldNames(merged)).containsExactly("a1", "a2", "b1", "b2");
+            assertThat(bookmarks(merged)).containsExactly("a1 -> 0", "a2 -> 1", "b1 -> 2", "b2 -> 3");
+        }
+    }
+
+    @Test
+    void selectedPagesKeepTheFieldsAndBookmarksLeadingToThem() throws IOException {
+        try (PDDocument first = Loader.loadPDF(TestPdfs.formWithBookmarks("a", 3));
+             PDDocument second = Loader.loadPDF(TestPdfs.formWithBookmarks("b", 2));
+             PDDocument merged = merge(List.of(first, second, first),
+                     List.of(List.of(2), List.of(1, 2), List.of(2, 3)))) {
+            // The second selection of the same page gets a field of its own
+            assertThat(fieldNames(merged)).containsExactly("a2", "b1", "b2", "a2_2", "a3");
+            assertThat(bookmarks(merged))
+                    .containsExactly("a2 -> 0", "b1 -> 1", "b2 -> 2", "a2 -> 3", "a3 -> 4");
+
+            PDField field = merged.getDocumentCatalog().getAcroForm().getField("a3");
+            assertThat(field.getValueAsString()).isEqualTo("value a3");
+            assertThat(merged.getPages().indexOf(field.getWidgets().get(0).getPage())).isEqualTo(4);
+        }
+    }
+
+    private static PDDocument merge(List<PDDocument> sources, List<List<Integer>> pages) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfUtils.mergePdfs(sources, pages, out, IOUtils.createMemoryOnlyStreamCache());
+        return Loader.loadPDF(out.toByteArray());
+    }
+
+    private static List<String> fieldNames(PDDocument document) {
+        return document.getDocumentCatalog().getAcroForm().getFields().stream()
+                .map(PDField::getFullyQualifiedName)
+                .toList();
+    }
+
+    private static List<String> bookmarks(PDDocument document) throws IOException {
+        List<String> bookmarks = new ArrayList<>();
+        for (PDOutlineItem item : document.getDocumentCatalog().getDocumentOutline().children()) {
+            int page = document.getPages().indexOf(item.findDestinationPage(document));
+            bookmarks.add(item.getTitle() + " -> " + page);
+        }
+        return bookmarks;
+    }
+
+    /**
+     * Three pages, the first linking to the second with a destination and to the third with a go-to action.
+     */
+    private static byte[] documentWithLinks() throws IOException {
+        try (PDDocument document = Loader.loadPDF(TestPdfs.numberedPages(3))) {
+            PDPage first = document.getPage(0);
+
+            PDAnnotationLink toSecond = new PDAnnotationLink();
+            PDPageFitDestination second = new PDPageFitDestination();
+            second.setPage(document.getPage(1));
+            toSecond.setDestination(second);
+            toSecond.setPage(first);
+
+            PDAnnotationLink toThird = new PDAnnotationLink();
+            PDPageFitDestination third = new PDPageFitDestination();
+            third.setPage(document.getPage(2));
+            PDActionGoTo action = new PDActionGoTo();
+            action.setDestination(third);
+            toThird.setAction(action);
+            toThird.setPage(first);
+
+            first.setAnnotations(List.of(toSecond, toThird));
+            return TestPdfs.save(document);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SharedRandomAccessReadTest {
+
+    @Test
+    void concurrentCopiesOfOneDocumentMatchTheSource() throws Exception {
+        int pages = 24;
+        try (PDDocument source = Loader.loadPDF(
+                new SharedRandomAccessRead(new RandomAccessReadBuffer(TestPdfs.numberedPages(pages))));
+             ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            PdfUtils.resolveObjects(source);
+
+            // Every task copies every page, so the same content streams are read by all threads at once
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(() -> {
+                    try (PDDocument target = new PDDocument()) {
+                        List<PDPage> sourcePages = new ArrayList<>();
+                        source.getPages().forEach(sourcePages::add);
+                        PdfUtils.copyPages(sourcePages, target);
+                        return TestPdfs.save(target);
+                    }
+                }));
+            }
+
+            for (Future<byte[]> result : results) {
+                try (PDDocument copy = Loader.loadPDF(result.get())) {
+                    assertThat(copy.getNumberOfPages()).isEqualTo(pages);
+                    for (int page = 1; page <= pages; page++) {
+                        assertThat(TestPdfs.pageText(copy, page)).startsWith("Page " + page + "\n");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void viewsKeepTheirPositionPerThread() throws Exception {
+        byte[] data = new byte[256];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        try (SharedRandomAccessRead shared = new SharedRandomAccessRead(new RandomAccessReadBuffer(data))) {
+            var view = shared.createView(100, 50);
+            view.seek(10);
+
+            Thread other = Thread.ofPlatform().start(() -> {
+                try {
+                    view.seek(40);
+                    view.read();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            other.join();
+
+            assertThat(view.getPosition()).isEqualTo(10);
+            assertThat(view.read()).isEqualTo(110);
+            assertThat(shared.getPosition()).isZero();
+        }
+    }
+}
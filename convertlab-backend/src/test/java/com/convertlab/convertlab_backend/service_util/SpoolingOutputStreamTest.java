@@ -0,0 +1,52 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpoolingOutputStreamTest {
+
+    @TempDir
+    Path scratch;
+
+    @Test
+    void smallOutputStaysInMemory() throws IOException {
+        SpoolingOutputStream spool = new SpoolingOutputStream(16, scratch);
+        spool.write(new byte[10]);
+        spool.close();
+
+        assertThat(spool.isSpilled()).isFalse();
+        assertThat(spool.size()).isEqualTo(10);
+        assertThat(scratch).isEmptyDirectory();
+    }
+
+    @Test
+    void largeOutputSpillsAndIsRemovedOnDiscard() throws IOException {
+        byte[] data = new byte[100];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        SpoolingOutputStream spool = new SpoolingOutputStream(16, scratch);
+        spool.write(data, 0, 10);
+        spool.write(data, 10, 90);
+        spool.close();
+
+        assertThat(spool.isSpilled()).isTrue();
+        assertThat(spool.size()).isEqualTo(100);
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        spool.transferTo(copy);
+        assertThat(copy.toByteArray()).isEqualTo(data);
+
+        spool.discard();
+        try (var files = Files.list(scratch)) {
+            assertThat(files).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Small images in every accepted format for tests.
+ */
+public final class TestImages {
+
+    /**
+     * A 16x16 lossy WebP with an alpha channel, in the extended format: VP8X, ALPH and VP8 chunks.
+     */
+    private static final byte[] EXTENDED_WEBP = Base64.getDecoder().decode(
+            "UklGRqgBAABXRUJQVlA4WAoAAAAQAAAADwAADwAAQUxQSMMAAAABJ6KokSTleucYX+ffKpmImP90cY3gJjDi4Yt3MsjBEVyDKzDo"
+            + "sHgVjnhRNcEIDAJPkqBqsFUZHNa2bUYvTsZ2PLbtd/uvKa4hov9J0f2PkPe6REkkGzolkTTzFG0Ox9PlFiD0CxS+kOGDtxoynjaC"
+            + "fx0pfk52CPuInrOR75lzRugygtv4zEiy90UwfSD9NheMITJWLaXWayO8XeOlWRXVnIGk2W6WdYoYMQ+KqixQNPowgt+6a1BSKbUt"
+            + "z+lUFAoBAAAAVlA4IL4AAACQAgCdASoQABAAAwA0JbACdDBPCIUMfAMdCCz96AD+/XSg/QKbH4r3Q3ycN/bSDK/T/zVo4u6nvclv"
+            + "G/SqxWOuup+XhN9BojvaW+Tv+MvxvX/hr/o/5Qns9LtmX/+qKdl/yWznhuasl7nkxvSTI4xf3Y85VSB/lU/8Ofj/b9JrA+ifvIOY"
+            + "Zm2x1RP/dhfmsf5diuSfR7+z+r/+HR3zEo/+XM/B+vkYw73Pzx+ROaAB/ZoBSzEs3rzZe6qsAAAA");
+
+    // Lossless bitstream after the size header of a single-colour image, every pixel takes no bits
+    private static final byte[] LOSSLESS_SINGLE_COLOUR = {
+            0x07, 0x10, 0x11, 0x11, (byte) 0x88, (byte) 0x88, (byte) 0xFE, 0x07
+    };
+
+    private TestImages() {
+    }
+
+    /**
+     * An image of the given size encoded by ImageIO, e.g. "png", "jpeg", "gif" or "bmp".
+     */
+    public static byte[] encoded(String format, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.BLUE);
+        graphics.fillRect(0, 0, Math.max(1, width / 2), Math.max(1, height / 2));
+        graphics.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format, out)) {
+            throw new IllegalArgumentException("No ImageIO writer for " + format);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * The 16x16 extended WebP, VP8X chunk first.
+     */
+    public static byte[] extendedWebP() {
+        return EXTENDED_WEBP.clone();
+    }
+
+    /**
+     * The extended WebP with its canvas size changed, the image inside stays 16x16.
+     */
+    public static byte[] extendedWebP(int width, int height) {
+        byte[] webp = extendedWebP();
+        ByteBuffer header = ByteBuffer.wrap(webp).order(ByteOrder.LITTLE_ENDIAN);
+        putUint24(header, 24, width - 1);
+        putUint24(header, 27, height - 1);
+        return webp;
+    }
+
+    /**
+     * The 16x16 lossy image of the extended WebP on its own, in the simple format with a single VP8 chunk.
+     */
+    public static byte[] lossyWebP() {
+        ByteBuffer extended = ByteBuffer.wrap(EXTENDED_WEBP).order(ByteOrder.LITTLE_ENDIAN);
+        int offset = 12;
+        while (!"VP8 ".equals(new String(EXTENDED_WEBP, offset, 4, StandardCharsets.US_ASCII))) {
+            int length = extended.getInt(offset + 4);
+            offset += 8 + length + (length & 1);
+        }
+        int length = extended.getInt(offset + 4);
+        byte[] chunk = Arrays.copyOfRange(EXTENDED_WEBP, offset, offset + 8 + length + (length & 1));
+        return riff(chunk);
+    }
+
+    /**
+     * A single-colour lossless WebP of the given size, at most 16384 pixels either way.
+     */
+    public static byte[] losslessWebP(int width, int height) {
+        ByteBuffer chunk = ByteBuffer.allocate(8 + 14).order(ByteOrder.LITTLE_ENDIAN);
+        chunk.put("VP8L".getBytes(StandardCharsets.US_ASCII));
+        chunk.putInt(13);
+        chunk.put((byte) 0x2F);
+        // width - 1 and height - 1 in 14 bits each, then the alpha hint and a zero version
+        chunk.putInt((width - 1) | (height - 1) << 14 | 1 << 28);
+        chunk.put(LOSSLESS_SINGLE_COLOUR);
+        return riff(chunk.array());
+    }
+
+    private static byte[] riff(byte[] chunks) {
+        ByteBuffer file = ByteBuffer.allocate(12 + chunks.length).order(ByteOrder.LITTLE_ENDIAN);
+        file.put("RIFF".getBytes(StandardCharsets.US_ASCII));
+        file.putInt(4 + chunks.length);
+        file.put("WEBP".getBytes(StandardCharsets.US_ASCII));
+        file.put(chunks);
+        return file.array();
+    }
+
+    private static void putUint24(ByteBuffer buffer, int offset, int value) {
+        buffer.put(offset, (byte) value);
+        buffer.put(offset + 1, (byte) (value >> 8));
+        buffer.put(offset + 2, (byte) (value >> 16));
+    }
+}
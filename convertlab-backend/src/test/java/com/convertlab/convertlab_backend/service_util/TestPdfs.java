@@ -0,0 +1,141 @@
+package com.convertlab.convertlab_backend.service_util;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageFitDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDTextField;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Generated documents for tests, so no sample files need to be checked in.
+ */
+public final class TestPdfs {
+
+    private TestPdfs() {
+    }
+
+    /**
+     * A document whose pages each show their number as "Page n", with some filler text so every page has a content
+     * stream worth compressing.
+     */
+    public static byte[] numberedPages(int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int i = 1; i <= pages; i++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(font, 12);
+                    content.newLineAtOffset(72, 760);
+                    content.showText("Page " + i);
+                    for (int line = 0; line < 40; line++) {
+                        content.newLineAtOffset(0, -16);
+                        content.showText("Line " + line + " of page " + i + " with some filler text to compress.");
+                    }
+                    content.endText();
+                }
+            }
+            return save(document);
+        }
+    }
+
+    /**
+     * A document whose pages each hold one noisy JPEG, like a scan, so the page content hardly compresses.
+     */
+    public static byte[] scannedPages(int pages, int imageWidth, int imageHeight) throws IOException {
+        Random random = new Random(pages);
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 1; i <= pages; i++) {
+                BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+                for (int y = 0; y < imageHeight; y++) {
+                    for (int x = 0; x < imageWidth; x++) {
+                        int grey = 200 + random.nextInt(56);
+                        image.setRGB(x, y, grey << 16 | grey << 8 | grey);
+                    }
+                }
+                PDImageXObject jpeg = JPEGFactory.createFromImage(document, image, 0.8f);
+
+                PDPage page = new PDPage(PDRectangle.A4);
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.drawImage(jpeg, 0, 0, PDRectangle.A4.getWidth(), PDRectangle.A4.getHeight());
+                }
+            }
+            return save(document);
+        }
+    }
+
+    /**
+     * A form with one filled text field per page, named prefix and page number, and a bookmark per page titled
+     * the same way.
+     */
+    public static byte[] formWithBookmarks(String prefix, int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDAcroForm form = new PDAcroForm(document);
+            document.getDocumentCatalog().setAcroForm(form);
+            PDResources resources = new PDResources();
+            resources.put(COSName.HELV, new PDType1Font(Standard14Fonts.FontName.HELVETICA));
+            form.setDefaultResources(resources);
+            form.setDefaultAppearance("/Helv 12 Tf 0 g");
+
+            PDDocumentOutline outline = new PDDocumentOutline();
+            document.getDocumentCatalog().setDocumentOutline(outline);
+
+            for (int i = 1; i <= pages; i++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                document.addPage(page);
+
+                PDTextField field = new PDTextField(form);
+                field.setPartialName(prefix + i);
+                PDAnnotationWidget widget = field.getWidgets().get(0);
+                widget.setRectangle(new PDRectangle(72, 700, 200, 20));
+                widget.setPage(page);
+                page.getAnnotations().add(widget);
+                form.getFields().add(field);
+                field.setValue("value " + prefix + i);
+
+                PDPageFitDestination destination = new PDPageFitDestination();
+                destination.setPage(page);
+                PDOutlineItem bookmark = new PDOutlineItem();
+                bookmark.setTitle(prefix + i);
+                bookmark.setDestination(destination);
+                outline.addLast(bookmark);
+            }
+            return save(document);
+        }
+    }
+
+    public static byte[] save(PDDocument document) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        document.save(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * The text of one page, 1-based.
+     */
+    public static String pageText(PDDocument document, int page) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setStartPage(page);
+        stripper.setEndPage(page);
+        return stripper.getText(document);
+    }
+}
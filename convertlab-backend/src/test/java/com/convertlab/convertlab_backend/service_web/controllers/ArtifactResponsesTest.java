@@ -0,0 +1,185 @@
+package com.convertlab.convertlab_backend.service_web.controllers;
+
+import com.convertlab.convertlab_backend.service_core.artifact.ContentArtifact;
+import com.convertlab.convertlab_backend.service_core.artifact.FileArtifact;
+import com.convertlab.convertlab_backend.service_core.artifact.LeasedFileArtifact;
+import com.convertlab.convertlab_backend.service_storage.impl.MemoryAssetContent;
+import jakarta.servlet.ServletRequestEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArtifactResponsesTest {
+
+    private static final int LENGTH = 64 * 1024;
+    private static final String HASH = "abc123";
+    private static final Instant MODIFIED = Instant.parse("2026-01-02T03:04:05Z");
+
+    @TempDir
+    Path folder;
+
+    private FileArtifact artifact;
+
+    @BeforeEach
+    void createFile() throws IOException {
+        Path path = Files.write(folder.resolve("document.pdf"), new byte[LENGTH]);
+        Files.setLastModifiedTime(path, FileTime.from(MODIFIED));
+        artifact = new FileArtifact(path, "document.pdf", MediaType.APPLICATION_PDF, false, HASH);
+    }
+
+    @Test
+    void singleRangeIsSentFromTheFile() throws IOException {
+        MockHttpServletRequest request = sendfileRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=100-199");
+
+        ResponseEntity<Resource> response = ArtifactResponses.stored(webRequest(request), artifact, true);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 100-199/" + LENGTH);
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(100);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(100L);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(200L);
+    }
+
+    @Test
+    void matchingIfRangeKeepsTheRange() throws IOException {
+        MockHttpServletRequest byTag = sendfileRequest();
+        byTag.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        byTag.addHeader(HttpHeaders.IF_RANGE, "\"" + HASH + "\"");
+        assertThat(ArtifactResponses.stored(webRequest(byTag), artifact, true).getStatusCode())
+                .isEqualTo(HttpStatus.PARTIAL_CONTENT);
+
+        MockHttpServletRequest byDate = sendfileRequest();
+        byDate.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        byDate.addHeader(HttpHeaders.IF_RANGE, httpDate(MODIFIED));
+        assertThat(ArtifactResponses.stored(webRequest(byDate), artifact, true).getStatusCode())
+                .isEqualTo(HttpStatus.PARTIAL_CONTENT);
+    }
+
+    @Test
+    void staleIfRangeSendsTheWholeFile() throws IOException {
+        for (String validator : new String[]{"\"other\"", "W/\"" + HASH + "\"", httpDate(MODIFIED.minusSeconds(60)),
+                "not a date"}) {
+            MockHttpServletRequest request = sendfileRequest();
+            request.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+            request.addHeader(HttpHeaders.IF_RANGE, validator);
+
+            ResponseEntity<Resource> response = ArtifactResponses.stored(webRequest(request), artifact, true);
+
+            assertThat(response.getStatusCode()).as(validator).isEqualTo(HttpStatus.OK);
+            assertThat(response.getHeaders().getContentLength()).isEqualTo(LENGTH);
+            assertThat(response.getHeaders().containsHeader(HttpHeaders.CONTENT_RANGE)).isFalse();
+            assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo((long) LENGTH);
+        }
+    }
+
+    @Test
+    void staleIfRangeWithoutSendfileIsNotLeftToSpring() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"other\"");
+
+        ResponseEntity<Resource> response = ArtifactResponses.stored(webRequest(request), artifact, true);
+
+        // Spring applies the range to every resource but an InputStreamResource
+        assertThat(response.getBody()).isExactlyInstanceOf(InputStreamResource.class);
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(LENGTH);
+    }
+
+    @Test
+    void rangesWithoutSendfileAreLeftToSpring() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-9, 20-29");
+
+        ResponseEntity<Resource> response = ArtifactResponses.stored(webRequest(request), artifact, true);
+
+        assertThat(response.getBody()).isInstanceOf(FileSystemResource.class);
+        assertThat(response.getHeaders().getLastModified()).isEqualTo(MODIFIED.toEpochMilli());
+    }
+
+    @Test
+    void currentCopyIsNotSentAgain() throws IOException {
+        MockHttpServletRequest request = sendfileRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"" + HASH + "\"");
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        assertThat(ArtifactResponses.stored(new ServletWebRequest(request, servletResponse), artifact, true)).isNull();
+        assertThat(servletResponse.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+    }
+
+    @Test
+    void leaseOfTheFileIsReleasedWhenTheRequestIsOver() throws IOException {
+        AtomicBoolean released = new AtomicBoolean();
+        FileArtifact leased = new LeasedFileArtifact(artifact.getPath(), "document.pdf", MediaType.APPLICATION_PDF,
+                HASH, () -> released.set(true));
+        MockHttpServletRequest request = sendfileRequest();
+
+        ArtifactResponses.stored(webRequest(request), leased, true);
+        assertThat(released).isFalse();
+
+        new PendingArtifactListener().requestDestroyed(new ServletRequestEvent(new MockServletContext(), request));
+        assertThat(released).isTrue();
+    }
+
+    @Test
+    void contentHeldInMemoryIsServedFromThere() {
+        ContentArtifact inMemory = new ContentArtifact(new MemoryAssetContent(ByteBuffer.allocateDirect(LENGTH)),
+                "document.pdf", MediaType.APPLICATION_PDF, HASH, () -> {
+        });
+
+        MockHttpServletRequest request = sendfileRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"" + HASH + "\"");
+        ResponseEntity<Resource> ranged = ArtifactResponses.stored(webRequest(request), inMemory, false);
+
+        // Left to Spring, which answers ranges of any resource but an InputStreamResource
+        assertThat(ranged.getBody()).isNotInstanceOf(InputStreamResource.class);
+        assertThat(ranged.getHeaders().getETag()).isEqualTo("\"" + HASH + "\"");
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isNull();
+
+        MockHttpServletRequest byDate = sendfileRequest();
+        byDate.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        byDate.addHeader(HttpHeaders.IF_RANGE, httpDate(Instant.EPOCH));
+        ResponseEntity<Resource> full = ArtifactResponses.stored(webRequest(byDate), inMemory, false);
+
+        assertThat(full.getBody()).isExactlyInstanceOf(InputStreamResource.class);
+        assertThat(full.getHeaders().getContentLength()).isEqualTo(LENGTH);
+    }
+
+    private static MockHttpServletRequest sendfileRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        return request;
+    }
+
+    private static ServletWebRequest webRequest(MockHttpServletRequest request) {
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+
+    private static String httpDate(Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(instant.atZone(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,248 @@
+package com.convertlab.convertlab_backend.service_web.controllers;
+
+import com.convertlab.convertlab_backend.api.ApiResponse;
+import com.convertlab.convertlab_backend.api.enums.ActionType;
+import com.convertlab.convertlab_backend.config.ProcessingConfig;
+import com.convertlab.convertlab_backend.config.StorageConfig;
+import com.convertlab.convertlab_backend.config.ValidationConfig;
+import com.convertlab.convertlab_backend.exception.AdmissionRejectedException;
+import com.convertlab.convertlab_backend.exception.AssetNotFoundException;
+import com.convertlab.convertlab_backend.service_admission.AdmissionController;
+import com.convertlab.convertlab_backend.service_admission.OperationCost;
+import com.convertlab.convertlab_backend.service_core.PdfService;
+import com.convertlab.convertlab_backend.service_core.artifact.Artifact;
+import com.convertlab.convertlab_backend.service_core.artifact.StreamingArtifact;
+import com.convertlab.convertlab_backend.service_core.pojos.AssetMetadata;
+import com.convertlab.convertlab_backend.service_metrics.ConversionMetrics;
+import com.convertlab.convertlab_backend.service_storage.ExpiryIndex;
+import com.convertlab.convertlab_backend.service_storage.PdfDocumentCache;
+import com.convertlab.convertlab_backend.service_storage.ResultCache;
+import com.convertlab.convertlab_backend.service_storage.impl.ContentAddressedStore;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalAssetCatalog;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalDiskQuota;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalFileCleaner;
+import com.convertlab.convertlab_backend.service_storage.impl.LocalStorageService;
+import com.convertlab.convertlab_backend.service_util.CpuBulkhead;
+import com.convertlab.convertlab_backend.service_util.FileValidationService;
+import com.convertlab.convertlab_backend.service_util.HashUtils;
+import com.convertlab.convertlab_backend.service_util.PdfMemoryPolicy;
+import com.convertlab.convertlab_backend.service_util.TestPdfs;
+import com.convertlab.convertlab_backend.service_web.controllers.dto.ExtractRequest;
+import com.convertlab.convertlab_backend.service_web.controllers.dto.MergeRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PdfControllerTest {
+
+    @TempDir
+    Path temp;
+
+    private ThreadPoolExecutor cpuExecutor;
+    private LocalStorageService storage;
+    private LocalAssetCatalog catalog;
+    private PdfMemoryPolicy memoryPolicy;
+    private PdfService pdfService;
+    private AdmissionController admissionController;
+    private PdfController controller;
+
+    @BeforeEach
+    void createController() throws Exception {
+        String tempFolder = temp.toString();
+        StorageConfig storageConfig = new StorageConfig();
+        ProcessingConfig processingConfig = new ProcessingConfig();
+        processingConfig.getAdmission().setMaxWaitMs(100);
+
+        ExpiryIndex expiryIndex = new ExpiryIndex(3_600_000);
+        ContentAddressedStore contentStore = new ContentAddressedStore(tempFolder, expiryIndex);
+        LocalDiskQuota quota = new LocalDiskQuota(expiryIndex, contentStore,
+                new LocalFileCleaner(contentStore, expiryIndex, tempFolder), storageConfig);
+        storage = new LocalStorageService(contentStore, expiryIndex, quota, storageConfig, tempFolder);
+        catalog = new LocalAssetCatalog(tempFolder, expiryIndex);
+
+        cpuExecutor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16));
+        CpuBulkhead cpuBulkhead = new CpuBulkhead(cpuExecutor, processingConfig, tempFolder);
+        memoryPolicy = new PdfMemoryPolicy(processingConfig, tempFolder);
+        PdfDocumentCache documentCache = new PdfDocumentCache(storage, memoryPolicy, cpuBulkhead, processingConfig);
+
+        admissionController = new AdmissionController(processingConfig);
+        pdfService = new PdfService(storage, new FileValidationService(new ValidationConfig()), documentCache, catalog,
+                memoryPolicy, cpuBulkhead, new ResultCache(storageConfig, expiryIndex, tempFolder, 3_600_000),
+                new ConversionMetrics(new SimpleMeterRegistry()), admissionController);
+        controller = new PdfController(pdfService, null, null, null, null, admissionController);
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    void shutdown() {
+        RequestContextHolder.resetRequestAttributes();
+        cpuExecutor.shutdownNow();
+    }
+
+    @Test
+    void manifestIsTheMetadataCapturedAtUpload() throws Exception {
+        byte[] pdf = TestPdfs.numberedPages(4);
+        String assetId = pdfService.uploadPdf(upload("report.pdf", pdf)).getFileId();
+
+        ResponseEntity<ApiResponse<AssetMetadata>> response = controller.getManifest(assetId);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        AssetMetadata manifest = response.getBody().getData();
+        assertThat(manifest.getAssetId()).isEqualTo(assetId);
+        assertThat(manifest.getFileName()).isEqualTo("report.pdf");
+        assertThat(manifest.getByteSize()).isEqualTo(pdf.length);
+        assertThat(manifest.getContentHash()).isEqualTo(sha256(pdf));
+        assertThat(manifest.isEncrypted()).isFalse();
+        assertThat(manifest.getPageCount()).isEqualTo(4);
+        assertThat(manifest.getPages()).hasSize(4).allSatisfy(page -> {
+            assertThat(page.getWidth()).isEqualTo(PDRectangle.A4.getWidth());
+            assertThat(page.getHeight()).isEqualTo(PDRectangle.A4.getHeight());
+            assertThat(page.getRotation()).isZero();
+        });
+        assertThat(manifest.getPages().get(3).getNumber()).isEqualTo(4);
+    }
+
+    @Test
+    void assetWithoutCatalogEntryIsDescribedAndCataloged() throws Exception {
+        // Stored the way uploads were before the catalog existed
+        byte[] pdf = TestPdfs.numberedPages(3);
+        String assetId = storage.saveTempPdf(upload("legacy.pdf", pdf));
+        assertThat(catalog.find(assetId)).isEmpty();
+
+        AssetMetadata manifest = controller.getManifest(assetId).getBody().getData();
+
+        assertThat(manifest.getFileName()).isEqualTo("legacy.pdf");
+        assertThat(manifest.getPageCount()).isEqualTo(3);
+        assertThat(manifest.getPages()).hasSize(3);
+        assertThat(manifest.getContentHash()).isEqualTo(sha256(pdf));
+        assertThat(catalog.find(assetId)).hasValueSatisfying(
+                entry -> assertThat(entry.getPageCount()).isEqualTo(3));
+    }
+
+    @Test
+    void manifestOfAnUnknownAssetIsNotFound() {
+        assertThatThrownBy(() -> controller.getManifest("missing_file.pdf"))
+                .isInstanceOf(AssetNotFoundException.class);
+    }
+
+    @Test
+    void extractedPagesAreStreamedWithoutALength() throws Exception {
+        String assetId = pdfService.uploadPdf(upload("report.pdf", TestPdfs.numberedPages(5))).getFileId();
+        ExtractRequest request = new ExtractRequest();
+        request.setFileId(assetId);
+        request.setPageRange("4, 2");
+        request.setActionType(ActionType.KEEP);
+
+        ResponseEntity<StreamingResponseBody> response = controller.extract(request);
+
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(-1);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_PDF);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION))
+                .isEqualTo("attachment; filename=\"extracted_report.pdf\"");
+        assertThat(admissionController.getReservedPages()).isEqualTo(2);
+
+        try (PDDocument extracted = Loader.loadPDF(written(response))) {
+            assertThat(extracted.getNumberOfPages()).isEqualTo(2);
+            assertThat(TestPdfs.pageText(extracted, 1)).startsWith("Page 2");
+            assertThat(TestPdfs.pageText(extracted, 2)).startsWith("Page 4");
+        }
+        assertThat(admissionController.getReservedPages()).isZero();
+    }
+
+    @Test
+    void mergedSourcesAreStreamedInRequestOrder() throws Exception {
+        String first = pdfService.uploadPdf(upload("first.pdf", TestPdfs.numberedPages(2))).getFileId();
+        String second = pdfService.uploadPdf(upload("second.pdf", TestPdfs.numberedPages(3))).getFileId();
+        MergeRequest request = new MergeRequest();
+        request.setSources(List.of(source(second, "3"), source(first, null)));
+
+        ResponseEntity<StreamingResponseBody> response = controller.merge(request);
+
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(-1);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION))
+                .isEqualTo("attachment; filename=\"ConvertLab_Merge.pdf\"");
+
+        try (PDDocument merged = Loader.loadPDF(written(response))) {
+            assertThat(merged.getNumberOfPages()).isEqualTo(3);
+            assertThat(TestPdfs.pageText(merged, 1)).startsWith("Page 3");
+            assertThat(TestPdfs.pageText(merged, 2)).startsWith("Page 1");
+            assertThat(TestPdfs.pageText(merged, 3)).startsWith("Page 2");
+        }
+        assertThat(admissionController.getReservedPages()).isZero();
+    }
+
+    @Test
+    void assetWithoutCatalogEntryIsOnlyDescribedOnceAdmitted() throws Exception {
+        String assetId = storage.saveTempPdf(upload("legacy.pdf", TestPdfs.numberedPages(3)));
+        ExtractRequest request = new ExtractRequest();
+        request.setFileId(assetId);
+        request.setPageRange("1");
+        request.setActionType(ActionType.KEEP);
+
+        // Another conversion holds the whole budget
+        Artifact running = admissionController.admit(new StreamingArtifact("running.pdf", MediaType.APPLICATION_PDF,
+                out -> {
+                }, new OperationCost(admissionController.getPageBudget(), admissionController.getHeapBudget())));
+        try (running) {
+            assertThatThrownBy(() -> controller.extract(request)).isInstanceOf(AdmissionRejectedException.class);
+            assertThat(catalog.find(assetId)).isEmpty();
+            assertThat(memoryPolicy.getMainMemoryCount()).isZero();
+        }
+
+        try (PDDocument extracted = Loader.loadPDF(written(controller.extract(request)))) {
+            assertThat(extracted.getNumberOfPages()).isEqualTo(1);
+        }
+        assertThat(catalog.find(assetId)).isPresent();
+        assertThat(admissionController.getReservedPages()).isZero();
+    }
+
+    private static byte[] written(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static MergeRequest.MergeSource source(String fileId, String pageRange) {
+        MergeRequest.MergeSource source = new MergeRequest.MergeSource();
+        source.setFileId(fileId);
+        source.setPageRange(pageRange);
+        return source;
+    }
+
+    private static MockMultipartFile upload(String fileName, byte[] content) {
+        return new MockMultipartFile("file", fileName, "application/pdf", content);
+    }
+
+    private static String sha256(byte[] content) {
+        MessageDigest digest = HashUtils.newContentDigest();
+        digest.update(content);
+        return HashUtils.toHex(digest);
+    }
+}
@@ -81,7 +81,6 @@ export class MergePdfComponent {
       const tempId = `temp-${Date.now()}-${Math.random()}`;
 
       this.addPlaceholderThumbnail(file, tempId);
-      this.generateThumbnail(file, tempId);
       this.uploadFileInBackground(file, tempId);
     }
 
@@ -107,12 +106,12 @@ export class MergePdfComponent {
   }
 
   /**
-   * Step 2: Generate thumbnail and update the placeholder
+   * Step 3: Load the server-rendered thumbnail of the uploaded file and update the placeholder
    */
-  private async generateThumbnail(file: File, tempId: string): Promise<void> {
+  private async loadThumbnail(fileId: string, tempId: string): Promise<void> {
     try {
       const { thumbnailUrl, pageCount }: PdfMetadata =
-        await this.thumbnailGeneratorService.getPdfInfo(file);
+        await this.thumbnailGeneratorService.getPdfInfo(fileId);
 
       // Update the existing placeholder with thumbnail data
       this.thumbnails.update(list =>
@@ -123,16 +122,15 @@ export class MergePdfComponent {
         )
       );
     } catch (error) {
-      console.error(`Failed to generate thumbnail for ${file.name}`, error);
+      console.error(`Failed to load thumbnail for ${fileId}`, error);
 
-      // Mark thumbnail generation as failed (but keep trying upload)
+      // Mark thumbnail loading as failed, the upload itself succeeded
       this.thumbnails.update(list =>
         list.map(t =>
           t.tempId === tempId
             ? {
               ...t,
               error: 'Thumbnail generation failed',
-              // Don't mark as 'failed' yet, upload might succeed
             }
             : t
         )
@@ -141,7 +139,7 @@ export class MergePdfComponent {
   }
 
   /**
-   * Step 3: Upload file and update the placeholder
+   * Step 2: Upload file and update the placeholder
    */
   private uploadFileInBackground(file: File, tempId: string): void {
     // Update status to uploading
@@ -162,12 +160,12 @@ export class MergePdfComponent {
               ? {
                 ...t,
                 fileId: res.data.fileId,
-                pageCount: res.data.pageCount, // Backend page count (more reliable)
                 uploadStatus: 'completed'
               }
               : t
           )
         );
+        this.loadThumbnail(res.data.fileId, tempId);
       },
       error: (err) => {
         this.thumbnails.update(list =>
@@ -208,8 +206,7 @@ export class MergePdfComponent {
       // Generate new tempId for retry
       const newTempId = thumbnail.tempId || `temp-${Date.now()}-${Math.random()}`;
 
-      // Retry both thumbnail generation and upload
-      this.generateThumbnail(thumbnail.file, newTempId);
+      // Retry the upload, the thumbnail is loaded once it succeeds
       this.uploadFileInBackground(thumbnail.file, newTempId);
     }
   }
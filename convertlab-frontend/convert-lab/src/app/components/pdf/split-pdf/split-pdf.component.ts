@@ -80,31 +80,26 @@ export class SplitPdfComponent {
     this.isUploading.set(true);
     this.selectedFile.set($event);
 
-    try {
-      // Generate thumbnail and get page count
-      const { thumbnailUrl, pageCount } = await this.thumbnailGeneratorService.getPdfInfo($event);
-      this.thumbnailUrl.set(thumbnailUrl);
-      this.pageCount.set(pageCount);
-      this.fileName.set($event.name);
-
-      // Upload file to backend
-      this.fileUploadService.uploadPdf($event).subscribe({
-        next: res => {
-          this.uploadedFileId.set(res.data.fileId);
-          this.isUploading.set(false);
-        },
-        error: err => {
-          this.isUploading.set(false);
-          // Revoke thumbnail URL on error
-          if (this.thumbnailUrl()) {
-            this.thumbnailGeneratorService.revokeThumbnailUrl(this.thumbnailUrl());
-          }
+    this.fileName.set($event.name);
+
+    // Upload file to backend, the thumbnail and page count come from the uploaded asset
+    this.fileUploadService.uploadPdf($event).subscribe({
+      next: async res => {
+        this.uploadedFileId.set(res.data.fileId);
+        this.isUploading.set(false);
+
+        try {
+          const { thumbnailUrl, pageCount } = await this.thumbnailGeneratorService.getPdfInfo(res.data.fileId);
+          this.thumbnailUrl.set(thumbnailUrl);
+          this.pageCount.set(pageCount);
+        } catch (error) {
+          console.error('Failed to load PDF info:', error);
         }
-      });
-    } catch (error) {
-      console.error('Failed to process PDF:', error);
-      this.isUploading.set(false);
-    }
+      },
+      error: err => {
+        this.isUploading.set(false);
+      }
+    });
   }
 
   onFileRemoved() {
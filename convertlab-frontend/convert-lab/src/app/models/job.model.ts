@@ -0,0 +1,24 @@
+export enum JobType {
+  EXTRACT = 'EXTRACT',
+  MERGE = 'MERGE',
+  SPLIT = 'SPLIT',
+  IMAGES_TO_PDF = 'IMAGES_TO_PDF'
+}
+
+export enum JobStatus {
+  QUEUED = 'QUEUED',
+  RUNNING = 'RUNNING',
+  SUCCEEDED = 'SUCCEEDED',
+  FAILED = 'FAILED'
+}
+
+export interface Job {
+  jobId: string;
+  type: JobType;
+  status: JobStatus;
+  fileName: string;
+  createdAt: string;
+  startedAt?: string;
+  finishedAt?: string;
+  error?: { message: string; code: string };
+}
@@ -0,0 +1,16 @@
+export interface PdfPageMetadata {
+  number: number;
+  width: number; // points
+  height: number; // points
+  rotation: number;
+}
+
+export interface PdfManifest {
+  assetId: string;
+  fileName: string;
+  byteSize: number;
+  contentHash: string;
+  encrypted: boolean;
+  pageCount: number;
+  pages: PdfPageMetadata[];
+}
@@ -2,9 +2,17 @@ export interface SplitPdfRequest {
   fileId: string;
   pageRange: string;
   splitType: SplitType;
+  compression?: ZipCompression; // server default when omitted
+  compressionLevel?: number; // 0-9, DEFLATED only
 }
 
 export enum SplitType {
   EACH_PAGE = 'EACH_PAGE',
   BY_RANGE = 'BY_RANGE'
 }
+
+
+export enum ZipCompression {
+  STORED = 'STORED',
+  DEFLATED = 'DEFLATED'
+}
@@ -1,6 +1,6 @@
 import { inject, Injectable } from '@angular/core';
 import { environment } from '../../environments/environment';
-import { HttpService } from './http.service';
+import { ApiResponse, HttpService } from './http.service';
 import { PdfExtractRequest } from '../models/extract-pdf.model';
 import { HttpContext, HttpResponse } from '@angular/common/http';
 import { Observable } from 'rxjs';
@@ -8,6 +8,8 @@ import { IS_BLOB_REQUEST, SUPPRESS_ERROR } from '../interceptors/http-context';
 import { MergePdfRequest } from '../models/merge-pdf.model';
 import { SplitPdfRequest } from '../models/split-pdf.model';
 import { ImageToPdfRequest } from '../models/image-to-pdf.model';
+import { PdfManifest } from '../models/pdf-manifest.model';
+import { Job } from '../models/job.model';
 
 @Injectable({
   providedIn: 'root',
@@ -16,6 +18,23 @@ export class PdfService {
   private readonly apiUrl = environment.apiUrl;
   private readonly httpService = inject(HttpService);
 
+  getPdfManifest(fileId: string): Observable<ApiResponse<PdfManifest>> {
+    return this.httpService.get<ApiResponse<PdfManifest>>(
+      `${this.apiUrl}/pdf/${encodeURIComponent(fileId)}/manifest`
+    );
+  }
+
+  /**
+   * URL of a server-rendered page thumbnail, the server picks its default width when none is given
+   */
+  getThumbnailUrl(fileId: string, page = 1, width?: number): string {
+    const params = new URLSearchParams({ page: String(page) });
+    if (width) {
+      params.set('width', String(width));
+    }
+    return `${this.apiUrl}/pdf/thumbnail/${encodeURIComponent(fileId)}?${params}`;
+  }
+
   extractPdf(request: PdfExtractRequest): Observable<HttpResponse<Blob>> {
     return this.httpService.post<HttpResponse<Blob>>(`${this.apiUrl}/pdf/extract`,
       request,
@@ -57,4 +76,27 @@ export class PdfService {
       }
     );
   }
+
+  submitMergeJob(request: MergePdfRequest): Observable<ApiResponse<Job>> {
+    return this.httpService.post<ApiResponse<Job>>(`${this.apiUrl}/jobs/merge`, request);
+  }
+
+  submitSplitJob(request: SplitPdfRequest): Observable<ApiResponse<Job>> {
+    return this.httpService.post<ApiResponse<Job>>(`${this.apiUrl}/jobs/split`, request);
+  }
+
+  getJob(jobId: string): Observable<ApiResponse<Job>> {
+    return this.httpService.get<ApiResponse<Job>>(`${this.apiUrl}/jobs/${encodeURIComponent(jobId)}`);
+  }
+
+  downloadJobResult(jobId: string): Observable<HttpResponse<Blob>> {
+    return this.httpService.get<HttpResponse<Blob>>(
+      `${this.apiUrl}/jobs/${encodeURIComponent(jobId)}/result`,
+      {
+        responseType: 'blob',
+        observe: 'response',
+        context: new HttpContext().set(IS_BLOB_REQUEST, true)
+      }
+    );
+  }
 }